@@ -37,6 +37,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.reporting.SolutionPrinter;
+import com.graphhopper.jsprit.core.util.AsyncRecordWriter;
 import com.graphhopper.jsprit.core.util.Coordinate;
 import com.graphhopper.jsprit.core.util.Solutions;
 import org.graphstream.graph.Edge;
@@ -55,6 +56,57 @@ import java.util.zip.GZIPOutputStream;
  */
 public class AlgorithmEventsRecorder implements RuinListener, IterationStartsListener, InsertionStartsListener, BeforeJobInsertionListener, InsertionEndsListener, AlgorithmEndsListener {
 
+    /*
+     * solutions at the start of an iteration. only job ids are captured on the search thread, the lines are formatted by the writer thread.
+     */
+    private static class IterationRecord implements AsyncRecordWriter.Record {
+
+        private final int iteration;
+
+        private final double[] costs;
+
+        private final String[][][] jobIds;
+
+        IterationRecord(int iteration, Collection<VehicleRoutingProblemSolution> solutions) {
+            this.iteration = iteration;
+            this.costs = new double[solutions.size()];
+            this.jobIds = new String[solutions.size()][][];
+            int s = 0;
+            for (VehicleRoutingProblemSolution sol : solutions) {
+                costs[s] = sol.getCost();
+                jobIds[s] = new String[sol.getRoutes().size()][];
+                int r = 0;
+                for (VehicleRoute route : sol.getRoutes()) {
+                    String[] routeJobIds = new String[route.getTourActivities().getJobs().size()];
+                    int j = 0;
+                    for (Job job : route.getTourActivities().getJobs()) routeJobIds[j++] = job.getId();
+                    jobIds[s][r++] = routeJobIds;
+                }
+                s++;
+            }
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            writer.write("iteration " + iteration);
+            writer.write("\r\n");
+            for (int s = 0; s < costs.length; s++) {
+                writer.write("===found solution with cost " + costs[s]);
+                for (String[] routeJobIds : jobIds[s]) {
+                    writer.write(" | ");
+                    for (String jobId : routeJobIds) {
+                        writer.write(jobId);
+                        writer.write(",");
+                    }
+                    writer.write(" | ");
+                }
+                writer.write("finished===\r\n");
+            }
+            writer.write("\r\n");
+        }
+
+    }
+
     private boolean renderShipments = false;
 
     public static final int BEFORE_RUIN_RENDER_SOLUTION = 2;
@@ -82,6 +134,8 @@ public class AlgorithmEventsRecorder implements RuinListener, IterationStartsLis
 
     private VehicleRoutingProblem vrp;
 
+    private AsyncRecordWriter iterationLog;
+
     public AlgorithmEventsRecorder(VehicleRoutingProblem vrp, String dgsFileLocation) {
         this.vrp = vrp;
         graph = new MultiGraph("g");
@@ -102,6 +156,16 @@ public class AlgorithmEventsRecorder implements RuinListener, IterationStartsLis
         initialiseGraph(vrp);
     }
 
+    /**
+     * Sets the writer the solutions at the start of each iteration are recorded to. By default, iterations are not
+     * recorded. The caller owns the writer, i.e. it must close it once the search has finished.
+     *
+     * @param iterationLog the writer, or null if iterations should not be recorded
+     */
+    public void setIterationLog(AsyncRecordWriter iterationLog) {
+        this.iterationLog = iterationLog;
+    }
+
     public void setRecordingRange(int startIteration, int endIteration) {
         this.start_recording_at = startIteration;
         this.end_recording_at = endIteration;
@@ -292,34 +356,7 @@ public class AlgorithmEventsRecorder implements RuinListener, IterationStartsLis
     @Override
     public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
         currentIteration = i;
-        StringBuilder stringBuilder=new StringBuilder();
-        stringBuilder.append("iteration "+i);
-        stringBuilder.append("\r\n");
-        for (VehicleRoutingProblemSolution sol:solutions){
-
-            stringBuilder.append("===found solution with cost "+sol.getCost());
-            for (VehicleRoute route:sol.getRoutes()){
-                stringBuilder.append(" | ");
-                for (Job job:route.getTourActivities().getJobs()) {
-                    stringBuilder.append(job.getId()+",");
-                }
-                stringBuilder.append(" | ");
-            }
-            stringBuilder.append("finished===\r\n");
-
-        }
-        stringBuilder.append("\r\n");
-
-        try {
-
-            PrintWriter writer= new PrintWriter(new FileOutputStream(new File("/var/www/java/jsprit/iteration.txt"),true));
-            writer.append(stringBuilder.toString());
-            writer.close();
-        }catch (FileNotFoundException e){
-
-        }
-
-
+        if (iterationLog != null) iterationLog.record(new IterationRecord(i, solutions));
     }
 
     private void initialiseGraph(VehicleRoutingProblem problem) {
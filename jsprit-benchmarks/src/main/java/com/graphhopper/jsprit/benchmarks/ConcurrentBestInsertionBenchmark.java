@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionBuilder;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.algorithm.state.UpdateActivityTimes;
+import com.graphhopper.jsprit.core.algorithm.state.UpdateVariableCosts;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long best insertion takes to construct a solution from scratch, i.e. to insert all jobs of a random
+ * problem into empty routes. noThreads=1 is the sequential baseline, otherwise the concurrent best insertion is used.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBestInsertionBenchmark {
+
+    @Param({"1300"})
+    public int noJobs;
+
+    @Param({"1", "4", "17"})
+    public int noThreads;
+
+    private VehicleRoutingProblem vrp;
+
+    private ExecutorService executorService;
+
+    private InsertionStrategy bestInsertion;
+
+    private List<VehicleRoute> routes;
+
+    @Setup
+    public void setup() {
+        vrp = createProblem(noJobs);
+        if (noThreads > 1) executorService = Executors.newFixedThreadPool(noThreads);
+    }
+
+    @Setup(Level.Invocation)
+    public void createInsertion() {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.addStateUpdater(new UpdateActivityTimes(vrp.getTransportCosts(), vrp.getActivityCosts()));
+        stateManager.addStateUpdater(new UpdateVariableCosts(vrp.getActivityCosts(), vrp.getTransportCosts(), stateManager));
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        VehicleFleetManager fleetManager = new InfiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        InsertionBuilder insertionBuilder = new InsertionBuilder(vrp, fleetManager, stateManager, constraintManager)
+            .setInsertionStrategy(InsertionBuilder.Strategy.BEST);
+        if (executorService != null) insertionBuilder.setConcurrentMode(executorService, noThreads);
+        bestInsertion = insertionBuilder.build();
+        bestInsertion.addListener(stateManager);
+        routes = new ArrayList<VehicleRoute>();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executorService != null) executorService.shutdown();
+    }
+
+    @Benchmark
+    public Collection<Job> insertJobs() {
+        return bestInsertion.insertJobs(routes, vrp.getJobs().values());
+    }
+
+    private static VehicleRoutingProblem createProblem(int noJobs) {
+        Random random = new Random(4711);
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 20).setCostPerDistance(1.).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(50, 50)).setType(type).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .setFleetSize(VehicleRoutingProblem.FleetSize.INFINITE);
+        for (int i = 0; i < noJobs; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+}
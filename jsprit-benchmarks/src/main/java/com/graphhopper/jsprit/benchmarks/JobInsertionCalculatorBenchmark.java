@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
+import com.graphhopper.jsprit.core.algorithm.recreate.JobInsertionCostsCalculator;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one call of JobInsertionCostsCalculator.getInsertionData, i.e. the best insertion position of an unassigned
+ * job in one route. Solomon instances (services) run ServiceInsertionCalculator, Li-Lim instances (shipments) run
+ * ShipmentInsertionCalculator.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JobInsertionCalculatorBenchmark {
+
+    @Param({"R101", "C101", "RC101", "R201", "lr101", "lc101", "lrc101", "lr201"})
+    public String instance;
+
+    private VehicleRoute[] routes;
+
+    private Job[] jobs;
+
+    private JobInsertionCostsCalculator calculator;
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        SolutionFixture fixture = new SolutionFixture(instance, 0.2);
+        routes = fixture.routes.toArray(new VehicleRoute[fixture.routes.size()]);
+        jobs = fixture.unassignedJobs.toArray(new Job[fixture.unassignedJobs.size()]);
+        calculator = fixture.createInsertionCostsCalculator();
+    }
+
+    @Benchmark
+    public InsertionData getInsertionData() {
+        int pair = next++;
+        if (next == routes.length * jobs.length) next = 0;
+        VehicleRoute route = routes[pair % routes.length];
+        Job job = jobs[pair / routes.length];
+        return calculator.getInsertionData(route, job, route.getVehicle(), route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionBuilder;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the recreate step of RegretInsertionFast and RegretInsertionConcurrentFast, i.e. the insertion of the
+ * unassigned jobs (20% of all jobs) into the routes.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RegretInsertionBenchmark {
+
+    @Param({"R101", "C101", "RC101", "lr101", "lc101"})
+    public String instance;
+
+    @Param({"1", "4"})
+    public int noThreads;
+
+    private SolutionFixture fixture;
+
+    private ExecutorService executorService;
+
+    private InsertionStrategy regretInsertion;
+
+    private List<VehicleRoute> routes;
+
+    @Setup
+    public void setup() {
+        fixture = new SolutionFixture(instance, 0.2);
+        if (noThreads > 1) executorService = Executors.newFixedThreadPool(noThreads);
+        regretInsertion = fixture.createInsertion(InsertionBuilder.Strategy.REGRET, true, executorService, noThreads);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyRoutes() {
+        routes = fixture.copyRoutes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executorService != null) executorService.shutdown();
+    }
+
+    @Benchmark
+    public Collection<Job> insertJobs() {
+        return regretInsertion.insertJobs(routes, fixture.unassignedJobs);
+    }
+
+}
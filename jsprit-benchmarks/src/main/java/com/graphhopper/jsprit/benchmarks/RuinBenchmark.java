@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoodsFactory;
+import com.graphhopper.jsprit.core.algorithm.ruin.RuinClusters;
+import com.graphhopper.jsprit.core.algorithm.ruin.RuinRadial;
+import com.graphhopper.jsprit.core.algorithm.ruin.RuinStrategy;
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.AvgServiceAndShipmentDistance;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RuinRadial and RuinClusters removing 10% of the jobs of a complete solution.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RuinBenchmark {
+
+    @Param({"R101", "C101", "RC101", "lr101", "lc101"})
+    public String instance;
+
+    @Param({"radial", "clusters"})
+    public String ruin;
+
+    private SolutionFixture fixture;
+
+    private RuinStrategy ruinStrategy;
+
+    private List<VehicleRoute> routes;
+
+    @Setup
+    public void setup() {
+        fixture = new SolutionFixture(instance, 0.);
+        int noJobs = Math.max(1, fixture.vrp.getJobs().size() / 10);
+        JobNeighborhoods neighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(fixture.vrp,
+            new AvgServiceAndShipmentDistance(fixture.vrp.getTransportCosts()), fixture.vrp.getJobs().size());
+        neighborhoods.initialise();
+        if (ruin.equals("radial")) ruinStrategy = new RuinRadial(fixture.vrp, noJobs, neighborhoods);
+        else ruinStrategy = new RuinClusters(fixture.vrp, noJobs, neighborhoods);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyRoutes() {
+        routes = fixture.copyRoutes();
+    }
+
+    @Benchmark
+    public Collection<Job> ruin() {
+        return ruinStrategy.ruin(routes);
+    }
+
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionBuilder;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
+import com.graphhopper.jsprit.core.algorithm.recreate.JobInsertionCostsCalculator;
+import com.graphhopper.jsprit.core.algorithm.recreate.JobInsertionCostsCalculatorBuilder;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.algorithm.state.UpdateActivityTimes;
+import com.graphhopper.jsprit.core.algorithm.state.UpdateVariableCosts;
+import com.graphhopper.jsprit.core.algorithm.state.UpdateVehicleDependentPracticalTimeWindows;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.instance.reader.LiLimReader;
+import com.graphhopper.jsprit.instance.reader.SolomonReader;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Problem and partial solution the benchmarks run on.
+ * <p>
+ * <p>Instances are read from the directory specified by the system property <code>jsprit.instances</code>. By default,
+ * it is <code>jsprit-instances/instances</code> or <code>../jsprit-instances/instances</code>, i.e. benchmarks can be
+ * run from the project root or from this module. A share of jobs is left unassigned, all other jobs are inserted with
+ * best insertion, thus the routes look like routes during ruin and recreate.
+ *
+ * @author schroeder
+ */
+class SolutionFixture {
+
+    static File getInstance(String instance) {
+        String dir = System.getProperty("jsprit.instances");
+        if (dir == null) {
+            dir = "jsprit-instances/instances";
+            if (!new File(dir).exists()) dir = "../jsprit-instances/instances";
+        }
+        File file = new File(dir, instance);
+        if (!file.exists())
+            throw new IllegalStateException("cannot find instance " + file.getAbsolutePath() + ". set -Djsprit.instances=<dir of jsprit-instances/instances>");
+        return file;
+    }
+
+    /**
+     * Reads a Solomon instance (e.g. R101) or a Li-Lim instance (e.g. lr101).
+     */
+    static VehicleRoutingProblem read(String instance) {
+        return read(instance, VehicleRoutingProblem.Builder.newInstance());
+    }
+
+    static VehicleRoutingProblem read(String instance, VehicleRoutingProblem.Builder vrpBuilder) {
+        if (Character.isUpperCase(instance.charAt(0))) {
+            new SolomonReader(vrpBuilder).read(getInstance("solomon/" + instance + ".txt").getPath());
+        } else {
+            new LiLimReader(vrpBuilder).read(getInstance("lilim/" + instance + ".txt").getPath());
+        }
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.INFINITE);
+        return vrpBuilder.build();
+    }
+
+    final VehicleRoutingProblem vrp;
+
+    final StateManager stateManager;
+
+    final ConstraintManager constraintManager;
+
+    final VehicleFleetManager fleetManager;
+
+    final List<VehicleRoute> routes;
+
+    final List<Job> unassignedJobs;
+
+    SolutionFixture(String instance, double shareOfUnassignedJobs) {
+        vrp = read(instance);
+        stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.updateTimeWindowStates();
+        stateManager.addStateUpdater(new UpdateVehicleDependentPracticalTimeWindows(stateManager, vrp.getTransportCosts(), vrp.getActivityCosts()));
+        stateManager.addStateUpdater(new UpdateActivityTimes(vrp.getTransportCosts(), vrp.getActivityCosts()));
+        stateManager.addStateUpdater(new UpdateVariableCosts(vrp.getActivityCosts(), vrp.getTransportCosts(), stateManager));
+        constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addTimeWindowConstraint();
+        constraintManager.addLoadConstraint();
+        fleetManager = new InfiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+
+        List<Job> jobs = new ArrayList<Job>(vrp.getJobs().values());
+        Collections.shuffle(jobs, new Random(4711));
+        int noUnassigned = (int) (jobs.size() * shareOfUnassignedJobs);
+        unassignedJobs = new ArrayList<Job>(jobs.subList(0, noUnassigned));
+        routes = new ArrayList<VehicleRoute>();
+        InsertionStrategy bestInsertion = createInsertion(InsertionBuilder.Strategy.BEST, false, null, 0);
+        bestInsertion.insertJobs(routes, jobs.subList(noUnassigned, jobs.size()));
+        stateManager.informInsertionStarts(routes, unassignedJobs);
+    }
+
+    JobInsertionCostsCalculator createInsertionCostsCalculator() {
+        JobInsertionCostsCalculatorBuilder calcBuilder = new JobInsertionCostsCalculatorBuilder(new ArrayList<InsertionListener>(),
+            new ArrayList<VehicleRoutingAlgorithmListeners.PrioritizedVRAListener>());
+        calcBuilder.setLocalLevel(true);
+        calcBuilder.setConstraintManager(constraintManager);
+        calcBuilder.setStateManager(stateManager);
+        calcBuilder.setVehicleRoutingProblem(vrp);
+        calcBuilder.setVehicleFleetManager(fleetManager);
+        return calcBuilder.build();
+    }
+
+    InsertionStrategy createInsertion(InsertionBuilder.Strategy strategy, boolean fastRegret, ExecutorService executorService, int noThreads) {
+        InsertionBuilder insertionBuilder = new InsertionBuilder(vrp, fleetManager, stateManager, constraintManager)
+            .setInsertionStrategy(strategy).setFastRegret(fastRegret);
+        if (executorService != null) insertionBuilder.setConcurrentMode(executorService, noThreads);
+        InsertionStrategy insertion = insertionBuilder.build();
+        insertion.addListener(stateManager);
+        return insertion;
+    }
+
+    /**
+     * Returns copies of the routes, i.e. they can be modified by a benchmark.
+     */
+    List<VehicleRoute> copyRoutes() {
+        List<VehicleRoute> copies = new ArrayList<VehicleRoute>(routes.size());
+        for (VehicleRoute route : routes) copies.add(VehicleRoute.copyOf(route));
+        return copies;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures state updates with the updaters of the core algorithm (loads, practical time windows, activity times and
+ * variable costs), i.e. the update of all routes when insertion starts and the update of one route after a job has
+ * been inserted.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StateManagerBenchmark {
+
+    @Param({"R101", "C101", "RC101", "R201", "lr101", "lc101"})
+    public String instance;
+
+    private StateManager stateManager;
+
+    private List<VehicleRoute> routes;
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        SolutionFixture fixture = new SolutionFixture(instance, 0.);
+        stateManager = fixture.stateManager;
+        routes = fixture.routes;
+    }
+
+    @Benchmark
+    public StateManager updateAllRoutes() {
+        stateManager.informInsertionStarts(routes, Collections.<Job>emptyList());
+        return stateManager;
+    }
+
+    @Benchmark
+    public StateManager updateOneRoute() {
+        VehicleRoute route = routes.get(next++);
+        if (next == routes.size()) next = 0;
+        stateManager.reCalculateStates(route);
+        return stateManager;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.util.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures transport cost and time lookups of each VehicleRoutingTransportCosts implementation for random relations
+ * between the locations of an instance. Matrices are filled with euclidean distances, the coordinate matrix caches the
+ * crow fly costs of the problem.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TransportCostsBenchmark {
+
+    private static final int NO_RELATIONS = 4096;
+
+    @Param({"R101", "lr101"})
+    public String instance;
+
+    @Param({"euclidean", "crowFly", "manhattan", "greatCircle", "matrix", "fastMatrix", "coordinateMatrix", "mappedMatrix"})
+    public String costs;
+
+    private VehicleRoutingTransportCosts transportCosts;
+
+    private Vehicle vehicle;
+
+    private Location[] from = new Location[NO_RELATIONS];
+
+    private Location[] to = new Location[NO_RELATIONS];
+
+    private int next = 0;
+
+    private File matrixFile;
+
+    @Setup
+    public void setup() throws IOException {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        if (costs.equals("coordinateMatrix")) vrpBuilder.cacheRoutingCosts(true);
+        VehicleRoutingProblem vrp = SolutionFixture.read(instance, vrpBuilder);
+        vehicle = vrp.getVehicles().iterator().next();
+        final Map<String, Location> locationsById = new TreeMap<String, Location>();
+        for (Location location : vrp.getAllLocations()) {
+            if (location.getCoordinate() != null) locationsById.put(location.getId(), location);
+        }
+        final List<Location> locations = new ArrayList<Location>();
+        if (costs.equals("coordinateMatrix")) {
+            //the problem caches its routing costs in a CoordinateTransportCostsMatrix, which is looked up by problem index
+            locations.addAll(locationsById.values());
+            transportCosts = vrp.getTransportCosts();
+        } else {
+            for (Location location : locationsById.values()) {
+                locations.add(Location.Builder.newInstance().setIndex(locations.size()).setId(location.getId()).setCoordinate(location.getCoordinate()).build());
+            }
+            Locations coordinates = new Locations() {
+
+                @Override
+                public Coordinate getCoord(String id) {
+                    return locationsById.get(id).getCoordinate();
+                }
+
+            };
+            transportCosts = createCosts(locations, coordinates);
+        }
+        Random random = new Random(4711);
+        for (int i = 0; i < NO_RELATIONS; i++) {
+            from[i] = locations.get(random.nextInt(locations.size()));
+            to[i] = locations.get(random.nextInt(locations.size()));
+        }
+    }
+
+    private VehicleRoutingTransportCosts createCosts(List<Location> locations, Locations coordinates) throws IOException {
+        if (costs.equals("euclidean")) return new EuclideanCosts();
+        if (costs.equals("crowFly")) return new CrowFlyCosts(coordinates);
+        if (costs.equals("manhattan")) return new ManhattanCosts(coordinates);
+        if (costs.equals("greatCircle")) return new GreatCircleCosts();
+        int n = locations.size();
+        if (costs.equals("matrix")) {
+            VehicleRoutingTransportCostsMatrix.Builder builder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+            for (Location i : locations) {
+                for (Location j : locations) {
+                    double distance = EuclideanDistanceCalculator.calculateDistance(i.getCoordinate(), j.getCoordinate());
+                    builder.addTransportDistance(i.getId(), j.getId(), distance).addTransportTime(i.getId(), j.getId(), distance);
+                }
+            }
+            return builder.build();
+        }
+        if (costs.equals("fastMatrix")) {
+            FastVehicleRoutingTransportCostsMatrix.Builder builder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(n, false);
+            for (Location i : locations) {
+                for (Location j : locations) {
+                    double distance = EuclideanDistanceCalculator.calculateDistance(i.getCoordinate(), j.getCoordinate());
+                    builder.addTransportDistance(i.getIndex(), j.getIndex(), distance).addTransportTime(i.getIndex(), j.getIndex(), distance);
+                }
+            }
+            return builder.build();
+        }
+        if (costs.equals("mappedMatrix")) {
+            matrixFile = File.createTempFile("matrix", ".bin");
+            MappedVehicleRoutingTransportCostsMatrixWriter writer = MappedVehicleRoutingTransportCostsMatrixWriter.newInstance(matrixFile, n, false, MappedVehicleRoutingTransportCostsMatrix.Precision.DOUBLE);
+            for (Location i : locations) {
+                for (Location j : locations) {
+                    double distance = EuclideanDistanceCalculator.calculateDistance(i.getCoordinate(), j.getCoordinate());
+                    writer.addTransportDistance(i.getIndex(), j.getIndex(), distance).addTransportTime(i.getIndex(), j.getIndex(), distance);
+                }
+            }
+            writer.close();
+            return MappedVehicleRoutingTransportCostsMatrix.open(matrixFile);
+        }
+        throw new IllegalArgumentException("unknown transport costs " + costs);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (matrixFile != null) matrixFile.delete();
+    }
+
+    @Benchmark
+    public double getTransportCost() {
+        int relation = next++ & (NO_RELATIONS - 1);
+        return transportCosts.getTransportCost(from[relation], to[relation], 0., null, vehicle);
+    }
+
+    @Benchmark
+    public double getTransportTime() {
+        int relation = next++ & (NO_RELATIONS - 1);
+        return transportCosts.getTransportTime(from[relation], to[relation], 0., null, vehicle);
+    }
+
+}
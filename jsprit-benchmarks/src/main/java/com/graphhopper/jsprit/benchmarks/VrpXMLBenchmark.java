@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.io.VrpBinaryReader;
+import com.graphhopper.jsprit.core.problem.io.VrpBinaryWriter;
+import com.graphhopper.jsprit.core.problem.io.VrpXMLReader;
+import com.graphhopper.jsprit.core.problem.io.VrpXMLStreamReader;
+import com.graphhopper.jsprit.core.problem.io.VrpXMLStreamWriter;
+import com.graphhopper.jsprit.core.problem.io.VrpXMLWriter;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing problem files with the configuration-based VrpXMLReader/VrpXMLWriter and the
+ * streaming VrpXMLStreamReader/VrpXMLStreamWriter, and with the binary snapshot of VrpBinaryReader/VrpBinaryWriter.
+ * Problems consist of randomly located services with time windows.
+ *
+ * @author schroeder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VrpXMLBenchmark {
+
+    @Param({"1300", "10000"})
+    public int noServices;
+
+    @Param({"configuration", "stream", "binary"})
+    public String io;
+
+    private VehicleRoutingProblem vrp;
+
+    private File problemFile;
+
+    private File outFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(4711);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 200).setCostPerDistance(1.).build();
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + i).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < noServices; i++) {
+            double start = random.nextInt(500);
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1 + random.nextInt(10)).setServiceTime(10.)
+                .setLocation(Location.newInstance(random.nextInt(1000), random.nextInt(1000))).addTimeWindow(start, start + 100.).build());
+        }
+        vrp = vrpBuilder.build();
+        problemFile = File.createTempFile("vrp", ".xml");
+        outFile = File.createTempFile("vrp-out", ".xml");
+        if (io.equals("binary")) new VrpBinaryWriter(vrp).write(problemFile.getPath());
+        else new VrpXMLStreamWriter(vrp).write(problemFile.getPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        problemFile.delete();
+        outFile.delete();
+    }
+
+    @Benchmark
+    public VehicleRoutingProblem read() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        if (io.equals("binary")) return new VrpBinaryReader(vrpBuilder).read(problemFile.getPath());
+        if (io.equals("configuration")) new VrpXMLReader(vrpBuilder).read(problemFile.getPath());
+        else new VrpXMLStreamReader(vrpBuilder).read(problemFile.getPath());
+        return vrpBuilder.build();
+    }
+
+    @Benchmark
+    public long write() {
+        if (io.equals("binary")) new VrpBinaryWriter(vrp).write(outFile.getPath());
+        else if (io.equals("configuration")) new VrpXMLWriter(vrp).write(outFile.getPath());
+        else new VrpXMLStreamWriter(vrp).write(outFile.getPath());
+        return outFile.length();
+    }
+
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmStartsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.StrategySelectedListener;
+import com.graphhopper.jsprit.core.algorithm.listener.StrategyStatisticsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListener;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Adapts the weights of the {@link SearchStrategyManager} to the success of its search strategies (adaptive large
+ * neighborhood search).
+ * <p>
+ * <p>Each strategy run is scored: a new best solution scores newBestScore, a solution better than the one the strategy
+ * has started from scores improvementScore and any other accepted solution scores acceptedScore. At the end of each
+ * segment of segmentLength iterations, the score each strategy has achieved per nanosecond of computation time
+ * determines its share of the weights of the strategies that have run in this segment, and its weight becomes
+ * <p>
+ * <p>weight = (1 - reactionFactor) * weight + reactionFactor * share
+ * <p>
+ * <p>Strategies that have not run in a segment keep their weight, strategies with initial weight 0 are never selected.
+ * To keep all other strategies selectable, weights do not drop below minShare of the sum of the adapted weights.
+ * <p>
+ * <p>Since computation time is measured as elapsed time, the weights depend on the load of the machine and the search is
+ * not reproducible anymore, even with a fixed random number generator. Register a {@link StrategyStatisticsListener}
+ * at the algorithm to get the statistics whenever the weights have been updated.
+ *
+ * @author schroeder
+ */
+public class AdaptiveStrategySelection implements AlgorithmStartsListener, IterationStartsListener, StrategySelectedListener {
+
+    /**
+     * Statistics of a search strategy since the algorithm has started.
+     */
+    public static class StrategyStatistics {
+
+        private final String strategyId;
+
+        private double weight;
+
+        private int noRuns;
+
+        private int noNewBest;
+
+        private int noImprovements;
+
+        private int noAccepted;
+
+        private long computationTime;
+
+        private double segmentScore;
+
+        private long segmentComputationTime;
+
+        private int segmentRuns;
+
+        private double lastScoreRate;
+
+        StrategyStatistics(String strategyId, double weight) {
+            this.strategyId = strategyId;
+            this.weight = weight;
+        }
+
+        public String getStrategyId() {
+            return strategyId;
+        }
+
+        /**
+         * Returns the current selection weight.
+         *
+         * @return weight
+         */
+        public double getWeight() {
+            return weight;
+        }
+
+        public int getNoRuns() {
+            return noRuns;
+        }
+
+        public int getNoNewBest() {
+            return noNewBest;
+        }
+
+        public int getNoImprovements() {
+            return noImprovements;
+        }
+
+        public int getNoAccepted() {
+            return noAccepted;
+        }
+
+        /**
+         * Returns the time in nanoseconds the strategy has been running.
+         *
+         * @return computation time in nanoseconds
+         */
+        public long getComputationTime() {
+            return computationTime;
+        }
+
+        /**
+         * Returns the score per second of computation time the strategy has achieved in the last segment it has run.
+         *
+         * @return score per second
+         */
+        public double getLastScoreRate() {
+            return lastScoreRate;
+        }
+
+        @Override
+        public String toString() {
+            return "[strategyId=" + strategyId + "][weight=" + weight + "][#runs=" + noRuns + "][#newBest=" + noNewBest
+                + "][#improvements=" + noImprovements + "][#accepted=" + noAccepted + "][time=" + computationTime / 1.0e9
+                + "s][lastScoreRate=" + lastScoreRate + "]";
+        }
+    }
+
+    private static Logger logger = LogManager.getLogger(AdaptiveStrategySelection.class);
+
+    private double reactionFactor = 0.1;
+
+    private int segmentLength = 100;
+
+    private double newBestScore = 33.;
+
+    private double improvementScore = 9.;
+
+    private double acceptedScore = 13.;
+
+    private double minShare = 0.01;
+
+    private SearchStrategyManager strategyManager;
+
+    private Map<String, StrategyStatistics> statistics = new LinkedHashMap<String, StrategyStatistics>();
+
+    private List<StrategyStatisticsListener> listeners = new ArrayList<StrategyStatisticsListener>();
+
+    private double bestCost;
+
+    private int iteration;
+
+    /**
+     * Sets the reaction factor r, i.e. how fast weights follow the scores of the last segment. Default is 0.1.
+     *
+     * @param reactionFactor reaction factor in [0,1]
+     */
+    public void setReactionFactor(double reactionFactor) {
+        if (reactionFactor < 0. || reactionFactor > 1.)
+            throw new IllegalArgumentException("reaction factor must be in [0,1]");
+        this.reactionFactor = reactionFactor;
+    }
+
+    /**
+     * Sets the number of iterations after which weights are updated. Default is 100.
+     *
+     * @param segmentLength number of iterations of a segment
+     */
+    public void setSegmentLength(int segmentLength) {
+        if (segmentLength < 1) throw new IllegalArgumentException("segment length must be greater than zero");
+        this.segmentLength = segmentLength;
+    }
+
+    /**
+     * Sets the scores of a strategy run. Defaults are 33 for a new best solution, 9 for an improvement of the solution
+     * the strategy has started from and 13 for any other accepted solution.
+     *
+     * @param newBestScore     score if strategy has found a new best solution
+     * @param improvementScore score if strategy has improved the solution it has started from
+     * @param acceptedScore    score if solution has been accepted
+     */
+    public void setScores(double newBestScore, double improvementScore, double acceptedScore) {
+        if (newBestScore < 0. || improvementScore < 0. || acceptedScore < 0.)
+            throw new IllegalArgumentException("scores must not be negative");
+        this.newBestScore = newBestScore;
+        this.improvementScore = improvementScore;
+        this.acceptedScore = acceptedScore;
+    }
+
+    /**
+     * Sets the share of the sum of adapted weights a weight does not drop below. Default is 0.01.
+     *
+     * @param minShare min share in [0,1]
+     */
+    public void setMinShare(double minShare) {
+        if (minShare < 0. || minShare > 1.) throw new IllegalArgumentException("min share must be in [0,1]");
+        this.minShare = minShare;
+    }
+
+    public void addListener(StrategyStatisticsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the statistics of all strategies with a positive initial weight.
+     *
+     * @return statistics
+     */
+    public Collection<StrategyStatistics> getStatistics() {
+        return Collections.unmodifiableCollection(statistics.values());
+    }
+
+    @Override
+    public void informAlgorithmStarts(VehicleRoutingProblem problem, VehicleRoutingAlgorithm algorithm, Collection<VehicleRoutingProblemSolution> solutions) {
+        strategyManager = algorithm.getSearchStrategyManager();
+        statistics.clear();
+        for (SearchStrategy strategy : strategyManager.getStrategies()) {
+            double weight = strategyManager.getWeight(strategy.getId());
+            if (weight > 0.) statistics.put(strategy.getId(), new StrategyStatistics(strategy.getId(), weight));
+        }
+        for (VehicleRoutingAlgorithmListener l : algorithm.getAlgorithmListeners().getAlgorithmListeners()) {
+            if (l instanceof StrategyStatisticsListener && !listeners.contains(l))
+                listeners.add((StrategyStatisticsListener) l);
+        }
+        bestCost = Double.MAX_VALUE;
+        iteration = 0;
+    }
+
+    @Override
+    public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        if (i == 1) {
+            VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+            if (best != null) bestCost = best.getCost();
+        }
+        iteration = i;
+    }
+
+    @Override
+    public void informSelectedStrategy(SearchStrategy.DiscoveredSolution discoveredSolution, VehicleRoutingProblem vehicleRoutingProblem, Collection<VehicleRoutingProblemSolution> vehicleRoutingProblemSolutions) {
+        StrategyStatistics strategyStatistics = statistics.get(discoveredSolution.getStrategyId());
+        double cost = discoveredSolution.getSolution().getCost();
+        if (strategyStatistics != null) {
+            strategyStatistics.noRuns++;
+            strategyStatistics.segmentRuns++;
+            strategyStatistics.computationTime += discoveredSolution.getComputationTime();
+            strategyStatistics.segmentComputationTime += discoveredSolution.getComputationTime();
+            if (cost < bestCost) {
+                strategyStatistics.noNewBest++;
+                strategyStatistics.segmentScore += newBestScore;
+            } else if (cost < discoveredSolution.getCostOfSelectedSolution()) {
+                strategyStatistics.noImprovements++;
+                strategyStatistics.segmentScore += improvementScore;
+            } else if (discoveredSolution.isAccepted()) {
+                strategyStatistics.noAccepted++;
+                strategyStatistics.segmentScore += acceptedScore;
+            }
+        }
+        if (cost < bestCost) bestCost = cost;
+        if (iteration % segmentLength == 0) updateWeights();
+    }
+
+    private void updateWeights() {
+        double sumWeights = 0.;
+        double sumScoreRates = 0.;
+        for (StrategyStatistics s : statistics.values()) {
+            if (s.segmentRuns == 0) continue;
+            s.lastScoreRate = s.segmentScore / Math.max(1L, s.segmentComputationTime) * 1.0e9;
+            sumWeights += s.weight;
+            sumScoreRates += s.lastScoreRate;
+        }
+        double sumAdaptedWeights = 0.;
+        for (StrategyStatistics s : statistics.values()) {
+            if (s.segmentRuns == 0) continue;
+            double share = sumScoreRates > 0. ? sumWeights * s.lastScoreRate / sumScoreRates : 0.;
+            s.weight = (1. - reactionFactor) * s.weight + reactionFactor * share;
+            sumAdaptedWeights += s.weight;
+        }
+        for (StrategyStatistics s : statistics.values()) {
+            if (s.segmentRuns == 0) continue;
+            s.weight = Math.max(s.weight, minShare * sumAdaptedWeights);
+            strategyManager.informStrategyWeightChanged(s.strategyId, s.weight);
+            s.segmentRuns = 0;
+            s.segmentScore = 0.;
+            s.segmentComputationTime = 0;
+        }
+        if (logger.isDebugEnabled()) logger.debug("strategy weights updated at iteration {}: {}", iteration, statistics.values());
+        for (StrategyStatisticsListener l : listeners) l.informStrategyWeightsUpdated(iteration, getStatistics());
+    }
+
+}
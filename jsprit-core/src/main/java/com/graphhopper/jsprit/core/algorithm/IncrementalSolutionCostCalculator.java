@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.problem.solution.RouteCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivities;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objective-function that sums up the costs of {@link RouteCostCalculator}s route by route and caches the costs of each route,
+ * i.e. only routes that have been modified since they were evaluated last are evaluated again.
+ * <p>
+ * <p>Routes are identified by the modification stamp of their activities ({@link TourActivities#getModificationStamp()}).
+ * Since routes are copied on write, an unmodified route of a copied solution has the same stamp as its original and
+ * is thus not evaluated again. Additionally, a route is evaluated again if its vehicle or its departure time changed.
+ * <p>
+ * <p>Only the most recently used route costs are cached. The number of cached routes can be set
+ * with {@link #IncrementalSolutionCostCalculator(RouteCostCalculator, int)}.
+ * <p>
+ * <p>Costs that cannot be assigned to a single route, e.g. penalties for unassigned jobs, can be added by overriding
+ * {@link #getSolutionCosts(VehicleRoutingProblemSolution, double)}.
+ *
+ * @author schroeder
+ */
+public class IncrementalSolutionCostCalculator implements SolutionCostCalculator {
+
+    private static class RouteCosts {
+
+        private final double costs;
+
+        private final Vehicle vehicle;
+
+        private final double departureTime;
+
+        private RouteCosts(double costs, Vehicle vehicle, double departureTime) {
+            this.costs = costs;
+            this.vehicle = vehicle;
+            this.departureTime = departureTime;
+        }
+
+        private boolean isValid(VehicleRoute route) {
+            return route.getVehicle() == vehicle && route.getDepartureTime() == departureTime;
+        }
+    }
+
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private final List<RouteCostCalculator> routeCostCalculators = new ArrayList<RouteCostCalculator>();
+
+    private final Map<Long, RouteCosts> routeCosts;
+
+    public IncrementalSolutionCostCalculator(RouteCostCalculator routeCostCalculator) {
+        this(routeCostCalculator, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates the calculator.
+     *
+     * @param routeCostCalculator per-route cost term
+     * @param cacheSize           max. number of routes whose costs are cached
+     */
+    public IncrementalSolutionCostCalculator(RouteCostCalculator routeCostCalculator, final int cacheSize) {
+        if (cacheSize < 1) throw new IllegalArgumentException("cacheSize must be > 0");
+        routeCosts = new LinkedHashMap<Long, RouteCosts>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RouteCosts> eldest) {
+                return size() > cacheSize;
+            }
+
+        };
+        addRouteCostCalculator(routeCostCalculator);
+    }
+
+    /**
+     * Adds a per-route cost term. Its costs are summed up with the costs of the other terms.
+     *
+     * @param routeCostCalculator per-route cost term
+     * @return this calculator
+     */
+    public IncrementalSolutionCostCalculator addRouteCostCalculator(RouteCostCalculator routeCostCalculator) {
+        if (routeCostCalculator == null) throw new IllegalArgumentException("routeCostCalculator must not be null");
+        routeCostCalculators.add(routeCostCalculator);
+        return this;
+    }
+
+    @Override
+    public synchronized double getCosts(VehicleRoutingProblemSolution solution) {
+        double c = 0.0;
+        for (VehicleRoute r : solution.getRoutes()) {
+            c += getCosts(r);
+        }
+        return getSolutionCosts(solution, c);
+    }
+
+    /**
+     * Returns the costs of route. They are only calculated if route is not cached or has been modified.
+     *
+     * @param route the route to be evaluated
+     * @return costs of route
+     */
+    public synchronized double getCosts(VehicleRoute route) {
+        Long stamp = route.getTourActivities().getModificationStamp();
+        RouteCosts cached = routeCosts.get(stamp);
+        if (cached != null && cached.isValid(route)) return cached.costs;
+        double c = 0.0;
+        for (RouteCostCalculator routeCostCalculator : routeCostCalculators) {
+            c += routeCostCalculator.getCosts(route);
+        }
+        routeCosts.put(stamp, new RouteCosts(c, route.getVehicle(), route.getDepartureTime()));
+        return c;
+    }
+
+    /**
+     * Returns the costs of solution based on the sum of its route costs. Override it to add costs that cannot be
+     * assigned to a single route.
+     *
+     * @param solution   the solution to be evaluated
+     * @param routeCosts the sum of all route costs of solution
+     * @return costs of solution
+     */
+    protected double getSolutionCosts(VehicleRoutingProblemSolution solution, double routeCosts) {
+        return routeCosts;
+    }
+
+    /**
+     * Clears all cached route costs.
+     */
+    public synchronized void clear() {
+        routeCosts.clear();
+    }
+
+}
@@ -59,6 +59,25 @@ public final class InsertionInitialSolutionFactory implements InitialSolutionFac
         return solution;
     }
 
+    /**
+     * Creates a solution that starts from the routes of solution, i.e. the unassigned jobs of solution are inserted into
+     * copies of its routes. Solution itself remains unchanged.
+     *
+     * @param solution the (partial) solution to start from
+     * @return the completed solution with its costs
+     */
+    public VehicleRoutingProblemSolution createSolution(VehicleRoutingProblemSolution solution) {
+        logger.info("create initial solution from warm start solution");
+        List<VehicleRoute> vehicleRoutes = new ArrayList<VehicleRoute>();
+        for (VehicleRoute route : solution.getRoutes()) {
+            vehicleRoutes.add(VehicleRoute.copyOf(route));
+        }
+        Collection<Job> badJobs = insertion.insertJobs(vehicleRoutes, new ArrayList<Job>(solution.getUnassignedJobs()));
+        VehicleRoutingProblemSolution completedSolution = new VehicleRoutingProblemSolution(vehicleRoutes, badJobs, Double.MAX_VALUE);
+        completedSolution.setCost(solutionCostsCalculator.getCosts(completedSolution));
+        return completedSolution;
+    }
+
     private List<Job> getUnassignedJobs(VehicleRoutingProblem vrp) {
         ArrayList<Job> jobs = new ArrayList<Job>(vrp.getJobs().values());
 //        for (Vehicle v : vrp.getVehicles()) {
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.SearchStrategy.DiscoveredSolution;
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmStartsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationEndsListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Island model that runs a number of independent {@link VehicleRoutingAlgorithm}s concurrently.
+ * <p>
+ * <p>Each island is created with the specified {@link VehicleRoutingAlgorithmFactory}, thus it has its own state manager,
+ * search strategies and acceptor. Every migrationInterval iterations, an island publishes its best solution and takes
+ * over the best solution of its neighbors (according to {@link MigrationTopology}) if it is better than its worst one.
+ * Migrants are deep copies, i.e. islands never share routes or activities.
+ * <p>
+ * <p>Termination criteria added to the island model see the discovered solutions of all islands. As soon as one of them
+ * is fulfilled, all islands terminate. Each island still terminates on its own criteria and max iterations.
+ *
+ * @author stefan schroeder
+ */
+public class IslandVehicleRoutingAlgorithm {
+
+    /**
+     * Specifies from which islands an island takes over solutions.
+     */
+    public enum MigrationTopology {
+
+        /**
+         * No migration, i.e. islands are independent multi-starts.
+         */
+        NONE,
+
+        /**
+         * Island i takes over solutions from island i-1 (and island 0 from the last one).
+         */
+        RING,
+
+        /**
+         * Each island takes over the best solution of all other islands.
+         */
+        FULLY_CONNECTED;
+
+        List<Integer> getSources(int island, int nuOfIslands) {
+            List<Integer> sources = new ArrayList<Integer>();
+            if (nuOfIslands < 2 || this == NONE) return sources;
+            if (this == RING) {
+                sources.add((island - 1 + nuOfIslands) % nuOfIslands);
+            } else {
+                for (int i = 0; i < nuOfIslands; i++) {
+                    if (i != island) sources.add(i);
+                }
+            }
+            return sources;
+        }
+
+    }
+
+    public static class Builder {
+
+        /**
+         * Returns a new builder.
+         *
+         * @param vrp              the problem
+         * @param algorithmFactory creates the algorithm of each island. it is called once per island from the thread that builds the island model.
+         * @return builder
+         */
+        public static Builder newInstance(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            return new Builder(vrp, algorithmFactory);
+        }
+
+        private final VehicleRoutingProblem vrp;
+
+        private final VehicleRoutingAlgorithmFactory algorithmFactory;
+
+        private int nuOfIslands = Runtime.getRuntime().availableProcessors();
+
+        private int migrationInterval = 100;
+
+        private MigrationTopology migrationTopology = MigrationTopology.RING;
+
+        private ExecutorService executorService;
+
+        private List<PrematureAlgorithmTermination> terminationCriteria = new ArrayList<PrematureAlgorithmTermination>();
+
+        private Builder(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            this.vrp = vrp;
+            this.algorithmFactory = algorithmFactory;
+        }
+
+        /**
+         * Sets the number of islands. Default is the number of available processors.
+         *
+         * @param nuOfIslands number of islands
+         * @return builder
+         */
+        public Builder setNuOfIslands(int nuOfIslands) {
+            if (nuOfIslands < 1) throw new IllegalArgumentException("nuOfIslands must be > 0");
+            this.nuOfIslands = nuOfIslands;
+            return this;
+        }
+
+        /**
+         * Sets the number of iterations between two migrations. Default is 100.
+         *
+         * @param migrationInterval number of iterations
+         * @return builder
+         */
+        public Builder setMigrationInterval(int migrationInterval) {
+            if (migrationInterval < 1) throw new IllegalArgumentException("migrationInterval must be > 0");
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        /**
+         * Sets the migration topology. Default is {@link MigrationTopology#RING}.
+         *
+         * @param migrationTopology the migration topology
+         * @return builder
+         */
+        public Builder setMigrationTopology(MigrationTopology migrationTopology) {
+            this.migrationTopology = migrationTopology;
+            return this;
+        }
+
+        /**
+         * Sets the executorService the islands run on. If it is not set, a fixed thread pool with one thread per island
+         * is created and shut down per search.
+         *
+         * @param executorService the executorService
+         * @return builder
+         */
+        public Builder setExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Adds a termination criterion that terminates all islands. It is called by all islands, but never concurrently.
+         *
+         * @param terminationCriterion the termination criterion
+         * @return builder
+         */
+        public Builder addTerminationCriterion(PrematureAlgorithmTermination terminationCriterion) {
+            terminationCriteria.add(terminationCriterion);
+            return this;
+        }
+
+        public IslandVehicleRoutingAlgorithm build() {
+            return new IslandVehicleRoutingAlgorithm(this);
+        }
+
+    }
+
+    /*
+     * runs one algorithm and exchanges solutions with the other islands at the end of an iteration, i.e. in the thread of its algorithm
+     */
+    private class Island implements Callable<Collection<VehicleRoutingProblemSolution>>, IterationEndsListener {
+
+        private final int index;
+
+        private final VehicleRoutingAlgorithm algorithm;
+
+        private final List<Integer> sources;
+
+        private final AtomicReference<VehicleRoutingProblemSolution> emigrant = new AtomicReference<VehicleRoutingProblemSolution>();
+
+        private final VehicleRoutingProblemSolution[] lastImmigrants;
+
+        private double emigrantCost = Double.MAX_VALUE;
+
+        Island(int index, VehicleRoutingAlgorithm algorithm) {
+            this.index = index;
+            this.algorithm = algorithm;
+            this.sources = migrationTopology.getSources(index, nuOfIslands);
+            this.lastImmigrants = new VehicleRoutingProblemSolution[nuOfIslands];
+        }
+
+        @Override
+        public Collection<VehicleRoutingProblemSolution> call() {
+            return algorithm.searchSolutions();
+        }
+
+        @Override
+        public void informIterationEnds(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+            if (i % migrationInterval != 0 || sources.isEmpty()) return;
+            emigrate(solutions);
+            immigrate(solutions);
+        }
+
+        private void emigrate(Collection<VehicleRoutingProblemSolution> solutions) {
+            VehicleRoutingProblemSolution best = null;
+            for (VehicleRoutingProblemSolution solution : solutions) {
+                if (best == null || solution.getCost() < best.getCost()) best = solution;
+            }
+            if (best == null || best.getCost() >= emigrantCost) return;
+            emigrantCost = best.getCost();
+            emigrant.set(VehicleRoutingProblemSolution.deepCopyOf(best));
+        }
+
+        private void immigrate(Collection<VehicleRoutingProblemSolution> solutions) {
+            VehicleRoutingProblemSolution immigrant = null;
+            for (int source : sources) {
+                VehicleRoutingProblemSolution candidate = islands.get(source).emigrant.get();
+                if (candidate == null || candidate == lastImmigrants[source]) continue;
+                lastImmigrants[source] = candidate;
+                if (immigrant == null || candidate.getCost() < immigrant.getCost()) immigrant = candidate;
+            }
+            if (immigrant == null) return;
+            VehicleRoutingProblemSolution worst = null;
+            for (VehicleRoutingProblemSolution solution : solutions) {
+                if (worst == null || solution.getCost() > worst.getCost()) worst = solution;
+            }
+            if (worst == null || immigrant.getCost() >= worst.getCost()) return;
+            solutions.remove(worst);
+            solutions.add(VehicleRoutingProblemSolution.deepCopyOf(immigrant));
+            migrations.incrementAndGet();
+            logger.debug("island {} takes over solution with costs {}", index, immigrant.getCost());
+        }
+
+    }
+
+    /*
+     * evaluates the termination criteria of the island model for all islands
+     */
+    private class SharedTermination implements PrematureAlgorithmTermination {
+
+        @Override
+        public boolean isPrematureBreak(DiscoveredSolution discoveredSolution) {
+            if (terminated) return true;
+            if (terminationCriteria.isEmpty()) return false;
+            synchronized (terminationCriteria) {
+                for (PrematureAlgorithmTermination termination : terminationCriteria) {
+                    if (termination.isPrematureBreak(discoveredSolution)) {
+                        terminated = true;
+                        break;
+                    }
+                }
+            }
+            return terminated;
+        }
+
+    }
+
+    private final static Logger logger = LogManager.getLogger(IslandVehicleRoutingAlgorithm.class);
+
+    private final VehicleRoutingProblem problem;
+
+    private final int nuOfIslands;
+
+    private final int migrationInterval;
+
+    private final MigrationTopology migrationTopology;
+
+    private final ExecutorService executorService;
+
+    private final List<PrematureAlgorithmTermination> terminationCriteria;
+
+    private final List<Island> islands = new ArrayList<Island>();
+
+    private final AtomicInteger migrations = new AtomicInteger();
+
+    private volatile boolean terminated = false;
+
+    private IslandVehicleRoutingAlgorithm(Builder builder) {
+        this.problem = builder.vrp;
+        this.nuOfIslands = builder.nuOfIslands;
+        this.migrationInterval = builder.migrationInterval;
+        this.migrationTopology = builder.migrationTopology;
+        this.executorService = builder.executorService;
+        this.terminationCriteria = new ArrayList<PrematureAlgorithmTermination>(builder.terminationCriteria);
+        for (int i = 0; i < nuOfIslands; i++) {
+            VehicleRoutingAlgorithm algorithm = builder.algorithmFactory.createAlgorithm(problem);
+            Island island = new Island(i, algorithm);
+            algorithm.addTerminationCriterion(new SharedTermination());
+            algorithm.addListener(island);
+            islands.add(island);
+        }
+        logger.debug("initialise {}", this);
+    }
+
+    /**
+     * Returns the algorithms of the islands, e.g. to add listeners. Note that listeners are informed by the thread of their
+     * island.
+     *
+     * @return algorithms
+     */
+    public List<VehicleRoutingAlgorithm> getAlgorithms() {
+        List<VehicleRoutingAlgorithm> algorithms = new ArrayList<VehicleRoutingAlgorithm>(islands.size());
+        for (Island island : islands) algorithms.add(island.algorithm);
+        return Collections.unmodifiableList(algorithms);
+    }
+
+    /**
+     * Runs all islands and returns the solutions of all islands, including their best ever.
+     *
+     * @return the solutions
+     */
+    public Collection<VehicleRoutingProblemSolution> searchSolutions() {
+        logger.info("island model starts: [nuOfIslands={}][migrationInterval={}][migrationTopology={}]", nuOfIslands, migrationInterval, migrationTopology);
+        long now = System.currentTimeMillis();
+        terminated = false;
+        migrations.set(0);
+        for (Island island : islands) {
+            island.emigrant.set(null);
+            island.emigrantCost = Double.MAX_VALUE;
+            for (int i = 0; i < nuOfIslands; i++) island.lastImmigrants[i] = null;
+        }
+        for (PrematureAlgorithmTermination termination : terminationCriteria) {
+            if (termination instanceof AlgorithmStartsListener) {
+                ((AlgorithmStartsListener) termination).informAlgorithmStarts(problem, islands.get(0).algorithm, Collections.<VehicleRoutingProblemSolution>emptyList());
+            }
+        }
+        ExecutorService es = executorService;
+        if (es == null) es = Executors.newFixedThreadPool(nuOfIslands);
+        try {
+            List<Future<Collection<VehicleRoutingProblemSolution>>> futures = new ArrayList<Future<Collection<VehicleRoutingProblemSolution>>>(nuOfIslands);
+            for (Island island : islands) {
+                futures.add(es.submit(island));
+            }
+            Collection<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+            try {
+                for (Future<Collection<VehicleRoutingProblemSolution>> future : futures) {
+                    solutions.addAll(future.get());
+                }
+            } catch (InterruptedException e) {
+                terminated = true;
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for islands", e);
+            } catch (ExecutionException e) {
+                terminated = true;
+                throw new RuntimeException(e);
+            }
+            logger.info("island model ends: [migrations={}]", migrations.get());
+            logger.info("took {} seconds", ((System.currentTimeMillis() - now) / 1000.0));
+            return solutions;
+        } finally {
+            if (executorService == null) es.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[name=islandModel][nuOfIslands=" + nuOfIslands + "][migrationInterval=" + migrationInterval + "][migrationTopology=" + migrationTopology + "]";
+    }
+
+}
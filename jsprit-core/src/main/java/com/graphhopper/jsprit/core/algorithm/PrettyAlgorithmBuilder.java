@@ -141,7 +141,14 @@ public class PrettyAlgorithmBuilder {
                 @Override
                 public void informAlgorithmStarts(VehicleRoutingProblem problem, VehicleRoutingAlgorithm algorithm, Collection<VehicleRoutingProblemSolution> solutions) {
                     if (solutions.isEmpty()) {
-                        solutions.add(new InsertionInitialSolutionFactory(iniInsertionStrategy, iniObjFunction).createSolution(vrp));
+                        InsertionInitialSolutionFactory initialSolutionFactory = new InsertionInitialSolutionFactory(iniInsertionStrategy, iniObjFunction);
+                        if (algorithm.getWarmStartSolutions().isEmpty()) {
+                            solutions.add(initialSolutionFactory.createSolution(vrp));
+                        } else {
+                            for (VehicleRoutingProblemSolution warmStartSolution : algorithm.getWarmStartSolutions()) {
+                                solutions.add(initialSolutionFactory.createSolution(warmStartSolution));
+                            }
+                        }
                     }
                 }
             });
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.problem.JobActivityFactory;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.BreakActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.DeliverShipment;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.PickupShipment;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Session that re-optimizes a solution incrementally while jobs arrive or are cancelled and vehicles move, e.g. in
+ * dynamic dispatching.
+ * <p>
+ * <p>Changes are collected by {@link #addJob(Job)}, {@link #cancelJob(String)} and {@link #updateVehicle(Vehicle)}.
+ * {@link #reoptimize()} applies them to the problem and continues the search from the best solution found so far,
+ * i.e. the routes of the previous best solution are kept (without cancelled jobs), new jobs are inserted into them by
+ * the construction heuristic (see {@link VehicleRoutingAlgorithm#addWarmStartSolution(VehicleRoutingProblemSolution)})
+ * and the search runs only for a short number of iterations.
+ * <p>
+ * <p>Since a {@link VehicleRoutingProblem} cannot be changed, applying changes builds a new problem with the same
+ * fleet size, transport and activity costs, vehicles and jobs, which re-indexes the jobs, vehicles and locations.
+ * Thus the previous problem and its solutions must not be used any more. The routes of updated vehicles are not kept
+ * since their sequence might not be feasible for the new start, their jobs are inserted again instead. Initial routes
+ * of the problem are rebuilt without cancelled jobs and with updated vehicles, and their jobs can be cancelled as well.
+ * <p>
+ * <p>A session is not thread-safe.
+ *
+ * @author schroeder
+ */
+public class ReoptimizationSession {
+
+    public static class Builder {
+
+        /**
+         * Returns a new builder.
+         *
+         * @param vrp              the initial problem
+         * @param algorithmFactory factory creating the algorithm for each (changed) problem, it must construct initial
+         *                         solutions by insertion, e.g. with {@link com.graphhopper.jsprit.core.algorithm.box.Jsprit}
+         * @return builder
+         */
+        public static Builder newInstance(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            return new Builder(vrp, algorithmFactory);
+        }
+
+        private final VehicleRoutingProblem vrp;
+
+        private final VehicleRoutingAlgorithmFactory algorithmFactory;
+
+        private int iterations = 50;
+
+        private Builder(VehicleRoutingProblem vrp, VehicleRoutingAlgorithmFactory algorithmFactory) {
+            this.vrp = vrp;
+            this.algorithmFactory = algorithmFactory;
+        }
+
+        /**
+         * Sets the number of iterations of each re-optimization. Default is 50.
+         *
+         * @param iterations number of iterations
+         * @return builder
+         */
+        public Builder setIterations(int iterations) {
+            if (iterations < 0) throw new IllegalArgumentException("iterations must not be negative");
+            this.iterations = iterations;
+            return this;
+        }
+
+        public ReoptimizationSession build() {
+            return new ReoptimizationSession(this);
+        }
+
+    }
+
+    private static Logger logger = LogManager.getLogger(ReoptimizationSession.class);
+
+    private final VehicleRoutingAlgorithmFactory algorithmFactory;
+
+    private final int iterations;
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleRoutingProblemSolution bestSolution;
+
+    private final Map<String, Job> addedJobs = new LinkedHashMap<String, Job>();
+
+    private final Set<String> cancelledJobs = new HashSet<String>();
+
+    private final Map<String, Vehicle> updatedVehicles = new HashMap<String, Vehicle>();
+
+    private ReoptimizationSession(Builder builder) {
+        this.vrp = builder.vrp;
+        this.algorithmFactory = builder.algorithmFactory;
+        this.iterations = builder.iterations;
+    }
+
+    /**
+     * Adds a job. It is inserted with the next re-optimization.
+     *
+     * @param job the new job
+     * @throws IllegalArgumentException if the problem already contains a job with the same id
+     */
+    public void addJob(Job job) {
+        String id = job.getId();
+        if (addedJobs.containsKey(id) || (containsJob(id) && !cancelledJobs.contains(id)))
+            throw new IllegalArgumentException("problem already contains a job with id " + id);
+        addedJobs.put(id, job);
+    }
+
+    /**
+     * Cancels a job. It is removed from its route with the next re-optimization.
+     *
+     * @param jobId the id of the job to be cancelled
+     * @throws IllegalArgumentException if the problem does not contain the job
+     */
+    public void cancelJob(String jobId) {
+        if (addedJobs.remove(jobId) != null) return;
+        if (!containsJob(jobId)) throw new IllegalArgumentException("problem does not contain job " + jobId);
+        cancelledJobs.add(jobId);
+    }
+
+    /**
+     * Replaces the vehicle with the same id, e.g. by a vehicle whose start location is the current position and whose
+     * earliest start is the current time.
+     *
+     * @param vehicle the updated vehicle
+     * @throws IllegalArgumentException if the problem does not contain a vehicle with the same id
+     */
+    public void updateVehicle(Vehicle vehicle) {
+        boolean known = false;
+        for (Vehicle v : vrp.getVehicles()) {
+            if (v.getId().equals(vehicle.getId())) {
+                known = true;
+                break;
+            }
+        }
+        if (!known) throw new IllegalArgumentException("problem does not contain vehicle " + vehicle.getId());
+        updatedVehicles.put(vehicle.getId(), vehicle);
+    }
+
+    private boolean containsJob(String jobId) {
+        return vrp.getJobs().containsKey(jobId) || getJobsOfInitialRoutes(vrp).containsKey(jobId);
+    }
+
+    private static Map<String, Job> getJobsOfInitialRoutes(VehicleRoutingProblem vrp) {
+        Map<String, Job> jobs = new HashMap<String, Job>();
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) {
+            for (Job job : route.getTourActivities().getJobs()) jobs.put(job.getId(), job);
+        }
+        return jobs;
+    }
+
+    /**
+     * Solves the problem from scratch, i.e. with the iterations of the algorithm created by the factory.
+     *
+     * @return the best solution
+     */
+    public VehicleRoutingProblemSolution solve() {
+        applyChanges();
+        VehicleRoutingAlgorithm vra = algorithmFactory.createAlgorithm(vrp);
+        bestSolution = Solutions.bestOf(vra.searchSolutions());
+        return bestSolution;
+    }
+
+    /**
+     * Applies all changes since the last (re-)optimization and continues the search from the best solution found so
+     * far with the iterations of this session. If there is no solution yet, the problem is solved from scratch.
+     *
+     * @return the best solution
+     */
+    public VehicleRoutingProblemSolution reoptimize() {
+        if (bestSolution == null) return solve();
+        applyChanges();
+        VehicleRoutingAlgorithm vra = algorithmFactory.createAlgorithm(vrp);
+        vra.setMaxIterations(iterations);
+        vra.addWarmStartSolution(bestSolution);
+        bestSolution = Solutions.bestOf(vra.searchSolutions());
+        return bestSolution;
+    }
+
+    /**
+     * Returns the current problem, i.e. the problem the best solution belongs to. Pending changes are not part of it.
+     *
+     * @return the current problem
+     */
+    public VehicleRoutingProblem getProblem() {
+        return vrp;
+    }
+
+    /**
+     * Returns the best solution of the last (re-)optimization, or null if nothing has been solved yet.
+     *
+     * @return the best solution
+     */
+    public VehicleRoutingProblemSolution getBestSolution() {
+        return bestSolution;
+    }
+
+    private void applyChanges() {
+        if (addedJobs.isEmpty() && cancelledJobs.isEmpty() && updatedVehicles.isEmpty()) return;
+        logger.debug("apply changes [addedJobs={}][cancelledJobs={}][updatedVehicles={}]", addedJobs.size(), cancelledJobs.size(), updatedVehicles.size());
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance()
+            .setFleetSize(vrp.getFleetSize())
+            .setRoutingCost(vrp.getTransportCosts())
+            .setActivityCosts(vrp.getActivityCosts());
+        for (Vehicle vehicle : vrp.getVehicles()) {
+            Vehicle updatedVehicle = updatedVehicles.get(vehicle.getId());
+            vrpBuilder.addVehicle(updatedVehicle == null ? vehicle : updatedVehicle);
+        }
+        for (Job job : vrp.getJobs().values()) {
+            if (!cancelledJobs.contains(job.getId())) vrpBuilder.addJob(job);
+        }
+        for (Job job : addedJobs.values()) vrpBuilder.addJob(job);
+        Map<String, Job> keptJobsOfInitialRoutes = getJobsOfInitialRoutes(vrp);
+        keptJobsOfInitialRoutes.keySet().removeAll(cancelledJobs);
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) {
+            Vehicle updatedVehicle = updatedVehicles.get(route.getVehicle().getId());
+            VehicleRoute newRoute = rebuild(route, updatedVehicle == null ? route.getVehicle() : updatedVehicle, keptJobsOfInitialRoutes, null);
+            if (!newRoute.isEmpty()) vrpBuilder.addInitialVehicleRoute(newRoute);
+        }
+        VehicleRoutingProblem newVrp = vrpBuilder.build();
+        if (bestSolution != null) bestSolution = transfer(bestSolution, newVrp);
+        vrp = newVrp;
+        addedJobs.clear();
+        cancelledJobs.clear();
+        updatedVehicles.clear();
+    }
+
+    /*
+     * rebuilds the routes of solution with the vehicles and activities of newVrp. routes of updated vehicles are replaced
+     * by their initial route (if there is one). all jobs of newVrp that are not part of a kept route are unassigned.
+     */
+    private VehicleRoutingProblemSolution transfer(VehicleRoutingProblemSolution solution, VehicleRoutingProblem newVrp) {
+        Map<String, Vehicle> vehicles = new HashMap<String, Vehicle>();
+        for (Vehicle vehicle : newVrp.getVehicles()) vehicles.put(vehicle.getId(), vehicle);
+        Map<String, VehicleRoute> initialRoutes = new HashMap<String, VehicleRoute>();
+        for (VehicleRoute route : newVrp.getInitialVehicleRoutes()) initialRoutes.put(route.getVehicle().getId(), route);
+        Map<String, Job> jobs = getJobsOfInitialRoutes(newVrp);
+        jobs.putAll(newVrp.getJobs());
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+        Set<String> assignedJobs = new HashSet<String>();
+        for (VehicleRoute route : solution.getRoutes()) {
+            String vehicleId = route.getVehicle().getId();
+            VehicleRoute newRoute;
+            if (updatedVehicles.containsKey(vehicleId)) {
+                if (!initialRoutes.containsKey(vehicleId)) continue;
+                newRoute = VehicleRoute.copyOf(initialRoutes.get(vehicleId));
+            } else {
+                newRoute = rebuild(route, vehicles.get(vehicleId), jobs, newVrp.getJobActivityFactory());
+            }
+            for (Job job : newRoute.getTourActivities().getJobs()) assignedJobs.add(job.getId());
+            if (!newRoute.isEmpty()) routes.add(newRoute);
+        }
+        List<Job> unassignedJobs = new ArrayList<Job>();
+        for (Job job : newVrp.getJobs().values()) {
+            if (!assignedJobs.contains(job.getId())) unassignedJobs.add(job);
+        }
+        return new VehicleRoutingProblemSolution(routes, unassignedJobs, Double.MAX_VALUE);
+    }
+
+    /*
+     * builds route again for vehicle with the sequence and time windows of the activities of route, but only with the
+     * jobs contained in jobs. without jobActivityFactory, the route builder creates new activities.
+     */
+    private static VehicleRoute rebuild(VehicleRoute route, Vehicle vehicle, Map<String, Job> jobs, JobActivityFactory jobActivityFactory) {
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle, route.getDriver());
+        if (jobActivityFactory != null) routeBuilder.setJobActivityFactory(jobActivityFactory);
+        for (TourActivity act : route.getActivities()) {
+            if (!(act instanceof TourActivity.JobActivity) || act instanceof BreakActivity) continue;
+            Job job = jobs.get(((TourActivity.JobActivity) act).getJob().getId());
+            if (job == null) continue;
+            TimeWindow timeWindow = TimeWindow.newInstance(act.getTheoreticalEarliestOperationStartTime(), act.getTheoreticalLatestOperationStartTime());
+            if (act instanceof PickupShipment) routeBuilder.addPickup((Shipment) job, timeWindow);
+            else if (act instanceof DeliverShipment) routeBuilder.addDelivery((Shipment) job, timeWindow);
+            else routeBuilder.addService((Service) job, timeWindow);
+        }
+        return routeBuilder.build();
+    }
+
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
+import com.graphhopper.jsprit.core.problem.solution.RouteCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
+
+/**
+ * Per-route term of a profit-maximizing objective function, i.e. the negative revenue of a route. It can be added to
+ * the route costs of {@link IncrementalSolutionCostCalculator}.
+ * <p>
+ * <p>The revenue is read from the route revenue state {@link InternalStates#REVENUE} if revenue states are updated
+ * (<code>stateManager.updateRevenueStates(revenueFunction)</code>). Otherwise the revenues of all activities of the
+ * route are summed up.
+ *
+ * @author schroeder
+ */
+public class RouteRevenueCostCalculator implements RouteCostCalculator {
+
+    private final RouteAndActivityDoubleStateGetter states;
+
+    private final RevenueFunction revenueFunction;
+
+    public RouteRevenueCostCalculator(RouteAndActivityStateGetter states, RevenueFunction revenueFunction) {
+        this.states = DoubleStateGetterAdapter.of(states);
+        this.revenueFunction = revenueFunction;
+    }
+
+    @Override
+    public double getCosts(VehicleRoute route) {
+        if (route.isEmpty()) return 0.;
+        double revenue = states.getRouteStateDouble(route, InternalStates.REVENUE);
+        if (Double.isNaN(revenue)) {
+            revenue = 0.;
+            for (TourActivity act : route.getActivities()) revenue += revenueFunction.getRevenue(act, route.getVehicle());
+        }
+        return -revenue;
+    }
+
+}
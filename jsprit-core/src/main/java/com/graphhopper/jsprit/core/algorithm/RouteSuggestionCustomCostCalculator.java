@@ -1,20 +1,18 @@
 package com.graphhopper.jsprit.core.algorithm;
 
-import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.problem.cost.DistanceToEndRevenue;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
-import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.util.AsyncRecordWriter;
 import com.graphhopper.jsprit.core.util.DistanceUnit;
 import com.graphhopper.jsprit.core.util.GreatCircleCosts;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Created by root on 20/5/16.
@@ -22,69 +20,97 @@ import java.io.PrintWriter;
 public class RouteSuggestionCustomCostCalculator {
 
 
+    /*
+     * costs of a solution. only job ids are captured on the search thread, the line is formatted by the writer thread.
+     */
+    private static class CostRecord implements AsyncRecordWriter.Record {
+
+        private final String[][] jobIds;
+
+        private final double costs;
+
+        CostRecord(VehicleRoutingProblemSolution solution, double costs) {
+            this.jobIds = new String[solution.getRoutes().size()][];
+            int r = 0;
+            for (VehicleRoute route : solution.getRoutes()) {
+                String[] routeJobIds = new String[route.getTourActivities().getJobs().size()];
+                int j = 0;
+                for (Job job : route.getTourActivities().getJobs()) routeJobIds[j++] = job.getId();
+                jobIds[r++] = routeJobIds;
+            }
+            this.costs = costs;
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            writer.write("\r\n trying for solution ");
+            for (String[] routeJobIds : jobIds) {
+                writer.write(" | ");
+                for (String jobId : routeJobIds) {
+                    writer.write(",");
+                    writer.write(jobId);
+                    writer.write(",");
+                }
+                writer.write(" | ");
+            }
+            writer.write(" | cost is  ");
+            writer.write(String.valueOf(costs));
+        }
+
+    }
+
     private static final double REVENUE_PER_KM = 5;
     private RouteAndActivityStateGetter stateManager;
 
+    private AsyncRecordWriter costLog;
+
+    /**
+     * Constructs the calculator. Costs are not recorded.
+     *
+     * @param stateManager the state getter
+     */
     public RouteSuggestionCustomCostCalculator(RouteAndActivityStateGetter stateManager) {
+        this(stateManager, null);
+    }
+
+    /**
+     * Constructs the calculator that records costs of each solution to costLog. The caller owns costLog, i.e. it must
+     * close it once the search has finished.
+     *
+     * @param stateManager the state getter
+     * @param costLog      the writer costs are recorded to, or null if costs should not be recorded
+     */
+    public RouteSuggestionCustomCostCalculator(RouteAndActivityStateGetter stateManager, AsyncRecordWriter costLog) {
         super();
         this.stateManager = stateManager;
+        this.costLog = costLog;
+    }
+
+    /**
+     * Returns the revenue of the objective function, i.e. {@value #REVENUE_PER_KM} per km from an activity to the end
+     * of the route per unit of size. Pass it to <code>stateManager.updateRevenueStates(revenueFunction)</code> to have
+     * route revenues updated incrementally and to <code>constraintManager.addRevenueConstraint(revenueFunction)</code>
+     * to consider revenues in insertion costs.
+     *
+     * @return revenue function
+     */
+    public static RevenueFunction createRevenueFunction() {
+        return new DistanceToEndRevenue(new GreatCircleCosts(DistanceUnit.Meter, 5, 1.6), REVENUE_PER_KM / 1000., 0);
     }
 
     public SolutionCostCalculator createCalculator() {
-        return new SolutionCostCalculator() {
+        IncrementalSolutionCostCalculator calculator = new IncrementalSolutionCostCalculator(new VariablePlusFixedSolutionCostCalculatorFactory(stateManager).createRouteCostCalculator()) {
 
             @Override
-            public double getCosts(VehicleRoutingProblemSolution solution) {
-                double c = 0.0;
-                StringBuilder stringBuilder=new StringBuilder();
-                stringBuilder.append("\r\n trying for solution ");
-                for (VehicleRoute r : solution.getRoutes()) {
-                    stringBuilder.append(" | ");
-                    for (Job job:r.getTourActivities().getJobs()){
-
-                        stringBuilder.append(","+job.getId()+",");
-                    }
-                    stringBuilder.append(" | ");
-                    c += stateManager.getRouteState(r, InternalStates.COSTS, Double.class);
-                    c += getFixedCosts(r.getVehicle());
-                    c-=getRevenue(r);
-                }
-
-
-                stringBuilder.append(" | cost is  "+c);
-
+            protected double getSolutionCosts(VehicleRoutingProblemSolution solution, double c) {
+                if (costLog != null) costLog.record(new CostRecord(solution, c));
                 //c += solution.getUnassignedJobs().size() * c * .1;
-                try {
-
-                    PrintWriter writer= new PrintWriter(new FileOutputStream(new File("/var/www/java/jsprit/cost_iteration.txt"),true));
-                    writer.append(stringBuilder.toString());
-                    writer.close();
-                }catch (FileNotFoundException e){
-
-                }
                 return c;
 
             }
-
-            private double getRevenue(VehicleRoute vehicleRoute){
-
-                double totalRevenue=0;
-                GreatCircleCosts greatCircleCosts=new GreatCircleCosts(DistanceUnit.Meter,5,1.6);
-                for (TourActivity tourActivity:vehicleRoute.getActivities()){
-
-
-                    totalRevenue+=REVENUE_PER_KM*(greatCircleCosts.getDistance(tourActivity.getLocation(),vehicleRoute.getEnd().getLocation())/1000)*tourActivity.getSize().get(0);
-
-                }
-                return totalRevenue;
-            }
-
-            private double getFixedCosts(Vehicle vehicle) {
-                if (vehicle == null) return 0.0;
-                if (vehicle.getType() == null) return 0.0;
-                return vehicle.getType().getVehicleCostParams().fix;
-            }
         };
+        calculator.addRouteCostCalculator(new RouteRevenueCostCalculator(stateManager, createRevenueFunction()));
+        return calculator;
     }
 
 }
@@ -18,6 +18,8 @@ package com.graphhopper.jsprit.core.algorithm;
 
 import com.graphhopper.jsprit.core.algorithm.acceptor.SolutionAcceptor;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
+import com.graphhopper.jsprit.core.algorithm.module.RuinAndRecreateModule;
 import com.graphhopper.jsprit.core.algorithm.selector.SolutionSelector;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
@@ -40,6 +42,10 @@ public class SearchStrategy {
 
         private String strategyId;
 
+        private double costOfSelectedSolution = Double.NaN;
+
+        private long computationTime;
+
         public DiscoveredSolution(VehicleRoutingProblemSolution solution, boolean accepted, String strategyId) {
             super();
             this.solution = solution;
@@ -47,6 +53,12 @@ public class SearchStrategy {
             this.strategyId = strategyId;
         }
 
+        DiscoveredSolution(VehicleRoutingProblemSolution solution, boolean accepted, String strategyId, double costOfSelectedSolution, long computationTime) {
+            this(solution, accepted, strategyId);
+            this.costOfSelectedSolution = costOfSelectedSolution;
+            this.computationTime = computationTime;
+        }
+
         public VehicleRoutingProblemSolution getSolution() {
             return solution;
         }
@@ -59,6 +71,24 @@ public class SearchStrategy {
             return strategyId;
         }
 
+        /**
+         * Returns the cost of the solution the strategy has started from, or NaN if it is unknown.
+         *
+         * @return cost of selected solution
+         */
+        public double getCostOfSelectedSolution() {
+            return costOfSelectedSolution;
+        }
+
+        /**
+         * Returns the time in nanoseconds the strategy took to discover this solution, or 0 if it is unknown.
+         *
+         * @return computation time in nanoseconds
+         */
+        public long getComputationTime() {
+            return computationTime;
+        }
+
         @Override
         public String toString() {
             return "[strategyId=" + strategyId + "][solution=" + solution + "][accepted=" + accepted + "]";
@@ -79,6 +109,12 @@ public class SearchStrategy {
 
     private String name;
 
+    private SolverMetrics metrics;
+
+    private SolverMetrics.Counter acceptedCounter;
+
+    private SolverMetrics.Counter rejectedCounter;
+
     public SearchStrategy(String id, SolutionSelector solutionSelector, SolutionAcceptor solutionAcceptor, SolutionCostCalculator solutionCostCalculator) {
         if (id == null) throw new IllegalStateException("strategy id cannot be null");
         this.solutionSelector = solutionSelector;
@@ -134,16 +170,69 @@ public class SearchStrategy {
      */
     @SuppressWarnings("UnusedParameters")
     public DiscoveredSolution run(VehicleRoutingProblem vrp, Collection<VehicleRoutingProblemSolution> solutions) {
+        long startTime = System.nanoTime();
+        long startCpuTime = metrics != null ? metrics.currentCpuTime() : 0L;
         VehicleRoutingProblemSolution solution = solutionSelector.selectSolution(solutions);
         if (solution == null) throw new IllegalStateException(getErrMsg());
+        double costOfSelectedSolution = solution.getCost();
+        long selectedTime = 0L;
+        long selectedCpuTime = 0L;
+        if (metrics != null) {
+            selectedTime = System.nanoTime();
+            selectedCpuTime = metrics.currentCpuTime();
+            metrics.addPhaseTime(SolverMetrics.Phase.SELECTION, selectedTime - startTime, selectedCpuTime - startCpuTime);
+        }
+
         VehicleRoutingProblemSolution lastSolution = VehicleRoutingProblemSolution.copyOf(solution);
+        if (metrics != null) {
+            metrics.addPhaseTime(SolverMetrics.Phase.COPY, System.nanoTime() - selectedTime, metrics.currentCpuTime() - selectedCpuTime);
+        }
+        //ruin and recreate are measured by RuinAndRecreateModule itself
         for (SearchStrategyModule module : searchStrategyModules) {
             lastSolution = module.runAndGetSolution(lastSolution);
         }
+
+        long modulesTime = 0L;
+        long modulesCpuTime = 0L;
+        if (metrics != null) {
+            modulesTime = System.nanoTime();
+            modulesCpuTime = metrics.currentCpuTime();
+        }
         double costs = solutionCostCalculator.getCosts(lastSolution);
         lastSolution.setCost(costs);
+        long costTime = 0L;
+        long costCpuTime = 0L;
+        if (metrics != null) {
+            costTime = System.nanoTime();
+            costCpuTime = metrics.currentCpuTime();
+            metrics.addPhaseTime(SolverMetrics.Phase.COST, costTime - modulesTime, costCpuTime - modulesCpuTime);
+        }
+
         boolean solutionAccepted = solutionAcceptor.acceptSolution(solutions, lastSolution);
-        return new DiscoveredSolution(lastSolution, solutionAccepted, getId());
+        long endTime = System.nanoTime();
+        if (metrics != null) {
+            metrics.addPhaseTime(SolverMetrics.Phase.ACCEPTANCE, endTime - costTime, metrics.currentCpuTime() - costCpuTime);
+            if (solutionAccepted) acceptedCounter.increment();
+            else rejectedCounter.increment();
+        }
+        return new DiscoveredSolution(lastSolution, solutionAccepted, getId(), costOfSelectedSolution, endTime - startTime);
+    }
+
+    /**
+     * Sets metrics that record the time of each phase and the number of accepted and rejected solutions of this
+     * strategy. They are passed to its {@link RuinAndRecreateModule}s, which record ruin and recreate time.
+     *
+     * @param metrics the metrics, or null if nothing should be measured
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            acceptedCounter = metrics.getAcceptedCounter(id);
+            rejectedCounter = metrics.getRejectedCounter(id);
+        }
+        for (SearchStrategyModule module : searchStrategyModules) {
+            if (module instanceof RuinAndRecreateModule) ((RuinAndRecreateModule) module).setMetrics(metrics);
+        }
     }
 
     private String getErrMsg() {
@@ -156,6 +245,9 @@ public class SearchStrategy {
     public void addModule(SearchStrategyModule module) {
         if (module == null) throw new IllegalStateException("module to be added is null.");
         searchStrategyModules.add(module);
+        if (metrics != null && module instanceof RuinAndRecreateModule) {
+            ((RuinAndRecreateModule) module).setMetrics(metrics);
+        }
         logger.debug("module added [module={}][#modules={}]", module, searchStrategyModules.size());
     }
 
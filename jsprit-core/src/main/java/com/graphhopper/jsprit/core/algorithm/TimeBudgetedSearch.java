@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.StrategySelectedListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs a {@link VehicleRoutingAlgorithm} asynchronously within a wall-clock time budget.
+ * <p>
+ * <p>{@link #start()} submits the search and returns a future of the best solution. The future is done as soon as the
+ * time budget is used up (or the search has ended earlier), i.e. <code>future.get()</code> returns at the deadline
+ * with the best solution found so far, even if the search thread is still finishing its current iteration. The search
+ * itself stops at the end of that iteration. Only if there is no solution at all at the deadline, i.e. the
+ * construction of the initial solution has not finished yet, the future waits for the first solution.
+ * <p>
+ * <p>Every improvement of the best solution is passed to the registered {@link NewBestSolutionListener}s, and
+ * {@link #getBestSolution()} can be called at any time from any thread. Solutions handed out are deep copies (see
+ * {@link VehicleRoutingProblemSolution#deepCopyOf(VehicleRoutingProblemSolution)}), i.e. they share neither routes nor
+ * activities with the ongoing search and are not affected by it.
+ * <p>
+ * <p>The search can be stopped by {@link #stop()} (the future then returns the best solution found so far) or cancelled
+ * by <code>future.cancel(..)</code>. The algorithm must not be run by other means while the search is running and a
+ * TimeBudgetedSearch can only be started once.
+ *
+ * @author schroeder
+ */
+public class TimeBudgetedSearch {
+
+    /**
+     * Listener that is informed about every new best solution. It is called by the search thread, thus it should return
+     * quickly.
+     */
+    public static interface NewBestSolutionListener {
+
+        /**
+         * Informs about a new best solution.
+         *
+         * @param solution    copy of the new best solution
+         * @param iteration   iteration the solution has been found in, 0 for the initial solution
+         * @param elapsedTime time in milliseconds since the search has been started
+         */
+        public void informNewBestSolution(VehicleRoutingProblemSolution solution, int iteration, long elapsedTime);
+
+    }
+
+    public static class Builder {
+
+        public static Builder newInstance(VehicleRoutingAlgorithm algorithm) {
+            return new Builder(algorithm);
+        }
+
+        private final VehicleRoutingAlgorithm algorithm;
+
+        private long timeBudget = Long.MAX_VALUE;
+
+        private ExecutorService executorService;
+
+        private List<NewBestSolutionListener> listeners = new ArrayList<NewBestSolutionListener>();
+
+        private Builder(VehicleRoutingAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Sets the wall-clock time budget in milliseconds, measured from {@link TimeBudgetedSearch#start()}. Default
+         * is no budget, i.e. the search runs until its other termination criteria are met.
+         *
+         * @param timeBudget time budget in milliseconds
+         * @return builder
+         */
+        public Builder setTimeBudget(long timeBudget) {
+            if (timeBudget < 0) throw new IllegalArgumentException("time budget must not be negative");
+            this.timeBudget = timeBudget;
+            return this;
+        }
+
+        /**
+         * Sets the executor the search is submitted to. If no executor is set, the search runs on a new daemon thread.
+         *
+         * @param executorService executor running the search
+         * @return builder
+         */
+        public Builder setExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        public Builder addListener(NewBestSolutionListener listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        public TimeBudgetedSearch build() {
+            return new TimeBudgetedSearch(this);
+        }
+
+    }
+
+    private class SearchObserver implements PrematureAlgorithmTermination, IterationStartsListener, StrategySelectedListener, AlgorithmEndsListener {
+
+        private int iteration;
+
+        @Override
+        public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+            return started && (stopRequested || deadlineReached() || Thread.currentThread().isInterrupted());
+        }
+
+        @Override
+        public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+            iteration = i;
+            if (i == 1 && started) memorizeIfBest(Solutions.bestOf(solutions), 0);
+        }
+
+        @Override
+        public void informSelectedStrategy(SearchStrategy.DiscoveredSolution discoveredSolution, VehicleRoutingProblem vehicleRoutingProblem, Collection<VehicleRoutingProblemSolution> vehicleRoutingProblemSolutions) {
+            if (started) memorizeIfBest(discoveredSolution.getSolution(), iteration);
+        }
+
+        @Override
+        public void informAlgorithmEnds(VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+            if (started) memorizeIfBest(Solutions.bestOf(solutions), iteration);
+        }
+
+    }
+
+    private class SearchFuture implements Future<VehicleRoutingProblemSolution> {
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (lock) {
+                if (isDone()) return false;
+                cancelled = true;
+                stopRequested = true;
+                lock.notifyAll();
+            }
+            if (mayInterruptIfRunning) searchFuture.cancel(true);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (lock) {
+                return cancelled;
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            synchronized (lock) {
+                return cancelled || finished || (bestSolution != null && deadlineReached());
+            }
+        }
+
+        @Override
+        public VehicleRoutingProblemSolution get() throws InterruptedException, ExecutionException {
+            synchronized (lock) {
+                while (!isDone()) {
+                    long waitingTime = millisUntilDeadline();
+                    if (waitingTime > 0) lock.wait(waitingTime);
+                    else lock.wait();
+                }
+                return result();
+            }
+        }
+
+        @Override
+        public VehicleRoutingProblemSolution get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long timeoutTime = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (lock) {
+                while (!isDone()) {
+                    long waitingTime = TimeUnit.NANOSECONDS.toMillis(timeoutTime - System.nanoTime());
+                    if (waitingTime <= 0) throw new TimeoutException();
+                    long untilDeadline = millisUntilDeadline();
+                    if (untilDeadline > 0) waitingTime = Math.min(waitingTime, untilDeadline);
+                    lock.wait(waitingTime);
+                }
+                return result();
+            }
+        }
+
+        private VehicleRoutingProblemSolution result() throws ExecutionException {
+            if (cancelled) throw new CancellationException();
+            if (failure != null) throw new ExecutionException(failure);
+            return bestSolution;
+        }
+
+    }
+
+    private static Logger logger = LogManager.getLogger(TimeBudgetedSearch.class);
+
+    private final VehicleRoutingAlgorithm algorithm;
+
+    private final long timeBudget;
+
+    private final ExecutorService executorService;
+
+    private final List<NewBestSolutionListener> listeners;
+
+    private final Object lock = new Object();
+
+    private volatile boolean started = false;
+
+    private volatile boolean stopRequested = false;
+
+    private long startTime;
+
+    private long deadline;
+
+    private VehicleRoutingProblemSolution bestSolution;
+
+    private boolean finished = false;
+
+    private boolean cancelled = false;
+
+    private Throwable failure;
+
+    private Future<Collection<VehicleRoutingProblemSolution>> searchFuture;
+
+    private TimeBudgetedSearch(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.timeBudget = builder.timeBudget;
+        this.executorService = builder.executorService;
+        this.listeners = new ArrayList<NewBestSolutionListener>(builder.listeners);
+        SearchObserver observer = new SearchObserver();
+        algorithm.addTerminationCriterion(observer);
+        algorithm.addListener(observer);
+    }
+
+    /**
+     * Starts the search asynchronously.
+     *
+     * @return future of the best solution
+     * @throws IllegalStateException if the search has already been started
+     */
+    public Future<VehicleRoutingProblemSolution> start() {
+        synchronized (lock) {
+            if (started) throw new IllegalStateException("search has already been started");
+            startTime = System.nanoTime();
+            deadline = timeBudget == Long.MAX_VALUE ? Long.MAX_VALUE : startTime + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+            started = true;
+        }
+        logger.debug("start search with time budget of {} ms", timeBudget);
+        final ExecutorService es;
+        if (executorService != null) es = executorService;
+        else {
+            es = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "jsprit-search");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+        }
+        searchFuture = es.submit(new Callable<Collection<VehicleRoutingProblemSolution>>() {
+
+            @Override
+            public Collection<VehicleRoutingProblemSolution> call() throws Exception {
+                try {
+                    return algorithm.searchSolutions();
+                } catch (RuntimeException e) {
+                    failure = e;
+                    throw e;
+                } catch (Error e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    synchronized (lock) {
+                        finished = true;
+                        lock.notifyAll();
+                    }
+                    logger.debug("search finished after {} ms", elapsedTime());
+                }
+            }
+
+        });
+        if (executorService == null) es.shutdown();
+        return new SearchFuture();
+    }
+
+    /**
+     * Requests the search to stop after its current iteration. The future then returns the best solution found so far.
+     */
+    public void stop() {
+        stopRequested = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Returns a copy of the best solution found so far, or null if there is none yet.
+     *
+     * @return best solution
+     */
+    public VehicleRoutingProblemSolution getBestSolution() {
+        synchronized (lock) {
+            return bestSolution;
+        }
+    }
+
+    /**
+     * Returns true if the search has been started and has not finished yet.
+     *
+     * @return true if search is running
+     */
+    public boolean isRunning() {
+        synchronized (lock) {
+            return started && !finished;
+        }
+    }
+
+    private void memorizeIfBest(VehicleRoutingProblemSolution solution, int iteration) {
+        if (solution == null) return;
+        VehicleRoutingProblemSolution copy;
+        synchronized (lock) {
+            if (bestSolution != null && solution.getCost() >= bestSolution.getCost()) return;
+            copy = VehicleRoutingProblemSolution.deepCopyOf(solution);
+            bestSolution = copy;
+            lock.notifyAll();
+        }
+        long elapsedTime = elapsedTime();
+        for (NewBestSolutionListener l : listeners) l.informNewBestSolution(copy, iteration, elapsedTime);
+    }
+
+    private long elapsedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private boolean deadlineReached() {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0;
+    }
+
+    /*
+     * returns 0 if there is no deadline or it has been reached already, i.e. if there is no reason to wake up at the deadline
+     */
+    private long millisUntilDeadline() {
+        if (deadline == Long.MAX_VALUE || deadlineReached()) return 0;
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1;
+    }
+
+}
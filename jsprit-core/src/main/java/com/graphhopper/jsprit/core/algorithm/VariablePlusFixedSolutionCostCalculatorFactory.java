@@ -19,9 +19,12 @@
 package com.graphhopper.jsprit.core.algorithm;
 
 import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.problem.solution.RouteCostCalculator;
 import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
@@ -34,25 +37,42 @@ import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
  */
 public class VariablePlusFixedSolutionCostCalculatorFactory {
 
-    private RouteAndActivityStateGetter stateManager;
+    private RouteAndActivityDoubleStateGetter stateManager;
 
     public VariablePlusFixedSolutionCostCalculatorFactory(RouteAndActivityStateGetter stateManager) {
         super();
-        this.stateManager = stateManager;
+        this.stateManager = DoubleStateGetterAdapter.of(stateManager);
     }
 
-    public SolutionCostCalculator createCalculator() {
-        return new SolutionCostCalculator() {
+    /**
+     * Returns the objective function. Route costs are cached and only recalculated for routes that have been modified
+     * (see {@link IncrementalSolutionCostCalculator}).
+     *
+     * @return objective function
+     */
+    public IncrementalSolutionCostCalculator createCalculator() {
+        return new IncrementalSolutionCostCalculator(createRouteCostCalculator()) {
 
             @Override
-            public double getCosts(VehicleRoutingProblemSolution solution) {
-                double c = 0.0;
-                for (VehicleRoute r : solution.getRoutes()) {
-                    c += stateManager.getRouteState(r, InternalStates.COSTS, Double.class);
-                    c += getFixedCosts(r.getVehicle());
-                }
-                c += solution.getUnassignedJobs().size() * c * .1;
-                return c;
+            protected double getSolutionCosts(VehicleRoutingProblemSolution solution, double routeCosts) {
+                return routeCosts + solution.getUnassignedJobs().size() * routeCosts * .1;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the per-route term of this objective function, i.e. variable transportation costs plus fixed vehicle costs.
+     * Custom objective functions can add their own terms to it.
+     *
+     * @return per-route costs
+     */
+    public RouteCostCalculator createRouteCostCalculator() {
+        return new RouteCostCalculator() {
+
+            @Override
+            public double getCosts(VehicleRoute route) {
+                return stateManager.getRouteStateDouble(route, InternalStates.COSTS) + getFixedCosts(route.getVehicle());
             }
 
             private double getFixedCosts(Vehicle vehicle) {
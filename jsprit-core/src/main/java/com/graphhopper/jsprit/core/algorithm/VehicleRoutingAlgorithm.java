@@ -21,6 +21,7 @@ import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyListener;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListener;
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
@@ -98,6 +99,8 @@ public class VehicleRoutingAlgorithm {
 
     private final Collection<VehicleRoutingProblemSolution> initialSolutions;
 
+    private final Collection<VehicleRoutingProblemSolution> warmStartSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+
     private int maxIterations = 100;
 
     private TerminationManager terminationManager = new TerminationManager();
@@ -128,10 +131,40 @@ public class VehicleRoutingAlgorithm {
         initialSolutions.add(solution);
     }
 
+    /**
+     * Adds solution to the collection of warm start solutions. In contrast to initial solutions, a warm start solution
+     * need not be complete and its costs need not be known: before the search starts, its unassigned jobs are inserted
+     * into (copies of) its routes by the insertion strategy that constructs initial solutions, and the result is
+     * evaluated by the objective function. Thus it requires an algorithm that constructs its initial solution by
+     * insertion (see {@link PrettyAlgorithmBuilder#constructInitialSolutionWith(com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy, com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator)}),
+     * e.g. one built by {@link com.graphhopper.jsprit.core.algorithm.box.Jsprit}. Warm start solutions are ignored if
+     * initial solutions are added.
+     *
+     * @param solution the (partial) solution the search should start from
+     */
+    public void addWarmStartSolution(VehicleRoutingProblemSolution solution) {
+        verifyIndices(solution);
+        warmStartSolutions.add(solution);
+    }
+
+    Collection<VehicleRoutingProblemSolution> getWarmStartSolutions() {
+        return warmStartSolutions;
+    }
+
     private void verify(VehicleRoutingProblemSolution solution) {
+        verifyIndices(solution);
         int nuJobs = 0;
         for (VehicleRoute route : solution.getRoutes()) {
             nuJobs += route.getTourActivities().getJobs().size();
+        }
+        if (nuJobs != problem.getJobs().values().size()) {
+            logger.warn("number of jobs in initial solution ({}) is not equal nuJobs in vehicle routing problem ({})" +
+                "\n this might yield unintended effects, e.g. initial solution cannot be improved anymore.", nuJobs, problem.getJobs().values().size());
+        }
+    }
+
+    private void verifyIndices(VehicleRoutingProblemSolution solution) {
+        for (VehicleRoute route : solution.getRoutes()) {
             if (route.getVehicle().getIndex() == 0)
                 throw new IllegalStateException("vehicle used in initial solution has no index. probably a vehicle is used that has not been added to the " +
                     " the VehicleRoutingProblem. only use vehicles that have already been added to the problem.");
@@ -144,10 +177,6 @@ public class VehicleRoutingAlgorithm {
                 }
             }
         }
-        if (nuJobs != problem.getJobs().values().size()) {
-            logger.warn("number of jobs in initial solution ({}) is not equal nuJobs in vehicle routing problem ({})" +
-                "\n this might yield unintended effects, e.g. initial solution cannot be improved anymore.", nuJobs, problem.getJobs().values().size());
-        }
     }
 
     /**
@@ -197,6 +226,8 @@ public class VehicleRoutingAlgorithm {
         counter.reset();
         Collection<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>(initialSolutions);
         algorithmStarts(problem, solutions);
+        if (solutions.isEmpty() && !warmStartSolutions.isEmpty())
+            throw new IllegalStateException("warm start solutions have not been completed. they require an algorithm that constructs its initial solution by insertion.");
         bestEver = Solutions.bestOf(solutions);
         if (logger.isTraceEnabled()) log(solutions);
         logger.info("iterations start");
@@ -275,6 +306,23 @@ public class VehicleRoutingAlgorithm {
         algoListeners.algorithmEnds(problem, solutions);
     }
 
+    /**
+     * Sets metrics that record the time of each phase and the acceptance ratio of each search strategy, and informs
+     * their listeners about iterations. Note that metrics are only set to strategies that have already been added to
+     * the search strategy manager.
+     * <p>
+     * <p>Insertion calls, constraint rejections and state updates are recorded if metrics are also set to the insertion
+     * builders, constraint manager and state manager, which is done by <code>Jsprit.Builder.setMetrics(metrics)</code>.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        for (SearchStrategy strategy : searchStrategyManager.getStrategies()) {
+            strategy.setMetrics(metrics);
+        }
+        addListener(metrics);
+    }
+
     public VehicleRoutingAlgorithmListeners getAlgorithmListeners() {
         return algoListeners;
     }
@@ -1,6 +1,7 @@
 package com.graphhopper.jsprit.core.algorithm.box;
 
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionNoise;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.SoftActivityConstraint;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
@@ -14,7 +15,7 @@ import java.util.Random;
 /**
  * Created by schroeder on 16/01/15.
  */
-class ConcurrentInsertionNoiseMaker implements SoftActivityConstraint, IterationStartsListener {
+class ConcurrentInsertionNoiseMaker implements SoftActivityConstraint, IterationStartsListener, InsertionNoise {
 
     private final double noiseProbability;
 
@@ -47,6 +48,11 @@ class ConcurrentInsertionNoiseMaker implements SoftActivityConstraint, Iteration
         } else makeNoise = false;
     }
 
+    @Override
+    public boolean isActive() {
+        return makeNoise;
+    }
+
     @Override
     public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
         if (makeNoise) {
@@ -1,11 +1,13 @@
 package com.graphhopper.jsprit.core.algorithm.box;
 
+import com.graphhopper.jsprit.core.algorithm.AdaptiveStrategySelection;
 import com.graphhopper.jsprit.core.algorithm.PrettyAlgorithmBuilder;
 import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
 import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.algorithm.acceptor.SchrimpfAcceptance;
 import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.module.RuinAndRecreateModule;
 import com.graphhopper.jsprit.core.algorithm.recreate.*;
 import com.graphhopper.jsprit.core.algorithm.ruin.*;
@@ -98,7 +100,14 @@ public class Jsprit {
         RUIN_WORST_NOISE_PROB("worst.noise_prob"),
         FAST_REGRET("regret.fast"),
         MAX_TRANSPORT_COSTS("max_transport_costs"),
-        CONSTRUCTION("construction");
+        CONSTRUCTION("construction"),
+        STRATEGY_ADAPTIVE("strategy.adaptive"),
+        STRATEGY_REACTION_FACTOR("strategy.reaction_factor"),
+        STRATEGY_SEGMENT_LENGTH("strategy.segment_length"),
+        INSERTION_CACHE("insertion.cache"),
+        INSERTION_GRANULAR("insertion.granular"),
+        INSERTION_GRANULAR_NEIGHBORS("insertion.granular_neighbors"),
+        CONSTRAINTS_ADAPTIVE_ORDER("constraints.adaptive_order");
 
         String paraName;
 
@@ -138,6 +147,8 @@ public class Jsprit {
 
         private ActivityInsertionCostsCalculator activityInsertionCalculator;
 
+        private SolverMetrics metrics;
+
         public static Builder newInstance(VehicleRoutingProblem vrp) {
             return new Builder(vrp);
         }
@@ -186,6 +197,13 @@ public class Jsprit {
             defaults.put(Parameter.VEHICLE_SWITCH.toString(), String.valueOf(true));
             defaults.put(Parameter.FAST_REGRET, String.valueOf(false));
             defaults.put(Parameter.CONSTRUCTION.toString(), Construction.REGRET_INSERTION.toString());
+            defaults.put(Parameter.STRATEGY_ADAPTIVE.toString(), String.valueOf(false));
+            defaults.put(Parameter.STRATEGY_REACTION_FACTOR.toString(), String.valueOf(0.1));
+            defaults.put(Parameter.STRATEGY_SEGMENT_LENGTH.toString(), String.valueOf(100));
+            defaults.put(Parameter.INSERTION_CACHE.toString(), String.valueOf(false));
+            defaults.put(Parameter.INSERTION_GRANULAR.toString(), String.valueOf(false));
+            defaults.put(Parameter.INSERTION_GRANULAR_NEIGHBORS.toString(), String.valueOf(20));
+            defaults.put(Parameter.CONSTRAINTS_ADAPTIVE_ORDER.toString(), String.valueOf(false));
             return defaults;
         }
 
@@ -237,6 +255,18 @@ public class Jsprit {
             return this;
         }
 
+        /**
+         * Sets metrics that record phase times, insertion calls, constraint rejections, state update times and the
+         * acceptance ratio of each strategy. Default is no metrics, i.e. nothing is measured.
+         *
+         * @param metrics the metrics
+         * @return builder
+         */
+        public Builder setMetrics(SolverMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         public VehicleRoutingAlgorithm buildAlgorithm() {
             return new Jsprit(this).create(vrp);
         }
@@ -297,6 +327,8 @@ public class Jsprit {
 
     private Random random;
 
+    private SolverMetrics metrics;
+
     private Jsprit(Builder builder) {
         this.stateManager = builder.stateManager;
         this.constraintManager = builder.constraintManager;
@@ -307,6 +339,7 @@ public class Jsprit {
         this.objectiveFunction = builder.objectiveFunction;
         this.random = builder.random;
         this.activityInsertion = builder.activityInsertionCalculator;
+        this.metrics = builder.metrics;
     }
 
     private VehicleRoutingAlgorithm create(final VehicleRoutingProblem vrp) {
@@ -325,6 +358,13 @@ public class Jsprit {
         if (constraintManager == null) {
             constraintManager = new ConstraintManager(vrp, stateManager);
         }
+        if (metrics != null) {
+            stateManager.setMetrics(metrics);
+            constraintManager.setMetrics(metrics);
+        }
+        if (toBoolean(getProperty(Parameter.CONSTRAINTS_ADAPTIVE_ORDER.toString()))) {
+            constraintManager.setAdaptiveOrdering(true);
+        }
 
         if (noThreads == null) {
             noThreads = toInteger(getProperty(Parameter.THREADS.toString()));
@@ -339,7 +379,7 @@ public class Jsprit {
         double noiseLevel = toDouble(getProperty(Parameter.INSERTION_NOISE_LEVEL.toString()));
         double noiseProbability = toDouble(getProperty(Parameter.INSERTION_NOISE_PROB.toString()));
 
-        JobNeighborhoods jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new AvgServiceAndShipmentDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5));
+        JobNeighborhoods jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new AvgServiceAndShipmentDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5), es, noThreads);
         jobNeighborhoods.initialise();
 
         final double maxCosts;
@@ -421,6 +461,10 @@ public class Jsprit {
         final DefaultScorer scorer;
 
         boolean fastRegret = Boolean.parseBoolean(getProperty(Parameter.FAST_REGRET.toString()));
+        boolean cacheInsertionData = toBoolean(getProperty(Parameter.INSERTION_CACHE.toString()));
+        JobNeighborhoods granularNeighborhoods = null;
+        if (toBoolean(getProperty(Parameter.INSERTION_GRANULAR.toString()))) granularNeighborhoods = jobNeighborhoods;
+        int granularNeighbors = toInteger(getProperty(Parameter.INSERTION_GRANULAR_NEIGHBORS.toString()));
         if (es != null) {
             if(fastRegret){
                 RegretInsertionConcurrentFast regretInsertion = (RegretInsertionConcurrentFast) new InsertionBuilder(vrp, fm, stateManager, constraintManager)
@@ -430,6 +474,9 @@ public class Jsprit {
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setCacheInsertionData(cacheInsertionData)
+                    .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                    .setMetrics(metrics)
                     .build();
                 scorer = getRegretScorer(vrp);
                 regretInsertion.setScoringFunction(scorer);
@@ -442,6 +489,9 @@ public class Jsprit {
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setCacheInsertionData(cacheInsertionData)
+                    .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                    .setMetrics(metrics)
                     .build();
                 scorer = getRegretScorer(vrp);
                 regretInsertion.setScoringFunction(scorer);
@@ -455,6 +505,9 @@ public class Jsprit {
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setCacheInsertionData(cacheInsertionData)
+                    .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                    .setMetrics(metrics)
                     .build();
                 scorer = getRegretScorer(vrp);
                 regretInsertion.setScoringFunction(scorer);
@@ -466,6 +519,9 @@ public class Jsprit {
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setCacheInsertionData(cacheInsertionData)
+                    .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                    .setMetrics(metrics)
                     .build();
                 scorer = getRegretScorer(vrp);
                 regretInsertion.setScoringFunction(scorer);
@@ -481,6 +537,9 @@ public class Jsprit {
                 .considerFixedCosts(Double.valueOf(properties.getProperty(Parameter.FIXED_COST_PARAM.toString())))
                 .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                 .setActivityInsertionCostCalculator(activityInsertion)
+                .setCacheInsertionData(cacheInsertionData)
+                .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                .setMetrics(metrics)
                 .build();
             best = bestInsertion;
         } else {
@@ -490,6 +549,9 @@ public class Jsprit {
                 .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                 .setConcurrentMode(es, noThreads)
                 .setActivityInsertionCostCalculator(activityInsertion)
+                .setCacheInsertionData(cacheInsertionData)
+                .setGranularInsertion(granularNeighborhoods, granularNeighbors)
+                .setMetrics(metrics)
                 .build();
             best = bestInsertion;
         }
@@ -559,7 +621,16 @@ public class Jsprit {
         vra.addListener(clusters);
 
         vra.addListener(new BreakScheduling(vrp,stateManager,constraintManager));
+        if (toBoolean(getProperty(Parameter.STRATEGY_ADAPTIVE.toString()))) {
+            AdaptiveStrategySelection adaptiveStrategySelection = new AdaptiveStrategySelection();
+            adaptiveStrategySelection.setReactionFactor(toDouble(getProperty(Parameter.STRATEGY_REACTION_FACTOR.toString())));
+            adaptiveStrategySelection.setSegmentLength(toInteger(getProperty(Parameter.STRATEGY_SEGMENT_LENGTH.toString())));
+            vra.addListener(adaptiveStrategySelection);
+        }
 //        vra.addListener(new RuinBreaks());
+        if (metrics != null) {
+            vra.setMetrics(metrics);
+        }
         handleExecutorShutdown(vra);
         vra.setMaxIterations(Integer.valueOf(properties.getProperty(Parameter.ITERATIONS.toString())));
 
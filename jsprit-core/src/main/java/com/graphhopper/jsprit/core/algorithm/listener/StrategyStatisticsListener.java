@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.listener;
+
+import com.graphhopper.jsprit.core.algorithm.AdaptiveStrategySelection;
+
+import java.util.Collection;
+
+/**
+ * Listener that is informed by {@link AdaptiveStrategySelection} whenever it has updated the strategy weights at the
+ * end of a segment.
+ */
+public interface StrategyStatisticsListener extends VehicleRoutingAlgorithmListener {
+
+    void informStrategyWeightsUpdated(int iteration, Collection<AdaptiveStrategySelection.StrategyStatistics> statistics);
+
+}
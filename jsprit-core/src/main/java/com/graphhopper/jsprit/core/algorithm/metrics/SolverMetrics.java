@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationEndsListener;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers and counters that show where an algorithm spends its time, i.e.
+ * <ul>
+ * <li>wall and cpu time per {@link Phase} of a search strategy,</li>
+ * <li>getInsertionData calls per insertion calculator,</li>
+ * <li>rejections per hard activity and hard route constraint,</li>
+ * <li>state update time per state updater and</li>
+ * <li>accepted and rejected solutions per search strategy.</li>
+ * </ul>
+ * <p>
+ * <p>Metrics are collected if they are set via <code>Jsprit.Builder.setMetrics(metrics)</code> (or, when building an
+ * algorithm manually, via the setMetrics methods of the algorithm, state manager, constraint manager and insertion
+ * builders). Components look up their timers and counters once, thus recording a measurement is a single atomic
+ * addition. Without metrics nothing is measured at all.
+ * <p>
+ * <p>Metrics are reported to {@link SolverMetricsListener}s every {@link #setReportingInterval(int)} iterations and
+ * when the algorithm ends, and they can be exposed via JMX with {@link #registerMBean(String)}.
+ *
+ * @author schroeder
+ */
+public class SolverMetrics implements SolverMetricsMXBean, IterationEndsListener, AlgorithmEndsListener {
+
+    /**
+     * Phases of a search strategy run.
+     */
+    public enum Phase {
+        SELECTION, COPY, RUIN, RECREATE, COST, ACCEPTANCE
+    }
+
+    /**
+     * Cumulates the number, the wall time and the cpu time (in nanoseconds) of measurements.
+     */
+    public static class Timer {
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong wallTime = new AtomicLong();
+
+        private final AtomicLong cpuTime = new AtomicLong();
+
+        public void add(long wallTime) {
+            count.incrementAndGet();
+            this.wallTime.addAndGet(wallTime);
+        }
+
+        public void add(long wallTime, long cpuTime) {
+            add(wallTime);
+            this.cpuTime.addAndGet(cpuTime);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getWallTime() {
+            return wallTime.get();
+        }
+
+        public long getCpuTime() {
+            return cpuTime.get();
+        }
+
+        void reset() {
+            count.set(0);
+            wallTime.set(0);
+            cpuTime.set(0);
+        }
+
+    }
+
+    /**
+     * Counts events.
+     */
+    public static class Counter {
+
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public long getValue() {
+            return value.get();
+        }
+
+        void reset() {
+            value.set(0);
+        }
+
+    }
+
+    public static final String PHASE = "phase.";
+
+    public static final String INSERTION_CALLS = "insertion.calls.";
+
+    public static final String CONSTRAINT_REJECTIONS = "constraint.rejections.";
+
+    public static final String STATE_UPDATE = "state.update.";
+
+    public static final String STRATEGY_ACCEPTED = "strategy.accepted.";
+
+    public static final String STRATEGY_REJECTED = "strategy.rejected.";
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+
+    private final Timer[] phaseTimers = new Timer[Phase.values().length];
+
+    private final boolean cpuTimeMeasured;
+
+    private final AtomicLong iterations = new AtomicLong();
+
+    private final List<SolverMetricsListener> listeners = new CopyOnWriteArrayList<SolverMetricsListener>();
+
+    private int reportingInterval = 0;
+
+    private ObjectName objectName;
+
+    /**
+     * Creates metrics that measure the cpu time of phases if the jvm supports it.
+     */
+    public SolverMetrics() {
+        this(true);
+    }
+
+    /**
+     * Creates metrics.
+     *
+     * @param measureCpuTime whether the cpu time of phases should be measured (if the jvm supports it)
+     */
+    public SolverMetrics(boolean measureCpuTime) {
+        this.cpuTimeMeasured = measureCpuTime && threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        for (Phase phase : Phase.values()) {
+            phaseTimers[phase.ordinal()] = getTimer(getPhaseTimerName(phase));
+        }
+    }
+
+    /**
+     * Returns true if the cpu time of phases is measured.
+     *
+     * @return true if cpu time is measured
+     */
+    public boolean isCpuTimeMeasured() {
+        return cpuTimeMeasured;
+    }
+
+    /**
+     * Returns the cpu time of the current thread in nanoseconds, or 0 if cpu time is not measured.
+     *
+     * @return cpu time in nanoseconds
+     */
+    public long currentCpuTime() {
+        if (!cpuTimeMeasured) return 0;
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Records a measurement of the specified phase.
+     *
+     * @param phase    the phase
+     * @param wallTime wall time in nanoseconds
+     * @param cpuTime  cpu time in nanoseconds
+     */
+    public void addPhaseTime(Phase phase, long wallTime, long cpuTime) {
+        phaseTimers[phase.ordinal()].add(wallTime, cpuTime);
+    }
+
+    private static String getPhaseTimerName(Phase phase) {
+        return PHASE + phase.name().toLowerCase(Locale.ENGLISH);
+    }
+
+    public Timer getPhaseTimer(Phase phase) {
+        return phaseTimers[phase.ordinal()];
+    }
+
+    /**
+     * Returns the timer with the specified name. It is created if it does not exist.
+     *
+     * @param name the name of the timer
+     * @return timer
+     */
+    public Timer getTimer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            Timer newTimer = new Timer();
+            timer = timers.putIfAbsent(name, newTimer);
+            if (timer == null) timer = newTimer;
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the counter with the specified name. It is created if it does not exist.
+     *
+     * @param name the name of the counter
+     * @return counter
+     */
+    public Counter getCounter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null) counter = newCounter;
+        }
+        return counter;
+    }
+
+    public Counter getInsertionCallCounter(String calculatorName) {
+        return getCounter(INSERTION_CALLS + calculatorName);
+    }
+
+    public Counter getRejectionCounter(Object constraint) {
+        return getCounter(CONSTRAINT_REJECTIONS + constraint.getClass().getName());
+    }
+
+    public Timer getStateUpdateTimer(Object stateUpdater) {
+        return getTimer(STATE_UPDATE + stateUpdater.getClass().getName());
+    }
+
+    public Counter getAcceptedCounter(String strategyId) {
+        return getCounter(STRATEGY_ACCEPTED + strategyId);
+    }
+
+    public Counter getRejectedCounter(String strategyId) {
+        return getCounter(STRATEGY_REJECTED + strategyId);
+    }
+
+    /**
+     * Returns the share of solutions discovered by the specified strategy that have been accepted, or NaN if the
+     * strategy has not been run yet.
+     *
+     * @param strategyId the id of the search strategy
+     * @return acceptance ratio
+     */
+    public double getAcceptanceRatio(String strategyId) {
+        long accepted = getAcceptedCounter(strategyId).getValue();
+        long total = accepted + getRejectedCounter(strategyId).getValue();
+        if (total == 0) return Double.NaN;
+        return (double) accepted / (double) total;
+    }
+
+    public void addListener(SolverMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SolverMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the number of iterations after which listeners are informed. If it is 0 (default), listeners are only
+     * informed when the algorithm ends.
+     *
+     * @param reportingInterval number of iterations
+     */
+    public void setReportingInterval(int reportingInterval) {
+        if (reportingInterval < 0) throw new IllegalArgumentException("reporting interval must not be negative");
+        this.reportingInterval = reportingInterval;
+    }
+
+    @Override
+    public void informIterationEnds(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        iterations.incrementAndGet();
+        if (reportingInterval > 0 && i % reportingInterval == 0) informListeners(i);
+    }
+
+    @Override
+    public void informAlgorithmEnds(VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        informListeners((int) iterations.get());
+    }
+
+    private void informListeners(int iteration) {
+        for (SolverMetricsListener listener : listeners) {
+            listener.informMetrics(iteration, this);
+        }
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            values.put(e.getKey(), e.getValue().getValue());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getWallTimes() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, Timer> e : timers.entrySet()) {
+            values.put(e.getKey(), TimeUnit.NANOSECONDS.toMillis(e.getValue().getWallTime()));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getCpuTimes() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        if (!cpuTimeMeasured) return values;
+        for (Phase phase : Phase.values()) {
+            values.put(getPhaseTimerName(phase), TimeUnit.NANOSECONDS.toMillis(getPhaseTimer(phase).getCpuTime()));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getAcceptanceRatios() {
+        Map<String, Double> values = new TreeMap<String, Double>();
+        for (String name : counters.keySet()) {
+            if (!name.startsWith(STRATEGY_ACCEPTED)) continue;
+            String strategyId = name.substring(STRATEGY_ACCEPTED.length());
+            double ratio = getAcceptanceRatio(strategyId);
+            if (!Double.isNaN(ratio)) values.put(strategyId, ratio);
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        for (Timer timer : timers.values()) timer.reset();
+        for (Counter counter : counters.values()) counter.reset();
+        iterations.set(0);
+    }
+
+    /**
+     * Registers these metrics at the platform MBeanServer with the object name
+     * <code>com.graphhopper.jsprit:type=SolverMetrics,name=[name]</code>.
+     *
+     * @param name the name that distinguishes these metrics from others
+     * @return the object name
+     * @throws IllegalStateException if metrics cannot be registered, e.g. because the name is already in use
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        if (objectName != null) throw new IllegalStateException("metrics are already registered as " + objectName);
+        try {
+            ObjectName newObjectName = new ObjectName("com.graphhopper.jsprit:type=SolverMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+            objectName = newObjectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register metrics " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBeanServer if they have been registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) return;
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (mBeanServer.isRegistered(objectName)) mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister metrics " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[name=solverMetrics][iterations=" + iterations.get() + "][counters=" + getCounters() + "][wallTimes=" + getWallTimes() + "]";
+    }
+
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+/**
+ * Listener that is informed about the metrics of a running algorithm, i.e. every
+ * {@link SolverMetrics#setReportingInterval(int)} iterations and when the algorithm ends.
+ *
+ * @author schroeder
+ */
+public interface SolverMetricsListener {
+
+    /**
+     * Informs about the current metrics. Note that metrics are cumulated since they have been created or reset.
+     *
+     * @param iteration the number of iterations that have been completed
+     * @param metrics   the metrics
+     */
+    void informMetrics(int iteration, SolverMetrics metrics);
+
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SolverMetrics}, i.e. what is exposed via JMX when metrics are registered with
+ * {@link SolverMetrics#registerMBean(String)}.
+ *
+ * @author schroeder
+ */
+public interface SolverMetricsMXBean {
+
+    /**
+     * Returns the number of completed iterations.
+     *
+     * @return number of iterations
+     */
+    long getIterations();
+
+    /**
+     * Returns all counters by name, e.g. insertion calls per calculator and rejections per constraint.
+     *
+     * @return counters by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns the wall time in milliseconds of all timers by name, e.g. per phase and per state updater.
+     *
+     * @return wall times in milliseconds by name
+     */
+    Map<String, Long> getWallTimes();
+
+    /**
+     * Returns the cpu time in milliseconds of all timers that measure cpu time, i.e. of the phases.
+     *
+     * @return cpu times in milliseconds by name
+     */
+    Map<String, Long> getCpuTimes();
+
+    /**
+     * Returns the share of accepted solutions per search strategy id. Strategies that have not been run are omitted.
+     *
+     * @return acceptance ratio by strategy id
+     */
+    Map<String, Double> getAcceptanceRatios();
+
+    /**
+     * Sets all counters and timers to zero.
+     */
+    void reset();
+
+}
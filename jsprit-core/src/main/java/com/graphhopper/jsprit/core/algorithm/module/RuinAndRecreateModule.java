@@ -18,6 +18,7 @@ package com.graphhopper.jsprit.core.algorithm.module;
 
 import com.graphhopper.jsprit.core.algorithm.SearchStrategyModule;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
 import com.graphhopper.jsprit.core.algorithm.ruin.RuinStrategy;
@@ -38,6 +39,8 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
 
     private String moduleName;
 
+    private SolverMetrics metrics;
+
     public RuinAndRecreateModule(String moduleName, InsertionStrategy insertion, RuinStrategy ruin) {
         super();
         this.insertion = insertion;
@@ -47,11 +50,27 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
 
     @Override
     public VehicleRoutingProblemSolution runAndGetSolution(VehicleRoutingProblemSolution vrpSolution) {
+        long startTime = 0;
+        long startCpuTime = 0;
+        if (metrics != null) {
+            startTime = System.nanoTime();
+            startCpuTime = metrics.currentCpuTime();
+        }
         Collection<Job> ruinedJobs = ruin.ruin(vrpSolution.getRoutes());
         Set<Job> ruinedJobSet = new HashSet<Job>();
         ruinedJobSet.addAll(ruinedJobs);
         ruinedJobSet.addAll(vrpSolution.getUnassignedJobs());
+        if (metrics != null) {
+            long time = System.nanoTime();
+            long cpuTime = metrics.currentCpuTime();
+            metrics.addPhaseTime(SolverMetrics.Phase.RUIN, time - startTime, cpuTime - startCpuTime);
+            startTime = time;
+            startCpuTime = cpuTime;
+        }
         Collection<Job> unassignedJobs = insertion.insertJobs(vrpSolution.getRoutes(), ruinedJobSet);
+        if (metrics != null) {
+            metrics.addPhaseTime(SolverMetrics.Phase.RECREATE, System.nanoTime() - startTime, metrics.currentCpuTime() - startCpuTime);
+        }
         vrpSolution.getUnassignedJobs().clear();
         vrpSolution.getUnassignedJobs().addAll(unassignedJobs);
         return vrpSolution;
@@ -80,6 +99,15 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
 
     }
 
+    /**
+     * Sets metrics that record the time of ruin and recreate.
+     *
+     * @param metrics the metrics, or null if nothing should be measured
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public InsertionStrategy getInsertion() {
         return insertion;
     }
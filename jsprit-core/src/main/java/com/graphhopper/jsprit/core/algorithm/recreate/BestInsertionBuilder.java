@@ -17,7 +17,9 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners.PrioritizedVRAListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
@@ -64,6 +66,14 @@ public class BestInsertionBuilder {
 
     private boolean addDefaultCostCalc = true;
 
+    private boolean cacheInsertionData = false;
+
+    private JobNeighborhoods jobNeighborhoods;
+
+    private int noNeighbors;
+
+    private SolverMetrics metrics;
+
     public BestInsertionBuilder(VehicleRoutingProblem vrp, VehicleFleetManager vehicleFleetManager, StateManager stateManager, ConstraintManager constraintManager) {
         super();
         this.vrp = vrp;
@@ -124,6 +134,43 @@ public class BestInsertionBuilder {
 
     ;
 
+    /**
+     * Sets a flag to cache insertion data of routes that have not changed within a recreate pass
+     * (see {@link InsertionDataCache}). Default is false.
+     *
+     * @param cacheInsertionData true if insertion data should be cached
+     * @return builder
+     */
+    public BestInsertionBuilder setCacheInsertionData(boolean cacheInsertionData) {
+        this.cacheInsertionData = cacheInsertionData;
+        return this;
+    }
+
+    /**
+     * Sets granular insertion, i.e. a service is only inserted next to one of its noNeighbors nearest neighbors
+     * (or next to route start and end) unless none of these positions is feasible. Default is to evaluate all positions.
+     *
+     * @param jobNeighborhoods initialised neighborhoods of jobs
+     * @param noNeighbors      number of nearest neighbors k
+     * @return builder
+     */
+    public BestInsertionBuilder setGranularInsertion(JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        this.jobNeighborhoods = jobNeighborhoods;
+        this.noNeighbors = noNeighbors;
+        return this;
+    }
+
+    /**
+     * Sets metrics that count the getInsertionData calls of each insertion calculator. Default is no metrics.
+     *
+     * @param metrics the metrics
+     * @return builder
+     */
+    public BestInsertionBuilder setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     public BestInsertionBuilder setConcurrentMode(ExecutorService executor, int nuOfThreads) {
         this.executor = executor;
         this.nuOfThreads = nuOfThreads;
@@ -152,6 +199,11 @@ public class BestInsertionBuilder {
             calcBuilder.experimentalTimeScheduler(timeSlice, nNeighbors);
         }
         calcBuilder.setAllowVehicleSwitch(allowVehicleSwitch);
+        calcBuilder.cacheInsertionData(cacheInsertionData);
+        if (jobNeighborhoods != null) {
+            calcBuilder.setGranularInsertion(jobNeighborhoods, noNeighbors);
+        }
+        calcBuilder.setMetrics(metrics);
         JobInsertionCostsCalculator jobInsertions = calcBuilder.build();
         InsertionStrategy bestInsertion;
         if (executor == null) {
@@ -30,10 +30,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
+ * Best insertion that evaluates routes concurrently.
+ * <p>
+ * <p>Routes are distributed to nuOfBatches batches. For the whole recreate phase, nuOfBatches-1 workers are pinned to
+ * the executorService and, together with the calling thread, take batches of each unassigned job until all batches are
+ * evaluated. They share the best insertion cost found so far, thus each worker can prune routes with the best cost of
+ * any other worker. Since the calling thread participates, this cannot deadlock even if the executorService has
+ * less threads than batches.
+ *
  * @author stefan schroeder
  */
 
@@ -44,24 +54,147 @@ public final class BestInsertionConcurrent extends AbstractInsertionStrategy {
 
     }
 
-    class Insertion {
+    /*
+     * state that is shared by the calling thread and the workers during one recreate phase
+     */
+    private class InsertionRound implements Runnable {
+
+        private final List<Batch> batches;
+
+        private final VehicleRoute[] bestRoutes;
+
+        private final InsertionData[] bestInsertionData;
+
+        private final AtomicInteger nextBatch = new AtomicInteger(Integer.MAX_VALUE);
+
+        private final AtomicInteger finishedBatches = new AtomicInteger();
+
+        private final AtomicLong bestCost = new AtomicLong();
 
-        private final VehicleRoute route;
+        private final Object lock = new Object();
 
-        private final InsertionData insertionData;
+        private volatile Job job;
 
-        public Insertion(VehicleRoute vehicleRoute, InsertionData insertionData) {
-            super();
-            this.route = vehicleRoute;
-            this.insertionData = insertionData;
+        private volatile Throwable failure;
+
+        private int generation = 0;
+
+        private boolean stopped = false;
+
+        InsertionRound(List<Batch> batches) {
+            this.batches = batches;
+            this.bestRoutes = new VehicleRoute[batches.size()];
+            this.bestInsertionData = new InsertionData[batches.size()];
+        }
+
+        @Override
+        public void run() {
+            int lastGeneration = 0;
+            while (true) {
+                synchronized (lock) {
+                    while (generation == lastGeneration && !stopped) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (stopped) return;
+                    lastGeneration = generation;
+                }
+                evaluateBatches();
+            }
         }
 
-        public VehicleRoute getRoute() {
-            return route;
+        /*
+         * called by the calling thread only. returns the batch with the best insertion, or -1 if there is none.
+         */
+        int evaluate(Job unassignedJob) {
+            job = unassignedJob;
+            bestCost.set(Double.doubleToLongBits(Double.MAX_VALUE));
+            finishedBatches.set(0);
+            nextBatch.set(0);
+            synchronized (lock) {
+                generation++;
+                lock.notifyAll();
+            }
+            evaluateBatches();
+            boolean interrupted = false;
+            synchronized (lock) {
+                while (finishedBatches.get() < batches.size()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (failure != null) throw new RuntimeException(failure);
+            int bestBatch = -1;
+            double bestInsertionCost = Double.MAX_VALUE;
+            for (int b = 0; b < batches.size(); b++) {
+                if (bestInsertionData[b] == null) continue;
+                if (bestInsertionData[b].getInsertionCost() < bestInsertionCost) {
+                    bestBatch = b;
+                    bestInsertionCost = bestInsertionData[b].getInsertionCost();
+                }
+            }
+            return bestBatch;
         }
 
-        public InsertionData getInsertionData() {
-            return insertionData;
+        private void evaluateBatches() {
+            int b;
+            while ((b = nextBatch.getAndIncrement()) < batches.size()) {
+                try {
+                    evaluate(b);
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    if (finishedBatches.incrementAndGet() == batches.size()) {
+                        synchronized (lock) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void evaluate(int b) {
+            Job unassignedJob = job;
+            VehicleRoute bestRoute = null;
+            InsertionData bestData = null;
+            double bestInsertionCost = Double.MAX_VALUE;
+            for (VehicleRoute vehicleRoute : batches.get(b).routes) {
+                double bestKnownCost = Math.min(bestInsertionCost, Double.longBitsToDouble(bestCost.get()));
+                InsertionData iData = bestInsertionCostCalculator.getInsertionData(vehicleRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestKnownCost);
+                if (iData instanceof NoInsertionFound) {
+                    continue;
+                }
+                if (iData.getInsertionCost() < bestInsertionCost) {
+                    bestRoute = vehicleRoute;
+                    bestData = iData;
+                    bestInsertionCost = iData.getInsertionCost();
+                    updateBestCost(bestInsertionCost);
+                }
+            }
+            bestRoutes[b] = bestRoute;
+            bestInsertionData[b] = bestData;
+        }
+
+        private void updateBestCost(double cost) {
+            while (true) {
+                long current = bestCost.get();
+                if (Double.longBitsToDouble(current) <= cost) return;
+                if (bestCost.compareAndSet(current, Double.doubleToLongBits(cost))) return;
+            }
+        }
+
+        void stop() {
+            synchronized (lock) {
+                stopped = true;
+                lock.notifyAll();
+            }
         }
 
     }
@@ -80,14 +213,14 @@ public final class BestInsertionConcurrent extends AbstractInsertionStrategy {
 
     private int nuOfBatches;
 
-    private ExecutorCompletionService<Insertion> completionService;
+    private ExecutorService executorService;
 
     public BestInsertionConcurrent(JobInsertionCostsCalculator jobInsertionCalculator, ExecutorService executorService, int nuOfBatches, VehicleRoutingProblem vehicleRoutingProblem) {
         super(vehicleRoutingProblem);
         this.insertionsListeners = new InsertionListeners();
         this.nuOfBatches = nuOfBatches;
         bestInsertionCostCalculator = jobInsertionCalculator;
-        completionService = new ExecutorCompletionService<Insertion>(executorService);
+        this.executorService = executorService;
         logger.debug("initialise {}", this);
     }
 
@@ -102,63 +235,40 @@ public final class BestInsertionConcurrent extends AbstractInsertionStrategy {
         List<Job> unassignedJobList = new ArrayList<Job>(unassignedJobs);
         Collections.shuffle(unassignedJobList, random);
         List<Batch> batches = distributeRoutes(vehicleRoutes, nuOfBatches);
-        for (final Job unassignedJob : unassignedJobList) {
-            Insertion bestInsertion = null;
-            double bestInsertionCost = Double.MAX_VALUE;
-            for (final Batch batch : batches) {
-                completionService.submit(new Callable<Insertion>() {
-
-                    @Override
-                    public Insertion call() throws Exception {
-                        return getBestInsertion(batch, unassignedJob);
-                    }
-
-                });
+        InsertionRound round = new InsertionRound(batches);
+        if (!unassignedJobList.isEmpty()) {
+            for (int i = 1; i < batches.size(); i++) {
+                executorService.execute(round);
             }
-            try {
-                for (int i = 0; i < batches.size(); i++) {
-                    Future<Insertion> futureIData = completionService.take();
-                    Insertion insertion = futureIData.get();
-                    if (insertion == null) continue;
-                    if (insertion.getInsertionData().getInsertionCost() < bestInsertionCost) {
-                        bestInsertion = insertion;
-                        bestInsertionCost = insertion.getInsertionData().getInsertionCost();
-                    }
+        }
+        try {
+            for (Job unassignedJob : unassignedJobList) {
+                VehicleRoute bestRoute = null;
+                InsertionData bestInsertionData = null;
+                double bestInsertionCost = Double.MAX_VALUE;
+                int bestBatch = round.evaluate(unassignedJob);
+                if (bestBatch >= 0) {
+                    bestRoute = round.bestRoutes[bestBatch];
+                    bestInsertionData = round.bestInsertionData[bestBatch];
+                    bestInsertionCost = bestInsertionData.getInsertionCost();
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
-            }
-            VehicleRoute newRoute = VehicleRoute.emptyRoute();
-            InsertionData newIData = bestInsertionCostCalculator.getInsertionData(newRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
-            if (newIData.getInsertionCost() < bestInsertionCost) {
-                bestInsertion = new Insertion(newRoute, newIData);
-                vehicleRoutes.add(newRoute);
-                batches.get(random.nextInt(batches.size())).routes.add(newRoute);
+                VehicleRoute newRoute = VehicleRoute.emptyRoute();
+                InsertionData newIData = bestInsertionCostCalculator.getInsertionData(newRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
+                if (newIData.getInsertionCost() < bestInsertionCost) {
+                    bestRoute = newRoute;
+                    bestInsertionData = newIData;
+                    vehicleRoutes.add(newRoute);
+                    batches.get(random.nextInt(batches.size())).routes.add(newRoute);
+                }
+                if (bestRoute == null) badJobs.add(unassignedJob);
+                else insertJob(unassignedJob, bestInsertionData, bestRoute);
             }
-            if (bestInsertion == null) badJobs.add(unassignedJob);
-            else insertJob(unassignedJob, bestInsertion.getInsertionData(), bestInsertion.getRoute());
+        } finally {
+            round.stop();
         }
         return badJobs;
     }
 
-    private Insertion getBestInsertion(Batch batch, Job unassignedJob) {
-        Insertion bestInsertion = null;
-        double bestInsertionCost = Double.MAX_VALUE;
-        for (VehicleRoute vehicleRoute : batch.routes) {
-            InsertionData iData = bestInsertionCostCalculator.getInsertionData(vehicleRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
-            if (iData instanceof NoInsertionFound) {
-                continue;
-            }
-            if (iData.getInsertionCost() < bestInsertionCost) {
-                bestInsertion = new Insertion(vehicleRoute, iData);
-                bestInsertionCost = iData.getInsertionCost();
-            }
-        }
-        return bestInsertion;
-    }
-
     private List<Batch> distributeRoutes(Collection<VehicleRoute> vehicleRoutes, int nuOfBatches) {
         List<Batch> batches = new ArrayList<Batch>();
         for (int i = 0; i < nuOfBatches; i++) batches.add(new Batch());
@@ -17,7 +17,9 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
@@ -75,6 +77,14 @@ public class InsertionBuilder {
 
     private boolean isFastRegret = false;
 
+    private boolean cacheInsertionData = false;
+
+    private JobNeighborhoods jobNeighborhoods;
+
+    private int noNeighbors;
+
+    private SolverMetrics metrics;
+
     public InsertionBuilder(VehicleRoutingProblem vrp, VehicleFleetManager vehicleFleetManager, StateManager stateManager, ConstraintManager constraintManager) {
         super();
         this.vrp = vrp;
@@ -138,6 +148,43 @@ public class InsertionBuilder {
         return this;
     }
 
+    /**
+     * Sets a flag to cache insertion data of routes that have not changed within a recreate pass
+     * (see {@link InsertionDataCache}). Default is false.
+     *
+     * @param cacheInsertionData true if insertion data should be cached
+     * @return builder
+     */
+    public InsertionBuilder setCacheInsertionData(boolean cacheInsertionData) {
+        this.cacheInsertionData = cacheInsertionData;
+        return this;
+    }
+
+    /**
+     * Sets granular insertion, i.e. a service is only inserted next to one of its noNeighbors nearest neighbors
+     * (or next to route start and end) unless none of these positions is feasible. Default is to evaluate all positions.
+     *
+     * @param jobNeighborhoods initialised neighborhoods of jobs
+     * @param noNeighbors      number of nearest neighbors k
+     * @return builder
+     */
+    public InsertionBuilder setGranularInsertion(JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        this.jobNeighborhoods = jobNeighborhoods;
+        this.noNeighbors = noNeighbors;
+        return this;
+    }
+
+    /**
+     * Sets metrics that count the getInsertionData calls of each insertion calculator. Default is no metrics.
+     *
+     * @param metrics the metrics
+     * @return builder
+     */
+    public InsertionBuilder setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     public InsertionBuilder setConcurrentMode(ExecutorService executor, int nuOfThreads) {
         this.executor = executor;
         this.nuOfThreads = nuOfThreads;
@@ -166,6 +213,11 @@ public class InsertionBuilder {
             calcBuilder.experimentalTimeScheduler(timeSlice, nNeighbors);
         }
         calcBuilder.setAllowVehicleSwitch(allowVehicleSwitch);
+        calcBuilder.cacheInsertionData(cacheInsertionData);
+        if (jobNeighborhoods != null) {
+            calcBuilder.setGranularInsertion(jobNeighborhoods, noNeighbors);
+        }
+        calcBuilder.setMetrics(metrics);
         JobInsertionCostsCalculator costCalculator = calcBuilder.build();
 
         InsertionStrategy insertion;
@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionEndsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionStartsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.JobInsertedListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
+import com.graphhopper.jsprit.core.problem.constraint.Constraint;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivities;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the insertion data of the decorated calculator.
+ * <p>
+ * <p>Insertion data is stored per route version, i.e. per modification stamp of the route's activities
+ * ({@link TourActivities#getModificationStamp()}), vehicle and departure time, and per job, new vehicle, departure time
+ * and driver. As long as a route is not modified, re-evaluating a job returns the cached data. This pays off whenever jobs
+ * are evaluated repeatedly against routes that have not changed, e.g. in the rounds of regret insertion where only the
+ * route the last job has been inserted into changes. The cache is thread-safe and can thus decorate calculators used
+ * concurrently.
+ * <p>
+ * <p>Cached data is reused for other bestKnownCosts, assuming that the decorated calculator returns the cheapest
+ * insertion if it is cheaper than bestKnownCosts and NoInsertionFound otherwise. Insertion data thus must only depend on
+ * the route, the job and the arguments, but not on other routes or on the progress of the insertion (like fixed costs
+ * weighted by solution completeness). Put the cache below such calculators.
+ * <p>
+ * <p>Random insertion noise would be frozen by the cache, i.e. a job would get the noise of its first evaluation against a
+ * route version over and over again. Thus, while any {@link InsertionNoise} is active, the cache is bypassed. Noise is either
+ * added explicitly or, if a constraintManager is specified, looked up among its constraints whenever an insertion starts.
+ * <p>
+ * <p>Register the cache as insertion listener (and optionally as ruin listener). It is cleared whenever an insertion
+ * starts, i.e. data is only reused within one recreate pass, and drops data of route versions that have been modified.
+ * Additionally, it is cleared whenever it holds more than maxRouteVersions route versions.
+ *
+ * @author schroeder
+ */
+public class InsertionDataCache implements JobInsertionCostsCalculator, InsertionStartsListener, JobInsertedListener, InsertionEndsListener, RuinListener {
+
+    private static class Key {
+
+        private final Job job;
+
+        private final Vehicle routeVehicle;
+
+        private final double routeDepartureTime;
+
+        private final Vehicle newVehicle;
+
+        private final Driver newDriver;
+
+        private final double departureTime;
+
+        private final int hashCode;
+
+        Key(Job job, Vehicle routeVehicle, double routeDepartureTime, Vehicle newVehicle, Driver newDriver, double departureTime) {
+            this.job = job;
+            this.routeVehicle = routeVehicle;
+            this.routeDepartureTime = routeDepartureTime;
+            this.newVehicle = newVehicle;
+            this.newDriver = newDriver;
+            this.departureTime = departureTime;
+            long time = Double.doubleToLongBits(departureTime) ^ Double.doubleToLongBits(routeDepartureTime);
+            int h = System.identityHashCode(job);
+            h = 31 * h + System.identityHashCode(routeVehicle);
+            h = 31 * h + System.identityHashCode(newVehicle);
+            h = 31 * h + System.identityHashCode(newDriver);
+            this.hashCode = 31 * h + (int) (time ^ (time >>> 32));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return job == key.job && routeVehicle == key.routeVehicle && newVehicle == key.newVehicle && newDriver == key.newDriver
+                && Double.doubleToLongBits(departureTime) == Double.doubleToLongBits(key.departureTime)
+                && Double.doubleToLongBits(routeDepartureTime) == Double.doubleToLongBits(key.routeDepartureTime);
+        }
+
+    }
+
+    private static class Entry {
+
+        private final InsertionData insertionData;
+
+        /*
+         * bestKnownCosts the data has been calculated with. only relevant if no insertion has been found.
+         */
+        private final double bestKnownCosts;
+
+        Entry(InsertionData insertionData, double bestKnownCosts) {
+            this.insertionData = insertionData;
+            this.bestKnownCosts = bestKnownCosts;
+        }
+
+    }
+
+    private static Logger logger = LogManager.getLogger(InsertionDataCache.class);
+
+    private final JobInsertionCostsCalculator calculator;
+
+    private final ConcurrentMap<Long, ConcurrentMap<Key, Entry>> routeVersions = new ConcurrentHashMap<Long, ConcurrentMap<Key, Entry>>();
+
+    private final Map<VehicleRoute, Long> knownRouteVersions = new IdentityHashMap<VehicleRoute, Long>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private int maxRouteVersions = 10000;
+
+    private final ConstraintManager constraintManager;
+
+    private final List<InsertionNoise> addedNoise = new ArrayList<InsertionNoise>();
+
+    private List<InsertionNoise> noise = new ArrayList<InsertionNoise>();
+
+    public InsertionDataCache(JobInsertionCostsCalculator calculator) {
+        this(calculator, null);
+    }
+
+    /**
+     * Constructs the cache. Constraints of constraintManager that are {@link InsertionNoise} bypass the cache while they
+     * are active.
+     *
+     * @param calculator        the calculator to be decorated
+     * @param constraintManager the constraintManager whose constraints are looked up for noise, or null
+     */
+    public InsertionDataCache(JobInsertionCostsCalculator calculator, ConstraintManager constraintManager) {
+        this.calculator = calculator;
+        this.constraintManager = constraintManager;
+        updateNoise();
+        logger.debug("initialise {}", this);
+    }
+
+    /**
+     * Adds noise that bypasses the cache while it is active.
+     *
+     * @param insertionNoise the noise
+     */
+    public void addInsertionNoise(InsertionNoise insertionNoise) {
+        addedNoise.add(insertionNoise);
+        updateNoise();
+    }
+
+    private void updateNoise() {
+        List<InsertionNoise> newNoise = new ArrayList<InsertionNoise>(addedNoise);
+        if (constraintManager != null) {
+            for (Constraint constraint : constraintManager.getConstraints()) {
+                if (constraint instanceof InsertionNoise && !newNoise.contains(constraint)) newNoise.add((InsertionNoise) constraint);
+            }
+        }
+        noise = newNoise;
+    }
+
+    private boolean isNoiseActive() {
+        for (InsertionNoise n : noise) {
+            if (n.isActive()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the max number of route versions the cache holds data of. If it is exceeded, the cache is cleared.
+     * Default is 10000.
+     *
+     * @param maxRouteVersions max number of route versions
+     */
+    public void setMaxRouteVersions(int maxRouteVersions) {
+        if (maxRouteVersions < 1) throw new IllegalArgumentException("maxRouteVersions must be greater than zero");
+        this.maxRouteVersions = maxRouteVersions;
+    }
+
+    @Override
+    public InsertionData getInsertionData(VehicleRoute currentRoute, Job newJob, Vehicle newVehicle, double newVehicleDepartureTime, Driver newDriver, double bestKnownCosts) {
+        if (currentRoute.isEmpty() || isNoiseActive()) {
+            return calculator.getInsertionData(currentRoute, newJob, newVehicle, newVehicleDepartureTime, newDriver, bestKnownCosts);
+        }
+        Long routeVersion = currentRoute.getTourActivities().getModificationStamp();
+        ConcurrentMap<Key, Entry> entries = routeVersions.get(routeVersion);
+        if (entries == null) {
+            if (routeVersions.size() >= maxRouteVersions) {
+                logger.debug("insertion data of {} route versions cached. clear cache.", routeVersions.size());
+                routeVersions.clear();
+            }
+            ConcurrentMap<Key, Entry> newEntries = new ConcurrentHashMap<Key, Entry>();
+            entries = routeVersions.putIfAbsent(routeVersion, newEntries);
+            if (entries == null) entries = newEntries;
+        }
+        Key key = new Key(newJob, currentRoute.getVehicle(), currentRoute.getDepartureTime(), newVehicle, newDriver, newVehicleDepartureTime);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            InsertionData cached = entry.insertionData;
+            if (!(cached instanceof InsertionData.NoInsertionFound)) {
+                hits.incrementAndGet();
+                if (cached.getInsertionCost() < bestKnownCosts) return cached;
+                return InsertionData.createEmptyInsertionData();
+            }
+            if (bestKnownCosts <= entry.bestKnownCosts) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        InsertionData insertionData = calculator.getInsertionData(currentRoute, newJob, newVehicle, newVehicleDepartureTime, newDriver, bestKnownCosts);
+        entries.put(key, new Entry(insertionData, bestKnownCosts));
+        return insertionData;
+    }
+
+    /**
+     * Returns the number of calls that have been answered from the cache.
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of calls that have been passed to the decorated calculator.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the share of calls that have been answered from the cache, or 0 if there has been no call yet.
+     *
+     * @return hit rate
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0. : (double) h / (double) total;
+    }
+
+    /**
+     * Returns the number of route versions the cache holds data of.
+     *
+     * @return number of cached route versions
+     */
+    public int getNoRouteVersions() {
+        return routeVersions.size();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public void clear() {
+        routeVersions.clear();
+        knownRouteVersions.clear();
+    }
+
+    @Override
+    public void informInsertionStarts(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        routeVersions.clear();
+        updateNoise();
+        memorizeRouteVersions(vehicleRoutes);
+    }
+
+    @Override
+    public void informJobInserted(Job job2insert, VehicleRoute inRoute, double additionalCosts, double additionalTime) {
+        dropOutdatedRouteVersion(inRoute);
+    }
+
+    @Override
+    public void informInsertionEnds(Collection<VehicleRoute> vehicleRoutes) {
+        knownRouteVersions.clear();
+        logger.debug("insertion data cache: [hits={}][misses={}][routeVersions={}]", hits.get(), misses.get(), routeVersions.size());
+    }
+
+    @Override
+    public void ruinStarts(Collection<VehicleRoute> routes) {
+        memorizeRouteVersions(routes);
+    }
+
+    @Override
+    public void ruinEnds(Collection<VehicleRoute> routes, Collection<Job> unassignedJobs) {
+        knownRouteVersions.clear();
+    }
+
+    @Override
+    public void removed(Job job, VehicleRoute fromRoute) {
+        dropOutdatedRouteVersion(fromRoute);
+    }
+
+    private void memorizeRouteVersions(Collection<VehicleRoute> routes) {
+        knownRouteVersions.clear();
+        for (VehicleRoute route : routes) {
+            knownRouteVersions.put(route, route.getTourActivities().getModificationStamp());
+        }
+    }
+
+    private void dropOutdatedRouteVersion(VehicleRoute route) {
+        Long outdatedVersion = knownRouteVersions.put(route, route.getTourActivities().getModificationStamp());
+        if (outdatedVersion != null && outdatedVersion != route.getTourActivities().getModificationStamp()) {
+            routeVersions.remove(outdatedVersion);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[name=insertionDataCache][calculator=" + calculator + "]";
+    }
+
+}
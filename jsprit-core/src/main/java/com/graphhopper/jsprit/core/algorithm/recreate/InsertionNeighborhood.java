@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Memorizes the k nearest neighbors of each job of a problem for granular insertion, i.e. for evaluating only insertion
+ * positions next to one of the nearest neighbors of the job to insert.
+ * <p>
+ * <p>Neighbors are taken from {@link JobNeighborhoods}, which must have been initialised. They are stored as sorted
+ * arrays of job indices, thus looking up whether an activity belongs to a neighbor takes O(log k) and does not
+ * allocate anything.
+ *
+ * @author schroeder
+ */
+final class InsertionNeighborhood {
+
+    private static Logger logger = LogManager.getLogger(InsertionNeighborhood.class);
+
+    /*
+     * sorted indices of the k nearest neighbors by job index, null if job is unknown
+     */
+    private final int[][] neighbors;
+
+    private final int k;
+
+    InsertionNeighborhood(VehicleRoutingProblem vrp, JobNeighborhoods jobNeighborhoods, int k) {
+        if (k < 1) throw new IllegalArgumentException("number of neighbors must be greater than zero");
+        this.k = k;
+        int maxIndex = 0;
+        for (Job job : vrp.getJobs().values()) maxIndex = Math.max(maxIndex, job.getIndex());
+        neighbors = new int[maxIndex + 1][];
+        int[] buffer = new int[k];
+        for (Job job : vrp.getJobs().values()) {
+            if (job.getIndex() < 0) continue;
+            int noNeighbors = 0;
+            Iterator<Job> iterator = jobNeighborhoods.getNearestNeighborsIterator(k, job);
+            while (iterator.hasNext() && noNeighbors < k) {
+                buffer[noNeighbors++] = iterator.next().getIndex();
+            }
+            if (noNeighbors == 0) continue;
+            int[] jobNeighbors = Arrays.copyOf(buffer, noNeighbors);
+            Arrays.sort(jobNeighbors);
+            neighbors[job.getIndex()] = jobNeighbors;
+        }
+        logger.debug("initialise {}", this);
+    }
+
+    /**
+     * Returns true if neighbors of the specified job are known. Otherwise granular insertion is not applicable.
+     *
+     * @param job the job
+     * @return true if job has neighbors
+     */
+    boolean hasNeighbors(Job job) {
+        int index = job.getIndex();
+        return index >= 0 && index < neighbors.length && neighbors[index] != null;
+    }
+
+    /**
+     * Returns true if the specified activity belongs to one of the k nearest neighbors of job. The job must have
+     * neighbors (see {@link #hasNeighbors(Job)}).
+     *
+     * @param job the job to insert
+     * @param act the activity of the route
+     * @return true if act belongs to a neighbor of job
+     */
+    boolean isNeighbor(Job job, TourActivity act) {
+        if (!(act instanceof TourActivity.JobActivity)) return false;
+        Job other = ((TourActivity.JobActivity) act).getJob();
+        return Arrays.binarySearch(neighbors[job.getIndex()], other.getIndex()) >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "[name=insertionNeighborhood][k=" + k + "]";
+    }
+
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+/**
+ * Random noise that is added to insertion costs, e.g. by a soft constraint.
+ * <p>
+ * <p>Insertion data calculated while noise is active is random, thus {@link InsertionDataCache} does not cache it.
+ *
+ * @author schroeder
+ */
+public interface InsertionNoise {
+
+    /**
+     * Returns true if noise is currently added to insertion costs.
+     *
+     * @return true if noise is active
+     */
+    public boolean isActive();
+
+}
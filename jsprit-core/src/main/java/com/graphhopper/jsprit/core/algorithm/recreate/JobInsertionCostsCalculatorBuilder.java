@@ -17,7 +17,9 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners.PrioritizedVRAListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.problem.AbstractActivity;
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
@@ -93,6 +95,14 @@ public class JobInsertionCostsCalculatorBuilder {
 
     private boolean addDefaultCostCalc = true;
 
+    private boolean cacheInsertionData = false;
+
+    private JobNeighborhoods jobNeighborhoods;
+
+    private int noNeighbors;
+
+    private SolverMetrics metrics;
+
     /**
      * Constructs the builder.
      * <p>
@@ -185,6 +195,31 @@ public class JobInsertionCostsCalculatorBuilder {
         return this;
     }
 
+    /**
+     * Sets a flag to cache insertion data of routes that have not changed since the job has been evaluated last time
+     * (see {@link InsertionDataCache}).
+     *
+     * @param cacheInsertionData true if insertion data should be cached
+     */
+    public JobInsertionCostsCalculatorBuilder cacheInsertionData(boolean cacheInsertionData) {
+        this.cacheInsertionData = cacheInsertionData;
+        return this;
+    }
+
+    /**
+     * Sets granular insertion of services, i.e. only insertion positions next to one of the noNeighbors nearest
+     * neighbors of a service (and next to route start and end) are evaluated. If none of these positions is feasible,
+     * all positions are evaluated. Only applies to local level.
+     *
+     * @param jobNeighborhoods initialised neighborhoods of jobs
+     * @param noNeighbors      number of nearest neighbors k
+     */
+    public JobInsertionCostsCalculatorBuilder setGranularInsertion(JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        this.jobNeighborhoods = jobNeighborhoods;
+        this.noNeighbors = noNeighbors;
+        return this;
+    }
+
     public JobInsertionCostsCalculatorBuilder experimentalTimeScheduler(double timeSlice, int neighbors) {
         timeScheduling = true;
         this.timeSlice = timeSlice;
@@ -198,6 +233,22 @@ public class JobInsertionCostsCalculatorBuilder {
      * @return jobInsertionCalculator.
      * @throws IllegalStateException if vrp == null or activityStates == null or fleetManager == null.
      */
+    /**
+     * Sets metrics that count the getInsertionData calls of each calculator. Default is no metrics.
+     *
+     * @param metrics the metrics
+     * @return builder
+     */
+    public JobInsertionCostsCalculatorBuilder setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    private JobInsertionCostsCalculator metered(JobInsertionCostsCalculator calculator) {
+        if (metrics == null) return calculator;
+        return new MeteredJobInsertionCostsCalculator(calculator, metrics);
+    }
+
     public JobInsertionCostsCalculator build() {
         if (vrp == null)
             throw new IllegalStateException("vehicle-routing-problem is null, but it must be set (this.setVehicleRoutingProblem(vrp))");
@@ -216,6 +267,11 @@ public class JobInsertionCostsCalculatorBuilder {
         baseCalculator = standardLocal.getCalculator();
         addAlgorithmListeners(standardLocal.getAlgorithmListener());
         addInsertionListeners(standardLocal.getInsertionListener());
+        if (cacheInsertionData) {
+            InsertionDataCache cache = new InsertionDataCache(baseCalculator, constraintManager);
+            insertionListeners.add(cache);
+            baseCalculator = cache;
+        }
         if (considerFixedCost) {
             CalculatorPlusListeners withFixed = createCalculatorConsideringFixedCosts(vrp, baseCalculator, states, weightOfFixedCost);
             baseCalculator = withFixed.getCalculator();
@@ -230,7 +286,7 @@ public class JobInsertionCostsCalculatorBuilder {
             addInsertionListeners(calcPlusListeners.getInsertionListener());
             baseCalculator = calcPlusListeners.getCalculator();
         }
-        return createFinalInsertion(fleetManager, baseCalculator, states);
+        return metered(createFinalInsertion(fleetManager, baseCalculator, states));
     }
 
     private void checkServicesOnly() {
@@ -290,16 +346,21 @@ public class JobInsertionCostsCalculatorBuilder {
         shipmentInsertion.setJobActivityFactory(activityFactory);
         ServiceInsertionCalculator serviceInsertion = new ServiceInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), actInsertionCalc, constraintManager);
         serviceInsertion.setJobActivityFactory(activityFactory);
+        if (jobNeighborhoods != null) {
+            serviceInsertion.setInsertionNeighborhood(new InsertionNeighborhood(vrp, jobNeighborhoods, noNeighbors));
+        }
 
         BreakInsertionCalculator breakInsertionCalculator = new BreakInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), actInsertionCalc, constraintManager);
         breakInsertionCalculator.setJobActivityFactory(activityFactory);
 
+        JobInsertionCostsCalculator meteredShipmentInsertion = metered(shipmentInsertion);
+        JobInsertionCostsCalculator meteredServiceInsertion = metered(serviceInsertion);
         JobCalculatorSwitcher switcher = new JobCalculatorSwitcher();
-        switcher.put(Shipment.class, shipmentInsertion);
-        switcher.put(Service.class, serviceInsertion);
-        switcher.put(Pickup.class, serviceInsertion);
-        switcher.put(Delivery.class, serviceInsertion);
-        switcher.put(Break.class, breakInsertionCalculator);
+        switcher.put(Shipment.class, meteredShipmentInsertion);
+        switcher.put(Service.class, meteredServiceInsertion);
+        switcher.put(Pickup.class, meteredServiceInsertion);
+        switcher.put(Delivery.class, meteredServiceInsertion);
+        switcher.put(Break.class, metered(breakInsertionCalculator));
 
         CalculatorPlusListeners calculatorPlusListeners = new CalculatorPlusListeners(switcher);
         if (configLocal != null) {
@@ -347,7 +408,7 @@ public class JobInsertionCostsCalculatorBuilder {
                 return vrp.copyAndGetActivities(job);
             }
         });
-        return new CalculatorPlusListeners(jobInsertionCalculator);
+        return new CalculatorPlusListeners(metered(jobInsertionCalculator));
     }
 
     private JobInsertionCostsCalculator createFinalInsertion(VehicleFleetManager fleetManager, JobInsertionCostsCalculator baseCalc, RouteAndActivityStateGetter activityStates2) {
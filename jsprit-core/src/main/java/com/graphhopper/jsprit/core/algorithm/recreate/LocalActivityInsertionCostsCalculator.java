@@ -19,12 +19,17 @@ package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.util.CoordinateTransportCostsMatrix;
 
 /**
  * Calculates activity insertion costs locally, i.e. by comparing the additional costs of insertion the new activity k between
@@ -39,26 +44,35 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
 
     private VehicleRoutingTransportCosts routingCosts;
 
+    /*
+     * routingCosts if they are a matrix, thus location indices can be resolved once per call, otherwise null
+     */
+    private CoordinateTransportCostsMatrix matrix;
+
     private VehicleRoutingActivityCosts activityCosts;
 
     private double activityCostsWeight = 1.;
 
     private double solutionCompletenessRatio = 1.;
 
-    private RouteAndActivityStateGetter stateManager;
+    private RouteAndActivityDoubleStateGetter stateManager;
 
     public LocalActivityInsertionCostsCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts actCosts, RouteAndActivityStateGetter stateManager) {
         super();
         this.routingCosts = routingCosts;
+        if (routingCosts instanceof CoordinateTransportCostsMatrix) matrix = (CoordinateTransportCostsMatrix) routingCosts;
         this.activityCosts = actCosts;
-        this.stateManager = stateManager;
+        this.stateManager = DoubleStateGetterAdapter.of(stateManager);
     }
 
     @Override
     public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct) {
+        int prevIndex = getLocationIndex(prevAct);
+        int newIndex = getLocationIndex(newAct);
+        int nextIndex = getLocationIndex(nextAct);
 
-        double tp_costs_prevAct_newAct = routingCosts.getTransportCost(prevAct.getLocation(), newAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
-        double tp_time_prevAct_newAct = routingCosts.getTransportTime(prevAct.getLocation(), newAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_costs_prevAct_newAct = transportCost(prevIndex, newIndex, prevAct.getLocation(), newAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_time_prevAct_newAct = transportTime(prevIndex, newIndex, prevAct.getLocation(), newAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
         double newAct_arrTime = depTimeAtPrevAct + tp_time_prevAct_newAct;
         double newAct_endTime = Math.max(newAct_arrTime, newAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(newAct, newAct_arrTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
 
@@ -66,8 +80,8 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
 
         if (isEnd(nextAct) && !toDepot(iFacts.getNewVehicle())) return tp_costs_prevAct_newAct;
 
-        double tp_costs_newAct_nextAct = routingCosts.getTransportCost(newAct.getLocation(), nextAct.getLocation(), newAct_endTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
-        double tp_time_newAct_nextAct = routingCosts.getTransportTime(newAct.getLocation(), nextAct.getLocation(), newAct_endTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_costs_newAct_nextAct = transportCost(newIndex, nextIndex, newAct.getLocation(), nextAct.getLocation(), newAct_endTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_time_newAct_nextAct = transportTime(newIndex, nextIndex, newAct.getLocation(), nextAct.getLocation(), newAct_endTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
         double nextAct_arrTime = newAct_endTime + tp_time_newAct_nextAct;
         double endTime_nextAct_new = Math.max(nextAct_arrTime, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct, nextAct_arrTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
         double act_costs_nextAct = activityCosts.getActivityCost(nextAct, nextAct_arrTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
@@ -76,17 +90,17 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
 
         double oldCosts = 0.;
         if (iFacts.getRoute().isEmpty()) {
-            double tp_costs_prevAct_nextAct = routingCosts.getTransportCost(prevAct.getLocation(), nextAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
+            double tp_costs_prevAct_nextAct = transportCost(prevIndex, nextIndex, prevAct.getLocation(), nextAct.getLocation(), depTimeAtPrevAct, iFacts.getNewDriver(), iFacts.getNewVehicle());
             oldCosts += tp_costs_prevAct_nextAct;
         } else {
-            double tp_costs_prevAct_nextAct = routingCosts.getTransportCost(prevAct.getLocation(), nextAct.getLocation(), prevAct.getEndTime(), iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
-            double arrTime_nextAct = depTimeAtPrevAct + routingCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevAct.getEndTime(), iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
+            double tp_costs_prevAct_nextAct = transportCost(prevIndex, nextIndex, prevAct.getLocation(), nextAct.getLocation(), prevAct.getEndTime(), iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
+            double arrTime_nextAct = depTimeAtPrevAct + transportTime(prevIndex, nextIndex, prevAct.getLocation(), nextAct.getLocation(), prevAct.getEndTime(), iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
             double endTime_nextAct_old = Math.max(arrTime_nextAct, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct, arrTime_nextAct, iFacts.getRoute().getDriver(),iFacts.getRoute().getVehicle());
             double actCost_nextAct = activityCosts.getActivityCost(nextAct, arrTime_nextAct, iFacts.getRoute().getDriver(), iFacts.getRoute().getVehicle());
 
             double endTimeDelay_nextAct = Math.max(0, endTime_nextAct_new - endTime_nextAct_old);
-            Double futureWaiting = stateManager.getActivityState(nextAct, iFacts.getRoute().getVehicle(), InternalStates.FUTURE_WAITING, Double.class);
-            if (futureWaiting == null) futureWaiting = 0.;
+            double futureWaiting = stateManager.getActivityStateDouble(nextAct, iFacts.getRoute().getVehicle(), InternalStates.FUTURE_WAITING);
+            if (Double.isNaN(futureWaiting)) futureWaiting = 0.;
             double waitingTime_savings_timeUnit = Math.min(futureWaiting, endTimeDelay_nextAct);
             double waitingTime_savings = waitingTime_savings_timeUnit * iFacts.getRoute().getVehicle().getType().getVehicleCostParams().perWaitingTimeUnit;
             oldCosts += solutionCompletenessRatio * activityCostsWeight * waitingTime_savings;
@@ -95,6 +109,20 @@ class LocalActivityInsertionCostsCalculator implements ActivityInsertionCostsCal
         return totalCosts - oldCosts;
     }
 
+    private int getLocationIndex(TourActivity act) {
+        return matrix == null ? -1 : matrix.getIndex(act.getLocation());
+    }
+
+    private double transportCost(int fromIndex, int toIndex, Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (fromIndex >= 0 && toIndex >= 0) return matrix.getTransportCost(fromIndex, toIndex, vehicle);
+        return routingCosts.getTransportCost(from, to, departureTime, driver, vehicle);
+    }
+
+    private double transportTime(int fromIndex, int toIndex, Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (fromIndex >= 0 && toIndex >= 0) return matrix.getTransportTime(fromIndex, toIndex);
+        return routingCosts.getTransportTime(from, to, departureTime, driver, vehicle);
+    }
+
     private boolean toDepot(Vehicle newVehicle) {
         return newVehicle.isReturnToDepot();
     }
@@ -25,6 +25,8 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 
 import java.util.ArrayList;
@@ -37,14 +39,14 @@ class RouteLevelActivityInsertionCostsEstimator implements ActivityInsertionCost
 
     private AuxilliaryCostCalculator auxilliaryPathCostCalculator;
 
-    private RouteAndActivityStateGetter stateManager;
+    private RouteAndActivityDoubleStateGetter stateManager;
 
     private int nuOfActivities2LookForward = 0;
 
     public RouteLevelActivityInsertionCostsEstimator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts actCosts, RouteAndActivityStateGetter stateManager) {
         super();
         this.activityCosts = actCosts;
-        this.stateManager = stateManager;
+        this.stateManager = DoubleStateGetterAdapter.of(stateManager);
         auxilliaryPathCostCalculator = new AuxilliaryCostCalculator(routingCosts, activityCosts);
     }
 
@@ -69,13 +71,13 @@ class RouteLevelActivityInsertionCostsEstimator implements ActivityInsertionCost
     }
 
     private double actCostsOld(VehicleRoute vehicleRoute, TourActivity act) {
-        Double cost_at_act;
+        double cost_at_act;
         if (act instanceof End) {
-            cost_at_act = stateManager.getRouteState(vehicleRoute, InternalStates.COSTS, Double.class);
+            cost_at_act = stateManager.getRouteStateDouble(vehicleRoute, InternalStates.COSTS);
         } else {
-            cost_at_act = stateManager.getActivityState(act, InternalStates.COSTS, Double.class);
+            cost_at_act = stateManager.getActivityStateDouble(act, InternalStates.COSTS);
         }
-        if (cost_at_act == null) cost_at_act = 0.;
+        if (Double.isNaN(cost_at_act)) cost_at_act = 0.;
         return cost_at_act;
     }
 
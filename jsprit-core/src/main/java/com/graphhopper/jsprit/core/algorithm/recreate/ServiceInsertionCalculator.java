@@ -32,10 +32,12 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.util.CoordinateTransportCostsMatrix;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Calculator that calculates the best insertion position for a {@link Service}.
@@ -56,6 +58,11 @@ final class ServiceInsertionCalculator implements JobInsertionCostsCalculator {
 
     private VehicleRoutingTransportCosts transportCosts;
 
+    /*
+     * transportCosts if they are a matrix, thus each location index is resolved once per scan, otherwise null
+     */
+    private CoordinateTransportCostsMatrix matrix;
+
     private final VehicleRoutingActivityCosts activityCosts;
 
     private ActivityInsertionCostsCalculator additionalTransportCostsCalculator;
@@ -64,9 +71,12 @@ final class ServiceInsertionCalculator implements JobInsertionCostsCalculator {
 
     private AdditionalAccessEgressCalculator additionalAccessEgressCalculator;
 
+    private InsertionNeighborhood insertionNeighborhood;
+
     public ServiceInsertionCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts, ActivityInsertionCostsCalculator additionalTransportCostsCalculator, ConstraintManager constraintManager) {
         super();
         this.transportCosts = routingCosts;
+        if (routingCosts instanceof CoordinateTransportCostsMatrix) matrix = (CoordinateTransportCostsMatrix) routingCosts;
         this.activityCosts = activityCosts;
         hardRouteLevelConstraint = constraintManager;
         hardActivityLevelConstraint = constraintManager;
@@ -81,6 +91,16 @@ final class ServiceInsertionCalculator implements JobInsertionCostsCalculator {
         this.activityFactory = jobActivityFactory;
     }
 
+    /**
+     * Sets the neighborhood for granular insertion, i.e. only positions next to the nearest neighbors of a service are
+     * evaluated (plus the positions next to start and end). If none of them is feasible, all positions are evaluated.
+     *
+     * @param insertionNeighborhood the neighborhood, or null if all positions should be evaluated
+     */
+    void setInsertionNeighborhood(InsertionNeighborhood insertionNeighborhood) {
+        this.insertionNeighborhood = insertionNeighborhood;
+    }
+
     @Override
     public String toString() {
         return "[name=calculatesServiceInsertion]";
@@ -122,44 +142,73 @@ final class ServiceInsertionCalculator implements JobInsertionCostsCalculator {
         start.setEndTime(newVehicleDepartureTime);
         End end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
 
-        TourActivity prevAct = start;
-        double prevActStartTime = newVehicleDepartureTime;
-        int actIndex = 0;
-        Iterator<TourActivity> activityIterator = currentRoute.getActivities().iterator();
-        boolean tourEnd = false;
-        while(!tourEnd){
-            TourActivity nextAct;
-            if(activityIterator.hasNext()) nextAct = activityIterator.next();
-            else{
-                nextAct = end;
-                tourEnd = true;
-            }
-            boolean not_fulfilled_break = true;
-			for(TimeWindow timeWindow : service.getTimeWindows()) {
-                deliveryAct2Insert.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
-                deliveryAct2Insert.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
-                ActivityContext activityContext = new ActivityContext();
-                activityContext.setInsertionIndex(actIndex);
-                insertionContext.setActivityContext(activityContext);
-                ConstraintsStatus status = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
-                if (status.equals(ConstraintsStatus.FULFILLED)) {
-                    double additionalICostsAtActLevel = softActivityConstraint.getCosts(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
-                    double additionalTransportationCosts = additionalTransportCostsCalculator.getCosts(insertionContext, prevAct, nextAct, deliveryAct2Insert, prevActStartTime);
-                    if (additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts < bestCost) {
-                        bestCost = additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts;
-                        insertionIndex = actIndex;
-                        bestTimeWindow = timeWindow;
+        /*
+        objects used in the loop below are created once per call, i.e. evaluating an insertion position does not
+        allocate anything (apart from what the constraints allocate)
+         */
+        Collection<TimeWindow> serviceTimeWindows = service.getTimeWindows();
+        TimeWindow[] timeWindows = serviceTimeWindows.toArray(new TimeWindow[serviceTimeWindows.size()]);
+        ActivityContext activityContext = new ActivityContext();
+        List<TourActivity> activities = currentRoute.getTourActivities().getActivities();
+
+        /*
+        in granular mode, only positions next to one of the service's nearest neighbors (and next to start and end) are
+        evaluated. if none of these positions is feasible, all positions are scanned.
+         */
+        boolean scanAllPositions = insertionNeighborhood == null || !insertionNeighborhood.hasNeighbors(service);
+        while (true) {
+            boolean feasiblePositionFound = false;
+            TourActivity prevAct = start;
+            int prevLocationIndex = getLocationIndex(prevAct);
+            double prevActStartTime = newVehicleDepartureTime;
+            int actIndex = 0;
+            boolean tourEnd = false;
+            while(!tourEnd){
+                TourActivity nextAct;
+                if(actIndex < activities.size()) nextAct = activities.get(actIndex);
+                else{
+                    nextAct = end;
+                    tourEnd = true;
+                }
+                if (scanAllPositions || actIndex == 0 || tourEnd || insertionNeighborhood.isNeighbor(service, prevAct) || insertionNeighborhood.isNeighbor(service, nextAct)) {
+                    boolean not_fulfilled_break = true;
+                    for (int twIndex = 0; twIndex < timeWindows.length; twIndex++) {
+                        TimeWindow timeWindow = timeWindows[twIndex];
+                        deliveryAct2Insert.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
+                        deliveryAct2Insert.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
+                        activityContext.setInsertionIndex(actIndex);
+                        insertionContext.setActivityContext(activityContext);
+                        ConstraintsStatus status = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
+                        if (status.equals(ConstraintsStatus.FULFILLED)) {
+                            double additionalICostsAtActLevel = softActivityConstraint.getCosts(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
+                            double additionalTransportationCosts = additionalTransportCostsCalculator.getCosts(insertionContext, prevAct, nextAct, deliveryAct2Insert, prevActStartTime);
+                            if (additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts < bestCost) {
+                                bestCost = additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts;
+                                insertionIndex = actIndex;
+                                bestTimeWindow = timeWindow;
+                            }
+                            not_fulfilled_break = false;
+                            feasiblePositionFound = true;
+                        } else if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                            not_fulfilled_break = false;
+                        }
                     }
-                    not_fulfilled_break = false;
-                } else if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
-                    not_fulfilled_break = false;
+                    if(not_fulfilled_break) break;
                 }
-			}
-            if(not_fulfilled_break) break;
-            double nextActArrTime = prevActStartTime + transportCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActStartTime, newDriver, newVehicle);
-            prevActStartTime = Math.max(nextActArrTime, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
-            prevAct = nextAct;
-            actIndex++;
+                int nextLocationIndex = getLocationIndex(nextAct);
+                double nextActArrTime;
+                if (prevLocationIndex >= 0 && nextLocationIndex >= 0) {
+                    nextActArrTime = prevActStartTime + matrix.getTransportTime(prevLocationIndex, nextLocationIndex);
+                } else {
+                    nextActArrTime = prevActStartTime + transportCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActStartTime, newDriver, newVehicle);
+                }
+                prevActStartTime = Math.max(nextActArrTime, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
+                prevAct = nextAct;
+                prevLocationIndex = nextLocationIndex;
+                actIndex++;
+            }
+            if (scanAllPositions || feasiblePositionFound) break;
+            scanAllPositions = true;
         }
         if(insertionIndex == InsertionData.NO_INDEX) {
             return InsertionData.createEmptyInsertionData();
@@ -172,4 +221,8 @@ final class ServiceInsertionCalculator implements JobInsertionCostsCalculator {
         insertionData.setVehicleDepartureTime(newVehicleDepartureTime);
         return insertionData;
     }
+
+    private int getLocationIndex(TourActivity act) {
+        return matrix == null ? -1 : matrix.getIndex(act.getLocation());
+    }
 }
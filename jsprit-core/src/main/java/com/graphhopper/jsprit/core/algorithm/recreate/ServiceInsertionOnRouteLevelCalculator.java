@@ -33,6 +33,8 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivities;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
@@ -57,7 +59,7 @@ final class ServiceInsertionOnRouteLevelCalculator implements JobInsertionCostsC
 
     private JobActivityFactory activityFactory;
 
-    private RouteAndActivityStateGetter stateManager;
+    private RouteAndActivityDoubleStateGetter stateManager;
 
     private HardRouteConstraint hardRouteLevelConstraint;
 
@@ -95,7 +97,7 @@ final class ServiceInsertionOnRouteLevelCalculator implements JobInsertionCostsC
 
 
     public void setStates(RouteAndActivityStateGetter stateManager) {
-        this.stateManager = stateManager;
+        this.stateManager = DoubleStateGetterAdapter.of(stateManager);
     }
 
     void setNuOfActsForwardLooking(int nOfActsForwardLooking) {
@@ -266,8 +268,8 @@ final class ServiceInsertionOnRouteLevelCalculator implements JobInsertionCostsC
                 /**
                  * compute cost-diff of tour with and without new activity --> insertion_costs
                  */
-                Double currentRouteCosts = stateManager.getRouteState(currentRoute, InternalStates.COSTS, Double.class);
-                if (currentRouteCosts == null) currentRouteCosts = 0.;
+                double currentRouteCosts = stateManager.getRouteStateDouble(currentRoute, InternalStates.COSTS);
+                if (Double.isNaN(currentRouteCosts)) currentRouteCosts = 0.;
                 double insertion_costs = auxilliaryPathCostCalculator.costOfPath(wholeTour, start.getEndTime(), newDriver, newVehicle) - currentRouteCosts;
 
                 /**
@@ -306,11 +308,11 @@ final class ServiceInsertionOnRouteLevelCalculator implements JobInsertionCostsC
     }
 
     private double sumOf_prevCosts_oldVehicle(VehicleRoute vehicleRoute, TourActivity act) {
-        Double prevCost;
+        double prevCost;
         if (act instanceof End) {
-            prevCost = stateManager.getRouteState(vehicleRoute, InternalStates.COSTS, Double.class);
-        } else prevCost = stateManager.getActivityState(act, InternalStates.COSTS, Double.class);
-        if (prevCost == null) prevCost = 0.;
+            prevCost = stateManager.getRouteStateDouble(vehicleRoute, InternalStates.COSTS);
+        } else prevCost = stateManager.getActivityStateDouble(act, InternalStates.COSTS);
+        if (Double.isNaN(prevCost)) prevCost = 0.;
         return prevCost;
     }
 
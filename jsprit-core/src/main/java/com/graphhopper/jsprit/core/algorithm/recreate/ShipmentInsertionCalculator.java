@@ -16,6 +16,7 @@
  ******************************************************************************/
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
+import com.graphhopper.jsprit.core.problem.AbstractActivity;
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
 import com.graphhopper.jsprit.core.problem.constraint.*;
 import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
@@ -35,6 +36,7 @@ import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -60,6 +62,8 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
 
     private AdditionalAccessEgressCalculator additionalAccessEgressCalculator;
 
+    private ConstraintManager constraintManager;
+
     public ShipmentInsertionCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts, ActivityInsertionCostsCalculator activityInsertionCostsCalculator, ConstraintManager constraintManager) {
         super();
         this.activityInsertionCostsCalculator = activityInsertionCostsCalculator;
@@ -67,6 +71,7 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
         this.hardActivityLevelConstraint = constraintManager;
         this.softActivityConstraint = constraintManager;
         this.softRouteConstraint = constraintManager;
+        this.constraintManager = constraintManager;
         this.transportCosts = routingCosts;
         this.activityCosts = activityCosts;
         additionalAccessEgressCalculator = new AdditionalAccessEgressCalculator(routingCosts);
@@ -85,13 +90,19 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
     /**
      * Calculates the marginal cost of inserting job i locally. This is based on the
      * assumption that cost changes can entirely covered by only looking at the predecessor i-1 and its successor i+1.
+     * <p>
+     * <p>If the core time window constraint is set, pickup and delivery loops stop as soon as the end time of the
+     * previous activity exceeds the latest time window of pickup and delivery, respectively. Since end times do not
+     * decrease along the route (as long as transport times and activity durations are non-negative), the time window
+     * constraint would reject all remaining positions anyway.
      */
     @Override
     public InsertionData getInsertionData(final VehicleRoute currentRoute, final Job jobToInsert, final Vehicle newVehicle, double newVehicleDepartureTime, final Driver newDriver, final double bestKnownCosts) {
         JobInsertionContext insertionContext = new JobInsertionContext(currentRoute, jobToInsert, newVehicle, newDriver, newVehicleDepartureTime);
         Shipment shipment = (Shipment) jobToInsert;
-        TourActivity pickupShipment = activityFactory.createActivities(shipment).get(0);
-        TourActivity deliverShipment = activityFactory.createActivities(shipment).get(1);
+        List<AbstractActivity> shipmentActivities = activityFactory.createActivities(shipment);
+        TourActivity pickupShipment = shipmentActivities.get(0);
+        TourActivity deliverShipment = shipmentActivities.get(1);
         insertionContext.getAssociatedActivities().add(pickupShipment);
         insertionContext.getAssociatedActivities().add(deliverShipment);
 
@@ -121,6 +132,11 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
         End end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
 
         ActivityContext pickupContext = new ActivityContext();
+        ActivityContext activityContext = new ActivityContext();
+
+        boolean pruneByTimeWindows = constraintManager.isTimeWindowConstraintSet();
+        double latestPickupStart = latestStart(shipment.getPickupTimeWindows());
+        double latestDeliveryStart = latestStart(shipment.getDeliveryTimeWindows());
 
         TourActivity prevAct = start;
         double prevActEndTime = newVehicleDepartureTime;
@@ -132,6 +148,7 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
         List<TourActivity> activities = currentRoute.getTourActivities().getActivities();
 
         while (!tourEnd) {
+            if (pruneByTimeWindows && prevActEndTime > latestPickupStart) break;
             TourActivity nextAct;
             if (i < activities.size()) {
                 nextAct = activities.get(i);
@@ -144,7 +161,6 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
             for(TimeWindow pickupTimeWindow : shipment.getPickupTimeWindows()) {
                 pickupShipment.setTheoreticalEarliestOperationStartTime(pickupTimeWindow.getStart());
                 pickupShipment.setTheoreticalLatestOperationStartTime(pickupTimeWindow.getEnd());
-                ActivityContext activityContext = new ActivityContext();
                 activityContext.setInsertionIndex(i);
                 insertionContext.setActivityContext(activityContext);
                 ConstraintsStatus pickupShipmentConstraintStatus = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct, pickupShipment, nextAct, prevActEndTime);
@@ -178,6 +194,7 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
                 int j = i;
                 boolean tourEnd_deliveryLoop = false;
                 while (!tourEnd_deliveryLoop) {
+                    if (pruneByTimeWindows && prevActEndTime_deliveryLoop > latestDeliveryStart) break;
                     TourActivity nextAct_deliveryLoop;
                     if (j < activities.size()) {
                         nextAct_deliveryLoop = activities.get(j);
@@ -190,9 +207,8 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
                     for (TimeWindow deliveryTimeWindow : shipment.getDeliveryTimeWindows()) {
                         deliverShipment.setTheoreticalEarliestOperationStartTime(deliveryTimeWindow.getStart());
                         deliverShipment.setTheoreticalLatestOperationStartTime(deliveryTimeWindow.getEnd());
-                        ActivityContext activityContext_ = new ActivityContext();
-                        activityContext_.setInsertionIndex(j);
-                        insertionContext.setActivityContext(activityContext_);
+                        activityContext.setInsertionIndex(j);
+                        insertionContext.setActivityContext(activityContext);
                         ConstraintsStatus deliverShipmentConstraintStatus = hardActivityLevelConstraint.fulfilled(insertionContext, prevAct_deliveryLoop, deliverShipment, nextAct_deliveryLoop, prevActEndTime_deliveryLoop);
                         if (deliverShipmentConstraintStatus.equals(ConstraintsStatus.FULFILLED)) {
                             double additionalDeliveryICosts = softActivityConstraint.getCosts(insertionContext, prevAct_deliveryLoop, deliverShipment, nextAct_deliveryLoop, prevActEndTime_deliveryLoop);
@@ -243,6 +259,12 @@ final class ShipmentInsertionCalculator implements JobInsertionCostsCalculator {
         return insertionData;
     }
 
+    private static double latestStart(Collection<TimeWindow> timeWindows) {
+        double latest = -Double.MAX_VALUE;
+        for (TimeWindow tw : timeWindows) latest = Math.max(latest, tw.getEnd());
+        return latest;
+    }
+
     private double calculate(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double departureTimeAtPrevAct) {
         return activityInsertionCostsCalculator.getCosts(iFacts, prevAct, nextAct, newAct, departureTimeAtPrevAct);
 
@@ -5,103 +5,100 @@ import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.util.Coordinate;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
 import com.graphhopper.jsprit.core.util.RandomUtils;
-import org.apache.commons.math3.ml.clustering.Cluster;
-import org.apache.commons.math3.ml.clustering.Clusterable;
-import org.apache.commons.math3.ml.distance.DistanceMeasure;
 
 import java.util.*;
 
 /**
+ * Density-based clustering (DBSCAN) of the jobs of a route.
+ * <p>
+ * <p>The distance between two jobs is the average distance between their locations. If all locations of a route have
+ * coordinates (and distances from coordinates are not switched off), it is the euclidean distance and neighbors are
+ * looked up in a uniform grid over the job centroids, whose cell size is the eps-distance. The centroid distance is a
+ * lower bound of the average distance, thus only jobs in adjacent cells need to be checked. Otherwise, distances are
+ * transport costs between the locations and all jobs of the route are checked.
+ * <p>
+ * <p>All buffers are kept and reused by subsequent calls, thus a clusterer should be reused, but it is not thread-safe.
+ * <p>
  * Created by schroeder on 04/02/15.
  */
 public class DBSCANClusterer {
 
-    private static class LocationWrapper implements Clusterable {
+    private static final int UNVISITED = 0;
 
-        private static int objCounter = 0;
+    private static final int NOISE = 1;
 
-        private final Job job;
+    private static final int CLUSTERED = 2;
 
-        private List<Location> locations;
+    private VehicleRoutingTransportCosts costs;
 
-        private int id;
+    private int minNoOfJobsInCluster = 1;
 
-        public LocationWrapper(Job job, List<Location> locations) {
-            this.locations = locations;
-            objCounter++;
-            this.job = job;
-            this.id = objCounter;
-        }
+    private int noDistanceSamples = 10;
 
-//        private List<Location> getLocations(Job job){
-//            List<Location> locs = new ArrayList<Location>();
-//            if(job instanceof Service) {
-//                locs.add(((Service) job).getLocation());
-//            }
-//            else if(job instanceof Shipment){
-//                locs.add(((Shipment) job).getPickupLocation());
-//                locs.add(((Shipment) job).getDeliveryLocation());
-//            }
-//            return locs;
-//        }
-
-        public List<Location> getLocations() {
-            return locations;
-        }
+    private double epsFactor = 0.8;
 
-        @Override
-        public double[] getPoint() {
-            return new double[]{id};
-        }
+    private Double epsDistance;
 
-        public Job getJob() {
-            return job;
-        }
-    }
+    private boolean distanceFromCoordinates = true;
 
-    private static class MyDistance implements DistanceMeasure {
+    private Random random = RandomNumberGeneration.getRandom();
 
-        private Map<Integer, LocationWrapper> locations;
+    /*
+     * jobs of the current route and their locations, locations of job i are [locationStart[i], locationStart[i+1])
+     */
+    private final List<Job> jobs = new ArrayList<Job>();
 
-        private VehicleRoutingTransportCosts costs;
+    private final Map<Job, Integer> jobPositions = new HashMap<Job, Integer>();
 
-        public MyDistance(List<LocationWrapper> locations, VehicleRoutingTransportCosts costs) {
-            this.locations = new HashMap<Integer, LocationWrapper>();
-            for (LocationWrapper lw : locations) {
-                this.locations.put((int) lw.getPoint()[0], lw);
-            }
-            this.costs = costs;
-        }
+    private Location[] locations = new Location[0];
 
-        @Override
-        public double compute(double[] doubles, double[] doubles1) {
-            LocationWrapper l1 = locations.get((int) doubles[0]);
-            LocationWrapper l2 = locations.get((int) doubles1[0]);
-            int count = 0;
-            double sum = 0;
-            for (Location loc_1 : l1.getLocations()) {
-                for (Location loc_2 : l2.getLocations()) {
-                    sum += costs.getTransportCost(loc_1, loc_2, 0, null, null);
-                    count++;
-                }
-            }
-            return sum / (double) count;
-        }
-    }
+    private int[] locationStart = new int[1];
 
-    private VehicleRoutingTransportCosts costs;
+    private int[] locationJob = new int[0];
 
-    private int minNoOfJobsInCluster = 1;
+    private double[] centroidX = new double[0];
 
-    private int noDistanceSamples = 10;
+    private double[] centroidY = new double[0];
 
-    private double epsFactor = 0.8;
+    private int noJobs;
 
-    private Double epsDistance;
+    private boolean useCoordinates;
 
-    private Random random = RandomNumberGeneration.getRandom();
+    /*
+     * grid: jobs of cell c are cellJobs[cellStart[c], cellStart[c+1])
+     */
+    private int[] cellOfJob = new int[0];
+
+    private int[] cellStart = new int[1];
+
+    private int[] cellJobs = new int[0];
+
+    private int noCellsX;
+
+    private int noCellsY;
+
+    private double minX;
+
+    private double minY;
+
+    private double cellSize;
+
+    private int cellRange;
+
+    private int[] status = new int[0];
+
+    private int[] queued = new int[0];
+
+    private int queueStamp = 0;
+
+    private int[] seeds = new int[0];
+
+    private int[] neighbors = new int[0];
+
+    private double eps;
 
     public void setRandom(Random random) {
         this.random = random;
@@ -123,73 +120,239 @@ public class DBSCANClusterer {
         this.epsDistance = epsDistance;
     }
 
+    /**
+     * Sets whether distances between jobs are calculated from coordinates if all locations have coordinates. Default
+     * is true. If false, transport costs are used, which is more expensive since no spatial index can be used.
+     *
+     * @param distanceFromCoordinates true if distances should be calculated from coordinates
+     */
+    public void setDistanceFromCoordinates(boolean distanceFromCoordinates) {
+        this.distanceFromCoordinates = distanceFromCoordinates;
+    }
+
     public List<List<Job>> getClusters(VehicleRoute route) {
-        List<LocationWrapper> locations = getLocationWrappers(route);
-        List<Cluster<LocationWrapper>> clusterResults = getClusters(route, locations);
-        return makeList(clusterResults);
-    }
-
-    private List<LocationWrapper> getLocationWrappers(VehicleRoute route) {
-        List<LocationWrapper> locations = new ArrayList<LocationWrapper>(route.getTourActivities().getJobs().size());
-        Map<Job, List<Location>> jobs2locations = new HashMap<Job, List<Location>>();
-        for (TourActivity act : route.getActivities()) {
-            if (act instanceof TourActivity.JobActivity) {
-                Job job = ((TourActivity.JobActivity) act).getJob();
-                if (!jobs2locations.containsKey(job)) {
-                    jobs2locations.put(job, new ArrayList<Location>());
-                }
-                jobs2locations.get(job).add(act.getLocation());
+        List<List<Job>> clusters = new ArrayList<List<Job>>();
+        if (route.isEmpty()) return clusters;
+        cluster(route, clusters);
+        return clusters;
+    }
+
+    public List<Job> getRandomCluster(VehicleRoute route) {
+        if (route.isEmpty()) return Collections.emptyList();
+        List<List<Job>> clusters = new ArrayList<List<Job>>();
+        cluster(route, clusters);
+        if (clusters.isEmpty()) return Collections.emptyList();
+        return RandomUtils.nextItem(clusters, random);
+    }
+
+    private void cluster(VehicleRoute route, List<List<Job>> clusters) {
+        readJobs(route);
+        if (epsDistance != null) eps = epsDistance;
+        else eps = Math.max(0, sample(route));
+        if (useCoordinates) buildGrid();
+        ensureCapacity();
+        Arrays.fill(status, 0, noJobs, UNVISITED);
+        for (int job = 0; job < noJobs; job++) {
+            if (status[job] != UNVISITED) continue;
+            int noNeighbors = getNeighbors(job, neighbors);
+            if (noNeighbors >= minNoOfJobsInCluster) clusters.add(expandCluster(job, noNeighbors));
+            else status[job] = NOISE;
+        }
+        jobs.clear();
+        jobPositions.clear();
+        Arrays.fill(locations, 0, locationStart[noJobs], null);
+    }
+
+    private void readJobs(VehicleRoute route) {
+        List<TourActivity> activities = route.getActivities();
+        int noActivities = activities.size();
+        if (locations.length < noActivities) {
+            locations = new Location[noActivities];
+            locationJob = new int[noActivities];
+        }
+        jobs.clear();
+        jobPositions.clear();
+        useCoordinates = distanceFromCoordinates;
+        for (int i = 0; i < noActivities; i++) {
+            TourActivity act = activities.get(i);
+            Job job = ((TourActivity.JobActivity) act).getJob();
+            Integer position = jobPositions.get(job);
+            if (position == null) {
+                position = jobs.size();
+                jobPositions.put(job, position);
+                jobs.add(job);
             }
+            locationJob[i] = position;
+            if (act.getLocation().getCoordinate() == null) useCoordinates = false;
         }
-        for (Job j : jobs2locations.keySet()) {
-            locations.add(new LocationWrapper(j, jobs2locations.get(j)));
+        noJobs = jobs.size();
+        if (locationStart.length < noJobs + 1) locationStart = new int[noJobs + 1];
+        Arrays.fill(locationStart, 0, noJobs + 1, 0);
+        for (int i = 0; i < noActivities; i++) locationStart[locationJob[i] + 1]++;
+        for (int job = 0; job < noJobs; job++) locationStart[job + 1] += locationStart[job];
+        int[] next = ensureSize(neighbors, noJobs);
+        System.arraycopy(locationStart, 0, next, 0, noJobs);
+        for (int i = 0; i < noActivities; i++) locations[next[locationJob[i]]++] = activities.get(i).getLocation();
+        neighbors = next;
+    }
+
+    private void buildGrid() {
+        centroidX = ensureSize(centroidX, noJobs);
+        centroidY = ensureSize(centroidY, noJobs);
+        minX = Double.MAX_VALUE;
+        minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int job = 0; job < noJobs; job++) {
+            double x = 0;
+            double y = 0;
+            for (int l = locationStart[job]; l < locationStart[job + 1]; l++) {
+                x += locations[l].getCoordinate().getX();
+                y += locations[l].getCoordinate().getY();
+            }
+            int noLocations = locationStart[job + 1] - locationStart[job];
+            centroidX[job] = x / noLocations;
+            centroidY[job] = y / noLocations;
+            minX = Math.min(minX, centroidX[job]);
+            minY = Math.min(minY, centroidY[job]);
+            maxX = Math.max(maxX, centroidX[job]);
+            maxY = Math.max(maxY, centroidY[job]);
         }
-        return locations;
+        //at most about 4 cells per job; cells may be larger than eps then, but never smaller
+        double extent = Math.max(maxX - minX, maxY - minY);
+        int maxCellsPerDimension = Math.max(1, 2 * (int) Math.ceil(Math.sqrt(noJobs)));
+        cellSize = Math.max(eps, extent / maxCellsPerDimension);
+        if (cellSize <= 0) cellSize = 1;
+        cellRange = eps > 0 ? (int) Math.ceil(eps / cellSize) : 0;
+        noCellsX = Math.min(maxCellsPerDimension, (int) ((maxX - minX) / cellSize)) + 1;
+        noCellsY = Math.min(maxCellsPerDimension, (int) ((maxY - minY) / cellSize)) + 1;
+        int noCells = noCellsX * noCellsY;
+        cellOfJob = ensureSize(cellOfJob, noJobs);
+        cellJobs = ensureSize(cellJobs, noJobs);
+        if (cellStart.length < noCells + 1) cellStart = new int[noCells + 1];
+        Arrays.fill(cellStart, 0, noCells + 1, 0);
+        for (int job = 0; job < noJobs; job++) {
+            cellOfJob[job] = cellX(centroidX[job]) * noCellsY + cellY(centroidY[job]);
+            cellStart[cellOfJob[job] + 1]++;
+        }
+        for (int c = 0; c < noCells; c++) cellStart[c + 1] += cellStart[c];
+        for (int job = 0; job < noJobs; job++) cellJobs[cellStart[cellOfJob[job]]++] = job;
+        //cellStart[c] now points to the end of cell c, i.e. to the start of cell c+1
+        for (int c = noCells; c > 0; c--) cellStart[c] = cellStart[c - 1];
+        cellStart[0] = 0;
+    }
+
+    private int cellX(double x) {
+        return Math.min(noCellsX - 1, (int) ((x - minX) / cellSize));
+    }
+
+    private int cellY(double y) {
+        return Math.min(noCellsY - 1, (int) ((y - minY) / cellSize));
     }
 
-    private List<Cluster<LocationWrapper>> getClusters(VehicleRoute route, List<LocationWrapper> locations) {
-        double sampledDistance;
-        if (epsDistance != null) sampledDistance = epsDistance;
-        else sampledDistance = Math.max(0, sample(costs, route));
-        org.apache.commons.math3.ml.clustering.DBSCANClusterer<LocationWrapper> clusterer = new org.apache.commons.math3.ml.clustering.DBSCANClusterer<LocationWrapper>(sampledDistance, minNoOfJobsInCluster, new MyDistance(locations, costs));
-        return clusterer.cluster(locations);
+    private void ensureCapacity() {
+        status = ensureSize(status, noJobs);
+        queued = ensureSize(queued, noJobs);
+        seeds = ensureSize(seeds, noJobs);
+        neighbors = ensureSize(neighbors, noJobs);
     }
 
-    private List<List<Job>> makeList(List<Cluster<LocationWrapper>> clusterResults) {
-        List<List<Job>> l = new ArrayList<List<Job>>();
-        for (Cluster<LocationWrapper> c : clusterResults) {
-            List<Job> l_ = getJobList(c);
-            l.add(l_);
+    private List<Job> expandCluster(int job, int noNeighbors) {
+        List<Job> cluster = new ArrayList<Job>();
+        cluster.add(jobs.get(job));
+        status[job] = CLUSTERED;
+        int stamp = nextQueueStamp();
+        queued[job] = stamp;
+        int noSeeds = 0;
+        for (int i = 0; i < noNeighbors; i++) {
+            seeds[noSeeds++] = neighbors[i];
+            queued[neighbors[i]] = stamp;
         }
-        return l;
+        for (int s = 0; s < noSeeds; s++) {
+            int current = seeds[s];
+            if (status[current] == UNVISITED) {
+                int noCurrentNeighbors = getNeighbors(current, neighbors);
+                if (noCurrentNeighbors >= minNoOfJobsInCluster) {
+                    for (int i = 0; i < noCurrentNeighbors; i++) {
+                        if (queued[neighbors[i]] == stamp) continue;
+                        queued[neighbors[i]] = stamp;
+                        seeds[noSeeds++] = neighbors[i];
+                    }
+                }
+            }
+            if (status[current] != CLUSTERED) {
+                status[current] = CLUSTERED;
+                cluster.add(jobs.get(current));
+            }
+        }
+        return cluster;
     }
 
-    private List<Job> getJobList(Cluster<LocationWrapper> c) {
-        List<Job> l_ = new ArrayList<Job>();
-        if (c == null) return l_;
-        for (LocationWrapper lw : c.getPoints()) {
-            l_.add(lw.getJob());
+    private int nextQueueStamp() {
+        if (++queueStamp == Integer.MAX_VALUE) {
+            Arrays.fill(queued, 0);
+            queueStamp = 1;
         }
-        return l_;
+        return queueStamp;
     }
 
-    public List<Job> getRandomCluster(VehicleRoute route) {
-        if (route.isEmpty()) return Collections.emptyList();
-        List<LocationWrapper> locations = getLocationWrappers(route);
-        List<Cluster<LocationWrapper>> clusterResults = getClusters(route, locations);
-        if (clusterResults.isEmpty()) return Collections.emptyList();
-        Cluster<LocationWrapper> randomCluster = RandomUtils.nextItem(clusterResults, random);
-        return getJobList(randomCluster);
+    /*
+     * writes the jobs within eps-distance of job (except job itself) to result and returns their number
+     */
+    private int getNeighbors(int job, int[] result) {
+        int noNeighbors = 0;
+        if (useCoordinates) {
+            int cx = cellOfJob[job] / noCellsY;
+            int cy = cellOfJob[job] % noCellsY;
+            for (int x = Math.max(0, cx - cellRange); x <= Math.min(noCellsX - 1, cx + cellRange); x++) {
+                for (int y = Math.max(0, cy - cellRange); y <= Math.min(noCellsY - 1, cy + cellRange); y++) {
+                    int cell = x * noCellsY + y;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int other = cellJobs[i];
+                        if (other == job) continue;
+                        double dx = centroidX[other] - centroidX[job];
+                        double dy = centroidY[other] - centroidY[job];
+                        if (dx * dx + dy * dy > eps * eps) continue;
+                        if (distance(job, other) <= eps) result[noNeighbors++] = other;
+                    }
+                }
+            }
+        } else {
+            for (int other = 0; other < noJobs; other++) {
+                if (other == job) continue;
+                if (distance(job, other) <= eps) result[noNeighbors++] = other;
+            }
+        }
+        return noNeighbors;
     }
 
-    private double sample(VehicleRoutingTransportCosts costs, VehicleRoute r) {
+    private double distance(int job1, int job2) {
+        double sum = 0;
+        for (int l1 = locationStart[job1]; l1 < locationStart[job1 + 1]; l1++) {
+            for (int l2 = locationStart[job2]; l2 < locationStart[job2 + 1]; l2++) {
+                if (useCoordinates) sum += euclidean(locations[l1].getCoordinate(), locations[l2].getCoordinate());
+                else sum += costs.getTransportCost(locations[l1], locations[l2], 0, null, null);
+            }
+        }
+        int count = (locationStart[job1 + 1] - locationStart[job1]) * (locationStart[job2 + 1] - locationStart[job2]);
+        return sum / (double) count;
+    }
+
+    private static double euclidean(Coordinate c1, Coordinate c2) {
+        double dx = c1.getX() - c2.getX();
+        double dy = c1.getY() - c2.getY();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private double sample(VehicleRoute r) {
         double min = Double.MAX_VALUE;
         double sum = 0;
         for (int i = 0; i < noDistanceSamples; i++) {
             TourActivity act1 = RandomUtils.nextItem(r.getActivities(), random);
             TourActivity act2 = RandomUtils.nextItem(r.getActivities(), random);
-            double dist = costs.getTransportCost(act1.getLocation(), act2.getLocation(),
-                0., null, r.getVehicle());
+            double dist;
+            if (useCoordinates) dist = euclidean(act1.getLocation().getCoordinate(), act2.getLocation().getCoordinate());
+            else dist = costs.getTransportCost(act1.getLocation(), act2.getLocation(), 0., null, r.getVehicle());
             if (dist < min) min = dist;
             sum += dist;
         }
@@ -197,4 +360,14 @@ public class DBSCANClusterer {
         return (avg - min) * epsFactor;
     }
 
+    private static int[] ensureSize(int[] array, int size) {
+        if (array.length >= size) return array;
+        return new int[Math.max(size, 2 * array.length)];
+    }
+
+    private static double[] ensureSize(double[] array, int size) {
+        if (array.length >= size) return array;
+        return new double[Math.max(size, 2 * array.length)];
+    }
+
 }
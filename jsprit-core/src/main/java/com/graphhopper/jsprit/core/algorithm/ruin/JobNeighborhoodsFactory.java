@@ -3,6 +3,8 @@ package com.graphhopper.jsprit.core.algorithm.ruin;
 import com.graphhopper.jsprit.core.algorithm.ruin.distance.JobDistance;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Created by schroeder on 05/03/15.
  */
@@ -16,4 +18,21 @@ public class JobNeighborhoodsFactory {
         return new JobNeighborhoodsImplWithCapRestriction(vrp, jobDistance, capacity);
     }
 
+    /**
+     * Creates neighborhoods that memorize the capacity nearest neighbors of each job and that are computed concurrently
+     * with the specified executorService when initialised. Thus jobDistance must be thread-safe.
+     *
+     * @param vrp             the problem
+     * @param jobDistance     the distance between two jobs
+     * @param capacity        the number of neighbors to be memorized per job
+     * @param executorService the executorService, or null if neighborhoods should be computed sequentially
+     * @param noThreads       the number of threads of executorService
+     * @return neighborhoods
+     */
+    public JobNeighborhoods createNeighborhoods(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity, ExecutorService executorService, int noThreads) {
+        JobNeighborhoodsImplWithCapRestriction neighborhoods = new JobNeighborhoodsImplWithCapRestriction(vrp, jobDistance, capacity);
+        neighborhoods.setConcurrentMode(executorService, noThreads);
+        return neighborhoods;
+    }
+
 }
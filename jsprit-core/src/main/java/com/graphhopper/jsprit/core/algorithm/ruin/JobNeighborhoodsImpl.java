@@ -8,94 +8,248 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
+ * Memorizes the k nearest neighbors of each job.
+ * <p>
+ * <p>Neighbors are stored as job positions in one flat int array, i.e. [position * k, position * k + k) holds the
+ * neighbors of a job sorted by ascending distance (ties are broken by position). Rows are computed with a bounded
+ * max-heap instead of sorting all n-1 distances, and can be computed concurrently if an executorService is set.
+ *
  * Created by schroeder on 07/01/15.
  */
 class JobNeighborhoodsImpl implements JobNeighborhoods {
 
     private static Logger logger = LogManager.getLogger(JobNeighborhoodsImpl.class);
 
-    private VehicleRoutingProblem vrp;
+    private static final Iterator<Job> EMPTY_ITERATOR = Collections.<Job>emptyList().iterator();
 
-    private Map<String, TreeSet<ReferencedJob>> distanceNodeTree = new HashMap<String, TreeSet<ReferencedJob>>();
+    private VehicleRoutingProblem vrp;
 
     private JobDistance jobDistance;
 
+    private final int capacity;
+
+    private ExecutorService executorService;
+
+    private int noThreads = 1;
+
+    private Job[] jobs = new Job[0];
+
+    /*
+     * position of job in jobs by job.getIndex(), -1 if job has no neighborhood
+     */
+    private int[] positions = new int[0];
+
+    private int[] neighbors = new int[0];
+
+    private int noNeighbors = 0;
+
     private double maxDistance = 0.;
 
+    /**
+     * Memorizes all neighbors of each job.
+     *
+     * @param vrp         the problem
+     * @param jobDistance the distance between two jobs
+     */
     public JobNeighborhoodsImpl(VehicleRoutingProblem vrp, JobDistance jobDistance) {
+        this(vrp, jobDistance, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Memorizes the capacity nearest neighbors of each job.
+     *
+     * @param vrp         the problem
+     * @param jobDistance the distance between two jobs
+     * @param capacity    the number of neighbors k to be memorized per job
+     */
+    public JobNeighborhoodsImpl(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity) {
         super();
+        if (capacity < 0) throw new IllegalArgumentException("capacity must be >= 0");
         this.vrp = vrp;
         this.jobDistance = jobDistance;
+        this.capacity = capacity;
         logger.debug("intialise {}", this);
     }
 
+    /**
+     * Computes neighborhoods concurrently with the specified executorService. Note that jobDistance must be thread-safe then.
+     *
+     * @param executorService the executorService
+     * @param noThreads       the number of threads of executorService
+     */
+    public void setConcurrentMode(ExecutorService executorService, int noThreads) {
+        this.executorService = executorService;
+        this.noThreads = noThreads;
+    }
+
     @Override
     public Iterator<Job> getNearestNeighborsIterator(int nNeighbors, Job neighborTo) {
-        TreeSet<ReferencedJob> tree = distanceNodeTree.get(neighborTo.getId());
-        if (tree == null) return new Iterator<Job>() {
-            @Override
-            public boolean hasNext() {
-                return false;
-            }
-
-            @Override
-            public Job next() {
-                return null;
-            }
-
-            @Override
-            public void remove() {
-
-            }
-        };
-        Iterator<ReferencedJob> descendingIterator = tree.iterator();
-        return new NearestNeighborhoodIterator(descendingIterator, nNeighbors);
+        int index = neighborTo.getIndex();
+        if (index < 0 || index >= positions.length) return EMPTY_ITERATOR;
+        int position = positions[index];
+        if (position < 0 || jobs[position] != neighborTo) return EMPTY_ITERATOR;
+        return new NearestNeighborhoodIterator(jobs, neighbors, position * noNeighbors, Math.max(0, Math.min(nNeighbors, noNeighbors)));
     }
 
     @Override
     public void initialise() {
-        logger.debug("calculates and memorizes distances from EACH job to EACH job --> n^2 calculations");
+        logger.debug("calculates distances from EACH job to EACH job --> n^2={} calculations, but 'only' {} neighbors per job are memorized.", Math.pow(vrp.getJobs().values().size(), 2), Math.min(capacity, Math.max(0, vrp.getJobs().size() - 1)));
         calculateDistancesFromJob2Job();
     }
 
     @Override
     public double getMaxDistance() {
-        return 0;
+        return maxDistance;
     }
 
     private void calculateDistancesFromJob2Job() {
         logger.debug("preprocess distances between locations ...");
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        int nuOfDistancesStored = 0;
-        for (Job i : vrp.getJobs().values()) {
-            TreeSet<ReferencedJob> treeSet = new TreeSet<ReferencedJob>(
-                new Comparator<ReferencedJob>() {
-                    @Override
-                    public int compare(ReferencedJob o1, ReferencedJob o2) {
-                        if (o1.getDistance() <= o2.getDistance()) {
-                            return -1;
-                        } else {
-                            return 1;
-                        }
+        jobs = vrp.getJobs().values().toArray(new Job[vrp.getJobs().size()]);
+        int maxIndex = 0;
+        for (Job job : jobs) maxIndex = Math.max(maxIndex, job.getIndex());
+        positions = new int[maxIndex + 1];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < jobs.length; i++) positions[jobs[i].getIndex()] = i;
+        noNeighbors = Math.min(capacity, Math.max(0, jobs.length - 1));
+        if ((long) jobs.length * noNeighbors > Integer.MAX_VALUE)
+            throw new IllegalStateException("too many neighbors (" + jobs.length + " * " + noNeighbors + ") to memorize them. restrict the number of neighbors per job.");
+        neighbors = new int[jobs.length * noNeighbors];
+        maxDistance = 0.;
+        if (noNeighbors > 0) {
+            if (executorService == null || noThreads < 2) maxDistance = new RowCalculator(0, jobs.length).call();
+            else maxDistance = calculateConcurrently();
+        }
+        stopWatch.stop();
+        logger.debug("preprocessing comp-time: {}; nuOfDistances stored: {}; estimated memory: {}" +
+            " bytes", stopWatch, neighbors.length, (jobs.length * 8 + positions.length * 4 + neighbors.length * 4));
+    }
+
+    private double calculateConcurrently() {
+        int noChunks = Math.min(jobs.length, noThreads * 4);
+        List<Future<Double>> futures = new ArrayList<Future<Double>>(noChunks);
+        for (int chunk = 0; chunk < noChunks; chunk++) {
+            int from = (int) ((long) jobs.length * chunk / noChunks);
+            int to = (int) ((long) jobs.length * (chunk + 1) / noChunks);
+            futures.add(executorService.submit(new RowCalculator(from, to)));
+        }
+        double max = 0.;
+        try {
+            for (Future<Double> future : futures) {
+                max = Math.max(max, future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while calculating neighborhoods", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        return max;
+    }
+
+    /*
+     * selects the noNeighbors nearest jobs of the jobs in [from,to) and returns the max distance found
+     */
+    private class RowCalculator implements Callable<Double> {
+
+        private final int from;
+
+        private final int to;
+
+        private final double[] heapDistances = new double[noNeighbors];
+
+        private final int[] heapPositions = new int[noNeighbors];
+
+        private int heapSize;
+
+        RowCalculator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Double call() {
+            double max = 0.;
+            for (int i = from; i < to; i++) {
+                heapSize = 0;
+                for (int j = 0; j < jobs.length; j++) {
+                    if (i == j) continue;
+                    double distance = jobDistance.getDistance(jobs[i], jobs[j]);
+                    if (distance > max) max = distance;
+                    if (heapSize < noNeighbors) {
+                        heapDistances[heapSize] = distance;
+                        heapPositions[heapSize] = j;
+                        heapSize++;
+                        siftUp(heapSize - 1);
+                    } else if (isCloser(distance, j, heapDistances[0], heapPositions[0])) {
+                        heapDistances[0] = distance;
+                        heapPositions[0] = j;
+                        siftDown(0, heapSize);
                     }
-                });
-            distanceNodeTree.put(i.getId(), treeSet);
-            for (Job j : vrp.getJobs().values()) {
-                if (i == j) continue;
-                double distance = jobDistance.getDistance(i, j);
-                if (distance > maxDistance) maxDistance = distance;
-                ReferencedJob refNode = new ReferencedJob(j, distance);
-                treeSet.add(refNode);
-                nuOfDistancesStored++;
+                }
+                //heap sort: move the farthest to the end of the row
+                int offset = i * noNeighbors;
+                for (int last = heapSize - 1; last >= 0; last--) {
+                    neighbors[offset + last] = heapPositions[0];
+                    heapDistances[0] = heapDistances[last];
+                    heapPositions[0] = heapPositions[last];
+                    siftDown(0, last);
+                }
             }
+            return max;
+        }
 
+        private boolean isCloser(double distance, int position, double otherDistance, int otherPosition) {
+            if (distance < otherDistance) return true;
+            return distance == otherDistance && position < otherPosition;
         }
-        stopWatch.stop();
-        logger.debug("preprocessing comp-time: {}; nuOfDistances stored: {}; estimated memory: {}" +
-            " bytes", stopWatch, nuOfDistancesStored, (distanceNodeTree.keySet().size() * 64 + nuOfDistancesStored * 92));
+
+        private void siftUp(int child) {
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (!isCloser(heapDistances[parent], heapPositions[parent], heapDistances[child], heapPositions[child]))
+                    return;
+                swap(parent, child);
+                child = parent;
+            }
+        }
+
+        private void siftDown(int parent, int size) {
+            while (true) {
+                int farthest = parent;
+                int left = 2 * parent + 1;
+                int right = left + 1;
+                if (left < size && isCloser(heapDistances[farthest], heapPositions[farthest], heapDistances[left], heapPositions[left]))
+                    farthest = left;
+                if (right < size && isCloser(heapDistances[farthest], heapPositions[farthest], heapDistances[right], heapPositions[right]))
+                    farthest = right;
+                if (farthest == parent) return;
+                swap(parent, farthest);
+                parent = farthest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            double distance = heapDistances[i];
+            heapDistances[i] = heapDistances[j];
+            heapDistances[j] = distance;
+            int position = heapPositions[i];
+            heapPositions[i] = heapPositions[j];
+            heapPositions[j] = position;
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return "[name=neighborhood][capacity=" + capacity + "]";
     }
 
 }
@@ -1,51 +1,47 @@
 package com.graphhopper.jsprit.core.algorithm.ruin;
 
 import com.graphhopper.jsprit.core.problem.job.Job;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
+ * Iterates over one row of the flat neighbor array of {@link JobNeighborhoodsImpl}, i.e. it does not copy anything.
+ *
  * Created by schroeder on 07/01/15.
  */
 class NearestNeighborhoodIterator implements Iterator<Job> {
 
-    private static Logger log = LogManager.getLogger(NearestNeighborhoodIterator.class);
+    private final Job[] jobs;
 
-    private Iterator<ReferencedJob> jobIter;
+    private final int[] neighbors;
 
-    private int nJobs;
+    private int next;
 
-    private int jobCount = 0;
+    private final int end;
 
-    public NearestNeighborhoodIterator(Iterator<ReferencedJob> jobIter, int nJobs) {
+    public NearestNeighborhoodIterator(Job[] jobs, int[] neighbors, int offset, int nJobs) {
         super();
-        this.jobIter = jobIter;
-        this.nJobs = nJobs;
+        this.jobs = jobs;
+        this.neighbors = neighbors;
+        this.next = offset;
+        this.end = offset + nJobs;
     }
 
     @Override
     public boolean hasNext() {
-        if (jobCount < nJobs) {
-            boolean hasNext = jobIter.hasNext();
-//            if (!hasNext)
-//                log.warn("more jobs are requested then iterator can iterate over. probably the number of neighbors memorized in JobNeighborhoods is too small");
-            return hasNext;
-        }
-        return false;
+        return next < end;
     }
 
     @Override
     public Job next() {
-        ReferencedJob next = jobIter.next();
-        jobCount++;
-        return next.getJob();
+        if (next >= end) throw new NoSuchElementException();
+        return jobs[neighbors[next++]];
     }
 
     @Override
     public void remove() {
-        jobIter.remove();
+        throw new UnsupportedOperationException("neighborhoods cannot be modified");
     }
 
 }
@@ -70,6 +70,8 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
 
     private JobNeighborhoods jobNeighborhoods;
 
+    private final DBSCANClusterer dbscan;
+
     private int noClusters = 2;
 
     private int minPts = 1;
@@ -86,6 +88,7 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
             }
         });
         this.jobNeighborhoods = jobNeighborhoods;
+        this.dbscan = new DBSCANClusterer(vrp.getTransportCosts());
         logger.debug("initialise {}", this);
     }
 
@@ -139,14 +142,13 @@ public final class RuinClusters extends AbstractRuinStrategy implements Iteratio
                 cycleCandidates.add(targetRoute);
                 break;
             }
-            DBSCANClusterer dbscan = new DBSCANClusterer(vrp.getTransportCosts());
             dbscan.setRandom(random);
             dbscan.setMinPts(minPts);
             dbscan.setEpsFactor(epsFactor);
             List<Job> cluster = dbscan.getRandomCluster(targetRoute);
             for (Job j : cluster) {
                 if (toRemove == 0) break;
-                if (removeJob(j, vehicleRoutes)) {
+                if (removeJob(j, targetRoute)) {
                     lastRemoved.add(j);
                     unassignedJobs.add(j);
                 }
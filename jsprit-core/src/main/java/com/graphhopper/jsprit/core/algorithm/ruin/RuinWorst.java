@@ -50,8 +50,11 @@ public final class RuinWorst extends AbstractRuinStrategy {
         }
     };
 
+    private boolean noisy = false;
+
     public void setNoiseMaker(NoiseMaker noiseMaker) {
         this.noiseMaker = noiseMaker;
+        this.noisy = true;
     }
 
     public RuinWorst(VehicleRoutingProblem vrp, final int initialNumberJobsToRemove) {
@@ -67,7 +70,7 @@ public final class RuinWorst extends AbstractRuinStrategy {
     }
 
     /**
-     * Removes a fraction of jobs from vehicleRoutes.
+     * Removes the jobs with the highest savings, i.e. the jobs whose removal reduces transport costs most.
      * <p>
      * <p>The number of jobs is calculated as follows: Math.ceil(vrp.getJobs().values().size() * fractionOfAllNodes2beRuined).
      */
@@ -79,67 +82,186 @@ public final class RuinWorst extends AbstractRuinStrategy {
         return unassignedJobs;
     }
 
+    /**
+     * Savings of a job at the time it has been put into the queue. It is stale if it is not the current savings of
+     * its job anymore.
+     */
+    private static class JobSavings {
+
+        final Job job;
+
+        final double savings;
+
+        JobSavings(Job job, double savings) {
+            this.job = job;
+            this.savings = savings;
+        }
+
+    }
+
+    private static final Comparator<JobSavings> HIGHEST_SAVINGS_FIRST = new Comparator<JobSavings>() {
+
+        @Override
+        public int compare(JobSavings o1, JobSavings o2) {
+            return Double.compare(o2.savings, o1.savings);
+        }
+
+    };
+
+    /**
+     * Transport cost savings are calculated once for each activity. If a job is removed, only the savings of the
+     * activities that were its neighbours change (the savings of activity i only depends on i-1 and i+1), thus only
+     * these are recalculated. Without noise, the job with the highest savings is taken from a queue with lazy deletion
+     * of stale savings. With noise, noise is drawn anew for each activity on each removal (as it was when all savings
+     * were recalculated on each removal), thus the job with the highest noisy savings is found by scanning the
+     * remaining jobs.
+     * <p>
+     * <p>Activity savings are stored by job and by the position of the activity among the activities of its job,
+     * since removing a job from a shared tour duplicates the activities. Jobs are kept in route order to make the
+     * assignment of noise to jobs reproducible.
+     */
     private void ruin(Collection<VehicleRoute> vehicleRoutes, int nOfJobs2BeRemoved, List<Job> unassignedJobs) {
-        LinkedList<Job> availableJobs = new LinkedList<Job>(vrp.getJobs().values());
+        if (nOfJobs2BeRemoved <= 0) return;
+        Map<Job, double[]> activitySavings = new LinkedHashMap<Job, double[]>();
+        Map<Job, JobSavings> jobSavings = new LinkedHashMap<Job, JobSavings>();
+        Map<Job, VehicleRoute> jobRoutes = new HashMap<Job, VehicleRoute>();
+        PriorityQueue<JobSavings> queue = null;
+        if (!noisy) {
+            queue = new PriorityQueue<JobSavings>(Math.max(1, vrp.getJobs().size()), HIGHEST_SAVINGS_FIRST);
+        }
+        for (VehicleRoute route : vehicleRoutes) {
+            if (route.isEmpty()) continue;
+            List<TourActivity> activities = route.getActivities();
+            for (int i = 0; i < activities.size(); i++) {
+                Job job = ((TourActivity.JobActivity) activities.get(i)).getJob();
+                double savings = savings(route, i);
+                double[] jobActivitySavings = activitySavings.get(job);
+                if (jobActivitySavings == null) activitySavings.put(job, new double[]{savings});
+                else activitySavings.put(job, append(jobActivitySavings, savings));
+                jobRoutes.put(job, route);
+            }
+        }
+        for (Map.Entry<Job, double[]> e : activitySavings.entrySet()) {
+            if (!vrp.getJobs().containsKey(e.getKey().getId())) continue;
+            JobSavings js = new JobSavings(e.getKey(), sum(e.getValue()));
+            jobSavings.put(e.getKey(), js);
+            if (queue != null) queue.add(js);
+        }
         int toRemove = nOfJobs2BeRemoved;
         while (toRemove > 0) {
-            Job worst = getWorst(vehicleRoutes);
+            Job worst;
+            if (queue != null) worst = pollWorst(queue, jobSavings);
+            else worst = getWorstWithNoise(jobSavings.keySet(), activitySavings);
             if (worst == null) break;
-            if (removeJob(worst, vehicleRoutes)) {
-                availableJobs.remove(worst);
+            VehicleRoute route = jobRoutes.get(worst);
+            int[] neighbours = getNeighboursAfterRemoval(route, worst);
+            if (removeJob(worst, route)) {
                 unassignedJobs.add(worst);
+                jobSavings.remove(worst);
+                for (int index : neighbours) {
+                    if (index >= 0) updateSavings(route, index, activitySavings, jobSavings, queue);
+                }
             }
             toRemove--;
         }
     }
 
-    private Job getWorst(Collection<VehicleRoute> copied) {
+    private static double[] append(double[] values, double value) {
+        double[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double v : values) sum += Math.max(0, v);
+        return sum;
+    }
+
+    private static Job pollWorst(PriorityQueue<JobSavings> queue, Map<Job, JobSavings> jobSavings) {
+        JobSavings worst;
+        while ((worst = queue.poll()) != null) {
+            if (jobSavings.get(worst.job) != worst) continue;
+            if (worst.savings > Double.MIN_VALUE) return worst.job;
+            return null;
+        }
+        return null;
+    }
+
+    private Job getWorstWithNoise(Collection<Job> jobs, Map<Job, double[]> activitySavings) {
         Job worst = null;
         double bestSavings = Double.MIN_VALUE;
+        for (Job job : jobs) {
+            double savings = 0;
+            for (double activitySaving : activitySavings.get(job)) {
+                savings += Math.max(0, activitySaving + noiseMaker.makeNoise());
+            }
+            if (savings > bestSavings) {
+                bestSavings = savings;
+                worst = job;
+            }
+        }
+        return worst;
+    }
 
-        for (VehicleRoute route : copied) {
-            if (route.isEmpty()) continue;
-            Map<Job, Double> savingsMap = new HashMap<Job, Double>();
-            TourActivity actBefore = route.getStart();
-            TourActivity actToEval = null;
-            for (TourActivity act : route.getActivities()) {
-                if (actToEval == null) {
-                    actToEval = act;
-                    continue;
-                }
-                double savings = savings(route, actBefore, actToEval, act);
-                Job job = ((TourActivity.JobActivity) actToEval).getJob();
-                if (!savingsMap.containsKey(job)) {
-                    savingsMap.put(job, savings);
-                } else {
-                    double s = savingsMap.get(job);
-                    savingsMap.put(job, s + savings);
-                }
-                actBefore = actToEval;
-                actToEval = act;
+    /**
+     * Returns the indices the neighbours of job's activities will have once job is removed, -1 if there is no such
+     * neighbour (i.e. start or end of route, or another activity of job).
+     */
+    private static int[] getNeighboursAfterRemoval(VehicleRoute route, Job job) {
+        List<TourActivity> activities = route.getActivities();
+        int[] neighbours = new int[4];
+        Arrays.fill(neighbours, -1);
+        int noNeighbours = 0;
+        int noRemovedBefore = 0;
+        for (int i = 0; i < activities.size(); i++) {
+            if (((TourActivity.JobActivity) activities.get(i)).getJob() != job) continue;
+            if (noNeighbours + 2 > neighbours.length) {
+                neighbours = Arrays.copyOf(neighbours, 2 * neighbours.length);
+                Arrays.fill(neighbours, noNeighbours, neighbours.length, -1);
             }
-            double savings = savings(route, actBefore, actToEval, route.getEnd());
-            Job job = ((TourActivity.JobActivity) actToEval).getJob();
-            if (!savingsMap.containsKey(job)) {
-                savingsMap.put(job, savings);
-            } else {
-                double s = savingsMap.get(job);
-                savingsMap.put(job, s + savings);
+            if (i > 0 && ((TourActivity.JobActivity) activities.get(i - 1)).getJob() != job) {
+                int index = i - 1 - noRemovedBefore;
+                if (noNeighbours == 0 || neighbours[noNeighbours - 1] != index) neighbours[noNeighbours++] = index;
             }
-            //getCounts best
-            for (Job j : savingsMap.keySet()) {
-                if (savingsMap.get(j) > bestSavings) {
-                    bestSavings = savingsMap.get(j);
-                    worst = j;
-                }
+            noRemovedBefore++;
+            if (i < activities.size() - 1 && ((TourActivity.JobActivity) activities.get(i + 1)).getJob() != job) {
+                neighbours[noNeighbours++] = i + 1 - noRemovedBefore;
             }
         }
-        return worst;
+        return neighbours;
+    }
+
+    private void updateSavings(VehicleRoute route, int index, Map<Job, double[]> activitySavings,
+                               Map<Job, JobSavings> jobSavings, PriorityQueue<JobSavings> queue) {
+        List<TourActivity> activities = route.getActivities();
+        Job job = ((TourActivity.JobActivity) activities.get(index)).getJob();
+        double[] jobActivitySavings = activitySavings.get(job);
+        int position = 0;
+        if (jobActivitySavings.length > 1) {
+            for (int i = 0; i < index; i++) {
+                if (((TourActivity.JobActivity) activities.get(i)).getJob() == job) position++;
+            }
+        }
+        double savings = savings(route, index);
+        double oldSavings = jobActivitySavings[position];
+        jobActivitySavings[position] = savings;
+        JobSavings current = jobSavings.get(job);
+        if (current == null || queue == null) return;
+        JobSavings updated = new JobSavings(job, current.savings - Math.max(0, oldSavings) + Math.max(0, savings));
+        jobSavings.put(job, updated);
+        queue.add(updated);
+    }
+
+    private double savings(VehicleRoute route, int index) {
+        List<TourActivity> activities = route.getActivities();
+        TourActivity prev = index == 0 ? route.getStart() : activities.get(index - 1);
+        TourActivity next = index == activities.size() - 1 ? route.getEnd() : activities.get(index + 1);
+        return savings(route, prev, activities.get(index), next);
     }
 
     private double savings(VehicleRoute route, TourActivity actBefore, TourActivity actToEval, TourActivity act) {
-        double savings = c(actBefore, actToEval, route.getVehicle()) + c(actToEval, act, route.getVehicle()) - c(actBefore, act, route.getVehicle());
-        return Math.max(0, savings + noiseMaker.makeNoise());
+        return c(actBefore, actToEval, route.getVehicle()) + c(actToEval, act, route.getVehicle()) - c(actBefore, act, route.getVehicle());
     }
 
     private double c(TourActivity from, TourActivity to, Vehicle vehicle) {
@@ -51,4 +51,10 @@ public class InternalStates {
     public static final StateId EARLIEST_WITHOUT_WAITING = new StateFactory.StateIdImpl("earliest_without_waiting", 14);
 
     public static final StateId SWITCH_NOT_FEASIBLE = new StateFactory.StateIdImpl("switch_not_feasible", 15);
+
+    public static final StateId REMAINING_RIDE_TIME = new StateFactory.StateIdImpl("remaining_ride_time", 16);
+
+    public static final StateId PAST_MAX_DETOUR = new StateFactory.StateIdImpl("past_max_detour", 17);
+
+    public static final StateId REVENUE = new StateFactory.StateIdImpl("revenue", 18);
 }
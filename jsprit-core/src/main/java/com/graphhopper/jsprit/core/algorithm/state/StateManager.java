@@ -17,10 +17,12 @@
 package com.graphhopper.jsprit.core.algorithm.state;
 
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.*;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListeners;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.problem.solution.route.ReverseRouteActivityVisitor;
@@ -30,7 +32,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
-import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
 import java.util.*;
@@ -43,7 +45,7 @@ import java.util.*;
  *
  * @author schroeder
  */
-public class StateManager implements RouteAndActivityStateGetter, IterationStartsListener, RuinListener, InsertionStartsListener, JobInsertedListener, InsertionEndsListener {
+public class StateManager implements RouteAndActivityDoubleStateGetter, IterationStartsListener, RuinListener, InsertionStartsListener, JobInsertedListener, InsertionEndsListener {
 
     private RouteActivityVisitor routeActivityVisitor = new RouteActivityVisitor();
 
@@ -51,6 +53,17 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private Collection<RouteVisitor> routeVisitors = new ArrayList<RouteVisitor>();
 
+    /*
+     * visitors as they have been added, i.e. without timing decorators
+     */
+    private List<ActivityVisitor> activityVisitors = new ArrayList<ActivityVisitor>();
+
+    private List<ReverseActivityVisitor> reverseActivityVisitors = new ArrayList<ReverseActivityVisitor>();
+
+    private List<RouteVisitor> addedRouteVisitors = new ArrayList<RouteVisitor>();
+
+    private SolverMetrics metrics;
+
     private RuinListeners ruinListeners = new RuinListeners();
 
     private InsertionListeners insertionListeners = new InsertionListeners();
@@ -61,6 +74,10 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private boolean updateTWs = false;
 
+    private boolean updateDetours = false;
+
+    private boolean updateRevenues = false;
+
     private final int initialNoStates = 21;
 
     private int stateIndexCounter;
@@ -85,6 +102,24 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private Object[][][] vehicleDependentRouteStatesArr;
 
+    /*
+     * double-valued states are kept in primitive arrays (NaN means no value) to avoid boxing, see putActivityStateDouble(...).
+     * the arrays are indexed by stateId first and a row is only allocated once a double is put for that stateId, i.e. a
+     * state occupies either its object slot or its double row. vehicle dependent rows are indexed by
+     * index * nuVehicleTypeKeys + vehicleTypeIndex.
+     */
+    private double[][] activityDoubleStates;
+
+    private double[][] vehicleDependentActivityDoubleStates;
+
+    private Map<VehicleRoute, double[]> routeDoubleStateMap;
+
+    private Map<VehicleRoute, double[][]> vehicleDependentRouteDoubleStateMap;
+
+    private double[][] routeDoubleStatesArr;
+
+    private double[][] vehicleDependentRouteDoubleStatesArr;
+
     private VehicleRoutingProblem vrp;
 
     private final boolean isIndexedBased;
@@ -111,6 +146,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
             routeStatesArr = new Object[vrp.getVehicles().size() + 2][stateIndexCounter+1];
             vehicleDependentRouteStatesArr = new Object[vrp.getVehicles().size() + 2][nuVehicleTypeKeys][stateIndexCounter+1];
             problemStates = new Object[stateIndexCounter+1];
+            createDoubleStates(stateIndexCounter + 1);
         }
         StateId id = StateFactory.createId(name, stateIndexCounter);
         incStateIndexCounter();
@@ -145,8 +181,71 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
             isIndexedBased = false;
             routeStateMap = new HashMap<VehicleRoute, Object[]>();
             vehicleDependentRouteStateMap = new HashMap<VehicleRoute, Object[][]>();
+            routeDoubleStateMap = new HashMap<VehicleRoute, double[]>();
+            vehicleDependentRouteDoubleStateMap = new HashMap<VehicleRoute, double[][]>();
         }
         problemStates = new Object[initialStateArrayLength];
+        createDoubleStates(initialStateArrayLength);
+    }
+
+    private void createDoubleStates(int noStates) {
+        if (activityDoubleStates == null) {
+            activityDoubleStates = new double[noStates][];
+            vehicleDependentActivityDoubleStates = new double[noStates][];
+            routeDoubleStatesArr = new double[noStates][];
+            vehicleDependentRouteDoubleStatesArr = new double[noStates][];
+        } else {
+            activityDoubleStates = Arrays.copyOf(activityDoubleStates, noStates);
+            vehicleDependentActivityDoubleStates = Arrays.copyOf(vehicleDependentActivityDoubleStates, noStates);
+            routeDoubleStatesArr = Arrays.copyOf(routeDoubleStatesArr, noStates);
+            vehicleDependentRouteDoubleStatesArr = Arrays.copyOf(vehicleDependentRouteDoubleStatesArr, noStates);
+        }
+    }
+
+    private static double getDouble(double[][] doubleStates, StateId stateId, int index) {
+        double[] row = doubleStates[stateId.getIndex()];
+        if (row == null) return Double.NaN;
+        return row[index];
+    }
+
+    private static void removeDouble(double[][] doubleStates, StateId stateId, int index) {
+        double[] row = doubleStates[stateId.getIndex()];
+        if (row != null) row[index] = Double.NaN;
+    }
+
+    private static void putDouble(double[][] doubleStates, StateId stateId, int index, int rowLength, double state) {
+        double[] row = doubleStates[stateId.getIndex()];
+        if (row == null) {
+            if (Double.isNaN(state)) return;
+            row = new double[rowLength];
+            Arrays.fill(row, Double.NaN);
+            doubleStates[stateId.getIndex()] = row;
+        }
+        row[index] = state;
+    }
+
+    private int vehicleDependentActivityIndex(TourActivity act, Vehicle vehicle) {
+        return act.getIndex() * nuVehicleTypeKeys + vehicle.getVehicleTypeIdentifier().getIndex();
+    }
+
+    private int vehicleDependentRouteIndex(VehicleRoute route, Vehicle vehicle) {
+        return route.getVehicle().getIndex() * nuVehicleTypeKeys + vehicle.getVehicleTypeIdentifier().getIndex();
+    }
+
+    private int noRouteIndices() {
+        return vrp.getVehicles().size() + 2;
+    }
+
+    private void clearDoubleStates() {
+        fill_rows(activityDoubleStates, Double.NaN);
+        fill_rows(vehicleDependentActivityDoubleStates, Double.NaN);
+        if (isIndexedBased) {
+            fill_rows(routeDoubleStatesArr, Double.NaN);
+            fill_rows(vehicleDependentRouteDoubleStatesArr, Double.NaN);
+        } else {
+            routeDoubleStateMap.clear();
+            vehicleDependentRouteDoubleStateMap.clear();
+        }
     }
 
     private int getNuVehicleTypes(VehicleRoutingProblem vrp) {
@@ -198,6 +297,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
             routeStateMap.clear();
             vehicleDependentRouteStateMap.clear();
         }
+        clearDoubleStates();
         Arrays.fill(problemStates,null);
     }
 
@@ -215,6 +315,34 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         }
     }
 
+    private void fill_twoDimArr(double[][] states, double d) {
+        for (double[] rows : states) {
+            Arrays.fill(rows, d);
+        }
+    }
+
+    private void fill_rows(double[][] states, double d) {
+        for (double[] row : states) {
+            if (row != null) Arrays.fill(row, d);
+        }
+    }
+
+    /*
+     * a state is either memorized as object or, if it has been put as double, in the corresponding double array.
+     * the last put wins, i.e. putting one resets the other.
+     */
+    private static Object getState(Object state, double doubleState) {
+        if (state != null) return state;
+        if (Double.isNaN(doubleState)) return null;
+        return doubleState;
+    }
+
+    private static double getDoubleState(double doubleState, Object state) {
+        if (!Double.isNaN(doubleState)) return doubleState;
+        if (state instanceof Double) return (Double) state;
+        return Double.NaN;
+    }
+
     /**
      * Returns associated state for the specified activity and stateId, or it returns null if no value is associated.
      * <p>If type class is not equal to the associated type class of the requested state value, it throws a ClassCastException.</p>
@@ -231,13 +359,29 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getActivityState(TourActivity act, StateId stateId, Class<T> type) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null;
-        T state;
+        Object state = getState(activityStates[act.getIndex()][stateId.getIndex()], getDouble(activityDoubleStates, stateId, act.getIndex()));
         try {
-            state = type.cast(activityStates[act.getIndex()][stateId.getIndex()]);
+            return type.cast(state);
         } catch (ClassCastException e) {
-            throw getClassCastException(e, stateId, type.toString(), activityStates[act.getIndex()][stateId.getIndex()].getClass().toString());
+            throw getClassCastException(e, stateId, type.toString(), state.getClass().toString());
         }
-        return state;
+    }
+
+    /**
+     * Returns the double state value that is associated to the specified activity and stateId, or Double.NaN if no
+     * double value is associated.
+     * <p>In contrast to <code>getActivityState(act, stateId, Double.class)</code>, this neither boxes nor casts the value.</p>
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId for which a state value is associated to
+     * @return the associated double value, or Double.NaN if no double value is associated
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    @Override
+    public double getActivityStateDouble(TourActivity act, StateId stateId) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return Double.NaN;
+        return getDoubleState(getDouble(activityDoubleStates, stateId, act.getIndex()), activityStates[act.getIndex()][stateId.getIndex()]);
     }
 
     /**
@@ -251,7 +395,9 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public boolean hasActivityState(TourActivity act, Vehicle vehicle, StateId stateId) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
-        return vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        return vehicleDependentActivityStates[act.getIndex()][vehicleTypeIndex][stateId.getIndex()] != null
+            || !Double.isNaN(getDouble(vehicleDependentActivityDoubleStates, stateId, vehicleDependentActivityIndex(act, vehicle)));
     }
 
     /**
@@ -272,14 +418,33 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getActivityState(TourActivity act, Vehicle vehicle, StateId stateId, Class<T> type) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null; //act.getIndex() < 0 indicates that act is either Start (-1) or End (-2)
-        T state;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        Object state = getState(vehicleDependentActivityStates[act.getIndex()][vehicleTypeIndex][stateId.getIndex()],
+            getDouble(vehicleDependentActivityDoubleStates, stateId, vehicleDependentActivityIndex(act, vehicle)));
         try {
-            state = type.cast(vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
+            return type.cast(state);
         } catch (ClassCastException e) {
-            Object state_class = vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()];
-            throw getClassCastException(e, stateId, type.toString(), state_class.getClass().toString());
+            throw getClassCastException(e, stateId, type.toString(), state.getClass().toString());
         }
-        return state;
+    }
+
+    /**
+     * Returns the double state value that is associated to the specified activity, vehicle and stateId, or Double.NaN
+     * if no double value is associated.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @return the associated double value, or Double.NaN if no double value is associated
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    @Override
+    public double getActivityStateDouble(TourActivity act, Vehicle vehicle, StateId stateId) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return Double.NaN;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        return getDoubleState(getDouble(vehicleDependentActivityDoubleStates, stateId, vehicleDependentActivityIndex(act, vehicle)),
+            vehicleDependentActivityStates[act.getIndex()][vehicleTypeIndex][stateId.getIndex()]);
     }
 
     private ClassCastException getClassCastException(ClassCastException e, StateId stateId, String requestedTypeClass, String memorizedTypeClass) {
@@ -301,24 +466,39 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     @Override
     public <T> T getRouteState(VehicleRoute route, StateId stateId, Class<T> type) {
         if (route.isEmpty()) return null;
-        T state = null;
+        Object state;
         if(isIndexedBased){
-            try {
-                state = type.cast(routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()]);
-            } catch (ClassCastException e) {
-                throw getClassCastException(e,stateId,type.toString(),routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()].getClass().toString());
-            }
+            state = getState(routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()], getDouble(routeDoubleStatesArr, stateId, route.getVehicle().getIndex()));
         }
         else {
-            try {
-                if (routeStateMap.containsKey(route)) {
-                    state = type.cast(routeStateMap.get(route)[stateId.getIndex()]);
-                }
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), routeStateMap.get(route)[stateId.getIndex()].getClass().toString());
-            }
+            Object[] states = routeStateMap.get(route);
+            double[] doubleStates = routeDoubleStateMap.get(route);
+            state = getState(states == null ? null : states[stateId.getIndex()], doubleStates == null ? Double.NaN : doubleStates[stateId.getIndex()]);
+        }
+        try {
+            return type.cast(state);
+        } catch (ClassCastException e) {
+            throw getClassCastException(e, stateId, type.toString(), state.getClass().toString());
         }
-        return state;
+    }
+
+    /**
+     * Returns the double state value that is associated to the route and stateId, or Double.NaN if no double value
+     * is associated.
+     *
+     * @param route   the route which the associated route key to the route state
+     * @param stateId the stateId which is the associated key to the route state
+     * @return the associated double value, or Double.NaN if no double value is associated
+     */
+    @Override
+    public double getRouteStateDouble(VehicleRoute route, StateId stateId) {
+        if (route.isEmpty()) return Double.NaN;
+        if (isIndexedBased) {
+            return getDoubleState(getDouble(routeDoubleStatesArr, stateId, route.getVehicle().getIndex()), routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()]);
+        }
+        double[] doubleStates = routeDoubleStateMap.get(route);
+        Object[] states = routeStateMap.get(route);
+        return getDoubleState(doubleStates == null ? Double.NaN : doubleStates[stateId.getIndex()], states == null ? null : states[stateId.getIndex()]);
     }
 
     /**
@@ -331,9 +511,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     @SuppressWarnings("UnusedDeclaration")
     public boolean hasRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId) {
-        if (!vehicleDependentRouteStateMap.containsKey(route)) return false;
-        return vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
-//        return vehicle_dependent_route_states[route.getActivities().get(0).getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
+        return getRouteState(route, vehicle, stateId, Object.class) != null;
     }
 
     /**
@@ -351,24 +529,46 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public <T> T getRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, Class<T> type) {
         if (route.isEmpty()) return null;
-        T state = null;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        Object state;
         if(isIndexedBased){
-            try {
-                state = type.cast(vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()].getClass().toString());
-            }
+            state = getState(vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicleTypeIndex][stateId.getIndex()],
+                getDouble(vehicleDependentRouteDoubleStatesArr, stateId, vehicleDependentRouteIndex(route, vehicle)));
         }
         else {
-            try {
-                if (vehicleDependentRouteStateMap.containsKey(route)) {
-                    state = type.cast(vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
-                }
-            } catch (ClassCastException e) {
-                throw getClassCastException(e, stateId, type.toString(), vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()].getClass().toString());
-            }
+            Object[][] states = vehicleDependentRouteStateMap.get(route);
+            double[][] doubleStates = vehicleDependentRouteDoubleStateMap.get(route);
+            state = getState(states == null ? null : states[vehicleTypeIndex][stateId.getIndex()],
+                doubleStates == null ? Double.NaN : doubleStates[vehicleTypeIndex][stateId.getIndex()]);
+        }
+        try {
+            return type.cast(state);
+        } catch (ClassCastException e) {
+            throw getClassCastException(e, stateId, type.toString(), state.getClass().toString());
         }
-        return state;
+    }
+
+    /**
+     * Returns the double state value that is associated to the route, vehicle and stateId, or Double.NaN if no double
+     * value is associated.
+     *
+     * @param route   the route for which the state is requested
+     * @param vehicle the vehicle for which the state is requested
+     * @param stateId the stateId(entifier) for the state that is requested
+     * @return the associated double value, or Double.NaN if no double value is associated
+     */
+    @Override
+    public double getRouteStateDouble(VehicleRoute route, Vehicle vehicle, StateId stateId) {
+        if (route.isEmpty()) return Double.NaN;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        if (isIndexedBased) {
+            return getDoubleState(getDouble(vehicleDependentRouteDoubleStatesArr, stateId, vehicleDependentRouteIndex(route, vehicle)),
+                vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicleTypeIndex][stateId.getIndex()]);
+        }
+        double[][] doubleStates = vehicleDependentRouteDoubleStateMap.get(route);
+        Object[][] states = vehicleDependentRouteStateMap.get(route);
+        return getDoubleState(doubleStates == null ? Double.NaN : doubleStates[vehicleTypeIndex][stateId.getIndex()],
+            states == null ? null : states[vehicleTypeIndex][stateId.getIndex()]);
     }
 
     /**
@@ -383,16 +583,26 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      *                                         || stateId.getIndex < noInternalStates
      */
     public <T> void putActivityState(TourActivity act, StateId stateId, T state) {
-        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
-        if (stateId.getIndex() < initialNoStates)
-            throw new IllegalStateException("either you use a reserved stateId that is applied\n" +
-                "internally or your stateId has been created without index, e.g. StateFactory.createId(stateName)\n" +
-                " does not assign indeces thus do not use it anymore, but use\n " +
-                "stateManager.createStateId(name)\n" +
-                " instead.\n");
+        checkActivityState(act, stateId);
         putInternalTypedActivityState(act, stateId, state);
     }
 
+    /**
+     * Associates the specified activity and stateId to the double state value without boxing it. If a state value is
+     * already associated to the specified activity and stateId, it is replaced by the new state value.
+     * <p>Double.NaN cannot be memorized, it removes the associated value.</p>
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code>
+     *                                         || stateId.getIndex < noInternalStates
+     */
+    public void putActivityStateDouble(TourActivity act, StateId stateId, double state) {
+        checkActivityState(act, stateId);
+        putInternalActivityStateDouble(act, stateId, state);
+    }
+
     /**
      * Associates the specified activity, vehicle and stateId to the state value. If a state value is already associated to the
      * specified activity and stateId, it is replaced by the new state value.
@@ -406,6 +616,28 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      *                                         || stateId.getIndex < noInternalStates
      */
     public <T> void putActivityState(TourActivity act, Vehicle vehicle, StateId stateId, T state) {
+        checkActivityState(act, stateId);
+        putInternalTypedActivityState(act, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the double state value without boxing it. If a state
+     * value is already associated to the specified activity and stateId, it is replaced by the new state value.
+     * <p>Double.NaN cannot be memorized, it removes the associated value.</p>
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code>
+     *                                         || stateId.getIndex < noInternalStates
+     */
+    public void putActivityStateDouble(TourActivity act, Vehicle vehicle, StateId stateId, double state) {
+        checkActivityState(act, stateId);
+        putInternalActivityStateDouble(act, vehicle, stateId, state);
+    }
+
+    private void checkActivityState(TourActivity act, StateId stateId) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (stateId.getIndex() < initialNoStates)
             throw new IllegalStateException("either you use a reserved stateId that is applied\n" +
@@ -413,15 +645,26 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
                 " does not assign indeces thus do not use it anymore, but use\n " +
                 "stateManager.createStateId(name)\n" +
                 " instead.\n");
-        putInternalTypedActivityState(act, vehicle, stateId, state);
     }
 
     <T> void putInternalTypedActivityState(TourActivity act, StateId stateId, T state) {
         activityStates[act.getIndex()][stateId.getIndex()] = state;
+        removeDouble(activityDoubleStates, stateId, act.getIndex());
     }
 
     <T> void putInternalTypedActivityState(TourActivity act, Vehicle vehicle, StateId stateId, T state) {
         vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+        removeDouble(vehicleDependentActivityDoubleStates, stateId, vehicleDependentActivityIndex(act, vehicle));
+    }
+
+    void putInternalActivityStateDouble(TourActivity act, StateId stateId, double state) {
+        putDouble(activityDoubleStates, stateId, act.getIndex(), nuActivities, state);
+        activityStates[act.getIndex()][stateId.getIndex()] = null;
+    }
+
+    void putInternalActivityStateDouble(TourActivity act, Vehicle vehicle, StateId stateId, double state) {
+        putDouble(vehicleDependentActivityDoubleStates, stateId, vehicleDependentActivityIndex(act, vehicle), nuActivities * nuVehicleTypeKeys, state);
+        vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = null;
     }
 
     /**
@@ -439,6 +682,21 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         putTypedInternalRouteState(route, stateId, state);
     }
 
+    /**
+     * Associates the specified route and stateId to the double state value without boxing it. If a state value is
+     * already associated to the specified route and stateId, it is replaced by the new state value.
+     * <p>Double.NaN cannot be memorized, it removes the associated value.</p>
+     *
+     * @param route   the route for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route and stateId
+     * @throws java.lang.IllegalStateException if stateId is equal to a stateId that is already used internally.
+     */
+    public void putRouteStateDouble(VehicleRoute route, StateId stateId, double state) {
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalRouteStateDouble(route, stateId, state);
+    }
+
     /**
      * Associates the specified route, vehicle and stateId to the state value. If a state value is already associated to the
      * specified activity and stateId, it is replaced by the new state value.
@@ -456,31 +714,92 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         putTypedInternalRouteState(route, vehicle, stateId, state);
     }
 
+    /**
+     * Associates the specified route, vehicle and stateId to the double state value without boxing it. If a state value
+     * is already associated to the specified route, vehicle and stateId, it is replaced by the new state value.
+     * <p>Double.NaN cannot be memorized, it removes the associated value.</p>
+     *
+     * @param route   the route for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the route state
+     * @param state   the state that is associated to the route, vehicle and stateId
+     * @throws java.lang.IllegalStateException if <code>vehicle.getIndex() == 0</code> || <code>stateId.getIndex() < noInternalStates</code>
+     */
+    public void putRouteStateDouble(VehicleRoute route, Vehicle vehicle, StateId stateId, double state) {
+        if (vehicle.getIndex() == 0) throw new IllegalStateException("vehicle index is 0. this should not be.");
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalRouteStateDouble(route, vehicle, stateId, state);
+    }
+
     <T> void putTypedInternalRouteState(VehicleRoute route, StateId stateId, T state) {
         if (route.isEmpty()) return;
         if(isIndexedBased){
             routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()] = state;
+            removeDouble(routeDoubleStatesArr, stateId, route.getVehicle().getIndex());
         }
         else {
             if (!routeStateMap.containsKey(route)) {
                 routeStateMap.put(route, new Object[stateIndexCounter]);
             }
             routeStateMap.get(route)[stateId.getIndex()] = state;
+            double[] doubleStates = routeDoubleStateMap.get(route);
+            if (doubleStates != null) doubleStates[stateId.getIndex()] = Double.NaN;
         }
     }
 
     <T> void putTypedInternalRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, T state) {
         if (route.isEmpty()) return;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
         if(isIndexedBased){
-            vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+            vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicleTypeIndex][stateId.getIndex()] = state;
+            removeDouble(vehicleDependentRouteDoubleStatesArr, stateId, vehicleDependentRouteIndex(route, vehicle));
         }
         else {
             if (!vehicleDependentRouteStateMap.containsKey(route)) {
                 vehicleDependentRouteStateMap.put(route, new Object[nuVehicleTypeKeys][stateIndexCounter]);
             }
-            vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
+            vehicleDependentRouteStateMap.get(route)[vehicleTypeIndex][stateId.getIndex()] = state;
+            double[][] doubleStates = vehicleDependentRouteDoubleStateMap.get(route);
+            if (doubleStates != null) doubleStates[vehicleTypeIndex][stateId.getIndex()] = Double.NaN;
+        }
+
+    }
+
+    void putInternalRouteStateDouble(VehicleRoute route, StateId stateId, double state) {
+        if (route.isEmpty()) return;
+        if (isIndexedBased) {
+            putDouble(routeDoubleStatesArr, stateId, route.getVehicle().getIndex(), noRouteIndices(), state);
+            routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()] = null;
+        } else {
+            double[] doubleStates = routeDoubleStateMap.get(route);
+            if (doubleStates == null) {
+                doubleStates = new double[stateIndexCounter];
+                Arrays.fill(doubleStates, Double.NaN);
+                routeDoubleStateMap.put(route, doubleStates);
+            }
+            doubleStates[stateId.getIndex()] = state;
+            Object[] states = routeStateMap.get(route);
+            if (states != null) states[stateId.getIndex()] = null;
         }
+    }
 
+    void putInternalRouteStateDouble(VehicleRoute route, Vehicle vehicle, StateId stateId, double state) {
+        if (route.isEmpty()) return;
+        int vehicleTypeIndex = vehicle.getVehicleTypeIdentifier().getIndex();
+        if (isIndexedBased) {
+            putDouble(vehicleDependentRouteDoubleStatesArr, stateId, vehicleDependentRouteIndex(route, vehicle), noRouteIndices() * nuVehicleTypeKeys, state);
+            vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicleTypeIndex][stateId.getIndex()] = null;
+        } else {
+            double[][] doubleStates = vehicleDependentRouteDoubleStateMap.get(route);
+            if (doubleStates == null) {
+                doubleStates = new double[nuVehicleTypeKeys][stateIndexCounter];
+                fill_twoDimArr(doubleStates, Double.NaN);
+                vehicleDependentRouteDoubleStateMap.put(route, doubleStates);
+            }
+            doubleStates[vehicleTypeIndex][stateId.getIndex()] = state;
+            Object[][] states = vehicleDependentRouteStateMap.get(route);
+            if (states != null) states[vehicleTypeIndex][stateId.getIndex()] = null;
+        }
     }
 
     /**
@@ -526,7 +845,8 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * @param activityVistor the activity-visitor to be added
      */
     void addActivityVisitor(ActivityVisitor activityVistor) {
-        routeActivityVisitor.addActivityVisitor(activityVistor);
+        activityVisitors.add(activityVistor);
+        routeActivityVisitor.addActivityVisitor(timed(activityVistor));
     }
 
     /**
@@ -537,11 +857,54 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      * @param activityVistor activityVisitor to add
      */
     void addActivityVisitor(ReverseActivityVisitor activityVistor) {
-        revRouteActivityVisitor.addActivityVisitor(activityVistor);
+        reverseActivityVisitors.add(activityVistor);
+        revRouteActivityVisitor.addActivityVisitor(timed(activityVistor));
     }
 
     void addRouteVisitor(RouteVisitor routeVisitor) {
-        routeVisitors.add(routeVisitor);
+        addedRouteVisitors.add(routeVisitor);
+        routeVisitors.add(timed(routeVisitor));
+    }
+
+    /**
+     * Sets metrics that record the time each activity and route visitor takes to update states. Visitors are then
+     * wrapped into decorators that measure begin, visit and finish of each route.
+     *
+     * @param metrics the metrics, or null if nothing should be measured
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        routeActivityVisitor = new RouteActivityVisitor();
+        for (ActivityVisitor visitor : activityVisitors) routeActivityVisitor.addActivityVisitor(timed(visitor));
+        revRouteActivityVisitor = new ReverseRouteActivityVisitor();
+        for (ReverseActivityVisitor visitor : reverseActivityVisitors) revRouteActivityVisitor.addActivityVisitor(timed(visitor));
+        routeVisitors.clear();
+        for (RouteVisitor visitor : addedRouteVisitors) routeVisitors.add(timed(visitor));
+    }
+
+    private ActivityVisitor timed(ActivityVisitor visitor) {
+        if (metrics == null) return visitor;
+        return new TimedActivityVisitor(visitor, metrics.getStateUpdateTimer(visitor));
+    }
+
+    private ReverseActivityVisitor timed(ReverseActivityVisitor visitor) {
+        if (metrics == null) return visitor;
+        return new TimedReverseActivityVisitor(visitor, metrics.getStateUpdateTimer(visitor));
+    }
+
+    private RouteVisitor timed(final RouteVisitor visitor) {
+        if (metrics == null) return visitor;
+        final SolverMetrics.Timer timer = metrics.getStateUpdateTimer(visitor);
+        return new RouteVisitor() {
+
+            @Override
+            public void visit(VehicleRoute route) {
+                long start = System.nanoTime();
+                visitor.visit(route);
+                timer.add(System.nanoTime() - start);
+            }
+
+        };
     }
 
     void addListener(RuinListener ruinListener) {
@@ -638,4 +1001,128 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         addActivityVisitor(new UpdateSkills(this));
     }
 
+    /**
+     * Updates remaining ride time and detour states, which are required by the max detour constraint
+     * (see {@link com.graphhopper.jsprit.core.problem.constraint.ConstraintManager#addMaxDetourConstraint(double)}).
+     */
+    public void updateDetourStates() {
+        if (!updateDetours) {
+            updateDetours = true;
+            addActivityVisitor(new UpdateRideTimesAndDetours(this, vrp.getTransportCosts()));
+        }
+    }
+
+    /**
+     * Updates route revenues, which are required by the revenue constraint
+     * (see {@link com.graphhopper.jsprit.core.problem.constraint.ConstraintManager#addRevenueConstraint(RevenueFunction)}).
+     *
+     * @param revenueFunction the revenue of each activity
+     */
+    public void updateRevenueStates(RevenueFunction revenueFunction) {
+        if (!updateRevenues) {
+            updateRevenues = true;
+            addActivityVisitor(new UpdateRevenues(this, revenueFunction));
+        }
+    }
+
+    /*
+     * cumulates the time of begin, visit and finish, and records it once per route. equality is the one of the wrapped
+     * visitor, thus (Reverse)RouteActivityVisitor handles a visitor that is added twice as if it were not timed.
+     */
+    private static class TimedActivityVisitor implements ActivityVisitor {
+
+        private final ActivityVisitor visitor;
+
+        private final SolverMetrics.Timer timer;
+
+        private long time;
+
+        TimedActivityVisitor(ActivityVisitor visitor, SolverMetrics.Timer timer) {
+            this.visitor = visitor;
+            this.timer = timer;
+        }
+
+        @Override
+        public void begin(VehicleRoute route) {
+            long start = System.nanoTime();
+            visitor.begin(route);
+            time = System.nanoTime() - start;
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+            long start = System.nanoTime();
+            visitor.visit(activity);
+            time += System.nanoTime() - start;
+        }
+
+        @Override
+        public void finish() {
+            long start = System.nanoTime();
+            visitor.finish();
+            timer.add(time + System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return visitor.equals(((TimedActivityVisitor) o).visitor);
+        }
+
+        @Override
+        public int hashCode() {
+            return visitor.hashCode();
+        }
+
+    }
+
+    private static class TimedReverseActivityVisitor implements ReverseActivityVisitor {
+
+        private final ReverseActivityVisitor visitor;
+
+        private final SolverMetrics.Timer timer;
+
+        private long time;
+
+        TimedReverseActivityVisitor(ReverseActivityVisitor visitor, SolverMetrics.Timer timer) {
+            this.visitor = visitor;
+            this.timer = timer;
+        }
+
+        @Override
+        public void begin(VehicleRoute route) {
+            long start = System.nanoTime();
+            visitor.begin(route);
+            time = System.nanoTime() - start;
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+            long start = System.nanoTime();
+            visitor.visit(activity);
+            time += System.nanoTime() - start;
+        }
+
+        @Override
+        public void finish() {
+            long start = System.nanoTime();
+            visitor.finish();
+            timer.add(time + System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return visitor.equals(((TimedReverseActivityVisitor) o).visitor);
+        }
+
+        @Override
+        public int hashCode() {
+            return visitor.hashCode();
+        }
+
+    }
+
 }
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+
+/**
+ * Updates and memorizes the revenue of each route ({@link InternalStates#REVENUE}), i.e. the sum of the revenues of its
+ * activities.
+ *
+ * @author schroeder
+ */
+public class UpdateRevenues implements ActivityVisitor, StateUpdater {
+
+    private final StateManager states;
+
+    private final RevenueFunction revenueFunction;
+
+    private VehicleRoute route;
+
+    private double revenue;
+
+    public UpdateRevenues(StateManager states, RevenueFunction revenueFunction) {
+        this.states = states;
+        this.revenueFunction = revenueFunction;
+    }
+
+    @Override
+    public void begin(VehicleRoute route) {
+        this.route = route;
+        revenue = 0.;
+    }
+
+    @Override
+    public void visit(TourActivity activity) {
+        revenue += revenueFunction.getRevenue(activity, route.getVehicle());
+    }
+
+    @Override
+    public void finish() {
+        states.putInternalRouteStateDouble(route, InternalStates.REVENUE, revenue);
+    }
+
+}
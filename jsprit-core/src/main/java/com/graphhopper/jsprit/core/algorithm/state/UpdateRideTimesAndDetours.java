@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.BreakActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+
+import java.util.List;
+
+/**
+ * Updates and memorizes the remaining ride time of each activity, i.e. the transport time from the activity to the
+ * end of the route ({@link InternalStates#REMAINING_RIDE_TIME}), and the max detour of the activity and all activities
+ * before it ({@link InternalStates#PAST_MAX_DETOUR}). The detour of an activity is its remaining ride time minus the
+ * transport time from the activity directly to the end of the route. Service times and waiting times are not part of
+ * the ride time.
+ * <p>
+ * <p>With these states, the max detour constraint can check an insertion in constant time: the detour of the activities
+ * before the insertion position increases by the additional transport time of the insertion.
+ *
+ * @author schroeder
+ */
+public class UpdateRideTimesAndDetours implements ReverseActivityVisitor, StateUpdater {
+
+    private final StateManager states;
+
+    private final VehicleRoutingTransportCosts transportCosts;
+
+    private VehicleRoute route;
+
+    private Location nextLocation;
+
+    private double remainingRideTime;
+
+    public UpdateRideTimesAndDetours(StateManager states, VehicleRoutingTransportCosts transportCosts) {
+        this.states = states;
+        this.transportCosts = transportCosts;
+    }
+
+    @Override
+    public void begin(VehicleRoute route) {
+        this.route = route;
+        nextLocation = route.getEnd().getLocation();
+        remainingRideTime = 0.;
+    }
+
+    @Override
+    public void visit(TourActivity activity) {
+        remainingRideTime += transportCosts.getTransportTime(activity.getLocation(), nextLocation, activity.getEndTime(), route.getDriver(), route.getVehicle());
+        states.putInternalActivityStateDouble(activity, InternalStates.REMAINING_RIDE_TIME, remainingRideTime);
+        nextLocation = activity.getLocation();
+    }
+
+    @Override
+    public void finish() {
+        double pastMaxDetour = 0.;
+        Location endLocation = route.getEnd().getLocation();
+        List<TourActivity> activities = route.getActivities();
+        for (int i = 0; i < activities.size(); i++) {
+            TourActivity activity = activities.get(i);
+            if (!(activity instanceof BreakActivity)) {
+                double directRideTime = transportCosts.getTransportTime(activity.getLocation(), endLocation, activity.getEndTime(), route.getDriver(), route.getVehicle());
+                double detour = states.getActivityStateDouble(activity, InternalStates.REMAINING_RIDE_TIME) - directRideTime;
+                pastMaxDetour = Math.max(pastMaxDetour, detour);
+            }
+            states.putInternalActivityStateDouble(activity, InternalStates.PAST_MAX_DETOUR, pastMaxDetour);
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeKey;
 import com.graphhopper.jsprit.core.util.Coordinate;
+import com.graphhopper.jsprit.core.util.CoordinateTransportCostsMatrix;
 import com.graphhopper.jsprit.core.util.CrowFlyCosts;
 import com.graphhopper.jsprit.core.util.Locations;
 import org.apache.logging.log4j.LogManager;
@@ -140,6 +141,14 @@ public class VehicleRoutingProblem {
 
         private Set<Location> allLocations = new HashSet<Location>();
 
+        private Map<Location, Integer> locationIndices = new IdentityHashMap<Location, Integer>();
+
+        private List<Location> indexedLocations = new ArrayList<Location>();
+
+        private boolean cacheRoutingCosts = false;
+
+        private boolean precomputeRoutingCosts = false;
+
         /**
          * Returns the unmodifiable map of collected locations (mapped by their location-id).
          *
@@ -182,6 +191,25 @@ public class VehicleRoutingProblem {
         }
 
 
+        /**
+         * Caches the coordinate based routing costs (i.e. {@link com.graphhopper.jsprit.core.util.GreatCircleCosts},
+         * {@link com.graphhopper.jsprit.core.util.EuclideanCosts}, {@link com.graphhopper.jsprit.core.util.ManhattanCosts}
+         * or {@link com.graphhopper.jsprit.core.util.CrowFlyCosts}) in a {@link CoordinateTransportCostsMatrix} that is
+         * indexed by the location indices of the problem. Other costs cannot be cached since their cost might not only
+         * depend on distance.
+         * <p>
+         * <p>If precompute is true, all distances and times are calculated when building the problem, otherwise each row
+         * of the matrix is calculated when it is accessed for the first time.
+         *
+         * @param precompute true if matrix should be computed at build time, false if it should be filled lazily
+         * @return this builder
+         */
+        public Builder cacheRoutingCosts(boolean precompute) {
+            this.cacheRoutingCosts = true;
+            this.precomputeRoutingCosts = precompute;
+            return this;
+        }
+
         /**
          * Sets the type of fleetSize.
          * <p>
@@ -250,6 +278,10 @@ public class VehicleRoutingProblem {
         private void addLocationToTentativeLocations(Location location) {
             tentative_coordinates.put(location.getId(), location.getCoordinate());
             allLocations.add(location);
+            if (!locationIndices.containsKey(location)) {
+                locationIndices.put(location, indexedLocations.size());
+                indexedLocations.add(location);
+            }
         }
 
         private void addJobToFinalJobMapAndCreateActivities(Job job) {
@@ -427,6 +459,11 @@ public class VehicleRoutingProblem {
             boolean hasBreaks = addBreaksToActivityMap();
             if (hasBreaks && fleetSize.equals(FleetSize.INFINITE))
                 throw new UnsupportedOperationException("breaks are not yet supported when dealing with infinite fleet. either set it to finite or omit breaks.");
+            if (cacheRoutingCosts) {
+                if (!CoordinateTransportCostsMatrix.isCacheable(transportCosts))
+                    throw new IllegalStateException("routing costs can only be cached if they are GreatCircleCosts, EuclideanCosts, ManhattanCosts or CrowFlyCosts");
+                transportCosts = new CoordinateTransportCostsMatrix(transportCosts, indexedLocations, precomputeRoutingCosts);
+            }
             return new VehicleRoutingProblem(this);
         }
 
@@ -559,6 +596,10 @@ public class VehicleRoutingProblem {
 
     private int nuActivities;
 
+    private final int nuLocations;
+
+    private final Map<Location, Integer> locationIndices;
+
     private final JobActivityFactory jobActivityFactory = new JobActivityFactory() {
 
         @Override
@@ -580,6 +621,8 @@ public class VehicleRoutingProblem {
         this.activityMap = builder.activityMap;
         this.nuActivities = builder.activityIndexCounter;
         this.allLocations = builder.allLocations;
+        this.nuLocations = builder.indexedLocations.size();
+        this.locationIndices = Collections.unmodifiableMap(new IdentityHashMap<Location, Integer>(builder.locationIndices));
         logger.info("setup problem: {}", this);
     }
 
@@ -679,6 +722,31 @@ public class VehicleRoutingProblem {
         return nuActivities;
     }
 
+    /**
+     * @return total number of indexed location objects, i.e. problem indices of locations lie in [0, nuLocations)
+     * @see #getLocationIndex(Location)
+     */
+    public int getNuLocations() {
+        return nuLocations;
+    }
+
+    /**
+     * Returns the dense index this problem assigned to the location object when it was built.
+     * <p>
+     * <p>In contrast to {@link Location#getIndex()}, which is set by the user (e.g. to look up a pre-compiled matrix), this
+     * index is assigned internally to every distinct location object of the problem, i.e. it lies in [0, getNuLocations()).
+     * Locations are identified by reference, not by equals. Since the index is kept by the problem, the same location
+     * objects can be part of several problems with different indices.
+     *
+     * @param location the location
+     * @return problem index or Location.NO_INDEX if this location object is not part of the problem
+     */
+    public int getLocationIndex(Location location) {
+        Integer index = locationIndices.get(location);
+        if (index == null) return Location.NO_INDEX;
+        return index;
+    }
+
     /**
      * @return factory that creates the activities associated to a job
      */
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluation order of the hard constraints of one priority class that adapts to their measured selectivity and cost.
+ * <p>
+ * <p>Per constraint, it counts evaluations and rejections, and it measures the time of every 32nd evaluation. Every
+ * reorderInterval evaluations of the class, constraints are sorted by their expected evaluation time per rejection,
+ * i.e. average time divided by rejection rate, thus cheap and selective constraints are evaluated first. Afterwards
+ * all statistics are halved such that the order follows the course of the search.
+ * <p>
+ * <p>The order is replaced as a whole, thus it can be read by concurrent insertion threads. Evaluations of the class
+ * are counted atomically, thus constraints are reordered exactly once per reorderInterval evaluations, whichever
+ * thread reaches the interval. Statistics of the constraints are not synchronized. Lost updates can only affect the
+ * order, but never the result of an evaluation.
+ *
+ * @author schroeder
+ */
+final class AdaptiveConstraintOrder<T> {
+
+    static final int DEFAULT_REORDER_INTERVAL = 10000;
+
+    private static final int SAMPLING_MASK = 31;
+
+    static final class Entry<T> {
+
+        private final T constraint;
+
+        private final SolverMetrics.Counter rejectionCounter;
+
+        private long evaluations;
+
+        private long rejections;
+
+        private long samples;
+
+        private long sampledTime;
+
+        private double score;
+
+        Entry(T constraint, SolverMetrics.Counter rejectionCounter) {
+            this.constraint = constraint;
+            this.rejectionCounter = rejectionCounter;
+        }
+
+        T getConstraint() {
+            return constraint;
+        }
+
+        /**
+         * Returns the metrics counter of rejections, or null if there are no metrics.
+         */
+        SolverMetrics.Counter getRejectionCounter() {
+            return rejectionCounter;
+        }
+
+        /**
+         * Returns true if the time of the next evaluation should be measured.
+         */
+        boolean isSampled() {
+            return (evaluations & SAMPLING_MASK) == 0;
+        }
+
+        /**
+         * Memorizes an evaluation. Rejected means that the constraint caused the evaluation of the class to stop.
+         */
+        void evaluated(boolean rejected) {
+            evaluations++;
+            if (rejected) rejections++;
+        }
+
+        void addSample(long time) {
+            samples++;
+            sampledTime += time;
+        }
+
+        double getExpectedTimePerRejection() {
+            double avgTime = samples == 0 ? 0. : (double) sampledTime / (double) samples;
+            double rejectionRate = (rejections + 1.) / (evaluations + 2.);
+            return avgTime / rejectionRate;
+        }
+
+        private void halve() {
+            evaluations /= 2;
+            rejections /= 2;
+            samples /= 2;
+            sampledTime /= 2;
+        }
+
+        @Override
+        public String toString() {
+            return "[constraint=" + constraint + "][evaluations=" + evaluations + "][rejections=" + rejections + "]";
+        }
+
+    }
+
+    private final int reorderInterval;
+
+    private volatile List<Entry<T>> order;
+
+    private final AtomicInteger evaluationsSinceReorder = new AtomicInteger(0);
+
+    /**
+     * @param constraints     the constraints in their initial order
+     * @param metrics         metrics that count rejections, or null
+     * @param reorderInterval number of evaluations of the class after which constraints are reordered
+     */
+    AdaptiveConstraintOrder(Collection<? extends T> constraints, SolverMetrics metrics, int reorderInterval) {
+        if (reorderInterval < 1) throw new IllegalArgumentException("reorder interval must be greater than zero");
+        this.reorderInterval = reorderInterval;
+        List<Entry<T>> entries = new ArrayList<Entry<T>>();
+        for (T constraint : constraints) {
+            entries.add(new Entry<T>(constraint, metrics == null ? null : metrics.getRejectionCounter(constraint)));
+        }
+        order = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the current order. It must be fetched once per evaluation of the class and counts as such.
+     *
+     * @return entries in the order they should be evaluated
+     */
+    List<Entry<T>> nextEvaluation() {
+        if (evaluationsSinceReorder.incrementAndGet() == reorderInterval) {
+            evaluationsSinceReorder.addAndGet(-reorderInterval);
+            reorder();
+        }
+        return order;
+    }
+
+    synchronized void reorder() {
+        List<Entry<T>> entries = new ArrayList<Entry<T>>(order);
+        for (Entry<T> entry : entries) {
+            entry.score = entry.getExpectedTimePerRejection();
+            entry.halve();
+        }
+        Collections.sort(entries, new Comparator<Entry<T>>() {
+
+            @Override
+            public int compare(Entry<T> o1, Entry<T> o2) {
+                return Double.compare(o1.score, o2.score);
+            }
+
+        });
+        order = Collections.unmodifiableList(entries);
+    }
+
+    List<T> getConstraints() {
+        List<T> constraints = new ArrayList<T>();
+        for (Entry<T> entry : order) constraints.add(entry.getConstraint());
+        return constraints;
+    }
+
+}
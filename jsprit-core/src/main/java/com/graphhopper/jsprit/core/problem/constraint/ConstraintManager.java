@@ -16,7 +16,9 @@
  ******************************************************************************/
 package com.graphhopper.jsprit.core.problem.constraint;
 
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
@@ -120,6 +122,71 @@ public class ConstraintManager implements HardActivityConstraint, HardRouteConst
         }
     }
 
+    /**
+     * Adds a constraint that limits the detour of each job to maxDetour (see {@link MaxDetourConstraint}). It requires
+     * detour states, i.e. <code>stateManager.updateDetourStates()</code>.
+     *
+     * @param maxDetour max transport time a job's ride to the end of the route may exceed its direct ride
+     */
+    public void addMaxDetourConstraint(double maxDetour) {
+        addConstraint(new MaxDetourConstraint(stateManager, vrp.getTransportCosts(), maxDetour), Priority.HIGH);
+    }
+
+    /**
+     * Adds a soft constraint that reduces insertion costs by the revenue of the inserted job (see
+     * {@link RevenueConstraint}). It requires revenue states, i.e. <code>stateManager.updateRevenueStates(revenueFunction)</code>.
+     *
+     * @param revenueFunction the revenue of each activity
+     */
+    public void addRevenueConstraint(RevenueFunction revenueFunction) {
+        RevenueConstraint revenueConstraint = new RevenueConstraint(stateManager, revenueFunction);
+        addConstraint((SoftActivityConstraint) revenueConstraint);
+        addConstraint((SoftRouteConstraint) revenueConstraint);
+    }
+
+    /**
+     * Returns true if the core time window constraint has been added by {@link #addTimeWindowConstraint()}, i.e. if
+     * insertion calculators can rely on activities not being started after their latest operation start time.
+     *
+     * @return true if time window constraint is set
+     */
+    public boolean isTimeWindowConstraintSet() {
+        return timeWindowConstraintsSet;
+    }
+
+    /**
+     * Sets metrics that count the rejections of each hard activity and hard route constraint.
+     *
+     * @param metrics the metrics, or null if nothing should be counted
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        actLevelConstraintManager.setMetrics(metrics);
+        routeLevelConstraintManager.setMetrics(metrics);
+    }
+
+    /**
+     * Enables or disables adaptive ordering of hard activity and hard route constraints. If enabled, constraints are
+     * reordered every 10000 evaluations of their priority class such that cheap constraints that often reject an
+     * insertion are evaluated first. Priority classes are still evaluated in the order critical, high, low.
+     * Default is to evaluate constraints in the order they have been added.
+     *
+     * @param adaptiveOrdering true if constraints should be ordered adaptively
+     */
+    public void setAdaptiveOrdering(boolean adaptiveOrdering) {
+        setAdaptiveOrdering(adaptiveOrdering ? AdaptiveConstraintOrder.DEFAULT_REORDER_INTERVAL : 0);
+    }
+
+    /**
+     * Enables adaptive ordering of hard activity and hard route constraints (see {@link #setAdaptiveOrdering(boolean)})
+     * with the specified reorder interval, or disables it if reorderInterval is 0.
+     *
+     * @param reorderInterval number of evaluations of a priority class after which its constraints are reordered
+     */
+    public void setAdaptiveOrdering(int reorderInterval) {
+        actLevelConstraintManager.setAdaptiveOrdering(reorderInterval);
+        routeLevelConstraintManager.setAdaptiveOrdering(reorderInterval);
+    }
+
 //	public void add
 
     public void addConstraint(HardActivityConstraint actLevelConstraint, Priority priority) {
@@ -16,6 +16,7 @@
  ******************************************************************************/
 package com.graphhopper.jsprit.core.problem.constraint;
 
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
@@ -27,20 +28,85 @@ import java.util.List;
 
 class HardActivityLevelConstraintManager implements HardActivityConstraint {
 
-    private Collection<HardActivityConstraint> criticalConstraints = new ArrayList<HardActivityConstraint>();
+    private List<HardActivityConstraint> criticalConstraints = new ArrayList<HardActivityConstraint>();
 
-    private Collection<HardActivityConstraint> highPrioConstraints = new ArrayList<HardActivityConstraint>();
+    private List<HardActivityConstraint> highPrioConstraints = new ArrayList<HardActivityConstraint>();
 
-    private Collection<HardActivityConstraint> lowPrioConstraints = new ArrayList<HardActivityConstraint>();
+    private List<HardActivityConstraint> lowPrioConstraints = new ArrayList<HardActivityConstraint>();
+
+    private SolverMetrics metrics;
+
+    /*
+     * rejection counters by the index of the corresponding constraint, only set if metrics are set
+     */
+    private List<SolverMetrics.Counter> criticalRejections;
+
+    private List<SolverMetrics.Counter> highPrioRejections;
+
+    private List<SolverMetrics.Counter> lowPrioRejections;
+
+    /*
+     * adaptive evaluation orders by priority class, only set if adaptive ordering is enabled
+     */
+    private int reorderInterval = 0;
+
+    private AdaptiveConstraintOrder<HardActivityConstraint> criticalOrder;
+
+    private AdaptiveConstraintOrder<HardActivityConstraint> highPrioOrder;
+
+    private AdaptiveConstraintOrder<HardActivityConstraint> lowPrioOrder;
 
     public void addConstraint(HardActivityConstraint constraint, ConstraintManager.Priority priority) {
         if (priority.equals(ConstraintManager.Priority.CRITICAL)) {
             criticalConstraints.add(constraint);
+            if (metrics != null) criticalRejections.add(metrics.getRejectionCounter(constraint));
         } else if (priority.equals(ConstraintManager.Priority.HIGH)) {
             highPrioConstraints.add(constraint);
+            if (metrics != null) highPrioRejections.add(metrics.getRejectionCounter(constraint));
         } else {
             lowPrioConstraints.add(constraint);
+            if (metrics != null) lowPrioRejections.add(metrics.getRejectionCounter(constraint));
         }
+        initAdaptiveOrders();
+    }
+
+    void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        criticalRejections = getRejectionCounters(criticalConstraints);
+        highPrioRejections = getRejectionCounters(highPrioConstraints);
+        lowPrioRejections = getRejectionCounters(lowPrioConstraints);
+        initAdaptiveOrders();
+    }
+
+    /**
+     * Enables adaptive ordering of constraints within each priority class if reorderInterval is greater than zero,
+     * otherwise constraints are evaluated in the order they have been added.
+     *
+     * @param reorderInterval number of evaluations of a priority class after which its constraints are reordered
+     */
+    void setAdaptiveOrdering(int reorderInterval) {
+        if (reorderInterval < 0) throw new IllegalArgumentException("reorder interval must not be negative");
+        this.reorderInterval = reorderInterval;
+        initAdaptiveOrders();
+    }
+
+    private void initAdaptiveOrders() {
+        if (reorderInterval == 0) {
+            criticalOrder = null;
+            highPrioOrder = null;
+            lowPrioOrder = null;
+            return;
+        }
+        criticalOrder = new AdaptiveConstraintOrder<HardActivityConstraint>(criticalConstraints, metrics, reorderInterval);
+        highPrioOrder = new AdaptiveConstraintOrder<HardActivityConstraint>(highPrioConstraints, metrics, reorderInterval);
+        lowPrioOrder = new AdaptiveConstraintOrder<HardActivityConstraint>(lowPrioConstraints, metrics, reorderInterval);
+    }
+
+    private List<SolverMetrics.Counter> getRejectionCounters(List<HardActivityConstraint> constraints) {
+        if (metrics == null) return null;
+        List<SolverMetrics.Counter> counters = new ArrayList<SolverMetrics.Counter>();
+        for (HardActivityConstraint constraint : constraints) counters.add(metrics.getRejectionCounter(constraint));
+        return counters;
     }
 
     Collection<HardActivityConstraint> getCriticalConstraints() {
@@ -63,11 +129,62 @@ class HardActivityLevelConstraintManager implements HardActivityConstraint {
         return Collections.unmodifiableCollection(c);
     }
 
+    /*
+     * called for every evaluated insertion position, thus constraints are iterated by index (no iterator objects)
+     */
     @Override
     public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+        if (criticalOrder != null) return fulfilledAdaptively(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+        ConstraintsStatus notFulfilled = null;
+        for (int i = 0; i < criticalConstraints.size(); i++) {
+            ConstraintsStatus status = criticalConstraints.get(i).fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+            if (metrics != null && !status.equals(ConstraintsStatus.FULFILLED)) criticalRejections.get(i).increment();
+            if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK)) {
+                return status;
+            } else {
+                if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                    notFulfilled = status;
+                }
+            }
+        }
+        if (notFulfilled != null) return notFulfilled;
+
+        for (int i = 0; i < highPrioConstraints.size(); i++) {
+            ConstraintsStatus status = highPrioConstraints.get(i).fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+            if (metrics != null && !status.equals(ConstraintsStatus.FULFILLED)) highPrioRejections.get(i).increment();
+            if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK)) {
+                return status;
+            } else {
+                if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                    notFulfilled = status;
+                }
+            }
+        }
+        if (notFulfilled != null) return notFulfilled;
+
+        for (int i = 0; i < lowPrioConstraints.size(); i++) {
+            ConstraintsStatus status = lowPrioConstraints.get(i).fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+            if (metrics != null && !status.equals(ConstraintsStatus.FULFILLED)) lowPrioRejections.get(i).increment();
+            if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK) || status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                return status;
+            }
+        }
+
+        return ConstraintsStatus.FULFILLED;
+    }
+
+    /*
+     * same as fulfilled, but in adaptive order. within critical and high priority classes, all constraints are evaluated
+     * unless one returns NOT_FULFILLED_BREAK, thus only this status is selective. within the low priority class, the
+     * first constraint that is not fulfilled determines the status, thus a constraint returning NOT_FULFILLED_BREAK
+     * might be evaluated before one returning NOT_FULFILLED. both states are correct since each constraint is not
+     * fulfilled, the first only allows to stop evaluating further insertion positions.
+     */
+    private ConstraintsStatus fulfilledAdaptively(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
         ConstraintsStatus notFulfilled = null;
-        for (HardActivityConstraint c : criticalConstraints) {
-            ConstraintsStatus status = c.fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+        List<AdaptiveConstraintOrder.Entry<HardActivityConstraint>> critical = criticalOrder.nextEvaluation();
+        for (int i = 0; i < critical.size(); i++) {
+            ConstraintsStatus status = fulfilled(critical.get(i), false, iFacts, prevAct, newAct, nextAct, prevActDepTime);
             if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK)) {
                 return status;
             } else {
@@ -78,8 +195,9 @@ class HardActivityLevelConstraintManager implements HardActivityConstraint {
         }
         if (notFulfilled != null) return notFulfilled;
 
-        for (HardActivityConstraint c : highPrioConstraints) {
-            ConstraintsStatus status = c.fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+        List<AdaptiveConstraintOrder.Entry<HardActivityConstraint>> highPrio = highPrioOrder.nextEvaluation();
+        for (int i = 0; i < highPrio.size(); i++) {
+            ConstraintsStatus status = fulfilled(highPrio.get(i), false, iFacts, prevAct, newAct, nextAct, prevActDepTime);
             if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK)) {
                 return status;
             } else {
@@ -90,8 +208,9 @@ class HardActivityLevelConstraintManager implements HardActivityConstraint {
         }
         if (notFulfilled != null) return notFulfilled;
 
-        for (HardActivityConstraint constraint : lowPrioConstraints) {
-            ConstraintsStatus status = constraint.fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+        List<AdaptiveConstraintOrder.Entry<HardActivityConstraint>> lowPrio = lowPrioOrder.nextEvaluation();
+        for (int i = 0; i < lowPrio.size(); i++) {
+            ConstraintsStatus status = fulfilled(lowPrio.get(i), true, iFacts, prevAct, newAct, nextAct, prevActDepTime);
             if (status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK) || status.equals(ConstraintsStatus.NOT_FULFILLED)) {
                 return status;
             }
@@ -100,4 +219,20 @@ class HardActivityLevelConstraintManager implements HardActivityConstraint {
         return ConstraintsStatus.FULFILLED;
     }
 
+    private static ConstraintsStatus fulfilled(AdaptiveConstraintOrder.Entry<HardActivityConstraint> entry, boolean notFulfilledIsSelective,
+                                               JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+        ConstraintsStatus status;
+        if (entry.isSampled()) {
+            long start = System.nanoTime();
+            status = entry.getConstraint().fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+            entry.addSample(System.nanoTime() - start);
+        } else {
+            status = entry.getConstraint().fulfilled(iFacts, prevAct, newAct, nextAct, prevActDepTime);
+        }
+        boolean notFulfilled = !status.equals(ConstraintsStatus.FULFILLED);
+        if (notFulfilled && entry.getRejectionCounter() != null) entry.getRejectionCounter().increment();
+        entry.evaluated(status.equals(ConstraintsStatus.NOT_FULFILLED_BREAK) || (notFulfilledIsSelective && notFulfilled));
+        return status;
+    }
+
 }
@@ -16,19 +16,64 @@
  ******************************************************************************/
 package com.graphhopper.jsprit.core.problem.constraint;
 
+import com.graphhopper.jsprit.core.algorithm.metrics.SolverMetrics;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 class HardRouteLevelConstraintManager implements HardRouteConstraint {
 
     private Collection<HardRouteConstraint> hardConstraints = new ArrayList<HardRouteConstraint>();
 
+    private SolverMetrics metrics;
+
+    private Map<HardRouteConstraint, SolverMetrics.Counter> rejections;
+
+    private int reorderInterval = 0;
+
+    private AdaptiveConstraintOrder<HardRouteConstraint> adaptiveOrder;
+
     public void addConstraint(HardRouteConstraint constraint) {
         hardConstraints.add(constraint);
+        if (metrics != null) rejections.put(constraint, metrics.getRejectionCounter(constraint));
+        initAdaptiveOrder();
+    }
+
+    void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+        initAdaptiveOrder();
+        if (metrics == null) {
+            rejections = null;
+            return;
+        }
+        rejections = new IdentityHashMap<HardRouteConstraint, SolverMetrics.Counter>();
+        for (HardRouteConstraint constraint : hardConstraints) {
+            rejections.put(constraint, metrics.getRejectionCounter(constraint));
+        }
+    }
+
+    /**
+     * Enables adaptive ordering of constraints if reorderInterval is greater than zero, otherwise constraints are
+     * evaluated in the order they have been added. Since all constraints must be fulfilled, the order does not
+     * change the result.
+     *
+     * @param reorderInterval number of evaluations after which constraints are reordered
+     */
+    void setAdaptiveOrdering(int reorderInterval) {
+        if (reorderInterval < 0) throw new IllegalArgumentException("reorder interval must not be negative");
+        this.reorderInterval = reorderInterval;
+        initAdaptiveOrder();
+    }
+
+    private void initAdaptiveOrder() {
+        if (reorderInterval == 0) adaptiveOrder = null;
+        else adaptiveOrder = new AdaptiveConstraintOrder<HardRouteConstraint>(hardConstraints, metrics, reorderInterval);
     }
 
     Collection<HardRouteConstraint> getConstraints() {
@@ -37,8 +82,31 @@ class HardRouteLevelConstraintManager implements HardRouteConstraint {
 
     @Override
     public boolean fulfilled(JobInsertionContext insertionContext) {
+        if (adaptiveOrder != null) return fulfilledAdaptively(insertionContext);
         for (HardRouteConstraint constraint : hardConstraints) {
             if (!constraint.fulfilled(insertionContext)) {
+                if (metrics != null) rejections.get(constraint).increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fulfilledAdaptively(JobInsertionContext insertionContext) {
+        List<AdaptiveConstraintOrder.Entry<HardRouteConstraint>> entries = adaptiveOrder.nextEvaluation();
+        for (int i = 0; i < entries.size(); i++) {
+            AdaptiveConstraintOrder.Entry<HardRouteConstraint> entry = entries.get(i);
+            boolean fulfilled;
+            if (entry.isSampled()) {
+                long start = System.nanoTime();
+                fulfilled = entry.getConstraint().fulfilled(insertionContext);
+                entry.addSample(System.nanoTime() - start);
+            } else {
+                fulfilled = entry.getConstraint().fulfilled(insertionContext);
+            }
+            entry.evaluated(!fulfilled);
+            if (!fulfilled) {
+                if (entry.getRejectionCounter() != null) entry.getRejectionCounter().increment();
                 return false;
             }
         }
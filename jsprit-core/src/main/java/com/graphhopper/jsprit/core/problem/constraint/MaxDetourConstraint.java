@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.misc.ActivityContext;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
+
+import java.util.List;
+
+/**
+ * Constraint that limits the detour of each job, i.e. the transport time from the job's activity to the end of the route
+ * minus the transport time from the activity directly to the end of the route.
+ * <p>
+ * <p>It checks the activities before the insertion position, whose detour increases by the additional transport time
+ * of the insertion, and the activity to insert. Both checks take constant time since they are based on the states
+ * {@link InternalStates#PAST_MAX_DETOUR} and {@link InternalStates#REMAINING_RIDE_TIME}, which must be updated by
+ * <code>stateManager.updateDetourStates()</code>. States refer to the vehicle of the route, transport times of a new
+ * vehicle are only considered for the activity to insert. Routes that do not return to the depot are not constrained.
+ * <p>
+ * <p>When inserting a shipment, its pickup is checked first, i.e. without its delivery. Thus the delivery check
+ * additionally considers the combined additional ride time of pickup and delivery for the activities before the pickup,
+ * and the detour the delivery causes to its own pickup.
+ *
+ * @author schroeder
+ */
+public class MaxDetourConstraint implements HardActivityConstraint {
+
+    private final RouteAndActivityDoubleStateGetter states;
+
+    private final VehicleRoutingTransportCosts transportCosts;
+
+    private final double maxDetour;
+
+    public MaxDetourConstraint(RouteAndActivityStateGetter states, VehicleRoutingTransportCosts transportCosts, double maxDetour) {
+        if (maxDetour < 0) throw new IllegalArgumentException("max detour must not be negative");
+        this.states = DoubleStateGetterAdapter.of(states);
+        this.transportCosts = transportCosts;
+        this.maxDetour = maxDetour;
+    }
+
+    @Override
+    public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+        if (!iFacts.getNewVehicle().isReturnToDepot()) return ConstraintsStatus.FULFILLED;
+        double tp_prev_new = transportCosts.getTransportTime(prevAct.getLocation(), newAct.getLocation(), prevActDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double newActDepTime = prevActDepTime + tp_prev_new;
+        double tp_new_next = transportCosts.getTransportTime(newAct.getLocation(), nextAct.getLocation(), newActDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_prev_next = transportCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double additionalRideTime = tp_prev_new + tp_new_next - tp_prev_next;
+        if (isRouteActivity(iFacts, prevAct)) {
+            double pastMaxDetour = states.getActivityStateDouble(prevAct, InternalStates.PAST_MAX_DETOUR);
+            if (pastMaxDetour + additionalRideTime > maxDetour) return ConstraintsStatus.NOT_FULFILLED;
+        }
+        if (isDeliveryToInsert(iFacts, newAct) && !pickupFulfilled(iFacts, additionalRideTime)) {
+            return ConstraintsStatus.NOT_FULFILLED;
+        }
+        if (isRouteActivity(iFacts, nextAct)) {
+            Location endLocation = iFacts.getNewVehicle().getEndLocation();
+            double remainingRideTime = tp_new_next + states.getActivityStateDouble(nextAct, InternalStates.REMAINING_RIDE_TIME);
+            double directRideTime = transportCosts.getTransportTime(newAct.getLocation(), endLocation, newActDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+            if (remainingRideTime - directRideTime > maxDetour) return ConstraintsStatus.NOT_FULFILLED;
+        }
+        return ConstraintsStatus.FULFILLED;
+    }
+
+    /*
+     * the pickup of the shipment to insert has already been checked, but without the additional ride time of its delivery
+     */
+    private boolean pickupFulfilled(JobInsertionContext iFacts, double additionalDeliveryRideTime) {
+        ActivityContext pickupContext = iFacts.getRelatedActivityContext();
+        TourActivity pickup = iFacts.getAssociatedActivities().get(0);
+        List<TourActivity> activities = iFacts.getRoute().getActivities();
+        int pickupIndex = pickupContext.getInsertionIndex();
+        double pickupDepTime = pickupContext.getEndTime();
+        Location endLocation = iFacts.getNewVehicle().getEndLocation();
+        Location nextLocation = endLocation;
+        double nextRemainingRideTime = 0.;
+        if (pickupIndex < activities.size()) {
+            TourActivity nextAct = activities.get(pickupIndex);
+            if (!isRouteActivity(iFacts, nextAct)) return true;
+            nextLocation = nextAct.getLocation();
+            nextRemainingRideTime = states.getActivityStateDouble(nextAct, InternalStates.REMAINING_RIDE_TIME);
+        }
+        double tp_pickup_next = transportCosts.getTransportTime(pickup.getLocation(), nextLocation, pickupDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double directRideTime = transportCosts.getTransportTime(pickup.getLocation(), endLocation, pickupDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
+        if (tp_pickup_next + nextRemainingRideTime + additionalDeliveryRideTime - directRideTime > maxDetour) return false;
+        if (pickupIndex == 0) return true;
+        TourActivity prevAct = activities.get(pickupIndex - 1);
+        if (!isRouteActivity(iFacts, prevAct)) return true;
+        double tp_prev_pickup = transportCosts.getTransportTime(prevAct.getLocation(), pickup.getLocation(), prevAct.getEndTime(), iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double tp_prev_next = transportCosts.getTransportTime(prevAct.getLocation(), nextLocation, prevAct.getEndTime(), iFacts.getNewDriver(), iFacts.getNewVehicle());
+        double pastMaxDetour = states.getActivityStateDouble(prevAct, InternalStates.PAST_MAX_DETOUR);
+        return pastMaxDetour + tp_prev_pickup + tp_pickup_next - tp_prev_next + additionalDeliveryRideTime <= maxDetour;
+    }
+
+    private static boolean isDeliveryToInsert(JobInsertionContext iFacts, TourActivity act) {
+        List<TourActivity> associatedActivities = iFacts.getAssociatedActivities();
+        return iFacts.getRelatedActivityContext() != null && associatedActivities.size() == 2 && associatedActivities.get(1) == act;
+    }
+
+    /*
+     * start, end and activities of the job to insert have no (or outdated) states
+     */
+    private static boolean isRouteActivity(JobInsertionContext iFacts, TourActivity act) {
+        return act instanceof TourActivity.JobActivity && act.getIndex() > 0 && !iFacts.getAssociatedActivities().contains(act);
+    }
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * Soft constraint that considers revenues in insertion costs, i.e. the revenue an insertion yields reduces its costs.
+ * <p>
+ * <p>At activity level, it returns the negative revenue of the activity to insert, which takes constant time. At route
+ * level, it returns the change of the revenue of the existing activities if the route is to be served by another
+ * vehicle. It is based on the route revenue state {@link InternalStates#REVENUE}, which must be updated by
+ * <code>stateManager.updateRevenueStates(revenueFunction)</code> with the same revenue function.
+ *
+ * @author schroeder
+ */
+public class RevenueConstraint implements SoftActivityConstraint, SoftRouteConstraint {
+
+    private final RouteAndActivityDoubleStateGetter states;
+
+    private final RevenueFunction revenueFunction;
+
+    public RevenueConstraint(RouteAndActivityStateGetter states, RevenueFunction revenueFunction) {
+        this.states = DoubleStateGetterAdapter.of(states);
+        this.revenueFunction = revenueFunction;
+    }
+
+    @Override
+    public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+        return -revenueFunction.getRevenue(newAct, iFacts.getNewVehicle());
+    }
+
+    @Override
+    public double getCosts(JobInsertionContext insertionContext) {
+        VehicleRoute route = insertionContext.getRoute();
+        Vehicle newVehicle = insertionContext.getNewVehicle();
+        if (route.isEmpty() || route.getVehicle() == newVehicle) return 0.;
+        double revenue = states.getRouteStateDouble(route, InternalStates.REVENUE);
+        double newRevenue = 0.;
+        boolean noRevenueState = Double.isNaN(revenue);
+        if (noRevenueState) revenue = 0.;
+        for (TourActivity act : route.getActivities()) {
+            newRevenue += revenueFunction.getRevenue(act, newVehicle);
+            if (noRevenueState) revenue += revenueFunction.getRevenue(act, route.getVehicle());
+        }
+        return revenue - newRevenue;
+    }
+
+}
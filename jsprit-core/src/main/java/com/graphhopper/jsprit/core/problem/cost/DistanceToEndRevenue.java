@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.cost;
+
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * Revenue function that pays the distance from an activity to the end location of the vehicle per unit of size, i.e.
+ * <code>revenuePerDistanceUnit * distance(activity, vehicle end) * size</code>, where size is the size of the
+ * activity in the specified capacity dimension.
+ *
+ * @author schroeder
+ */
+public class DistanceToEndRevenue implements RevenueFunction {
+
+    private final TransportDistance distance;
+
+    private final double revenuePerDistanceUnit;
+
+    private final int sizeDimension;
+
+    public DistanceToEndRevenue(TransportDistance distance, double revenuePerDistanceUnit, int sizeDimension) {
+        this.distance = distance;
+        this.revenuePerDistanceUnit = revenuePerDistanceUnit;
+        this.sizeDimension = sizeDimension;
+    }
+
+    @Override
+    public double getRevenue(TourActivity activity, Vehicle vehicle) {
+        int size = activity.getSize().get(sizeDimension);
+        if (size == 0) return 0.;
+        return revenuePerDistanceUnit * distance.getDistance(activity.getLocation(), vehicle.getEndLocation()) * size;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.cost;
+
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Revenue function that delegates to a revenue function per job. Activities of jobs without their own revenue function
+ * are evaluated with the default revenue function, if there is one. Otherwise they do not yield any revenue.
+ *
+ * @author schroeder
+ */
+public class JobRevenues implements RevenueFunction {
+
+    public static class Builder {
+
+        public static Builder newInstance() {
+            return new Builder();
+        }
+
+        private Map<String, RevenueFunction> revenueFunctions = new HashMap<String, RevenueFunction>();
+
+        private RevenueFunction defaultRevenueFunction;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the revenue function of the activities of job.
+         *
+         * @param job             the job
+         * @param revenueFunction the revenue function of job
+         * @return this builder
+         */
+        public Builder addRevenueFunction(Job job, RevenueFunction revenueFunction) {
+            if (revenueFunction == null) throw new IllegalArgumentException("revenue function must not be null");
+            revenueFunctions.put(job.getId(), revenueFunction);
+            return this;
+        }
+
+        /**
+         * Sets the revenue function of jobs that do not have their own revenue function.
+         *
+         * @param revenueFunction the default revenue function
+         * @return this builder
+         */
+        public Builder setDefaultRevenueFunction(RevenueFunction revenueFunction) {
+            this.defaultRevenueFunction = revenueFunction;
+            return this;
+        }
+
+        public JobRevenues build() {
+            return new JobRevenues(this);
+        }
+
+    }
+
+    private final Map<String, RevenueFunction> revenueFunctions;
+
+    private final RevenueFunction defaultRevenueFunction;
+
+    private JobRevenues(Builder builder) {
+        this.revenueFunctions = new HashMap<String, RevenueFunction>(builder.revenueFunctions);
+        this.defaultRevenueFunction = builder.defaultRevenueFunction;
+    }
+
+    @Override
+    public double getRevenue(TourActivity activity, Vehicle vehicle) {
+        if (!(activity instanceof TourActivity.JobActivity)) return 0.;
+        RevenueFunction revenueFunction = revenueFunctions.get(((TourActivity.JobActivity) activity).getJob().getId());
+        if (revenueFunction == null) revenueFunction = defaultRevenueFunction;
+        if (revenueFunction == null) return 0.;
+        return revenueFunction.getRevenue(activity, vehicle);
+    }
+
+}
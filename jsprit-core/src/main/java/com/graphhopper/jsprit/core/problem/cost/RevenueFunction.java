@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.cost;
+
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * Revenue that is collected at an activity, e.g. for prize-collecting objectives.
+ * <p>
+ * <p>The revenue of an activity must only depend on the activity and the vehicle serving it, not on the other
+ * activities of the route. Then the revenue of a route is the sum of its activity revenues and inserting an activity
+ * changes it by the revenue of the new activity only.
+ *
+ * @author schroeder
+ */
+public interface RevenueFunction {
+
+    /**
+     * Returns the revenue of activity if it is served by vehicle.
+     *
+     * @param activity the activity
+     * @param vehicle  the vehicle serving the activity
+     * @return revenue
+     */
+    public double getRevenue(TourActivity activity, Vehicle vehicle);
+
+}
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.AbstractActivity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem.FleetSize;
+import com.graphhopper.jsprit.core.problem.driver.DriverImpl;
+import com.graphhopper.jsprit.core.problem.job.*;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.BreakActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.DefaultShipmentActivityFactory;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.DefaultTourActivityFactory;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Coordinate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads problems and solutions written by {@link VrpBinaryWriter}.
+ * <p>
+ * <p>In contrast to {@link VrpXMLReader}, the problem is built by the reader, since activities of solution routes are
+ * created by the problem and thus have the same activity indices as the activities of the written solutions. Jobs,
+ * vehicles and initial routes are added to the builder in the written order, thus location, job, vehicle and activity
+ * indices are the same as in the written problem. Therefore, the builder must not contain jobs, vehicles or initial
+ * routes. Transport and activity costs can be set before reading.
+ *
+ * @author schroeder
+ */
+public class VrpBinaryReader {
+
+    private static Logger logger = LogManager.getLogger(VrpBinaryReader.class);
+
+    private VehicleRoutingProblem.Builder vrpBuilder;
+
+    private Collection<VehicleRoutingProblemSolution> solutions;
+
+    private DataInputStream in;
+
+    private List<String> strings;
+
+    private Location[] locations;
+
+    private VehicleType[] types;
+
+    private Job[] jobs;
+
+    private Vehicle[] vehicles;
+
+    private int[] jobIndices;
+
+    private int[] vehicleIndices;
+
+    private DefaultTourActivityFactory serviceActivityFactory = new DefaultTourActivityFactory();
+
+    private DefaultShipmentActivityFactory shipmentActivityFactory = new DefaultShipmentActivityFactory();
+
+    public VrpBinaryReader(VehicleRoutingProblem.Builder vrpBuilder, Collection<VehicleRoutingProblemSolution> solutions) {
+        this.vrpBuilder = vrpBuilder;
+        this.solutions = solutions;
+    }
+
+    public VrpBinaryReader(VehicleRoutingProblem.Builder vrpBuilder) {
+        this(vrpBuilder, null);
+    }
+
+    public VehicleRoutingProblem read(String filename) {
+        logger.debug("read vrp: {}", filename);
+        InputStream is;
+        try {
+            is = new BufferedInputStream(new FileInputStream(filename), 65536);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            return read(is);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads problem and solutions from is and builds the problem. Note that is is not closed.
+     *
+     * @param is the stream to read from
+     * @return the problem
+     * @throws IllegalStateException if is does not contain a snapshot of a supported version, or if the problem cannot
+     *                               be built with the written indices
+     */
+    public VehicleRoutingProblem read(InputStream is) {
+        in = new DataInputStream(is);
+        strings = new ArrayList<String>();
+        try {
+            if (in.readInt() != VrpBinaryWriter.MAGIC) throw new IllegalStateException("stream is not a vrp snapshot");
+            int version = in.readInt();
+            if (version != VrpBinaryWriter.VERSION)
+                throw new IllegalStateException("snapshot version " + version + " is not supported");
+            vrpBuilder.setFleetSize(FleetSize.values()[in.readByte()]);
+            int noIndexedLocations = readLocations();
+            readTypes();
+            int noAddedJobs = readJobs();
+            readVehicles();
+            VehicleRoute[] initialRoutes = new VehicleRoute[in.readInt()];
+            for (int i = 0; i < initialRoutes.length; i++) initialRoutes[i] = readRoute(null);
+            addInBuildOrder(noAddedJobs, initialRoutes);
+            int noActivities = in.readInt();
+            VehicleRoutingProblem vrp = vrpBuilder.build();
+            verifyIndices(vrp, noIndexedLocations, noAddedJobs, noActivities);
+            readSolutions(vrp);
+            return vrp;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            in = null;
+            strings = null;
+            locations = null;
+            types = null;
+            jobs = null;
+            vehicles = null;
+            jobIndices = null;
+            vehicleIndices = null;
+        }
+    }
+
+    private int readLocations() throws IOException {
+        int noIndexedLocations = in.readInt();
+        locations = new Location[in.readInt()];
+        for (int i = 0; i < locations.length; i++) {
+            Location.Builder builder = Location.Builder.newInstance().setId(readString());
+            int index = in.readInt();
+            if (index != Location.NO_INDEX) builder.setIndex(index);
+            if (in.readBoolean()) builder.setCoordinate(Coordinate.newInstance(in.readDouble(), in.readDouble()));
+            locations[i] = builder.build();
+        }
+        return noIndexedLocations;
+    }
+
+    private void readTypes() throws IOException {
+        types = new VehicleType[in.readInt()];
+        for (int i = 0; i < types.length; i++) {
+            VehicleTypeImpl.Builder builder = VehicleTypeImpl.Builder.newInstance(readString());
+            builder.setProfile(readString());
+            builder.setMaxVelocity(in.readDouble());
+            builder.setFixedCost(in.readDouble());
+            builder.setCostPerTransportTime(in.readDouble());
+            builder.setCostPerDistance(in.readDouble());
+            builder.setCostPerWaitingTime(in.readDouble());
+            builder.setCostPerServiceTime(in.readDouble());
+            int noDimensions = in.readInt();
+            for (int d = 0; d < noDimensions; d++) builder.addCapacityDimension(d, in.readInt());
+            types[i] = builder.build();
+        }
+    }
+
+    private int readJobs() throws IOException {
+        jobs = new Job[in.readInt()];
+        jobIndices = new int[jobs.length];
+        int noAddedJobs = in.readInt();
+        for (int i = 0; i < jobs.length; i++) {
+            jobIndices[i] = in.readInt();
+            byte type = in.readByte();
+            if (type == VrpBinaryWriter.SHIPMENT) {
+                Shipment.Builder builder = Shipment.Builder.newInstance(readString());
+                builder.setName(readString());
+                builder.setPickupLocation(readLocationRef());
+                builder.setPickupServiceTime(in.readDouble());
+                TimeWindow timeWindow = readTimeWindow();
+                builder.setPickupTimeWindow(timeWindow);
+                for (TimeWindow tw : readTimeWindows(timeWindow)) builder.addPickupTimeWindow(tw);
+                builder.setDeliveryLocation(readLocationRef());
+                builder.setDeliveryServiceTime(in.readDouble());
+                timeWindow = readTimeWindow();
+                builder.setDeliveryTimeWindow(timeWindow);
+                for (TimeWindow tw : readTimeWindows(timeWindow)) builder.addDeliveryTimeWindow(tw);
+                int noDimensions = in.readInt();
+                for (int d = 0; d < noDimensions; d++) builder.addSizeDimension(d, in.readInt());
+                int noSkills = in.readInt();
+                for (int s = 0; s < noSkills; s++) builder.addRequiredSkill(readString());
+                jobs[i] = builder.build();
+            } else {
+                Service.Builder<? extends Service> builder;
+                String id = readString();
+                if (type == VrpBinaryWriter.PICKUP) builder = Pickup.Builder.newInstance(id);
+                else if (type == VrpBinaryWriter.DELIVERY) builder = Delivery.Builder.newInstance(id);
+                else builder = Service.Builder.newInstance(id);
+                readService(builder);
+                int noDimensions = in.readInt();
+                for (int d = 0; d < noDimensions; d++) builder.addSizeDimension(d, in.readInt());
+                int noSkills = in.readInt();
+                for (int s = 0; s < noSkills; s++) builder.addRequiredSkill(readString());
+                jobs[i] = builder.build();
+            }
+        }
+        return noAddedJobs;
+    }
+
+    private void readService(Service.Builder<? extends Service> builder) throws IOException {
+        builder.setName(readString());
+        int location = in.readInt();
+        if (location >= 0) builder.setLocation(locations[location]);
+        builder.setServiceTime(in.readDouble());
+        TimeWindow timeWindow = readTimeWindow();
+        builder.setTimeWindow(timeWindow);
+        for (TimeWindow tw : readTimeWindows(timeWindow)) builder.addTimeWindow(tw);
+    }
+
+    private void readVehicles() throws IOException {
+        vehicles = new Vehicle[in.readInt()];
+        vehicleIndices = new int[vehicles.length];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicleIndices[i] = in.readInt();
+            VehicleImpl.Builder builder = VehicleImpl.Builder.newInstance(readString());
+            builder.setType(types[in.readInt()]);
+            builder.setStartLocation(readLocationRef());
+            builder.setEndLocation(readLocationRef());
+            builder.setReturnToDepot(in.readBoolean());
+            builder.setEarliestStart(in.readDouble());
+            builder.setLatestArrival(in.readDouble());
+            int noSkills = in.readInt();
+            for (int s = 0; s < noSkills; s++) builder.addSkill(readString());
+            if (in.readBoolean()) {
+                Break.Builder breakBuilder = Break.Builder.newInstance(readString());
+                readService(breakBuilder);
+                builder.setBreak(breakBuilder.build());
+            }
+            vehicles[i] = builder.build();
+        }
+    }
+
+    /*
+     * activities of initial routes are created here and get their indices from the builder, activities of solution
+     * routes are created by the problem
+     */
+    private VehicleRoute readRoute(VehicleRoutingProblem vrp) throws IOException {
+        Vehicle vehicle = vehicles[in.readInt()];
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, DriverImpl.noDriver())
+            .setDepartureTime(in.readDouble()).build();
+        int noActivities = in.readInt();
+        for (int i = 0; i < noActivities; i++) {
+            AbstractActivity act;
+            if (in.readByte() == VrpBinaryWriter.BREAK_ACTIVITY) {
+                if (vrp == null) act = BreakActivity.newInstance(vehicle.getBreak());
+                else act = vrp.copyAndGetActivities(vehicle.getBreak()).get(0);
+            } else {
+                Job job = jobs[in.readInt()];
+                int position = in.readByte();
+                if (vrp != null) act = vrp.copyAndGetActivities(job).get(position);
+                else if (job instanceof Service) act = serviceActivityFactory.createActivity((Service) job);
+                else if (position == 0) act = shipmentActivityFactory.createPickup((Shipment) job);
+                else act = shipmentActivityFactory.createDelivery((Shipment) job);
+            }
+            act.setTheoreticalEarliestOperationStartTime(in.readDouble());
+            act.setTheoreticalLatestOperationStartTime(in.readDouble());
+            act.setArrTime(in.readDouble());
+            act.setEndTime(in.readDouble());
+            route.getTourActivities().addActivity(act);
+        }
+        route.getEnd().setLocation(readLocationRef());
+        route.getEnd().setArrTime(in.readDouble());
+        return route;
+    }
+
+    private void addInBuildOrder(int noAddedJobs, VehicleRoute[] initialRoutes) throws IOException {
+        int noSteps = in.readInt();
+        int j = 0, v = 0, r = 0;
+        for (int step = 0; step < noSteps; step++) {
+            byte kind = in.readByte();
+            if (kind == VrpBinaryWriter.ADD_JOB) vrpBuilder.addJob(jobs[j++]);
+            else if (kind == VrpBinaryWriter.ADD_VEHICLE) vrpBuilder.addVehicle(vehicles[v++]);
+            else vrpBuilder.addInitialVehicleRoute(initialRoutes[r++]);
+        }
+        if (j != noAddedJobs || v != vehicles.length || r != initialRoutes.length)
+            throw new IllegalStateException("snapshot is corrupt. not all jobs, vehicles and initial routes have been added.");
+    }
+
+    private void verifyIndices(VehicleRoutingProblem vrp, int noIndexedLocations, int noAddedJobs, int noActivities) {
+        boolean same = vrp.getNuLocations() == noIndexedLocations && vrp.getNuActivities() == noActivities;
+        for (int i = 0; i < noIndexedLocations && same; i++) same = vrp.getLocationIndex(locations[i]) == i;
+        for (int i = 0; i < noAddedJobs && same; i++) same = jobs[i].getIndex() == jobIndices[i];
+        for (int i = 0; i < vehicles.length && same; i++) same = vehicles[i].getIndex() == vehicleIndices[i];
+        if (!same)
+            throw new IllegalStateException("problem cannot be built with the indices of the snapshot. make sure " +
+                "the builder does not contain jobs, vehicles or initial routes.");
+    }
+
+    private void readSolutions(VehicleRoutingProblem vrp) throws IOException {
+        int noSolutions = in.readInt();
+        for (int s = 0; s < noSolutions; s++) {
+            double cost = in.readDouble();
+            List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+            int noRoutes = in.readInt();
+            for (int r = 0; r < noRoutes; r++) routes.add(readRoute(vrp));
+            List<Job> unassignedJobs = new ArrayList<Job>();
+            int noUnassignedJobs = in.readInt();
+            for (int u = 0; u < noUnassignedJobs; u++) unassignedJobs.add(jobs[in.readInt()]);
+            if (solutions != null) solutions.add(new VehicleRoutingProblemSolution(routes, unassignedJobs, cost));
+        }
+    }
+
+    private Location readLocationRef() throws IOException {
+        return locations[in.readInt()];
+    }
+
+    private TimeWindow readTimeWindow() throws IOException {
+        return TimeWindow.newInstance(in.readDouble(), in.readDouble());
+    }
+
+    /*
+     * returns no time window if the only time window equals timeWindow, since the builders already have it then
+     */
+    private List<TimeWindow> readTimeWindows(TimeWindow timeWindow) throws IOException {
+        int noTimeWindows = in.readInt();
+        List<TimeWindow> timeWindows = new ArrayList<TimeWindow>(noTimeWindows);
+        for (int i = 0; i < noTimeWindows; i++) timeWindows.add(readTimeWindow());
+        if (noTimeWindows == 1 && timeWindows.get(0).getStart() == timeWindow.getStart()
+            && timeWindows.get(0).getEnd() == timeWindow.getEnd()) {
+            timeWindows.clear();
+        }
+        return timeWindows;
+    }
+
+    private String readString() throws IOException {
+        int ref = in.readInt();
+        if (ref == VrpBinaryWriter.NO_STRING) return null;
+        if (ref == VrpBinaryWriter.NEW_STRING) {
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+        return strings.get(ref);
+    }
+
+}
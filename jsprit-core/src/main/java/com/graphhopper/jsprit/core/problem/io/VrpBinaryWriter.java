@@ -0,0 +1,493 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.Capacity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.Skills;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.*;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.DeliveryActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes a built problem and its solutions to a compact binary snapshot that can be read with {@link VrpBinaryReader}.
+ * <p>
+ * <p>Locations, types, jobs and vehicles are written once in the order of their problem indices and are referred to by
+ * ordinals afterwards. Additionally, the order in which {@link VehicleRoutingProblem.Builder} needs to get jobs,
+ * vehicles and initial routes to assign the same location, job, vehicle and activity indices is written. Transport
+ * and activity costs are not part of the snapshot.
+ *
+ * @author schroeder
+ */
+public class VrpBinaryWriter {
+
+    static final int MAGIC = 0x4A535052;
+
+    static final int VERSION = 1;
+
+    static final byte SERVICE = 0;
+
+    static final byte PICKUP = 1;
+
+    static final byte DELIVERY = 2;
+
+    static final byte SHIPMENT = 3;
+
+    static final byte ADD_JOB = 0;
+
+    static final byte ADD_VEHICLE = 1;
+
+    static final byte ADD_INITIAL_ROUTE = 2;
+
+    static final byte JOB_ACTIVITY = 0;
+
+    static final byte BREAK_ACTIVITY = 1;
+
+    static final int NO_STRING = -2;
+
+    static final int NEW_STRING = -1;
+
+    private static Logger log = LogManager.getLogger(VrpBinaryWriter.class);
+
+    private VehicleRoutingProblem vrp;
+
+    private Collection<VehicleRoutingProblemSolution> solutions;
+
+    private DataOutputStream out;
+
+    private Map<String, Integer> strings;
+
+    private Map<Location, Integer> locationOrdinals;
+
+    private Map<VehicleType, Integer> typeOrdinals;
+
+    private Map<Job, Integer> jobOrdinals;
+
+    private Map<Vehicle, Integer> vehicleOrdinals;
+
+    public VrpBinaryWriter(VehicleRoutingProblem vrp, Collection<VehicleRoutingProblemSolution> solutions) {
+        this.vrp = vrp;
+        this.solutions = solutions;
+    }
+
+    public VrpBinaryWriter(VehicleRoutingProblem vrp) {
+        this(vrp, null);
+    }
+
+    public void write(String filename) {
+        log.info("write vrp: " + filename);
+        OutputStream out;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(filename), 65536);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            write(out);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes problem and solutions to out. Note that out is flushed but not closed.
+     *
+     * @param out the stream to write to
+     * @throws IllegalStateException if the problem contains jobs other than services and shipments, or routes with
+     *                               vehicles that are not part of the problem
+     */
+    public void write(OutputStream out) {
+        this.out = new DataOutputStream(out);
+        strings = new HashMap<String, Integer>();
+        locationOrdinals = new IdentityHashMap<Location, Integer>();
+        typeOrdinals = new IdentityHashMap<VehicleType, Integer>();
+        jobOrdinals = new IdentityHashMap<Job, Integer>();
+        vehicleOrdinals = new IdentityHashMap<Vehicle, Integer>();
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+            this.out.writeByte(vrp.getFleetSize().ordinal());
+
+            List<Job> addedJobs = new ArrayList<Job>();
+            List<Job> jobs = getJobs(addedJobs);
+            List<Vehicle> vehicles = new ArrayList<Vehicle>(vrp.getVehicles());
+            Collections.sort(vehicles, new Comparator<Vehicle>() {
+
+                @Override
+                public int compare(Vehicle v1, Vehicle v2) {
+                    return v1.getIndex() - v2.getIndex();
+                }
+
+            });
+            writeLocations(jobs, vehicles);
+            writeTypes(vehicles);
+            writeJobs(jobs, addedJobs.size());
+            writeVehicles(vehicles);
+            this.out.writeInt(vrp.getInitialVehicleRoutes().size());
+            for (VehicleRoute route : vrp.getInitialVehicleRoutes()) writeRoute(route);
+            writeBuildOrder(addedJobs, vehicles);
+            this.out.writeInt(vrp.getNuActivities());
+            writeSolutions();
+            this.out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.out = null;
+            strings = null;
+            locationOrdinals = null;
+            typeOrdinals = null;
+            jobOrdinals = null;
+            vehicleOrdinals = null;
+        }
+    }
+
+    /*
+     * jobs that have been added to the builder in the order of their indices, followed by jobs that only occur in
+     * initial routes
+     */
+    private List<Job> getJobs(List<Job> addedJobs) {
+        Set<Job> jobs = new LinkedHashSet<Job>(vrp.getJobs().values());
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) {
+            for (Job job : route.getTourActivities().getJobs()) {
+                if (!(job instanceof Break)) jobs.add(job);
+            }
+        }
+        List<Job> routeOnlyJobs = new ArrayList<Job>();
+        for (Job job : jobs) {
+            if (!(job instanceof Service || job instanceof Shipment) || job instanceof Break)
+                throw new IllegalStateException("job " + job.getId() + " is neither a service nor a shipment");
+            if (job.getIndex() > 0) addedJobs.add(job);
+            else routeOnlyJobs.add(job);
+        }
+        Collections.sort(addedJobs, new Comparator<Job>() {
+
+            @Override
+            public int compare(Job j1, Job j2) {
+                return j1.getIndex() - j2.getIndex();
+            }
+
+        });
+        List<Job> all = new ArrayList<Job>(addedJobs);
+        all.addAll(routeOnlyJobs);
+        return all;
+    }
+
+    /*
+     * locations with problem index come first in the order of their index, all others (e.g. break locations) follow
+     */
+    private void writeLocations(List<Job> jobs, List<Vehicle> vehicles) throws IOException {
+        Location[] indexed = new Location[vrp.getNuLocations()];
+        List<Location> others = new ArrayList<Location>();
+        for (Job job : jobs) {
+            for (Location location : getLocations(job)) collect(location, indexed, others);
+        }
+        for (Vehicle vehicle : vehicles) {
+            collect(vehicle.getStartLocation(), indexed, others);
+            collect(vehicle.getEndLocation(), indexed, others);
+            if (vehicle.getBreak() != null && vehicle.getBreak().getLocation() != null)
+                collect(vehicle.getBreak().getLocation(), indexed, others);
+        }
+        if (solutions != null) {
+            for (VehicleRoutingProblemSolution solution : solutions) {
+                for (VehicleRoute route : solution.getRoutes()) collect(route.getEnd().getLocation(), indexed, others);
+            }
+        }
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) collect(route.getEnd().getLocation(), indexed, others);
+        out.writeInt(indexed.length);
+        out.writeInt(indexed.length + others.size());
+        for (int i = 0; i < indexed.length; i++) {
+            if (indexed[i] == null) throw new IllegalStateException("location with problem index " + i + " is missing");
+            writeLocation(indexed[i]);
+            locationOrdinals.put(indexed[i], i);
+        }
+        for (Location location : others) {
+            writeLocation(location);
+            locationOrdinals.put(location, locationOrdinals.size());
+        }
+    }
+
+    private void collect(Location location, Location[] indexed, List<Location> others) {
+        int index = vrp.getLocationIndex(location);
+        if (index >= 0 && index < indexed.length && (indexed[index] == null || indexed[index] == location)) {
+            indexed[index] = location;
+        } else {
+            for (Location other : others) {
+                if (other == location) return;
+            }
+            others.add(location);
+        }
+    }
+
+    private void writeLocation(Location location) throws IOException {
+        writeString(location.getId());
+        out.writeInt(location.getIndex());
+        if (location.getCoordinate() == null) out.writeBoolean(false);
+        else {
+            out.writeBoolean(true);
+            out.writeDouble(location.getCoordinate().getX());
+            out.writeDouble(location.getCoordinate().getY());
+        }
+    }
+
+    private void writeTypes(List<Vehicle> vehicles) throws IOException {
+        List<VehicleType> types = new ArrayList<VehicleType>();
+        for (Vehicle vehicle : vehicles) {
+            if (!typeOrdinals.containsKey(vehicle.getType())) {
+                typeOrdinals.put(vehicle.getType(), types.size());
+                types.add(vehicle.getType());
+            }
+        }
+        out.writeInt(types.size());
+        for (VehicleType type : types) {
+            writeString(type.getTypeId());
+            writeString(type.getProfile());
+            out.writeDouble(type.getMaxVelocity());
+            VehicleTypeImpl.VehicleCostParams costs = type.getVehicleCostParams();
+            out.writeDouble(costs.fix);
+            out.writeDouble(costs.perTransportTimeUnit);
+            out.writeDouble(costs.perDistanceUnit);
+            out.writeDouble(costs.perWaitingTimeUnit);
+            out.writeDouble(costs.perServiceTimeUnit);
+            writeCapacity(type.getCapacityDimensions());
+        }
+    }
+
+    private void writeJobs(List<Job> jobs, int noAddedJobs) throws IOException {
+        out.writeInt(jobs.size());
+        out.writeInt(noAddedJobs);
+        for (Job job : jobs) {
+            jobOrdinals.put(job, jobOrdinals.size());
+            out.writeInt(job.getIndex());
+            if (job instanceof Service) {
+                Service service = (Service) job;
+                if (service instanceof Pickup) out.writeByte(PICKUP);
+                else if (service instanceof Delivery) out.writeByte(DELIVERY);
+                else out.writeByte(SERVICE);
+                writeString(service.getId());
+                writeString(service.getName());
+                writeLocationRef(service.getLocation());
+                out.writeDouble(service.getServiceDuration());
+                writeTimeWindows(service.getTimeWindow(), service.getTimeWindows());
+            } else {
+                Shipment shipment = (Shipment) job;
+                out.writeByte(SHIPMENT);
+                writeString(shipment.getId());
+                writeString(shipment.getName());
+                writeLocationRef(shipment.getPickupLocation());
+                out.writeDouble(shipment.getPickupServiceTime());
+                writeTimeWindows(shipment.getPickupTimeWindow(), shipment.getPickupTimeWindows());
+                writeLocationRef(shipment.getDeliveryLocation());
+                out.writeDouble(shipment.getDeliveryServiceTime());
+                writeTimeWindows(shipment.getDeliveryTimeWindow(), shipment.getDeliveryTimeWindows());
+            }
+            writeCapacity(job.getSize());
+            writeSkills(job.getRequiredSkills());
+        }
+    }
+
+    private void writeVehicles(List<Vehicle> vehicles) throws IOException {
+        out.writeInt(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            vehicleOrdinals.put(vehicle, vehicleOrdinals.size());
+            out.writeInt(vehicle.getIndex());
+            writeString(vehicle.getId());
+            out.writeInt(typeOrdinals.get(vehicle.getType()));
+            writeLocationRef(vehicle.getStartLocation());
+            writeLocationRef(vehicle.getEndLocation());
+            out.writeBoolean(vehicle.isReturnToDepot());
+            out.writeDouble(vehicle.getEarliestDeparture());
+            out.writeDouble(vehicle.getLatestArrival());
+            writeSkills(vehicle.getSkills());
+            Break aBreak = vehicle.getBreak();
+            if (aBreak == null) out.writeBoolean(false);
+            else {
+                out.writeBoolean(true);
+                writeString(aBreak.getId());
+                writeString(aBreak.getName());
+                if (aBreak.getLocation() == null) out.writeInt(-1);
+                else writeLocationRef(aBreak.getLocation());
+                out.writeDouble(aBreak.getServiceDuration());
+                writeTimeWindows(aBreak.getTimeWindow(), aBreak.getTimeWindows());
+            }
+        }
+    }
+
+    private void writeRoute(VehicleRoute route) throws IOException {
+        Integer vehicle = vehicleOrdinals.get(route.getVehicle());
+        if (vehicle == null)
+            throw new IllegalStateException("vehicle " + route.getVehicle().getId() + " of route is not part of the problem");
+        out.writeInt(vehicle);
+        out.writeDouble(route.getDepartureTime());
+        List<TourActivity> acts = route.getActivities();
+        out.writeInt(acts.size());
+        for (TourActivity act : acts) {
+            Job job = ((TourActivity.JobActivity) act).getJob();
+            if (job instanceof Break) {
+                out.writeByte(BREAK_ACTIVITY);
+            } else {
+                out.writeByte(JOB_ACTIVITY);
+                out.writeInt(jobOrdinals.get(job));
+                out.writeByte(job instanceof Shipment && act instanceof DeliveryActivity ? 1 : 0);
+            }
+            out.writeDouble(act.getTheoreticalEarliestOperationStartTime());
+            out.writeDouble(act.getTheoreticalLatestOperationStartTime());
+            out.writeDouble(act.getArrTime());
+            out.writeDouble(act.getEndTime());
+        }
+        writeLocationRef(route.getEnd().getLocation());
+        out.writeDouble(route.getEnd().getArrTime());
+    }
+
+    /*
+     * the builder assigns location indices in the order locations first occur when adding jobs, vehicles and initial
+     * routes. since jobs, vehicles and initial routes are each added in the order of their indices, it is sufficient to
+     * merge these three sequences such that each step adds the next locations in the order of their problem index.
+     */
+    private void writeBuildOrder(List<Job> addedJobs, List<Vehicle> vehicles) throws IOException {
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>(vrp.getInitialVehicleRoutes());
+        Set<Vehicle> addedVehicles = Collections.newSetFromMap(new IdentityHashMap<Vehicle, Boolean>());
+        int nextLocation = 0;
+        int noSteps = addedJobs.size() + vehicles.size() + routes.size();
+        out.writeInt(noSteps);
+        int j = 0, v = 0, r = 0;
+        for (int step = 0; step < noSteps; step++) {
+            int next;
+            if (j < addedJobs.size() && (next = occur(getLocations(addedJobs.get(j)), nextLocation)) >= 0) {
+                out.writeByte(ADD_JOB);
+                j++;
+            } else if (v < vehicles.size() && (next = occur(getLocations(vehicles.get(v)), nextLocation)) >= 0) {
+                out.writeByte(ADD_VEHICLE);
+                addedVehicles.add(vehicles.get(v));
+                v++;
+            } else if (r < routes.size() && addedVehicles.contains(routes.get(r).getVehicle())
+                && (next = occur(getLocations(routes.get(r)), nextLocation)) >= 0) {
+                out.writeByte(ADD_INITIAL_ROUTE);
+                r++;
+            } else {
+                throw new IllegalStateException("cannot determine an order of adding jobs, vehicles and initial routes " +
+                    "that reproduces the location indices of the problem");
+            }
+            nextLocation = next;
+        }
+    }
+
+    /*
+     * returns the next location index if locations do not add other than the next indices, otherwise -1
+     */
+    private int occur(List<Location> locations, int nextLocation) {
+        for (Location location : locations) {
+            int index = vrp.getLocationIndex(location);
+            if (index < 0 || index > nextLocation) return -1;
+            if (index == nextLocation) nextLocation++;
+        }
+        return nextLocation;
+    }
+
+    private static List<Location> getLocations(Job job) {
+        if (job instanceof Shipment)
+            return Arrays.asList(((Shipment) job).getPickupLocation(), ((Shipment) job).getDeliveryLocation());
+        return Arrays.asList(((Service) job).getLocation());
+    }
+
+    private static List<Location> getLocations(Vehicle vehicle) {
+        if (vehicle.getEndLocation().getId().equals(vehicle.getStartLocation().getId()))
+            return Arrays.asList(vehicle.getStartLocation());
+        return Arrays.asList(vehicle.getStartLocation(), vehicle.getEndLocation());
+    }
+
+    private static List<Location> getLocations(VehicleRoute route) {
+        List<Location> locations = new ArrayList<Location>();
+        for (TourActivity act : route.getActivities()) {
+            locations.addAll(getLocations(((TourActivity.JobActivity) act).getJob()));
+        }
+        return locations;
+    }
+
+    private void writeSolutions() throws IOException {
+        if (solutions == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(solutions.size());
+        for (VehicleRoutingProblemSolution solution : solutions) {
+            out.writeDouble(solution.getCost());
+            out.writeInt(solution.getRoutes().size());
+            for (VehicleRoute route : solution.getRoutes()) writeRoute(route);
+            out.writeInt(solution.getUnassignedJobs().size());
+            for (Job job : solution.getUnassignedJobs()) out.writeInt(jobOrdinals.get(job));
+        }
+    }
+
+    private void writeLocationRef(Location location) throws IOException {
+        out.writeInt(locationOrdinals.get(location));
+    }
+
+    private void writeTimeWindows(TimeWindow timeWindow, Collection<TimeWindow> timeWindows) throws IOException {
+        out.writeDouble(timeWindow.getStart());
+        out.writeDouble(timeWindow.getEnd());
+        out.writeInt(timeWindows.size());
+        for (TimeWindow tw : timeWindows) {
+            out.writeDouble(tw.getStart());
+            out.writeDouble(tw.getEnd());
+        }
+    }
+
+    private void writeCapacity(Capacity capacity) throws IOException {
+        out.writeInt(capacity.getNuOfDimensions());
+        for (int i = 0; i < capacity.getNuOfDimensions(); i++) out.writeInt(capacity.get(i));
+    }
+
+    private void writeSkills(Skills skills) throws IOException {
+        out.writeInt(skills.values().size());
+        for (String skill : skills.values()) writeString(skill);
+    }
+
+    /*
+     * strings are written once, afterwards they are referred to by the order of their first occurrence
+     */
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        Integer ref = strings.get(s);
+        if (ref != null) {
+            out.writeInt(ref);
+            return;
+        }
+        out.writeInt(NEW_STRING);
+        out.writeUTF(s);
+        strings.put(s, strings.size());
+    }
+
+}
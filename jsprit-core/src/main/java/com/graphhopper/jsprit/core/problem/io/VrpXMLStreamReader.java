@@ -0,0 +1,790 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem.FleetSize;
+import com.graphhopper.jsprit.core.problem.driver.DriverImpl;
+import com.graphhopper.jsprit.core.problem.job.*;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Coordinate;
+import com.graphhopper.jsprit.core.util.Resource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Reads problems and solutions written in the format of {@link VrpXMLReader}, but streams the file with StAX instead
+ * of loading it into a configuration tree.
+ * <p>
+ * <p>Only one service, shipment, vehicle or route at a time is held as a small element tree, and services and shipments
+ * are built as soon as they are read. Thus memory does not grow with the file but only with the problem. The reader
+ * makes the same calls to the {@link VehicleRoutingProblem.Builder} as {@link VrpXMLReader}. If schema validation is
+ * enabled, the events are validated against vrp_xml_schema.xsd while being read.
+ *
+ * @author schroeder
+ */
+public class VrpXMLStreamReader {
+
+    /**
+     * Element with its attributes, text and child elements, i.e. one service, shipment, vehicle etc.
+     */
+    private static class Element {
+
+        private final String name;
+
+        private Map<String, String> attributes;
+
+        private StringBuilder text;
+
+        private List<Element> children;
+
+        Element(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the value at path (e.g. "pickup.location.coord[@x]"), or null if there is none. Like in a
+         * hierarchical configuration, path refers to the first element of each name.
+         */
+        String getString(String path) {
+            String attribute = null;
+            int attributeStart = path.indexOf("[@");
+            if (attributeStart >= 0) {
+                attribute = path.substring(attributeStart + 2, path.length() - 1);
+                path = path.substring(0, attributeStart);
+            }
+            Element element = path.isEmpty() ? this : getElement(path);
+            if (element == null) return null;
+            if (attribute != null) return element.attributes == null ? null : element.attributes.get(attribute);
+            if (element.text == null) return element.children == null ? "" : null;
+            return element.text.toString().trim();
+        }
+
+        Element getElement(String path) {
+            Element element = this;
+            int start = 0;
+            while (element != null && start <= path.length()) {
+                int end = path.indexOf('.', start);
+                if (end < 0) end = path.length();
+                element = element.getChild(path.substring(start, end));
+                start = end + 1;
+            }
+            return element;
+        }
+
+        private Element getChild(String name) {
+            if (children == null) return null;
+            for (Element child : children) {
+                if (child.name.equals(name)) return child;
+            }
+            return null;
+        }
+
+        List<Element> getElements(String path) {
+            int lastDot = path.lastIndexOf('.');
+            Element parent = lastDot < 0 ? this : getElement(path.substring(0, lastDot));
+            if (parent == null || parent.children == null) return Collections.emptyList();
+            String name = path.substring(lastDot + 1);
+            List<Element> elements = new ArrayList<Element>();
+            for (Element child : parent.children) {
+                if (child.name.equals(name)) elements.add(child);
+            }
+            return elements;
+        }
+
+    }
+
+    private static Logger logger = LogManager.getLogger(VrpXMLStreamReader.class);
+
+    private static Schema schema;
+
+    private static boolean schemaLoaded = false;
+
+    private static synchronized Schema getSchema() {
+        if (!schemaLoaded) {
+            schemaLoaded = true;
+            InputStream resource = Resource.getAsInputStream("vrp_xml_schema.xsd");
+            if (resource == null) {
+                logger.debug("cannot find schema-xsd file (vrp_xml_schema.xsd). try to read xml without xml-file-validation.");
+                return null;
+            }
+            try {
+                schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new StreamSource(resource));
+            } catch (SAXException e) {
+                throw new RuntimeException(e);
+            } finally {
+                close(resource);
+            }
+        }
+        return schema;
+    }
+
+    private VehicleRoutingProblem.Builder vrpBuilder;
+
+    private Map<String, Vehicle> vehicleMap;
+
+    private Map<String, Service> serviceMap;
+
+    private Map<String, Shipment> shipmentMap;
+
+    private Map<String, VehicleType> types = new HashMap<String, VehicleType>();
+
+    private List<Element> vehicleElements = new ArrayList<Element>();
+
+    private Set<String> freezedJobIds = new HashSet<String>();
+
+    private boolean schemaValidation = true;
+
+    private Collection<VehicleRoutingProblemSolution> solutions;
+
+    private VrpXMLReader.ServiceBuilderFactory serviceBuilderFactory = new VrpXMLReader.DefaultServiceBuilderFactory();
+
+    private XMLStreamReader reader;
+
+    private ValidatorHandler validator;
+
+    private AttributesImpl validatorAttributes = new AttributesImpl();
+
+    private boolean doNotWarnAgain = false;
+
+    public VrpXMLStreamReader(VehicleRoutingProblem.Builder vrpBuilder, Collection<VehicleRoutingProblemSolution> solutions) {
+        this.vrpBuilder = vrpBuilder;
+        this.vehicleMap = new LinkedHashMap<String, Vehicle>();
+        this.serviceMap = new LinkedHashMap<String, Service>();
+        this.shipmentMap = new LinkedHashMap<String, Shipment>();
+        this.solutions = solutions;
+    }
+
+    public VrpXMLStreamReader(VehicleRoutingProblem.Builder vrpBuilder) {
+        this(vrpBuilder, null);
+    }
+
+    /**
+     * @param schemaValidation the schemaValidation to set
+     */
+    public void setSchemaValidation(boolean schemaValidation) {
+        this.schemaValidation = schemaValidation;
+    }
+
+    public void read(String filename) {
+        logger.debug("read vrp: {}", filename);
+        InputStream in;
+        try {
+            in = new BufferedInputStream(new FileInputStream(filename), 65536);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            read(in);
+        } finally {
+            close(in);
+        }
+    }
+
+    public void read(InputStream fileContents) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            reader = factory.createXMLStreamReader(fileContents);
+            try {
+                if (schemaValidation) createValidator();
+                if (validator != null) validator.startDocument();
+                read();
+                if (validator != null) validator.endDocument();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } catch (SAXException e) {
+            throw new RuntimeException(e);
+        } finally {
+            reader = null;
+            validator = null;
+        }
+    }
+
+    private void createValidator() {
+        Schema schema = getSchema();
+        if (schema == null) return;
+        validator = schema.newValidatorHandler();
+        validator.setErrorHandler(new ErrorHandler() {
+
+            @Override
+            public void warning(SAXParseException exception) {
+                logger.warn("xml-file: {}", exception.getMessage());
+            }
+
+            @Override
+            public void error(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+
+            @Override
+            public void fatalError(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+
+        });
+    }
+
+    private void read() throws XMLStreamException, SAXException {
+        if (!nextChild()) throw new IllegalStateException("xml-file does not contain a problem.");
+        while (nextChild()) {
+            String name = reader.getLocalName();
+            if (name.equals("problemType")) {
+                readProblemType(readElement());
+            } else if (name.equals("vehicles")) {
+                while (nextChild()) vehicleElements.add(readElement());
+            } else if (name.equals("vehicleTypes")) {
+                while (nextChild()) readType(readElement());
+            } else if (name.equals("services")) {
+                while (nextChild()) readService(readElement());
+            } else if (name.equals("shipments")) {
+                while (nextChild()) readShipment(readElement());
+            } else if (name.equals("initialRoutes")) {
+                readVehicles();
+                while (nextChild()) readInitialRoute(readElement());
+            } else if (name.equals("solutions") && solutions != null) {
+                readVehicles();
+                while (nextChild()) readSolution();
+            } else {
+                skipElement();
+            }
+        }
+        readVehicles();
+        addJobsAndTheirLocationsToVrp();
+    }
+
+    /*
+     * advances to the next child element of the current element and returns true, or to the end of the current
+     * element and returns false
+     */
+    private boolean nextChild() throws XMLStreamException, SAXException {
+        while (reader.hasNext()) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) return true;
+            if (event == XMLStreamConstants.END_ELEMENT) return false;
+        }
+        return false;
+    }
+
+    private int next() throws XMLStreamException, SAXException {
+        int event = reader.next();
+        if (validator != null) validate(event);
+        return event;
+    }
+
+    private void validate(int event) throws SAXException {
+        switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    validator.startPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)), nullToEmpty(reader.getNamespaceURI(i)));
+                }
+                validatorAttributes.clear();
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String prefix = reader.getAttributePrefix(i);
+                    String localName = reader.getAttributeLocalName(i);
+                    validatorAttributes.addAttribute(nullToEmpty(reader.getAttributeNamespace(i)), localName,
+                        prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName, "CDATA", reader.getAttributeValue(i));
+                }
+                validator.startElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(), qName(), validatorAttributes);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                validator.endElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(), qName());
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    validator.endPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)));
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                validator.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String qName() {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    /*
+     * reads the current element including its children, and stops at its end
+     */
+    private Element readElement() throws XMLStreamException, SAXException {
+        Element element = new Element(reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (element.attributes == null) element.attributes = new HashMap<String, String>(4);
+            element.attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        while (reader.hasNext()) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (element.children == null) element.children = new ArrayList<Element>(4);
+                element.children.add(readElement());
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                if (element.text == null) element.text = new StringBuilder();
+                element.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        if (element.children != null && element.text != null && element.text.toString().trim().isEmpty())
+            element.text = null;
+        return element;
+    }
+
+    private void skipElement() throws XMLStreamException, SAXException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    private void addJobsAndTheirLocationsToVrp() {
+        for (Service service : serviceMap.values()) {
+            if (!freezedJobIds.contains(service.getId())) {
+                vrpBuilder.addJob(service);
+            }
+        }
+        for (Shipment shipment : shipmentMap.values()) {
+            if (!freezedJobIds.contains(shipment.getId())) {
+                vrpBuilder.addJob(shipment);
+            }
+        }
+    }
+
+    private void readProblemType(Element problemType) {
+        String fleetSize = problemType.getString("fleetSize");
+        if (fleetSize == null) vrpBuilder.setFleetSize(FleetSize.INFINITE);
+        else if (fleetSize.toUpperCase().equals(FleetSize.INFINITE.toString()))
+            vrpBuilder.setFleetSize(FleetSize.INFINITE);
+        else vrpBuilder.setFleetSize(FleetSize.FINITE);
+    }
+
+    private void readInitialRoute(Element routeConfig) {
+        VehicleRoute.Builder routeBuilder = createRouteBuilder(routeConfig);
+        for (Element actConfig : routeConfig.getElements("act")) {
+            String type = actConfig.getString("[@type]");
+            if (type == null) throw new IllegalStateException("act[@type] is missing.");
+            String serviceId = actConfig.getString("serviceId");
+            if (serviceId != null) {
+                Service service = serviceMap.get(serviceId);
+                if (service == null)
+                    throw new IllegalStateException("service to serviceId " + serviceId + " is missing (reference in one of your initial routes). make sure you define the service you refer to here in <services> </services>.");
+                //!!!since job is part of initial route, it does not belong to jobs in problem, i.e. variable jobs that can be assigned/scheduled
+                freezedJobIds.add(serviceId);
+                routeBuilder.addService(service);
+            } else {
+                String shipmentId = actConfig.getString("shipmentId");
+                if (shipmentId == null)
+                    throw new IllegalStateException("either serviceId or shipmentId is missing");
+                Shipment shipment = shipmentMap.get(shipmentId);
+                if (shipment == null)
+                    throw new IllegalStateException("shipment to shipmentId " + shipmentId + " is missing (reference in one of your initial routes). make sure you define the shipment you refer to here in <shipments> </shipments>.");
+                freezedJobIds.add(shipmentId);
+                addShipmentActivity(routeBuilder, shipment, type);
+            }
+        }
+        vrpBuilder.addInitialVehicleRoute(routeBuilder.build());
+    }
+
+    private VehicleRoute.Builder createRouteBuilder(Element routeConfig) {
+        //! here, driverId is set to noDriver, no matter whats in driverId.
+        Vehicle vehicle = vehicleMap.get(routeConfig.getString("vehicleId"));
+        if (vehicle == null) throw new IllegalStateException("vehicle is missing.");
+        String start = routeConfig.getString("start");
+        if (start == null) throw new IllegalStateException("route start-time is missing.");
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle, DriverImpl.noDriver());
+        routeBuilder.setDepartureTime(Double.parseDouble(start));
+        return routeBuilder;
+    }
+
+    private static void addShipmentActivity(VehicleRoute.Builder routeBuilder, Shipment shipment, String type) {
+        if (type.equals("pickupShipment")) {
+            routeBuilder.addPickup(shipment);
+        } else if (type.equals("deliverShipment")) {
+            routeBuilder.addDelivery(shipment);
+        } else
+            throw new IllegalStateException("type " + type + " is not supported. Use 'pickupShipment' or 'deliverShipment' here");
+    }
+
+    /*
+     * reads one solution route by route, i.e. a solution is never held as an element tree
+     */
+    private void readSolution() throws XMLStreamException, SAXException {
+        double cost = -1;
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+        List<Job> unassignedJobs = new ArrayList<Job>();
+        while (nextChild()) {
+            String name = reader.getLocalName();
+            if (name.equals("cost")) {
+                String totalCost = readElement().getString("");
+                if (totalCost != null && !totalCost.isEmpty()) cost = Double.parseDouble(totalCost);
+            } else if (name.equals("routes")) {
+                while (nextChild()) routes.add(readSolutionRoute(readElement()));
+            } else if (name.equals("unassignedJobs")) {
+                while (nextChild()) {
+                    String jobId = readElement().getString("[@id]");
+                    Job job = shipmentMap.get(jobId);
+                    if (job == null) job = serviceMap.get(jobId);
+                    if (job == null) throw new IllegalStateException("cannot find unassignedJob with id " + jobId);
+                    unassignedJobs.add(job);
+                }
+            } else {
+                skipElement();
+            }
+        }
+        VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(routes, cost);
+        solution.getUnassignedJobs().addAll(unassignedJobs);
+        solutions.add(solution);
+    }
+
+    private VehicleRoute readSolutionRoute(Element routeConfig) {
+        VehicleRoute.Builder routeBuilder = createRouteBuilder(routeConfig);
+        if (routeConfig.getString("end") == null) throw new IllegalStateException("route end-time is missing.");
+        for (Element actConfig : routeConfig.getElements("act")) {
+            String type = actConfig.getString("[@type]");
+            if (type == null) throw new IllegalStateException("act[@type] is missing.");
+            String serviceId = actConfig.getString("serviceId");
+            if (serviceId != null) {
+                Service service = serviceMap.get(serviceId);
+                if (service == null) throw new IllegalStateException("service with id " + serviceId + " does not exist.");
+                routeBuilder.addService(service);
+            } else {
+                String shipmentId = actConfig.getString("shipmentId");
+                if (shipmentId == null)
+                    throw new IllegalStateException("either serviceId or shipmentId is missing");
+                Shipment shipment = shipmentMap.get(shipmentId);
+                if (shipment == null)
+                    throw new IllegalStateException("shipment with id " + shipmentId + " does not exist.");
+                addShipmentActivity(routeBuilder, shipment, type);
+            }
+        }
+        return routeBuilder.build();
+    }
+
+    private void readShipment(Element shipmentConfig) {
+        String id = shipmentConfig.getString("[@id]");
+        if (id == null) throw new IllegalStateException("shipment[@id] is missing.");
+
+        String capacityString = shipmentConfig.getString("capacity-demand");
+        List<Element> dimensions = shipmentConfig.getElements("capacity-dimensions.dimension");
+        checkCapacity("shipment", capacityString, dimensions);
+
+        Shipment.Builder builder;
+        if (capacityString != null) {
+            builder = Shipment.Builder.newInstance(id).addSizeDimension(0, Integer.parseInt(capacityString));
+        } else {
+            builder = Shipment.Builder.newInstance(id);
+            for (Element dimension : dimensions) {
+                builder.addSizeDimension(getInt(dimension, "[@index]"), getInt(dimension, ""));
+            }
+        }
+
+        String name = shipmentConfig.getString("name");
+        if (name != null) builder.setName(name);
+
+        builder.setPickupLocation(readJobLocation(shipmentConfig, "pickup."));
+        String pickupServiceTime = shipmentConfig.getString("pickup.duration");
+        if (pickupServiceTime != null) builder.setPickupServiceTime(Double.parseDouble(pickupServiceTime));
+        for (Element twConfig : shipmentConfig.getElements("pickup.timeWindows.timeWindow")) {
+            builder.addPickupTimeWindow(readTimeWindow(twConfig));
+        }
+
+        builder.setDeliveryLocation(readJobLocation(shipmentConfig, "delivery."));
+        String deliveryServiceTime = shipmentConfig.getString("delivery.duration");
+        if (deliveryServiceTime != null) builder.setDeliveryServiceTime(Double.parseDouble(deliveryServiceTime));
+        for (Element twConfig : shipmentConfig.getElements("delivery.timeWindows.timeWindow")) {
+            builder.addDeliveryTimeWindow(readTimeWindow(twConfig));
+        }
+
+        String skillString = shipmentConfig.getString("requiredSkills");
+        if (skillString != null) {
+            for (String skill : getSkills(skillString)) builder.addRequiredSkill(skill);
+        }
+
+        Shipment shipment = builder.build();
+        shipmentMap.put(shipment.getId(), shipment);
+    }
+
+    private void readService(Element serviceConfig) {
+        String id = serviceConfig.getString("[@id]");
+        if (id == null) throw new IllegalStateException("service[@id] is missing.");
+        String type = serviceConfig.getString("[@type]");
+        if (type == null) type = "service";
+
+        String capacityString = serviceConfig.getString("capacity-demand");
+        List<Element> dimensions = serviceConfig.getElements("capacity-dimensions.dimension");
+        checkCapacity("service", capacityString, dimensions);
+
+        Service.Builder builder;
+        if (capacityString != null) {
+            builder = serviceBuilderFactory.createBuilder(type, id, Integer.parseInt(capacityString));
+        } else {
+            builder = serviceBuilderFactory.createBuilder(type, id, null);
+            for (Element dimension : dimensions) {
+                builder.addSizeDimension(getInt(dimension, "[@index]"), getInt(dimension, ""));
+            }
+        }
+
+        String name = serviceConfig.getString("name");
+        if (name != null) builder.setName(name);
+
+        builder.setLocation(readJobLocation(serviceConfig, ""));
+
+        String duration = serviceConfig.getString("duration");
+        if (duration != null) builder.setServiceTime(Double.parseDouble(duration));
+        for (Element twConfig : serviceConfig.getElements("timeWindows.timeWindow")) {
+            builder.addTimeWindow(readTimeWindow(twConfig));
+        }
+
+        String skillString = serviceConfig.getString("requiredSkills");
+        if (skillString != null) {
+            for (String skill : getSkills(skillString)) builder.addRequiredSkill(skill);
+        }
+
+        Service service = builder.build();
+        serviceMap.put(service.getId(), service);
+    }
+
+    private static void checkCapacity(String element, String capacityString, List<Element> dimensions) {
+        if (capacityString == null && dimensions.isEmpty()) {
+            throw new IllegalStateException("capacity of " + element + " is not set. use 'capacity-dimensions'");
+        }
+        if (capacityString != null && !dimensions.isEmpty()) {
+            throw new IllegalStateException("either use capacity or capacity-dimension, not both. prefer the use of 'capacity-dimensions' over 'capacity'.");
+        }
+    }
+
+    private static Location readJobLocation(Element config, String prefix) {
+        Location.Builder locationBuilder = Location.Builder.newInstance();
+        String locationId = config.getString(prefix + "locationId");
+        if (locationId == null) locationId = config.getString(prefix + "location.id");
+        if (locationId != null) locationBuilder.setId(locationId);
+
+        Coordinate coord = getCoord(config, prefix);
+        if (coord == null) coord = getCoord(config, prefix + "location.");
+        if (coord != null) locationBuilder.setCoordinate(coord);
+
+        String locationIndex = config.getString(prefix + "location.index");
+        if (locationIndex != null) locationBuilder.setIndex(Integer.parseInt(locationIndex));
+        return locationBuilder.build();
+    }
+
+    private static Coordinate getCoord(Element config, String prefix) {
+        String x = config.getString(prefix + "coord[@x]");
+        String y = config.getString(prefix + "coord[@y]");
+        if (x == null || y == null) return null;
+        return Coordinate.newInstance(Double.parseDouble(x), Double.parseDouble(y));
+    }
+
+    private static TimeWindow readTimeWindow(Element twConfig) {
+        return TimeWindow.newInstance(getDouble(twConfig, "start"), getDouble(twConfig, "end"));
+    }
+
+    private static double getDouble(Element config, String path) {
+        String value = config.getString(path);
+        if (value == null) throw new IllegalStateException(config.name + "." + path + " is missing.");
+        return Double.parseDouble(value);
+    }
+
+    private static int getInt(Element config, String path) {
+        String value = config.getString(path);
+        if (value == null) throw new IllegalStateException(config.name + path + " is missing.");
+        return Integer.parseInt(value);
+    }
+
+    private static String[] getSkills(String skillString) {
+        String[] skills = skillString.replaceAll("\\s", "").split("[,;]");
+        for (int i = 0; i < skills.length; i++) skills[i] = skills[i].toLowerCase();
+        return skills;
+    }
+
+    private void readType(Element typeConfig) {
+        String typeId = typeConfig.getString("id");
+        if (typeId == null) throw new IllegalStateException("typeId is missing.");
+
+        String capacityString = typeConfig.getString("capacity");
+        List<Element> dimensions = typeConfig.getElements("capacity-dimensions.dimension");
+        checkCapacity("type", capacityString, dimensions);
+
+        VehicleTypeImpl.Builder typeBuilder;
+        if (capacityString != null) {
+            typeBuilder = VehicleTypeImpl.Builder.newInstance(typeId).addCapacityDimension(0, Integer.parseInt(capacityString));
+        } else {
+            typeBuilder = VehicleTypeImpl.Builder.newInstance(typeId);
+            for (Element dimension : dimensions) {
+                typeBuilder.addCapacityDimension(getInt(dimension, "[@index]"), getInt(dimension, ""));
+            }
+        }
+
+        String fix = typeConfig.getString("costs.fixed");
+        String timeC = typeConfig.getString("costs.time");
+        String distC = typeConfig.getString("costs.distance");
+        if (fix != null) typeBuilder.setFixedCost(Double.parseDouble(fix));
+        if (timeC != null) typeBuilder.setCostPerTime(Double.parseDouble(timeC));
+        if (distC != null) typeBuilder.setCostPerDistance(Double.parseDouble(distC));
+        VehicleType type = typeBuilder.build();
+        types.put(type.getTypeId(), type);
+    }
+
+    /*
+     * vehicles precede their types in the file, thus they are built once they are needed
+     */
+    private void readVehicles() {
+        for (Element vehicleConfig : vehicleElements) readVehicle(vehicleConfig);
+        vehicleElements.clear();
+    }
+
+    private void readVehicle(Element vehicleConfig) {
+        String vehicleId = vehicleConfig.getString("id");
+        if (vehicleId == null) throw new IllegalStateException("vehicleId is missing.");
+        VehicleImpl.Builder builder = VehicleImpl.Builder.newInstance(vehicleId);
+        String typeId = vehicleConfig.getString("typeId");
+        if (typeId == null) throw new IllegalStateException("typeId is missing.");
+        String vType = vehicleConfig.getString("[@type]");
+        if (vType != null && vType.equals("penalty")) typeId += "_penalty";
+        VehicleType type = types.get(typeId);
+        if (type == null) throw new IllegalStateException("vehicleType with typeId " + typeId + " is missing.");
+        builder.setType(type);
+
+        //read startlocation
+        Location.Builder startLocationBuilder = Location.Builder.newInstance();
+        String locationId = vehicleConfig.getString("location.id");
+        if (locationId == null) locationId = vehicleConfig.getString("startLocation.id");
+        startLocationBuilder.setId(locationId);
+        Coordinate startCoord = getCoord(vehicleConfig, "location.");
+        if (startCoord == null) startCoord = getCoord(vehicleConfig, "startLocation.");
+        if (startCoord == null) {
+            if (!doNotWarnAgain) {
+                logger.debug("location.coord is missing. will not warn you again.");
+                doNotWarnAgain = true;
+            }
+        } else {
+            startLocationBuilder.setCoordinate(startCoord);
+        }
+        String index = vehicleConfig.getString("startLocation.index");
+        if (index == null) index = vehicleConfig.getString("location.index");
+        if (index != null) startLocationBuilder.setIndex(Integer.parseInt(index));
+        builder.setStartLocation(startLocationBuilder.build());
+
+        //read endlocation
+        Location.Builder endLocationBuilder = Location.Builder.newInstance();
+        boolean hasEndLocation = false;
+        String endLocationId = vehicleConfig.getString("endLocation.id");
+        if (endLocationId != null) {
+            hasEndLocation = true;
+            endLocationBuilder.setId(endLocationId);
+        }
+        Coordinate endCoord = getCoord(vehicleConfig, "endLocation.");
+        if (endCoord == null) {
+            if (!doNotWarnAgain) {
+                logger.debug("endLocation.coord is missing. will not warn you again.");
+                doNotWarnAgain = true;
+            }
+        } else {
+            hasEndLocation = true;
+            endLocationBuilder.setCoordinate(endCoord);
+        }
+        String endLocationIndex = vehicleConfig.getString("endLocation.index");
+        if (endLocationIndex != null) {
+            hasEndLocation = true;
+            endLocationBuilder.setIndex(Integer.parseInt(endLocationIndex));
+        }
+        if (hasEndLocation) builder.setEndLocation(endLocationBuilder.build());
+
+        //read timeSchedule
+        String start = vehicleConfig.getString("timeSchedule.start");
+        String end = vehicleConfig.getString("timeSchedule.end");
+        if (start != null) builder.setEarliestStart(Double.parseDouble(start));
+        if (end != null) builder.setLatestArrival(Double.parseDouble(end));
+
+        //read return2depot
+        String returnToDepot = vehicleConfig.getString("returnToDepot");
+        if (returnToDepot != null) {
+            builder.setReturnToDepot(returnToDepot.equalsIgnoreCase("true") || returnToDepot.equals("1"));
+        }
+
+        //read skills
+        String skillString = vehicleConfig.getString("skills");
+        if (skillString != null) {
+            for (String skill : getSkills(skillString)) builder.addSkill(skill);
+        }
+
+        //read break, as 'breaks' (schema) or 'break'
+        Element breakConfig = vehicleConfig.getElement("breaks");
+        if (breakConfig == null) breakConfig = vehicleConfig.getElement("break");
+        if (breakConfig != null) {
+            List<Element> breakTWConfigs = breakConfig.getElements("timeWindows.timeWindow");
+            if (!breakTWConfigs.isEmpty()) {
+                Break.Builder currentBreak = Break.Builder.newInstance(vehicleId);
+                currentBreak.setServiceTime(getDouble(breakConfig, "duration"));
+                for (Element twConfig : breakTWConfigs) {
+                    currentBreak.addTimeWindow(readTimeWindow(twConfig));
+                }
+                builder.setBreak(currentBreak.build());
+            }
+        }
+
+        VehicleImpl vehicle = builder.build();
+        vrpBuilder.addVehicle(vehicle);
+        vehicleMap.put(vehicleId, vehicle);
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.warn("cannot close xml-file: {}", e.getMessage());
+        }
+    }
+
+}
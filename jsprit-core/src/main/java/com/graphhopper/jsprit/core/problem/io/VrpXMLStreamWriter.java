@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.Capacity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.Skills;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes problems and solutions in the format of {@link VrpXMLWriter}, but streams elements to the file with StAX
+ * instead of building the whole document in memory first.
+ * <p>
+ * <p>Solutions are written one after another while iterating over the solution collection. Vehicle breaks are written
+ * as 'breaks' as defined in vrp_xml_schema.xsd, thus the file can be validated.
+ *
+ * @author schroeder
+ */
+public class VrpXMLStreamWriter {
+
+    private static final String NAMESPACE = "http://www.w3schools.com";
+
+    private static Logger log = LogManager.getLogger(VrpXMLStreamWriter.class);
+
+    private VehicleRoutingProblem vrp;
+
+    private Iterable<VehicleRoutingProblemSolution> solutions;
+
+    private XMLStreamWriter writer;
+
+    private int depth;
+
+    private boolean hasChildren;
+
+    public VrpXMLStreamWriter(VehicleRoutingProblem vrp, Iterable<VehicleRoutingProblemSolution> solutions) {
+        this.vrp = vrp;
+        this.solutions = solutions;
+    }
+
+    public VrpXMLStreamWriter(VehicleRoutingProblem vrp) {
+        this(vrp, null);
+    }
+
+    public void write(String filename) {
+        if (!filename.endsWith(".xml")) filename += ".xml";
+        log.info("write vrp: " + filename);
+        OutputStream out;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(filename), 65536);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            write(out);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes problem and solutions to out. Note that out is flushed but not closed.
+     *
+     * @param out the stream to write to
+     */
+    public void write(OutputStream out) {
+        try {
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            depth = 0;
+            writer.writeStartDocument("UTF-8", "1.0");
+            start(Schema.PROBLEM);
+            writer.writeDefaultNamespace(NAMESPACE);
+            writer.writeNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+            writer.writeAttribute("http://www.w3.org/2001/XMLSchema-instance", "schemaLocation", NAMESPACE + " vrp_xml_schema.xsd");
+
+            writeProblemType();
+            writeVehiclesAndTheirTypes();
+
+            List<Job> jobs = new ArrayList<Job>();
+            jobs.addAll(vrp.getJobs().values());
+            for (VehicleRoute r : vrp.getInitialVehicleRoutes()) {
+                jobs.addAll(r.getTourActivities().getJobs());
+            }
+            writeServices(jobs);
+            writeShipments(jobs);
+
+            writeInitialRoutes();
+            writeSolutions();
+
+            end();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private void start(String name) throws XMLStreamException {
+        newLine();
+        writer.writeStartElement(name);
+        depth++;
+        hasChildren = false;
+    }
+
+    private void end() throws XMLStreamException {
+        depth--;
+        if (hasChildren) newLine();
+        writer.writeEndElement();
+        hasChildren = true;
+    }
+
+    private void element(String name, Object value) throws XMLStreamException {
+        if (value == null) return;
+        newLine();
+        writer.writeStartElement(name);
+        writer.writeCharacters(String.valueOf(value));
+        writer.writeEndElement();
+        hasChildren = true;
+    }
+
+    private void newLine() throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) writer.writeCharacters("    ");
+    }
+
+    private void writeProblemType() throws XMLStreamException {
+        start("problemType");
+        element("fleetSize", vrp.getFleetSize());
+        end();
+    }
+
+    private void writeLocation(String name, Location location, boolean withId) throws XMLStreamException {
+        start(name);
+        if (withId) element("id", location.getId());
+        if (location.getCoordinate() != null) {
+            newLine();
+            writer.writeEmptyElement("coord");
+            writer.writeAttribute("x", String.valueOf(location.getCoordinate().getX()));
+            writer.writeAttribute("y", String.valueOf(location.getCoordinate().getY()));
+            hasChildren = true;
+        }
+        if (location.getIndex() != Location.NO_INDEX) element("index", location.getIndex());
+        end();
+    }
+
+    private void writeTimeWindows(Collection<TimeWindow> timeWindows) throws XMLStreamException {
+        if (timeWindows.isEmpty()) return;
+        start("timeWindows");
+        for (TimeWindow tw : timeWindows) {
+            start("timeWindow");
+            element("start", tw.getStart());
+            element("end", tw.getEnd());
+            end();
+        }
+        end();
+    }
+
+    private void writeCapacityDimensions(Capacity capacity) throws XMLStreamException {
+        start("capacity-dimensions");
+        for (int i = 0; i < capacity.getNuOfDimensions(); i++) {
+            newLine();
+            writer.writeStartElement("dimension");
+            writer.writeAttribute("index", String.valueOf(i));
+            writer.writeCharacters(String.valueOf(capacity.get(i)));
+            writer.writeEndElement();
+            hasChildren = true;
+        }
+        end();
+    }
+
+    private void writeVehiclesAndTheirTypes() throws XMLStreamException {
+        if (!vrp.getVehicles().isEmpty()) {
+            start(Schema.VEHICLES);
+            for (Vehicle vehicle : vrp.getVehicles()) {
+                start(Schema.VEHICLE);
+                element("id", vehicle.getId());
+                element("typeId", vehicle.getType().getTypeId());
+                writeLocation("startLocation", vehicle.getStartLocation(), true);
+                writeLocation("endLocation", vehicle.getEndLocation(), true);
+                start("timeSchedule");
+                element("start", vehicle.getEarliestDeparture());
+                element("end", vehicle.getLatestArrival());
+                end();
+                if (vehicle.getBreak() != null) {
+                    start("breaks");
+                    writeTimeWindows(vehicle.getBreak().getTimeWindows());
+                    element("duration", vehicle.getBreak().getServiceDuration());
+                    end();
+                }
+                element("returnToDepot", vehicle.isReturnToDepot());
+                element("skills", createSkillString(vehicle.getSkills()));
+                end();
+            }
+            end();
+        }
+
+        if (!vrp.getTypes().isEmpty()) {
+            start(Schema.TYPES);
+            for (VehicleType type : vrp.getTypes()) {
+                start(Schema.TYPE);
+                element("id", type.getTypeId());
+                writeCapacityDimensions(type.getCapacityDimensions());
+                start("costs");
+                element("fixed", type.getVehicleCostParams().fix);
+                element("distance", type.getVehicleCostParams().perDistanceUnit);
+                element("time", type.getVehicleCostParams().perTimeUnit);
+                end();
+                end();
+            }
+            end();
+        }
+    }
+
+    private void writeServices(List<Job> jobs) throws XMLStreamException {
+        boolean started = false;
+        for (Job j : jobs) {
+            if (!(j instanceof Service)) continue;
+            if (!started) {
+                start("services");
+                started = true;
+            }
+            Service service = (Service) j;
+            start("service");
+            writer.writeAttribute("id", service.getId());
+            writer.writeAttribute("type", service.getType());
+            writeLocation("location", service.getLocation(), true);
+            writeCapacityDimensions(service.getSize());
+            element("duration", service.getServiceDuration());
+            writeTimeWindows(service.getTimeWindows());
+            element("requiredSkills", createSkillString(service.getRequiredSkills()));
+            writeName(service.getName());
+            end();
+        }
+        if (started) end();
+    }
+
+    private void writeShipments(List<Job> jobs) throws XMLStreamException {
+        boolean started = false;
+        for (Job j : jobs) {
+            if (!(j instanceof Shipment)) continue;
+            if (!started) {
+                start(Schema.SHIPMENTS);
+                started = true;
+            }
+            Shipment shipment = (Shipment) j;
+            start(Schema.SHIPMENT);
+            writer.writeAttribute("id", shipment.getId());
+            start(Schema.PICKUP);
+            writeLocation("location", shipment.getPickupLocation(), true);
+            element("duration", shipment.getPickupServiceTime());
+            writeTimeWindows(shipment.getPickupTimeWindows());
+            end();
+            start("delivery");
+            writeLocation("location", shipment.getDeliveryLocation(), true);
+            element("duration", shipment.getDeliveryServiceTime());
+            writeTimeWindows(shipment.getDeliveryTimeWindows());
+            end();
+            writeCapacityDimensions(shipment.getSize());
+            element("requiredSkills", createSkillString(shipment.getRequiredSkills()));
+            writeName(shipment.getName());
+            end();
+        }
+        if (started) end();
+    }
+
+    private void writeName(String name) throws XMLStreamException {
+        if (name != null && !name.equals("no-name")) element("name", name);
+    }
+
+    private void writeInitialRoutes() throws XMLStreamException {
+        if (vrp.getInitialVehicleRoutes().isEmpty()) return;
+        start("initialRoutes");
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) writeRoute(route);
+        end();
+    }
+
+    private void writeSolutions() throws XMLStreamException {
+        if (solutions == null) return;
+        start("solutions");
+        for (VehicleRoutingProblemSolution solution : solutions) {
+            start("solution");
+            element("cost", solution.getCost());
+            if (!solution.getRoutes().isEmpty()) {
+                start("routes");
+                for (VehicleRoute route : solution.getRoutes()) writeRoute(route);
+                end();
+            }
+            if (!solution.getUnassignedJobs().isEmpty()) {
+                start("unassignedJobs");
+                for (Job unassignedJob : solution.getUnassignedJobs()) {
+                    newLine();
+                    writer.writeEmptyElement("job");
+                    writer.writeAttribute("id", unassignedJob.getId());
+                    hasChildren = true;
+                }
+                end();
+            }
+            end();
+        }
+        end();
+    }
+
+    private void writeRoute(VehicleRoute route) throws XMLStreamException {
+        start("route");
+        element("driverId", route.getDriver().getId());
+        element("vehicleId", route.getVehicle().getId());
+        element("start", route.getStart().getEndTime());
+        for (TourActivity act : route.getTourActivities().getActivities()) {
+            start("act");
+            writer.writeAttribute("type", act.getName());
+            if (act instanceof TourActivity.JobActivity) {
+                Job job = ((TourActivity.JobActivity) act).getJob();
+                if (job instanceof Service) {
+                    element("serviceId", job.getId());
+                } else if (job instanceof Shipment) {
+                    element("shipmentId", job.getId());
+                } else if (job instanceof Break) {
+                    element("breakId", job.getId());
+                } else {
+                    throw new IllegalStateException("cannot write solution correctly since job-type is not know. make sure you use either service or shipment, or another writer");
+                }
+            }
+            element("arrTime", act.getArrTime());
+            element("endTime", act.getEndTime());
+            end();
+        }
+        element("end", route.getEnd().getArrTime());
+        end();
+    }
+
+    private static String createSkillString(Skills skills) {
+        if (skills.values().size() == 0) return null;
+        StringBuilder skillString = new StringBuilder();
+        for (String skill : skills.values()) {
+            if (skillString.length() > 0) skillString.append(", ");
+            skillString.append(skill);
+        }
+        return skillString.toString();
+    }
+
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.solution;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+/**
+ * Interface for cost terms of an objective-function that can be evaluated route by route.
+ * <p>
+ * <p>The costs of a route must only depend on the route itself, i.e. they must not change as long as the route is not
+ * modified. Then the objective-function can cache them (see {@link com.graphhopper.jsprit.core.algorithm.IncrementalSolutionCostCalculator}).
+ *
+ * @author schroeder
+ */
+public interface RouteCostCalculator {
+
+    /**
+     * Returns costs of route.
+     *
+     * @param route
+     * @return costs
+     */
+    public double getCosts(VehicleRoute route);
+
+}
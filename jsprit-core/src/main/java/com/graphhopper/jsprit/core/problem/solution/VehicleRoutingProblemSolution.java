@@ -21,6 +21,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -31,7 +32,10 @@ import java.util.Collection;
 public class VehicleRoutingProblemSolution {
 
     /**
-     * Makes a deep copy of the solution to be copied.
+     * Makes a copy of the solution to be copied.
+     * <p>
+     * <p>Routes are copied with {@link VehicleRoute#copyOf(VehicleRoute)}, i.e. the copy shares the activities of its unmodified
+     * routes with the solution to be copied. Only routes that are modified afterwards are materialized.
      *
      * @param solution2copy solution to be copied
      * @return solution
@@ -40,6 +44,21 @@ public class VehicleRoutingProblemSolution {
         return new VehicleRoutingProblemSolution(solution2copy);
     }
 
+    /**
+     * Returns a copy of solution that shares no routes and activities with solution, i.e. it can be handed over to
+     * another thread as long as solution is not modified while it is copied.
+     *
+     * @param solution the solution to be copied
+     * @return copied solution
+     */
+    public static VehicleRoutingProblemSolution deepCopyOf(VehicleRoutingProblemSolution solution) {
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>(solution.getRoutes().size());
+        for (VehicleRoute route : solution.getRoutes()) {
+            routes.add(VehicleRoute.deepCopyOf(route));
+        }
+        return new VehicleRoutingProblemSolution(routes, new ArrayList<Job>(solution.getUnassignedJobs()), solution.getCost());
+    }
+
     private final Collection<VehicleRoute> routes;
 
     private Collection<Job> unassignedJobs = new ArrayList<Job>();
@@ -35,7 +35,11 @@ import java.util.*;
 public class VehicleRoute {
 
     /**
-     * Returns a deep copy of this vehicleRoute.
+     * Returns a copy of this vehicleRoute.
+     * <p>
+     * <p>Start and end are copied right away. Tour activities are copied on write (see {@link TourActivities#copyOf(TourActivities)}),
+     * i.e. they are only duplicated when activities are added to or removed from either route, or when its vehicle or
+     * departure time is set.
      *
      * @param route route to copy
      * @return copied route
@@ -46,6 +50,20 @@ public class VehicleRoute {
         return new VehicleRoute(route);
     }
 
+    /**
+     * Returns a copy of this vehicleRoute that shares no activities with route.
+     * <p>
+     * <p>Route is only read, thus the copy can be handed over to another thread (see {@link TourActivities#deepCopyOf(TourActivities)}).
+     *
+     * @param route route to copy
+     * @return copied route
+     * @throws IllegalArgumentException if route is null
+     */
+    public static VehicleRoute deepCopyOf(VehicleRoute route) {
+        if (route == null) throw new IllegalArgumentException("route must not be null");
+        return new VehicleRoute(route, TourActivities.deepCopyOf(route.getTourActivities()));
+    }
+
     /**
      * Returns an empty route.
      * <p>
@@ -312,9 +330,13 @@ public class VehicleRoute {
      * @param route to copy
      */
     private VehicleRoute(VehicleRoute route) {
+        this(route, TourActivities.copyOf(route.getTourActivities()));
+    }
+
+    private VehicleRoute(VehicleRoute route, TourActivities tourActivities) {
         this.start = Start.copyOf(route.getStart());
         this.end = End.copyOf(route.getEnd());
-        this.tourActivities = TourActivities.copyOf(route.getTourActivities());
+        this.tourActivities = tourActivities;
         this.vehicle = route.getVehicle();
         this.driver = route.getDriver();
     }
@@ -338,7 +360,7 @@ public class VehicleRoute {
      * @return list of tourActivities
      */
     public List<TourActivity> getActivities() {
-        return Collections.unmodifiableList(tourActivities.getActivities());
+        return tourActivities.getActivities();
     }
 
     /**
@@ -384,6 +406,8 @@ public class VehicleRoute {
      * @param vehicleDepTime of employed vehicle
      */
     public void setVehicleAndDepartureTime(Vehicle vehicle, double vehicleDepTime) {
+        //activity times change with vehicle and departure time, thus they must not be shared with copies of this route anymore
+        tourActivities.ensureOwnActivities();
         this.vehicle = vehicle;
         setStartAndEnd(vehicle, vehicleDepTime);
     }
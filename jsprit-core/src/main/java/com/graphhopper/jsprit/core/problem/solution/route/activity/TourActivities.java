@@ -21,18 +21,58 @@ import com.graphhopper.jsprit.core.problem.job.Service;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity.JobActivity;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
+ * Sequence of tour activities.
+ * <p>
+ * <p>Copies are copy-on-write, i.e. a copy shares the activities with its original until either of them is modified.
+ * Only then are the activities duplicated. Thus copying a tour is cheap and unmodified tours are shared
+ * structurally between solutions. Note that sharing includes the activity instances themselves, see
+ * {@link #copyOf(TourActivities)}.
+ *
  * @author stefan schroeder
  */
 
 public class TourActivities {
 
+    private static final AtomicLong stampCounter = new AtomicLong();
+
+    /**
+     * Returns a copy of tourActivities.
+     * <p>
+     * <p>The copy shares the activities with tourActivities until activities are added to or removed from one of them.
+     * Until then, both tours return the very same activity instances, i.e. setting an attribute of an activity of the copy,
+     * e.g. its arrival or end time, sets it for tourActivities as well. Call {@link #ensureOwnActivities()} before
+     * setting attributes of a copy whose activity sequence does not change, or use {@link #deepCopyOf(TourActivities)}.
+     *
+     * @param tourActivities to be copied
+     * @return copy
+     */
     public static TourActivities copyOf(TourActivities tourActivities) {
         return new TourActivities(tourActivities);
     }
 
+    /**
+     * Returns a copy of tourActivities whose activities are duplicated right away.
+     * <p>
+     * <p>In contrast to {@link #copyOf(TourActivities)}, tourActivities is only read, i.e. the copy shares nothing with it and
+     * can be handed over to another thread.
+     *
+     * @param tourActivities to be copied
+     * @return copy
+     */
+    public static TourActivities deepCopyOf(TourActivities tourActivities) {
+        TourActivities copy = new TourActivities();
+        for (TourActivity tourAct : tourActivities.tourActivities) {
+            TourActivity newAct = tourAct.duplicate();
+            copy.tourActivities.add(newAct);
+            if (newAct instanceof JobActivity) copy.jobs.add(((JobActivity) newAct).getJob());
+        }
+        return copy;
+    }
+
     public static class ReverseActivityIterator implements Iterator<TourActivity> {
 
         private List<TourActivity> acts;
@@ -67,30 +107,110 @@ public class TourActivities {
         }
     }
 
-    private final ArrayList<TourActivity> tourActivities = new ArrayList<TourActivity>();
+    /*
+     * list of activities that always reads the current tourActivities, even if they are replaced when the tour is modified
+     */
+    private class ActivityView extends AbstractList<TourActivity> implements RandomAccess {
+
+        void modified() {
+            modCount++;
+        }
+
+        @Override
+        public TourActivity get(int index) {
+            return tourActivities.get(index);
+        }
+
+        @Override
+        public int size() {
+            return tourActivities.size();
+        }
+    }
+
+    private ArrayList<TourActivity> tourActivities;
+
+    private Set<Job> jobs;
 
-    private final Set<Job> jobs = new HashSet<Job>();
+    /*
+     * true if tourActivities and jobs might be referenced by another tour
+     */
+    private boolean shared = false;
+
+    private long modificationStamp = stampCounter.incrementAndGet();
+
+    private final ActivityView activityView = new ActivityView();
 
     private ReverseActivityIterator backward;
 
     private TourActivities(TourActivities tour2copy) {
-        for (TourActivity tourAct : tour2copy.getActivities()) {
-            TourActivity newAct = tourAct.duplicate();
-            this.tourActivities.add(newAct);
-            addJob(newAct);
-        }
+        tour2copy.shared = true;
+        this.shared = true;
+        this.tourActivities = tour2copy.tourActivities;
+        this.jobs = tour2copy.jobs;
+        this.modificationStamp = tour2copy.modificationStamp;
     }
 
     public TourActivities() {
+        tourActivities = new ArrayList<TourActivity>();
+        jobs = new HashSet<Job>();
+    }
+
+    /*
+     * must be called before tourActivities or jobs are modified. it duplicates the activities if they are shared with another tour.
+     */
+    private void beforeModification() {
+        modificationStamp = stampCounter.incrementAndGet();
+        activityView.modified();
+        ensureOwnActivities();
+    }
+
+    /**
+     * Duplicates the activities if they are still shared with a copy or with the original of this tour (see
+     * {@link #copyOf(TourActivities)}). Afterwards, attributes of the activities of this tour can be set without affecting
+     * any other tour.
+     * <p>
+     * <p>Adding and removing activities implies this.
+     */
+    public void ensureOwnActivities() {
+        if (!shared) return;
+        ArrayList<TourActivity> copiedActivities = new ArrayList<TourActivity>(tourActivities.size());
+        Set<Job> copiedJobs = new HashSet<Job>();
+        for (TourActivity tourAct : tourActivities) {
+            TourActivity newAct = tourAct.duplicate();
+            copiedActivities.add(newAct);
+            if (newAct instanceof JobActivity) copiedJobs.add(((JobActivity) newAct).getJob());
+        }
+        tourActivities = copiedActivities;
+        jobs = copiedJobs;
+        backward = null;
+        shared = false;
+    }
 
+    /**
+     * Returns a stamp that identifies the current sequence of activities. It is unique among all tours and changes
+     * whenever an activity is added or removed. Unmodified copies have the stamp of their original.
+     *
+     * @return modification stamp
+     */
+    public long getModificationStamp() {
+        return modificationStamp;
     }
 
+    /**
+     * Returns an unmodifiable list of the activities.
+     * <p>
+     * <p>The list always reads the current activities, even if they have been duplicated on write in the meantime. Its
+     * iterators are fail-fast, i.e. they throw a ConcurrentModificationException if activities are added or removed while
+     * iterating. Note that the activities themselves might be shared with copies of this tour, see {@link #copyOf(TourActivities)}.
+     *
+     * @return list of activities
+     */
     public List<TourActivity> getActivities() {
-        return Collections.unmodifiableList(tourActivities);
+        return activityView;
     }
 
     public Iterator<TourActivity> iterator() {
-        return tourActivities.iterator();
+        return activityView.iterator();
     }
 
     public boolean isEmpty() {
@@ -125,6 +245,7 @@ public class TourActivities {
         if (!jobs.contains(job)) {
             return false;
         } else {
+            beforeModification();
             jobRemoved = jobs.remove(job);
         }
         boolean activityRemoved = false;
@@ -158,6 +279,10 @@ public class TourActivities {
         if (activity instanceof JobActivity) {
             job = ((JobActivity) activity).getJob();
         }
+        int index = indexOf(activity);
+        if (index < 0) return false;
+        beforeModification();
+        activity = tourActivities.get(index);
         boolean jobIsAlsoAssociateToOtherActs = false;
         boolean actRemoved = false;
         List<TourActivity> acts = new ArrayList<TourActivity>(tourActivities);
@@ -179,6 +304,13 @@ public class TourActivities {
         return actRemoved;
     }
 
+    private int indexOf(TourActivity activity) {
+        for (int i = 0; i < tourActivities.size(); i++) {
+            if (tourActivities.get(i) == activity) return i;
+        }
+        return -1;
+    }
+
 
     /**
      * Inserts the specified activity add the specified insertionIndex. Shifts the element currently at that position (if any) and
@@ -201,6 +333,7 @@ public class TourActivities {
 		 * ...
 		 *
 		 */
+        beforeModification();
         if (insertionIndex < tourActivities.size()) {
             tourActivities.add(insertionIndex, act);
         } else if (insertionIndex >= tourActivities.size()) {
@@ -219,6 +352,7 @@ public class TourActivities {
     public void addActivity(TourActivity act) {
         if (tourActivities.contains(act))
             throw new IllegalStateException("act " + act + " already in tour. cannot add act twice.");
+        beforeModification();
         tourActivities.add(act);
         addJob(act);
     }
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.solution.route.state;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateId;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * Provides the double getters of RouteAndActivityDoubleStateGetter for state getters that only implement
+ * RouteAndActivityStateGetter. Double states are read with the generic getters and unboxed.
+ *
+ * @author schroeder
+ */
+public final class DoubleStateGetterAdapter implements RouteAndActivityDoubleStateGetter {
+
+    /**
+     * Returns the specified state getter if it already provides double states, otherwise it wraps it.
+     *
+     * @param stateGetter the state getter
+     * @return double state getter
+     */
+    public static RouteAndActivityDoubleStateGetter of(RouteAndActivityStateGetter stateGetter) {
+        if (stateGetter instanceof RouteAndActivityDoubleStateGetter) return (RouteAndActivityDoubleStateGetter) stateGetter;
+        return new DoubleStateGetterAdapter(stateGetter);
+    }
+
+    private final RouteAndActivityStateGetter stateGetter;
+
+    private DoubleStateGetterAdapter(RouteAndActivityStateGetter stateGetter) {
+        this.stateGetter = stateGetter;
+    }
+
+    private static double unbox(Double state) {
+        if (state == null) return Double.NaN;
+        return state;
+    }
+
+    @Override
+    public double getActivityStateDouble(TourActivity act, StateId stateId) {
+        return unbox(stateGetter.getActivityState(act, stateId, Double.class));
+    }
+
+    @Override
+    public double getActivityStateDouble(TourActivity act, Vehicle vehicle, StateId stateId) {
+        return unbox(stateGetter.getActivityState(act, vehicle, stateId, Double.class));
+    }
+
+    @Override
+    public double getRouteStateDouble(VehicleRoute route, StateId stateId) {
+        return unbox(stateGetter.getRouteState(route, stateId, Double.class));
+    }
+
+    @Override
+    public double getRouteStateDouble(VehicleRoute route, Vehicle vehicle, StateId stateId) {
+        return unbox(stateGetter.getRouteState(route, vehicle, stateId, Double.class));
+    }
+
+    @Override
+    public <T> T getActivityState(TourActivity act, StateId stateId, Class<T> type) {
+        return stateGetter.getActivityState(act, stateId, type);
+    }
+
+    @Override
+    public <T> T getActivityState(TourActivity act, Vehicle vehicle, StateId stateId, Class<T> type) {
+        return stateGetter.getActivityState(act, vehicle, stateId, type);
+    }
+
+    @Override
+    public <T> T getRouteState(VehicleRoute route, StateId stateId, Class<T> type) {
+        return stateGetter.getRouteState(route, stateId, type);
+    }
+
+    @Override
+    public <T> T getRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, Class<T> type) {
+        return stateGetter.getRouteState(route, vehicle, stateId, type);
+    }
+
+}
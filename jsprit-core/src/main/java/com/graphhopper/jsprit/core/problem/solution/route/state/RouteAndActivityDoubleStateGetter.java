@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.solution.route.state;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateId;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * State getter that additionally provides double states without boxing.
+ * <p>
+ * <p>All methods return Double.NaN if no double value is associated. Use DoubleStateGetterAdapter.of(stateGetter)
+ * to obtain one from an arbitrary RouteAndActivityStateGetter.</p>
+ *
+ * @author schroeder
+ */
+public interface RouteAndActivityDoubleStateGetter extends RouteAndActivityStateGetter {
+
+    public double getActivityStateDouble(TourActivity act, StateId stateId);
+
+    public double getActivityStateDouble(TourActivity act, Vehicle vehicle, StateId stateId);
+
+    public double getRouteStateDouble(VehicleRoute route, StateId stateId);
+
+    public double getRouteStateDouble(VehicleRoute route, Vehicle vehicle, StateId stateId);
+
+}
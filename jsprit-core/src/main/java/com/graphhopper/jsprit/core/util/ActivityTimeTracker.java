@@ -16,6 +16,7 @@
  ******************************************************************************/
 package com.graphhopper.jsprit.core.util;
 
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.ForwardTransportTime;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
@@ -32,10 +33,17 @@ public class ActivityTimeTracker implements ActivityVisitor {
 
     private final ForwardTransportTime transportTime;
 
+    /*
+     * transportTime if it is a matrix, thus each location index is resolved once per route, otherwise null
+     */
+    private final CoordinateTransportCostsMatrix matrix;
+
     private final VehicleRoutingActivityCosts activityCosts;
 
     private TourActivity prevAct = null;
 
+    private int prevLocationIndex = -1;
+
     private double startAtPrevAct;
 
     private VehicleRoute route;
@@ -51,12 +59,14 @@ public class ActivityTimeTracker implements ActivityVisitor {
     public ActivityTimeTracker(ForwardTransportTime transportTime, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.transportTime = transportTime;
+        this.matrix = transportTime instanceof CoordinateTransportCostsMatrix ? (CoordinateTransportCostsMatrix) transportTime : null;
         this.activityCosts = activityCosts;
     }
 
     public ActivityTimeTracker(ForwardTransportTime transportTime, ActivityPolicy activityPolicy, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.transportTime = transportTime;
+        this.matrix = transportTime instanceof CoordinateTransportCostsMatrix ? (CoordinateTransportCostsMatrix) transportTime : null;
         this.activityPolicy = activityPolicy;
         this.activityCosts = activityCosts;
     }
@@ -72,6 +82,7 @@ public class ActivityTimeTracker implements ActivityVisitor {
     @Override
     public void begin(VehicleRoute route) {
         prevAct = route.getStart();
+        prevLocationIndex = getLocationIndex(prevAct.getLocation());
         startAtPrevAct = prevAct.getEndTime();
         actEndTime = startAtPrevAct;
         this.route = route;
@@ -81,7 +92,10 @@ public class ActivityTimeTracker implements ActivityVisitor {
     @Override
     public void visit(TourActivity activity) {
         if (!beginFirst) throw new IllegalStateException("never called begin. this however is essential here");
-        double transportTime = this.transportTime.getTransportTime(prevAct.getLocation(), activity.getLocation(), startAtPrevAct, route.getDriver(), route.getVehicle());
+        int locationIndex = getLocationIndex(activity.getLocation());
+        double transportTime;
+        if (prevLocationIndex >= 0 && locationIndex >= 0) transportTime = matrix.getTransportTime(prevLocationIndex, locationIndex);
+        else transportTime = this.transportTime.getTransportTime(prevAct.getLocation(), activity.getLocation(), startAtPrevAct, route.getDriver(), route.getVehicle());
         double arrivalTimeAtCurrAct = startAtPrevAct + transportTime;
 
         actArrTime = arrivalTimeAtCurrAct;
@@ -98,13 +112,17 @@ public class ActivityTimeTracker implements ActivityVisitor {
         actEndTime = operationEndTime;
 
         prevAct = activity;
+        prevLocationIndex = locationIndex;
         startAtPrevAct = operationEndTime;
 
     }
 
     @Override
     public void finish() {
-        double transportTime = this.transportTime.getTransportTime(prevAct.getLocation(), route.getEnd().getLocation(), startAtPrevAct, route.getDriver(), route.getVehicle());
+        int endLocationIndex = getLocationIndex(route.getEnd().getLocation());
+        double transportTime;
+        if (prevLocationIndex >= 0 && endLocationIndex >= 0) transportTime = matrix.getTransportTime(prevLocationIndex, endLocationIndex);
+        else transportTime = this.transportTime.getTransportTime(prevAct.getLocation(), route.getEnd().getLocation(), startAtPrevAct, route.getDriver(), route.getVehicle());
         double arrivalTimeAtCurrAct = startAtPrevAct + transportTime;
 
         actArrTime = arrivalTimeAtCurrAct;
@@ -113,5 +131,9 @@ public class ActivityTimeTracker implements ActivityVisitor {
         beginFirst = false;
     }
 
+    private int getLocationIndex(Location location) {
+        return matrix == null ? -1 : matrix.getIndex(location);
+    }
+
 
 }
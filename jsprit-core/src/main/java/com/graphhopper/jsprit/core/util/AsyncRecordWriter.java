@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Writes records to a file in a background thread.
+ * <p>
+ * <p>Records are put into a bounded lock-free ring buffer and formatted and written by one writer thread that keeps the
+ * file open and flushes whenever the buffer is drained. Thus the threads recording events (e.g. the search) neither
+ * format nor do any I/O. If the buffer is full, records are either dropped or the recording thread waits until there
+ * is space again (see {@link OverflowPolicy}). The writer thread sleeps while the buffer is empty and is woken up by
+ * the next record.
+ * <p>
+ * <p>A record that cannot be formatted is dropped. If the file cannot be written anymore, all subsequent records are
+ * dropped.
+ * <p>
+ * <p>The writer thread is started with the first record. It is a daemon thread, thus the caller owns the writer and
+ * must call {@link #close()} to write the remaining records, close the file and stop the thread.
+ *
+ * @author schroeder
+ */
+public class AsyncRecordWriter implements Closeable {
+
+    /**
+     * Record that is formatted by the writer thread. Thus it must not change after it has been recorded.
+     */
+    public static interface Record {
+
+        /**
+         * Writes this record. If it throws an exception, the record is dropped and counted as such, but subsequent
+         * records are still written.
+         *
+         * @param writer the writer to write to
+         * @throws IOException if it cannot be written
+         */
+        public void writeTo(Writer writer) throws IOException;
+
+    }
+
+    public static enum OverflowPolicy {
+
+        /**
+         * Drops records if the buffer is full.
+         */
+        DROP,
+
+        /**
+         * Waits until the writer thread has made space.
+         */
+        BLOCK
+
+    }
+
+    public static class Builder {
+
+        /**
+         * Returns a new builder for file.
+         *
+         * @param file the file records are written to
+         * @return builder
+         */
+        public static Builder newInstance(File file) {
+            return new Builder(file);
+        }
+
+        private final File file;
+
+        private int capacity = 1024;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        private boolean gzip = false;
+
+        private boolean append = true;
+
+        private Builder(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Sets the number of records the buffer can hold. It is rounded up to the next power of two, but at least 2.
+         * Default is 1024.
+         *
+         * @param capacity buffer capacity
+         * @return builder
+         */
+        public Builder setCapacity(int capacity) {
+            if (capacity < 1 || capacity > (1 << 30))
+                throw new IllegalArgumentException("capacity must be in [1," + (1 << 30) + "]");
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets what happens if the buffer is full. Default is {@link OverflowPolicy#DROP}.
+         *
+         * @param overflowPolicy the overflow policy
+         * @return builder
+         */
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Compresses the file with gzip. Default is false.
+         *
+         * @param gzip true if file should be compressed
+         * @return builder
+         */
+        public Builder setGzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * Appends records to an existing file. Default is true.
+         *
+         * @param append true if records should be appended, false if file should be overwritten
+         * @return builder
+         */
+        public Builder setAppend(boolean append) {
+            this.append = append;
+            return this;
+        }
+
+        /**
+         * Opens the file. The writer thread is started when the first record is recorded.
+         *
+         * @return writer
+         * @throws IOException if file cannot be opened
+         */
+        public AsyncRecordWriter build() throws IOException {
+            return new AsyncRecordWriter(this);
+        }
+
+    }
+
+    private static Logger logger = LogManager.getLogger(AsyncRecordWriter.class);
+
+    private static final long WAIT_FOR_SPACE_NANOS = 100000L;
+
+    private final Record[] buffer;
+
+    /*
+     * sequence of slot i is the tail position it can be written at, and this position + 1 once it is written
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile long head = 0;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Writer out;
+
+    /*
+     * records are formatted into this buffer first, thus a record that throws is not partially written to the file
+     */
+    private final CharArrayWriter formatBuffer = new CharArrayWriter(256);
+
+    private final Thread writerThread;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private final AtomicLong noDroppedRecords = new AtomicLong();
+
+    /*
+     * number of threads that are between checking closed and having offered their record. the writer thread does not
+     * close the file before it is 0, thus records that have been accepted are never lost.
+     */
+    private final AtomicInteger noRecordingThreads = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    private volatile boolean failed = false;
+
+    private volatile boolean terminated = false;
+
+    /*
+     * set by the writer thread before it checks for records a last time and parks. recording threads unpark it only
+     * if it is set, thus the writer is not unparked for each record while it is busy anyway
+     */
+    private volatile boolean writerWaiting = false;
+
+    private AsyncRecordWriter(Builder builder) throws IOException {
+        /*
+         * with one slot, the sequence of a written slot would equal the sequence of the free slot one round later
+         */
+        int capacity = Math.max(2, Integer.highestOneBit(builder.capacity));
+        if (capacity < builder.capacity) capacity <<= 1;
+        buffer = new Record[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+        mask = capacity - 1;
+        overflowPolicy = builder.overflowPolicy;
+        OutputStream os = new FileOutputStream(builder.file, builder.append);
+        if (builder.gzip) {
+            try {
+                os = new GZIPOutputStream(os, 65536);
+            } catch (IOException e) {
+                os.close();
+                throw e;
+            }
+        }
+        out = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"), 65536);
+        writerThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    drain();
+                } finally {
+                    terminated = true;
+                }
+            }
+
+        }, "record-writer[" + builder.file.getName() + "]");
+        writerThread.setDaemon(true);
+    }
+
+    /**
+     * Records a string.
+     *
+     * @param record the string to be written
+     * @return true if it has been recorded, false if it has been dropped
+     */
+    public boolean record(final String record) {
+        return record(new Record() {
+
+            @Override
+            public void writeTo(Writer writer) throws IOException {
+                writer.write(record);
+            }
+
+        });
+    }
+
+    /**
+     * Records a record. Note that it is written by another thread.
+     *
+     * @param record the record to be written
+     * @return true if it has been recorded, false if it has been dropped (either because buffer is full and overflow
+     * policy is {@link OverflowPolicy#DROP}, or because writer is closed or cannot write anymore)
+     */
+    public boolean record(Record record) {
+        noRecordingThreads.incrementAndGet();
+        try {
+            startWriterThread();
+            while (!closed && !failed && !terminated) {
+                if (offer(record)) {
+                    if (writerWaiting) LockSupport.unpark(writerThread);
+                    return true;
+                }
+                if (overflowPolicy == OverflowPolicy.DROP) break;
+                LockSupport.parkNanos(WAIT_FOR_SPACE_NANOS);
+            }
+        } finally {
+            if (noRecordingThreads.decrementAndGet() == 0 && closed) LockSupport.unpark(writerThread);
+        }
+        noDroppedRecords.incrementAndGet();
+        return false;
+    }
+
+    private void startWriterThread() {
+        if (!started.get() && started.compareAndSet(false, true)) writerThread.start();
+    }
+
+    private boolean offer(Record record) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[slot] = record;
+                    /*
+                     * a volatile write, thus it cannot be reordered with reading writerWaiting afterwards
+                     */
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) (position & mask)) != position + 1;
+    }
+
+    private Record poll() {
+        long position = head;
+        int slot = (int) (position & mask);
+        if (sequences.get(slot) != position + 1) return null;
+        Record record = buffer[slot];
+        buffer[slot] = null;
+        sequences.lazySet(slot, position + buffer.length);
+        head = position + 1;
+        return record;
+    }
+
+    private void drain() {
+        boolean dirty = false;
+        while (true) {
+            Record record = poll();
+            if (record != null) {
+                write(record);
+                dirty = true;
+                continue;
+            }
+            if (dirty) {
+                flush();
+                dirty = false;
+            }
+            /*
+             * recording threads check closed before they offer, thus once closed is set and none of them is in between,
+             * no record can be added anymore and the buffer only needs to be drained once more
+             */
+            if (closed && noRecordingThreads.get() == 0 && head == tail.get()) break;
+            writerWaiting = true;
+            if (isEmpty() && !(closed && noRecordingThreads.get() == 0)) LockSupport.park(this);
+            writerWaiting = false;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.error("cannot close record file: {}", e.getMessage());
+        }
+    }
+
+    private void write(Record record) {
+        if (failed) return;
+        formatBuffer.reset();
+        try {
+            record.writeTo(formatBuffer);
+        } catch (IOException e) {
+            drop(e);
+            return;
+        } catch (RuntimeException e) {
+            drop(e);
+            return;
+        }
+        try {
+            formatBuffer.writeTo(out);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void drop(Exception e) {
+        noDroppedRecords.incrementAndGet();
+        logger.warn("cannot format record, it is dropped: {}", e.toString());
+    }
+
+    private void flush() {
+        if (failed) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /*
+     * the writer thread keeps draining the buffer, thus threads waiting for space are released, but new records are dropped
+     */
+    private void fail(Exception e) {
+        failed = true;
+        logger.error("cannot write records, subsequent records are discarded: {}", e.toString());
+    }
+
+    /**
+     * Returns the number of records that have been dropped so far.
+     *
+     * @return number of dropped records
+     */
+    public long getNoDroppedRecords() {
+        return noDroppedRecords.get();
+    }
+
+    /**
+     * Writes all records recorded so far, closes the file and waits for the writer thread to finish. Records recorded
+     * afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        startWriterThread();
+        LockSupport.unpark(writerThread);
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Caches distances and times of coordinate based transport costs such as {@link GreatCircleCosts}, {@link EuclideanCosts}
+ * or {@link ManhattanCosts} in one flat array that is indexed by the problem index of locations
+ * (see {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem#getLocationIndex(Location)}).
+ * <p>
+ * <p>The matrix is either computed entirely when it is created, or each row is computed the first time it is accessed.
+ * Costs are calculated as the coordinate based costs do it, i.e. distance * perDistanceUnit of the vehicle type. Thus
+ * only costs whose cost is provably distance based can be cached (see {@link #isCacheable(VehicleRoutingTransportCosts)}),
+ * other implementations of {@link TransportDistance} such as matrices might consider time costs as well.
+ * Locations that are not indexed by the problem are delegated to the underlying costs, i.e. results do not change.
+ * Note that changing speed or detour factor of the underlying costs after the matrix has been created is not reflected.
+ * <p>
+ * <p>Callers that look up the same locations many times can resolve their index once with {@link #getIndex(Location)}
+ * and use the index based methods, e.g. {@link #getTransportCost(int, int, Vehicle)}. If the matrix is precomputed,
+ * these are plain array reads.
+ * <p>
+ * <p>Usually, you do not create it yourself but let {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem.Builder#cacheRoutingCosts(boolean)}
+ * wrap the routing costs.
+ *
+ * @author schroeder
+ */
+public class CoordinateTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    private final VehicleRoutingTransportCosts costs;
+
+    private final TransportDistance distances;
+
+    private final Location[] locations;
+
+    /*
+     * open addressing hash table from location (by identity) to its index
+     */
+    private final Location[] indexKeys;
+
+    private final int[] indexValues;
+
+    private final int indexMask;
+
+    private final int noLocations;
+
+    /*
+     * [(from * noLocations + to) * 2] is the distance and [(from * noLocations + to) * 2 + 1] the time of relation from-to
+     */
+    private final double[] matrix;
+
+    /*
+     * null if matrix has been precomputed, otherwise 1 at row index if row has already been computed
+     */
+    private final AtomicIntegerArray computedRows;
+
+    /**
+     * Returns true if costs can be cached, i.e. if they are exactly one of {@link GreatCircleCosts}, {@link EuclideanCosts},
+     * {@link ManhattanCosts} or {@link CrowFlyCosts}. Their transport cost is distance * perDistanceUnit and their
+     * transport time does not depend on departure time, driver or vehicle. Subclasses might override this, thus they
+     * are not cacheable.
+     *
+     * @param costs the transport costs
+     * @return true if costs can be cached
+     */
+    public static boolean isCacheable(VehicleRoutingTransportCosts costs) {
+        if (costs == null) return false;
+        Class<?> type = costs.getClass();
+        return type == GreatCircleCosts.class || type == EuclideanCosts.class || type == ManhattanCosts.class || type == CrowFlyCosts.class;
+    }
+
+    /**
+     * Creates the matrix.
+     *
+     * @param costs      distance based transport costs (see {@link #isCacheable(VehicleRoutingTransportCosts)})
+     * @param locations  distinct location objects ordered by their problem index
+     * @param precompute true if entire matrix should be computed right away, false if rows should be computed on first access
+     */
+    public CoordinateTransportCostsMatrix(VehicleRoutingTransportCosts costs, List<Location> locations, boolean precompute) {
+        if (!isCacheable(costs))
+            throw new IllegalArgumentException("costs " + costs + " cannot be cached since their cost is not known to be distance based");
+        if ((long) locations.size() * locations.size() * 2 > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many locations (" + locations.size() + ") to cache them in one array");
+        this.costs = costs;
+        this.distances = (TransportDistance) costs;
+        this.noLocations = locations.size();
+        this.locations = locations.toArray(new Location[noLocations]);
+        int tableSize = Integer.highestOneBit(Math.max(2, noLocations) * 2 - 1) << 1;
+        this.indexKeys = new Location[tableSize];
+        this.indexValues = new int[tableSize];
+        this.indexMask = tableSize - 1;
+        for (int i = 0; i < noLocations; i++) {
+            if (getIndex(this.locations[i]) >= 0)
+                throw new IllegalArgumentException("location " + this.locations[i] + " occurs more than once");
+            int slot = slot(this.locations[i]);
+            while (indexKeys[slot] != null) slot = (slot + 1) & indexMask;
+            indexKeys[slot] = this.locations[i];
+            indexValues[slot] = i;
+        }
+        this.matrix = new double[noLocations * noLocations * 2];
+        if (precompute) {
+            computedRows = null;
+            for (int from = 0; from < noLocations; from++) {
+                computeRow(from);
+            }
+        } else {
+            computedRows = new AtomicIntegerArray(noLocations);
+        }
+    }
+
+    private void computeRow(int from) {
+        Location fromLocation = locations[from];
+        int offset = from * noLocations * 2;
+        for (int to = 0; to < noLocations; to++) {
+            Location toLocation = locations[to];
+            matrix[offset + to * 2] = distances.getDistance(fromLocation, toLocation);
+            matrix[offset + to * 2 + 1] = costs.getTransportTime(fromLocation, toLocation, 0., null, null);
+        }
+    }
+
+    private synchronized void computeRowIfAbsent(int from) {
+        if (computedRows.get(from) == 1) return;
+        computeRow(from);
+        computedRows.set(from, 1);
+    }
+
+    private int slot(Location location) {
+        int h = System.identityHashCode(location);
+        return (h ^ (h >>> 16)) & indexMask;
+    }
+
+    /**
+     * Returns the index of location in this matrix, i.e. its problem index.
+     *
+     * @param location the location
+     * @return index of location, or -1 if location is not cached
+     */
+    public int getIndex(Location location) {
+        if (location == null) return -1;
+        int slot = slot(location);
+        Location key;
+        while ((key = indexKeys[slot]) != null) {
+            if (key == location) return indexValues[slot];
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    /*
+     * returns the array position of the distance value of relation from-to
+     */
+    private int getPosition(int from, int to) {
+        if (computedRows != null && computedRows.get(from) == 0) computeRowIfAbsent(from);
+        return (from * noLocations + to) * 2;
+    }
+
+    /**
+     * Returns the distance between two cached locations.
+     *
+     * @param from index of from location (see {@link #getIndex(Location)})
+     * @param to   index of to location
+     * @return distance
+     */
+    public double getDistance(int from, int to) {
+        return matrix[getPosition(from, to)];
+    }
+
+    /**
+     * Returns the transport time between two cached locations. It does not depend on departure time, driver or vehicle.
+     *
+     * @param from index of from location (see {@link #getIndex(Location)})
+     * @param to   index of to location
+     * @return transport time
+     */
+    public double getTransportTime(int from, int to) {
+        return matrix[getPosition(from, to) + 1];
+    }
+
+    /**
+     * Returns the transport cost between two cached locations, i.e. distance * perDistanceUnit of vehicle.
+     *
+     * @param from    index of from location (see {@link #getIndex(Location)})
+     * @param to      index of to location
+     * @param vehicle the vehicle, or null
+     * @return transport cost
+     */
+    public double getTransportCost(int from, int to, Vehicle vehicle) {
+        double distance = matrix[getPosition(from, to)];
+        if (vehicle != null && vehicle.getType() != null) {
+            return distance * vehicle.getType().getVehicleCostParams().perDistanceUnit;
+        }
+        return distance;
+    }
+
+    @Override
+    public double getDistance(Location from, Location to) {
+        int fromIndex = getIndex(from);
+        int toIndex = getIndex(to);
+        if (fromIndex < 0 || toIndex < 0) return distances.getDistance(from, to);
+        return getDistance(fromIndex, toIndex);
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        int fromIndex = getIndex(from);
+        int toIndex = getIndex(to);
+        if (fromIndex < 0 || toIndex < 0) return costs.getTransportTime(from, to, departureTime, driver, vehicle);
+        return getTransportTime(fromIndex, toIndex);
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        int fromIndex = getIndex(from);
+        int toIndex = getIndex(to);
+        if (fromIndex < 0 || toIndex < 0) return costs.getTransportCost(from, to, departureTime, driver, vehicle);
+        return getTransportCost(fromIndex, toIndex, vehicle);
+    }
+
+    /**
+     * @return number of locations in this matrix
+     */
+    public int getNoLocations() {
+        return noLocations;
+    }
+
+    @Override
+    public String toString() {
+        return "[name=coordinateTransportCostsMatrix][costs=" + costs + "][noLocations=" + noLocations + "]";
+    }
+}
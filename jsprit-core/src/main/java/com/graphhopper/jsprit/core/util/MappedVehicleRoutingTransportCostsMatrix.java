@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * CostMatrix that serves pre-compiled time and distance-matrices straight from a memory-mapped file, i.e. the matrix
+ * is neither loaded onto the heap nor parsed at startup, and several JVMs can share the same file through the OS page cache.
+ * <p>
+ * <p>Files are written with {@link MappedVehicleRoutingTransportCostsMatrixWriter}. Relations are looked up by location index
+ * (see {@link Location#getIndex()}), as in {@link FastVehicleRoutingTransportCostsMatrix}.
+ * <p>
+ * <p>File format (little endian):
+ * <pre>
+ * int    magic number 0x4A534D58
+ * int    version
+ * int    number of locations n
+ * int    flags (bit 0: symmetric, bit 1: float precision)
+ * values distance and time of each relation, either [from * n + to] or, if symmetric, the upper triangle incl. diagonal
+ * </pre>
+ *
+ * @author schroeder
+ */
+public class MappedVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts implements TransportDistance {
+
+    /**
+     * Precision values are stored with.
+     */
+    public static enum Precision {
+        FLOAT(4), DOUBLE(8);
+
+        private final int bytes;
+
+        Precision(int bytes) {
+            this.bytes = bytes;
+        }
+
+        int getBytes() {
+            return bytes;
+        }
+    }
+
+    static final int MAGIC_NUMBER = 0x4A534D58;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 16;
+
+    static final int SYMMETRIC_FLAG = 1;
+
+    static final int FLOAT_FLAG = 2;
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /*
+     * a single MappedByteBuffer cannot exceed Integer.MAX_VALUE bytes, thus large files are mapped in segments of 2^30 bytes
+     */
+    static final int SEGMENT_BITS = 30;
+
+    static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    /**
+     * Opens the matrix file read-only and maps it into memory.
+     *
+     * @param file matrix file written by {@link MappedVehicleRoutingTransportCostsMatrixWriter}
+     * @return matrix
+     * @throws IOException if file cannot be read or is not a matrix file
+     */
+    public static MappedVehicleRoutingTransportCostsMatrix open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(BYTE_ORDER);
+            if (header.getInt(0) != MAGIC_NUMBER)
+                throw new IOException(file + " is not a transport costs matrix file");
+            if (header.getInt(4) != VERSION)
+                throw new IOException("version " + header.getInt(4) + " of " + file + " is not supported");
+            int noLocations = header.getInt(8);
+            int flags = header.getInt(12);
+            boolean isSymmetric = (flags & SYMMETRIC_FLAG) != 0;
+            Precision precision = (flags & FLOAT_FLAG) != 0 ? Precision.FLOAT : Precision.DOUBLE;
+            long size = getFileSize(noLocations, isSymmetric, precision);
+            if (channel.size() < size)
+                throw new IOException(file + " is truncated. expected " + size + " bytes, but it has " + channel.size());
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_ONLY, size);
+            return new MappedVehicleRoutingTransportCostsMatrix(noLocations, isSymmetric, precision, segments);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static long getNoRelations(int noLocations, boolean isSymmetric) {
+        if (isSymmetric) return (long) noLocations * (noLocations + 1) / 2;
+        return (long) noLocations * noLocations;
+    }
+
+    static long getFileSize(int noLocations, boolean isSymmetric, Precision precision) {
+        return HEADER_BYTES + getNoRelations(noLocations, isSymmetric) * 2 * precision.getBytes();
+    }
+
+    static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        int noSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+        MappedByteBuffer[] segments = new MappedByteBuffer[noSegments];
+        for (int i = 0; i < noSegments; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            long length = Math.min(SEGMENT_MASK + 1, size - start);
+            segments[i] = channel.map(mode, start, length);
+            segments[i].order(BYTE_ORDER);
+        }
+        return segments;
+    }
+
+    /*
+     * returns the byte position of the distance value of relation from-to. the time value directly follows it.
+     */
+    static long getPosition(int from, int to, int noLocations, boolean isSymmetric, int valueBytes) {
+        long relation;
+        if (isSymmetric) {
+            int row = Math.min(from, to);
+            int col = Math.max(from, to);
+            relation = (long) row * noLocations - (long) row * (row - 1) / 2 + (col - row);
+        } else {
+            relation = (long) from * noLocations + to;
+        }
+        return HEADER_BYTES + relation * 2 * valueBytes;
+    }
+
+    private final int noLocations;
+
+    private final boolean isSymmetric;
+
+    private final Precision precision;
+
+    private final int valueBytes;
+
+    private final MappedByteBuffer[] segments;
+
+    private MappedVehicleRoutingTransportCostsMatrix(int noLocations, boolean isSymmetric, Precision precision, MappedByteBuffer[] segments) {
+        this.noLocations = noLocations;
+        this.isSymmetric = isSymmetric;
+        this.precision = precision;
+        this.valueBytes = precision.getBytes();
+        this.segments = segments;
+    }
+
+    private double get(long position) {
+        MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+        int offset = (int) (position & SEGMENT_MASK);
+        if (precision == Precision.FLOAT) return segment.getFloat(offset);
+        return segment.getDouble(offset);
+    }
+
+    private long getPosition(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex < 0 || fromIndex >= noLocations || toIndex >= noLocations)
+            throw new IllegalArgumentException("index of from " + fromIndex + " or to " + toIndex + " is not within [0," + noLocations + ")");
+        return getPosition(fromIndex, toIndex, noLocations, isSymmetric, valueBytes);
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return get(getPosition(fromIndex, toIndex));
+    }
+
+    /**
+     * Returns the transport time from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        return get(getPosition(fromIndex, toIndex) + valueBytes);
+    }
+
+    @Override
+    public double getDistance(Location from, Location to) {
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        return getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        long position = getPosition(from.getIndex(), to.getIndex());
+        double distance = get(position);
+        if (vehicle == null) return distance;
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * distance + costParams.perTimeUnit * get(position + valueBytes);
+    }
+
+    public int getNoLocations() {
+        return noLocations;
+    }
+
+    public boolean isSymmetric() {
+        return isSymmetric;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public String toString() {
+        return "[name=mappedVehicleRoutingTransportCostsMatrix][noLocations=" + noLocations + "][symmetric=" + isSymmetric + "][precision=" + precision + "]";
+    }
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.util.MappedVehicleRoutingTransportCostsMatrix.Precision;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Writes time and distance-matrices in the binary format read by {@link MappedVehicleRoutingTransportCostsMatrix}.
+ * <p>
+ * <p>The file is memory-mapped while writing, i.e. relations can be added in arbitrary order without holding the
+ * matrix on the heap. Relations that are not added are 0. Call {@link #close()} to flush the file.
+ *
+ * @author schroeder
+ */
+public class MappedVehicleRoutingTransportCostsMatrixWriter implements Closeable {
+
+    /**
+     * Creates the matrix file and returns a writer writing to it. An existing file is overwritten.
+     * <p>If you want to consider symmetric matrices, set isSymmetric to true. Then only the upper triangle is stored.
+     *
+     * @param file        file to be written
+     * @param noLocations number of locations, i.e. location indices must lie in [0,noLocations)
+     * @param isSymmetric true if matrix is symmetric, false otherwise
+     * @param precision   precision of values
+     * @return writer
+     * @throws IOException if file cannot be created
+     */
+    public static MappedVehicleRoutingTransportCostsMatrixWriter newInstance(File file, int noLocations, boolean isSymmetric, Precision precision) throws IOException {
+        return new MappedVehicleRoutingTransportCostsMatrixWriter(file, noLocations, isSymmetric, precision);
+    }
+
+    private final int noLocations;
+
+    private final boolean isSymmetric;
+
+    private final Precision precision;
+
+    private final RandomAccessFile raf;
+
+    private final MappedByteBuffer[] segments;
+
+    private MappedVehicleRoutingTransportCostsMatrixWriter(File file, int noLocations, boolean isSymmetric, Precision precision) throws IOException {
+        if (noLocations < 0) throw new IllegalArgumentException("number of locations must be >= 0");
+        this.noLocations = noLocations;
+        this.isSymmetric = isSymmetric;
+        this.precision = precision;
+        long size = MappedVehicleRoutingTransportCostsMatrix.getFileSize(noLocations, isSymmetric, precision);
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength(size);
+            segments = MappedVehicleRoutingTransportCostsMatrix.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, size);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        MappedByteBuffer header = segments[0];
+        header.putInt(0, MappedVehicleRoutingTransportCostsMatrix.MAGIC_NUMBER);
+        header.putInt(4, MappedVehicleRoutingTransportCostsMatrix.VERSION);
+        header.putInt(8, noLocations);
+        int flags = 0;
+        if (isSymmetric) flags |= MappedVehicleRoutingTransportCostsMatrix.SYMMETRIC_FLAG;
+        if (precision == Precision.FLOAT) flags |= MappedVehicleRoutingTransportCostsMatrix.FLOAT_FLAG;
+        header.putInt(12, flags);
+    }
+
+    /**
+     * Adds a transport-distance for a particular relation.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @param distance  the distance to be added
+     * @return this writer
+     */
+    public MappedVehicleRoutingTransportCostsMatrixWriter addTransportDistance(int fromIndex, int toIndex, double distance) {
+        put(getPosition(fromIndex, toIndex), distance);
+        return this;
+    }
+
+    /**
+     * Adds transport-time for a particular relation.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @param time      the time to be added
+     * @return this writer
+     */
+    public MappedVehicleRoutingTransportCostsMatrixWriter addTransportTime(int fromIndex, int toIndex, double time) {
+        put(getPosition(fromIndex, toIndex) + precision.getBytes(), time);
+        return this;
+    }
+
+    private long getPosition(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex < 0 || fromIndex >= noLocations || toIndex >= noLocations)
+            throw new IllegalArgumentException("index of from " + fromIndex + " or to " + toIndex + " is not within [0," + noLocations + ")");
+        return MappedVehicleRoutingTransportCostsMatrix.getPosition(fromIndex, toIndex, noLocations, isSymmetric, precision.getBytes());
+    }
+
+    private void put(long position, double value) {
+        MappedByteBuffer segment = segments[(int) (position >>> MappedVehicleRoutingTransportCostsMatrix.SEGMENT_BITS)];
+        int offset = (int) (position & MappedVehicleRoutingTransportCostsMatrix.SEGMENT_MASK);
+        if (precision == Precision.FLOAT) segment.putFloat(offset, (float) value);
+        else segment.putDouble(offset, value);
+    }
+
+    /**
+     * Flushes the matrix to disk and closes the file.
+     *
+     * @throws IOException if file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        raf.close();
+    }
+
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.acceptor.GreedyAcceptance;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.listener.StrategyStatisticsListener;
+import com.graphhopper.jsprit.core.algorithm.selector.SelectBest;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveStrategySelectionTest {
+
+    private SearchStrategyManager manager;
+
+    private VehicleRoutingAlgorithm algorithm;
+
+    private List<VehicleRoutingProblemSolution> solutions;
+
+    @Before
+    public void doBefore() {
+        manager = new SearchStrategyManager();
+        manager.addStrategy(strategy("strat1"), 1.);
+        manager.addStrategy(strategy("strat2"), 1.);
+        manager.addStrategy(strategy("strat3"), 1.);
+        manager.addStrategy(strategy("off"), 0.);
+        algorithm = new VehicleRoutingAlgorithm(VehicleRoutingProblem.Builder.newInstance().build(), manager);
+        solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        solutions.add(solution(100.));
+    }
+
+    private static SearchStrategy strategy(String id) {
+        return new SearchStrategy(id, new SelectBest(), new GreedyAcceptance(1), new SolutionCostCalculator() {
+
+            @Override
+            public double getCosts(VehicleRoutingProblemSolution solution) {
+                return solution.getCost();
+            }
+
+        });
+    }
+
+    private static VehicleRoutingProblemSolution solution(double cost) {
+        return new VehicleRoutingProblemSolution(new ArrayList<VehicleRoute>(), cost);
+    }
+
+    private static SearchStrategy.DiscoveredSolution discovered(String strategyId, double cost, boolean accepted, double costOfSelectedSolution) {
+        return new SearchStrategy.DiscoveredSolution(solution(cost), accepted, strategyId, costOfSelectedSolution, 1000000000L);
+    }
+
+    private void run(AdaptiveStrategySelection selection, int iteration, SearchStrategy.DiscoveredSolution discoveredSolution) {
+        selection.informIterationStarts(iteration, null, solutions);
+        selection.informSelectedStrategy(discoveredSolution, null, solutions);
+    }
+
+    @Test
+    public void whenSegmentEnds_weightsShouldFollowScoreRates() {
+        AdaptiveStrategySelection selection = new AdaptiveStrategySelection();
+        selection.setSegmentLength(2);
+        selection.setReactionFactor(.5);
+        selection.setMinShare(0.);
+        selection.informAlgorithmStarts(null, algorithm, solutions);
+
+        run(selection, 1, discovered("strat1", 90., true, 100.));
+        assertEquals(1., manager.getWeight("strat1"), 0.01);
+        run(selection, 2, discovered("strat2", 120., false, 100.));
+
+        //shares of the sum of weights of strat1 and strat2: 2 * 33 / 33 = 2 and 0
+        assertEquals(1.5, manager.getWeight("strat1"), 0.01);
+        assertEquals(.5, manager.getWeight("strat2"), 0.01);
+        assertEquals(1., manager.getWeight("strat3"), 0.01);
+        assertEquals(0., manager.getWeight("off"), 0.01);
+    }
+
+    @Test
+    public void itShouldScoreNewBestImprovementsAndAcceptedSolutions() {
+        AdaptiveStrategySelection selection = new AdaptiveStrategySelection();
+        selection.informAlgorithmStarts(null, algorithm, solutions);
+
+        run(selection, 1, discovered("strat1", 90., true, 100.));
+        run(selection, 2, discovered("strat1", 95., true, 110.));
+        run(selection, 3, discovered("strat1", 95., false, 110.));
+        run(selection, 4, discovered("strat1", 120., true, 110.));
+        run(selection, 5, discovered("strat1", 120., false, 110.));
+
+        AdaptiveStrategySelection.StrategyStatistics statistics = selection.getStatistics().iterator().next();
+        assertEquals("strat1", statistics.getStrategyId());
+        assertEquals(5, statistics.getNoRuns());
+        assertEquals(1, statistics.getNoNewBest());
+        assertEquals(2, statistics.getNoImprovements());
+        assertEquals(1, statistics.getNoAccepted());
+        assertEquals(5000000000L, statistics.getComputationTime());
+        assertEquals(3, selection.getStatistics().size());
+    }
+
+    @Test
+    public void weightsShouldNotDropBelowMinShare() {
+        AdaptiveStrategySelection selection = new AdaptiveStrategySelection();
+        selection.setSegmentLength(2);
+        selection.setReactionFactor(1.);
+        selection.setMinShare(.1);
+        selection.informAlgorithmStarts(null, algorithm, solutions);
+
+        run(selection, 1, discovered("strat1", 90., true, 100.));
+        run(selection, 2, discovered("strat2", 120., false, 100.));
+
+        assertEquals(2., manager.getWeight("strat1"), 0.01);
+        assertEquals(.2, manager.getWeight("strat2"), 0.01);
+    }
+
+    @Test
+    public void whenWeightsAreUpdated_listenersShouldBeInformed() {
+        final List<Integer> iterations = new ArrayList<Integer>();
+        StrategyStatisticsListener listener = new StrategyStatisticsListener() {
+
+            @Override
+            public void informStrategyWeightsUpdated(int iteration, Collection<AdaptiveStrategySelection.StrategyStatistics> statistics) {
+                iterations.add(iteration);
+            }
+
+        };
+        algorithm.addListener(listener);
+        AdaptiveStrategySelection selection = new AdaptiveStrategySelection();
+        selection.setSegmentLength(2);
+        selection.informAlgorithmStarts(null, algorithm, solutions);
+
+        for (int i = 1; i <= 5; i++) run(selection, i, discovered("strat1", 100., true, 100.));
+
+        assertEquals(Arrays.asList(2, 4), iterations);
+    }
+
+    @Test
+    public void whenEnabledInJsprit_weightsShouldBeAdapted() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build());
+        for (int i = 0; i < 10; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(i, 10 - i)).build());
+        }
+        final List<Integer> iterations = new ArrayList<Integer>();
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrpBuilder.build())
+            .setProperty(Jsprit.Parameter.STRATEGY_ADAPTIVE, "true")
+            .setProperty(Jsprit.Parameter.STRATEGY_SEGMENT_LENGTH, "10").buildAlgorithm();
+        vra.setMaxIterations(50);
+        vra.addListener(new StrategyStatisticsListener() {
+
+            @Override
+            public void informStrategyWeightsUpdated(int iteration, Collection<AdaptiveStrategySelection.StrategyStatistics> statistics) {
+                iterations.add(iteration);
+            }
+
+        });
+        vra.searchSolutions();
+
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), iterations);
+        assertTrue(vra.getSearchStrategyManager().getWeights().size() > 0);
+    }
+
+}
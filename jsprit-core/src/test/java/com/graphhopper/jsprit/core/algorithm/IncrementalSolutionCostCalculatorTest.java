@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2013  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.RouteCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ServiceActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalSolutionCostCalculatorTest {
+
+    private static class CountingRouteCosts implements RouteCostCalculator {
+
+        private int nuCalls = 0;
+
+        @Override
+        public double getCosts(VehicleRoute route) {
+            nuCalls++;
+            return 10. * route.getActivities().size();
+        }
+    }
+
+    private CountingRouteCosts routeCosts;
+
+    private IncrementalSolutionCostCalculator calculator;
+
+    private VehicleRoute route1;
+
+    private VehicleRoute route2;
+
+    private Service s3;
+
+    @Before
+    public void doBefore() {
+        routeCosts = new CountingRouteCosts();
+        calculator = new IncrementalSolutionCostCalculator(routeCosts);
+        VehicleImpl v1 = VehicleImpl.Builder.newInstance("v1").setStartLocation(Location.newInstance("start")).build();
+        VehicleImpl v2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("start")).build();
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance("loc1")).build();
+        Service s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance("loc2")).build();
+        s3 = Service.Builder.newInstance("s3").setLocation(Location.newInstance("loc3")).build();
+        route1 = VehicleRoute.Builder.newInstance(v1).addService(s1).addService(s2).build();
+        route2 = VehicleRoute.Builder.newInstance(v2).addService(s3).build();
+    }
+
+    private VehicleRoutingProblemSolution solution() {
+        return new VehicleRoutingProblemSolution(new ArrayList<VehicleRoute>(Arrays.asList(route1, route2)), 0.);
+    }
+
+    @Test
+    public void whenEvaluatingSolution_costsShouldBeSumOfRouteCosts() {
+        assertEquals(30., calculator.getCosts(solution()), 0.01);
+        assertEquals(2, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenEvaluatingUnmodifiedRoutesAgain_theyShouldNotBeRecalculated() {
+        calculator.getCosts(solution());
+        assertEquals(30., calculator.getCosts(solution()), 0.01);
+        assertEquals(2, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenJobIsRemovedFromRoute_onlyThisRouteShouldBeRecalculated() {
+        calculator.getCosts(solution());
+        route1.getTourActivities().removeJob(route1.getTourActivities().getJobs().iterator().next());
+        assertEquals(20., calculator.getCosts(solution()), 0.01);
+        assertEquals(3, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenJobIsInsertedIntoRoute_onlyThisRouteShouldBeRecalculated() {
+        calculator.getCosts(solution());
+        route2.getTourActivities().addActivity(ServiceActivity.newInstance(Service.Builder.newInstance("s4").setLocation(Location.newInstance("loc4")).build()));
+        assertEquals(40., calculator.getCosts(solution()), 0.01);
+        assertEquals(3, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenEvaluatingCopiedSolution_onlyModifiedRoutesShouldBeRecalculated() {
+        VehicleRoutingProblemSolution solution = solution();
+        calculator.getCosts(solution);
+        VehicleRoutingProblemSolution copiedSolution = VehicleRoutingProblemSolution.copyOf(solution);
+        VehicleRoute copiedRoute = copiedSolution.getRoutes().iterator().next();
+        copiedRoute.getTourActivities().removeJob(copiedRoute.getTourActivities().getJobs().iterator().next());
+        assertEquals(20., calculator.getCosts(copiedSolution), 0.01);
+        assertEquals(3, routeCosts.nuCalls);
+        assertEquals(30., calculator.getCosts(solution), 0.01);
+        assertEquals(3, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenVehicleOfRouteChanges_itShouldBeRecalculated() {
+        calculator.getCosts(solution());
+        route2.setVehicleAndDepartureTime(VehicleImpl.Builder.newInstance("v3").setStartLocation(Location.newInstance("start")).build(), 0.);
+        calculator.getCosts(solution());
+        assertEquals(3, routeCosts.nuCalls);
+    }
+
+    @Test
+    public void whenAddingRouteCostTerm_costsShouldBeSummedUp() {
+        calculator.addRouteCostCalculator(new RouteCostCalculator() {
+            @Override
+            public double getCosts(VehicleRoute route) {
+                return -1.;
+            }
+        });
+        assertEquals(28., calculator.getCosts(solution()), 0.01);
+    }
+
+    @Test
+    public void whenOverridingSolutionCosts_theyShouldBeAddedToRouteCosts() {
+        IncrementalSolutionCostCalculator withPenalty = new IncrementalSolutionCostCalculator(routeCosts) {
+            @Override
+            protected double getSolutionCosts(VehicleRoutingProblemSolution solution, double routeCosts) {
+                return routeCosts + 100. * solution.getUnassignedJobs().size();
+            }
+        };
+        VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(Collections.singletonList(route2), Arrays.<Job>asList(s3), 0.);
+        assertEquals(110., withPenalty.getCosts(solution), 0.01);
+    }
+
+}
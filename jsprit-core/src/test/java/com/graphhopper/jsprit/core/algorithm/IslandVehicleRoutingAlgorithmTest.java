@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IslandVehicleRoutingAlgorithmTest {
+
+    private VehicleRoutingProblem createProblem() {
+        Random random = new Random(4711);
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 5).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(50, 50)).setType(type).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .setFleetSize(VehicleRoutingProblem.FleetSize.INFINITE);
+        for (int i = 0; i < 30; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+    private VehicleRoutingAlgorithmFactory createFactory(final int iterations) {
+        return new VehicleRoutingAlgorithmFactory() {
+
+            private long seed = 0;
+
+            @Override
+            public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp) {
+                VehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(vrp).setRandom(new Random(seed++)).buildAlgorithm();
+                algorithm.setMaxIterations(iterations);
+                return algorithm;
+            }
+
+        };
+    }
+
+    @Test
+    public void whenRunningIslands_solutionsOfAllIslandsShouldBeReturned() {
+        VehicleRoutingProblem vrp = createProblem();
+        IslandVehicleRoutingAlgorithm islands = IslandVehicleRoutingAlgorithm.Builder.newInstance(vrp, createFactory(50))
+            .setNuOfIslands(3).setMigrationInterval(10)
+            .setMigrationTopology(IslandVehicleRoutingAlgorithm.MigrationTopology.FULLY_CONNECTED).build();
+        Collection<VehicleRoutingProblemSolution> solutions = islands.searchSolutions();
+        Assert.assertEquals(3, islands.getAlgorithms().size());
+        Assert.assertTrue(solutions.size() >= 3);
+        VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+        Assert.assertTrue(best.getUnassignedJobs().isEmpty());
+        int noJobs = 0;
+        for (VehicleRoute route : best.getRoutes()) noJobs += route.getTourActivities().getJobs().size();
+        Assert.assertEquals(30, noJobs);
+    }
+
+    @Test
+    public void whenSharedTerminationIsFulfilled_allIslandsShouldTerminate() {
+        VehicleRoutingProblem vrp = createProblem();
+        final AtomicInteger iterations = new AtomicInteger();
+        IslandVehicleRoutingAlgorithm islands = IslandVehicleRoutingAlgorithm.Builder.newInstance(vrp, createFactory(1000))
+            .setNuOfIslands(2).setMigrationInterval(5)
+            .addTerminationCriterion(new PrematureAlgorithmTermination() {
+
+                private int calls = 0;
+
+                @Override
+                public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+                    return ++calls >= 40;
+                }
+
+            }).build();
+        for (VehicleRoutingAlgorithm algorithm : islands.getAlgorithms()) {
+            algorithm.addListener(new IterationStartsListener() {
+
+                @Override
+                public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+                    iterations.incrementAndGet();
+                }
+
+            });
+        }
+        islands.searchSolutions();
+        Assert.assertTrue(iterations.get() <= 40 + 2);
+    }
+
+    @Test
+    public void deepCopyShouldNotShareActivities() {
+        VehicleRoutingProblem vrp = createProblem();
+        VehicleRoutingAlgorithm algorithm = createFactory(5).createAlgorithm(vrp);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+        VehicleRoutingProblemSolution copy = VehicleRoutingProblemSolution.deepCopyOf(solution);
+        Assert.assertEquals(solution.getCost(), copy.getCost(), 0.01);
+        Assert.assertEquals(solution.getRoutes().size(), copy.getRoutes().size());
+        Set<TourActivity> activities = Collections.newSetFromMap(new IdentityHashMap<TourActivity, Boolean>());
+        for (VehicleRoute route : solution.getRoutes()) activities.addAll(route.getActivities());
+        for (VehicleRoute route : copy.getRoutes()) {
+            for (TourActivity act : route.getActivities()) Assert.assertFalse(activities.contains(act));
+        }
+    }
+
+}
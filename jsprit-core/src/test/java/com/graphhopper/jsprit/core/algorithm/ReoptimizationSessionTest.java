@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReoptimizationSessionTest {
+
+    private VehicleTypeImpl type;
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleRoutingAlgorithmFactory algorithmFactory;
+
+    @Before
+    public void doBefore() {
+        type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 10).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        for (int v = 0; v < 3; v++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        vrpBuilder.addJob(Shipment.Builder.newInstance("shipment").addSizeDimension(0, 1)
+            .setPickupLocation(Location.newInstance(10, 90)).setDeliveryLocation(Location.newInstance(90, 10)).build());
+        vrp = vrpBuilder.build();
+        algorithmFactory = new VehicleRoutingAlgorithmFactory() {
+
+            @Override
+            public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp) {
+                VehicleRoutingAlgorithm vra = Jsprit.createAlgorithm(vrp);
+                vra.setMaxIterations(30);
+                return vra;
+            }
+
+        };
+    }
+
+    private static List<String> jobIds(VehicleRoute route) {
+        List<String> ids = new ArrayList<String>();
+        for (TourActivity act : route.getActivities()) ids.add(((TourActivity.JobActivity) act).getJob().getId());
+        return ids;
+    }
+
+    private static int noAssignedJobs(VehicleRoutingProblemSolution solution) {
+        int noJobs = 0;
+        for (VehicleRoute route : solution.getRoutes()) noJobs += route.getTourActivities().getJobs().size();
+        return noJobs;
+    }
+
+    private static VehicleRoute routeOf(VehicleRoutingProblemSolution solution, String vehicleId) {
+        for (VehicleRoute route : solution.getRoutes()) {
+            if (route.getVehicle().getId().equals(vehicleId)) return route;
+        }
+        return null;
+    }
+
+    @Test
+    public void whenJobIsAdded_itShouldBeAssignedAfterReoptimization() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).setIterations(10).build();
+        session.solve();
+        Service newService = Service.Builder.newInstance("new").addSizeDimension(0, 1).setLocation(Location.newInstance(55, 55)).build();
+        session.addJob(newService);
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertTrue(session.getProblem().getJobs().containsKey("new"));
+        assertTrue(solution.getUnassignedJobs().isEmpty());
+        assertEquals(22, noAssignedJobs(solution));
+    }
+
+    @Test
+    public void whenJobIsCancelled_itShouldBeRemovedFromProblemAndSolution() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).setIterations(10).build();
+        session.solve();
+        session.cancelJob("s3");
+        session.cancelJob("shipment");
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertFalse(session.getProblem().getJobs().containsKey("s3"));
+        assertEquals(19, noAssignedJobs(solution));
+        for (VehicleRoute route : solution.getRoutes()) {
+            assertFalse(jobIds(route).contains("s3"));
+            assertFalse(jobIds(route).contains("shipment"));
+        }
+    }
+
+    @Test
+    public void withoutIterations_routesOfPreviousSolutionShouldBeKept() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).setIterations(0).build();
+        VehicleRoutingProblemSolution previous = session.solve();
+        VehicleRoute someRoute = previous.getRoutes().iterator().next();
+        String cancelledJobId = jobIds(someRoute).get(0);
+        List<String> expectedJobIds = jobIds(someRoute);
+        expectedJobIds.remove(cancelledJobId);
+        expectedJobIds.remove(cancelledJobId);
+        session.cancelJob(cancelledJobId);
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertEquals(expectedJobIds, jobIds(routeOf(solution, someRoute.getVehicle().getId())));
+        assertEquals(noAssignedJobs(previous) - 1, noAssignedJobs(solution));
+    }
+
+    @Test
+    public void whenVehicleIsUpdated_itsRouteShouldBeServedByUpdatedVehicle() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).setIterations(10).build();
+        VehicleRoutingProblemSolution previous = session.solve();
+        String vehicleId = previous.getRoutes().iterator().next().getVehicle().getId();
+        VehicleImpl movedVehicle = VehicleImpl.Builder.newInstance(vehicleId).setType(type)
+            .setStartLocation(Location.newInstance(20, 20)).setEarliestStart(100.).build();
+        session.updateVehicle(movedVehicle);
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertTrue(session.getProblem().getVehicles().contains(movedVehicle));
+        assertTrue(solution.getUnassignedJobs().isEmpty());
+        for (VehicleRoute route : solution.getRoutes()) {
+            if (route.getVehicle().getId().equals(vehicleId)) assertSame(movedVehicle, route.getVehicle());
+        }
+    }
+
+    private VehicleRoutingProblem createProblemWithInitialRoute() {
+        VehicleImpl v0 = VehicleImpl.Builder.newInstance("v0").setType(type).setStartLocation(Location.newInstance(50, 50)).build();
+        VehicleImpl v1 = VehicleImpl.Builder.newInstance("v1").setType(type).setStartLocation(Location.newInstance(50, 50)).build();
+        Service init1 = Service.Builder.newInstance("init1").addSizeDimension(0, 1).setLocation(Location.newInstance(10, 10)).build();
+        Service init2 = Service.Builder.newInstance("init2").addSizeDimension(0, 1).setLocation(Location.newInstance(20, 10)).build();
+        Shipment initShipment = Shipment.Builder.newInstance("initShipment").addSizeDimension(0, 1)
+            .setPickupLocation(Location.newInstance(30, 10)).setDeliveryLocation(Location.newInstance(40, 10)).build();
+        VehicleRoute initialRoute = VehicleRoute.Builder.newInstance(v0).addService(init1).addPickup(initShipment)
+            .addDelivery(initShipment).addService(init2).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(v0).addVehicle(v1).addInitialVehicleRoute(initialRoute);
+        for (int i = 0; i < 10; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+    @Test
+    public void whenJobOfInitialRouteIsCancelled_itShouldBeRemovedFromInitialRouteAndSolution() {
+        VehicleRoutingProblem problem = createProblemWithInitialRoute();
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(problem, algorithmFactory).setIterations(10).build();
+        session.solve();
+        session.cancelJob("init1");
+        session.cancelJob("initShipment");
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertEquals(1, session.getProblem().getInitialVehicleRoutes().size());
+        VehicleRoute initialRoute = session.getProblem().getInitialVehicleRoutes().iterator().next();
+        assertEquals(Arrays.asList("init2"), jobIds(initialRoute));
+        assertEquals(Arrays.asList("init1", "initShipment", "initShipment", "init2"), jobIds(problem.getInitialVehicleRoutes().iterator().next()));
+        assertEquals(11, noAssignedJobs(solution));
+        for (VehicleRoute route : solution.getRoutes()) {
+            assertFalse(jobIds(route).contains("init1"));
+            assertFalse(jobIds(route).contains("initShipment"));
+        }
+        assertTrue(jobIds(routeOf(solution, "v0")).contains("init2"));
+    }
+
+    @Test
+    public void whenVehicleOfInitialRouteIsUpdated_initialRouteShouldBeServedByUpdatedVehicle() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(createProblemWithInitialRoute(), algorithmFactory).setIterations(10).build();
+        session.solve();
+        VehicleImpl movedVehicle = VehicleImpl.Builder.newInstance("v0").setType(type)
+            .setStartLocation(Location.newInstance(20, 20)).setEarliestStart(100.).build();
+        session.updateVehicle(movedVehicle);
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertSame(movedVehicle, session.getProblem().getInitialVehicleRoutes().iterator().next().getVehicle());
+        assertSame(movedVehicle, routeOf(solution, "v0").getVehicle());
+        assertTrue(jobIds(routeOf(solution, "v0")).containsAll(Arrays.asList("init1", "initShipment", "init2")));
+        assertEquals(13, noAssignedJobs(solution));
+    }
+
+    @Test
+    public void whenNothingHasBeenSolvedYet_reoptimizeShouldSolveFromScratch() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).build();
+        VehicleRoutingProblemSolution solution = session.reoptimize();
+
+        assertSame(solution, session.getBestSolution());
+        assertEquals(21, noAssignedJobs(solution));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenJobWithExistingIdIsAdded_itShouldThrowException() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).build();
+        session.addJob(Service.Builder.newInstance("s1").setLocation(Location.newInstance(0, 0)).build());
+    }
+
+    @Test
+    public void whenCancelledJobIsAddedAgain_itShouldBeReplaced() {
+        ReoptimizationSession session = ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).setIterations(5).build();
+        session.solve();
+        session.cancelJob("s1");
+        Service replacement = Service.Builder.newInstance("s1").addSizeDimension(0, 1).setLocation(Location.newInstance(1, 1)).build();
+        session.addJob(replacement);
+        session.reoptimize();
+
+        Job job = session.getProblem().getJobs().get("s1");
+        assertSame(replacement, job);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenUnknownJobIsCancelled_itShouldThrowException() {
+        ReoptimizationSession.Builder.newInstance(vrp, algorithmFactory).build().cancelJob("unknown");
+    }
+
+}
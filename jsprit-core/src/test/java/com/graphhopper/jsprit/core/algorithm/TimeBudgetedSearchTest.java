@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimeBudgetedSearchTest {
+
+    private static VehicleRoutingAlgorithm createAlgorithm(int maxIterations) {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 10).build();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        for (int i = 0; i < 60; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        VehicleRoutingAlgorithm vra = Jsprit.createAlgorithm(vrpBuilder.build());
+        vra.setMaxIterations(maxIterations);
+        return vra;
+    }
+
+    /*
+     * listeners are called by the search thread after the lock is released, i.e. the last ones might be called after
+     * the future is done. the search has called all listeners when it is not running anymore.
+     */
+    private static void awaitTermination(TimeBudgetedSearch search) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (search.isRunning() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(search.isRunning());
+    }
+
+    @Test
+    public void whenTimeBudgetIsUsedUp_futureShouldReturnBestSolutionInTime() throws Exception {
+        final List<Double> costs = new CopyOnWriteArrayList<Double>();
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(Integer.MAX_VALUE))
+            .setTimeBudget(500).addListener(new TimeBudgetedSearch.NewBestSolutionListener() {
+
+                @Override
+                public void informNewBestSolution(VehicleRoutingProblemSolution solution, int iteration, long elapsedTime) {
+                    costs.add(solution.getCost());
+                }
+
+            }).build();
+        long start = System.currentTimeMillis();
+        Future<VehicleRoutingProblemSolution> future = search.start();
+        VehicleRoutingProblemSolution solution = future.get(30, TimeUnit.SECONDS);
+        long time = System.currentTimeMillis() - start;
+        awaitTermination(search);
+
+        assertTrue(future.isDone());
+        assertNotNull(solution);
+        assertTrue("took " + time + " ms", time >= 490);
+        assertTrue(costs.size() > 1);
+        for (int i = 1; i < costs.size(); i++) assertTrue(costs.get(i) < costs.get(i - 1));
+        assertTrue(costs.contains(solution.getCost()));
+        assertEquals(costs.get(costs.size() - 1), search.getBestSolution().getCost(), 0.01);
+    }
+
+    @Test
+    public void whenSearchEndsBeforeDeadline_futureShouldReturnBestSolution() throws Exception {
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(20)).setTimeBudget(60000).build();
+        VehicleRoutingProblemSolution solution = search.start().get(30, TimeUnit.SECONDS);
+
+        assertNotNull(solution);
+        assertFalse(search.isRunning());
+        assertSame(solution, search.getBestSolution());
+        int noJobs = solution.getUnassignedJobs().size();
+        for (VehicleRoute route : solution.getRoutes()) noJobs += route.getTourActivities().getJobs().size();
+        assertEquals(60, noJobs);
+    }
+
+    @Test
+    public void solutionsHandedOut_shouldNotBeAffectedByOngoingSearch() throws Exception {
+        final List<VehicleRoutingProblemSolution> solutions = new CopyOnWriteArrayList<VehicleRoutingProblemSolution>();
+        final List<String> descriptions = new CopyOnWriteArrayList<String>();
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(50)).setTimeBudget(60000)
+            .addListener(new TimeBudgetedSearch.NewBestSolutionListener() {
+
+                @Override
+                public void informNewBestSolution(VehicleRoutingProblemSolution solution, int iteration, long elapsedTime) {
+                    solutions.add(solution);
+                    descriptions.add(describe(solution));
+                }
+
+            }).build();
+        search.start().get(30, TimeUnit.SECONDS);
+        awaitTermination(search);
+
+        assertFalse(solutions.isEmpty());
+        for (int i = 0; i < solutions.size(); i++) assertEquals(descriptions.get(i), describe(solutions.get(i)));
+    }
+
+    private static String describe(VehicleRoutingProblemSolution solution) {
+        StringBuilder sb = new StringBuilder();
+        for (VehicleRoute route : solution.getRoutes()) {
+            for (TourActivity act : route.getActivities()) {
+                sb.append(act.getLocation().getId()).append(' ').append(act.getArrTime()).append(' ').append(act.getEndTime()).append(';');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void whenStopped_futureShouldReturnBestSolutionFoundSoFar() throws Exception {
+        final CountDownLatch firstSolution = new CountDownLatch(1);
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(Integer.MAX_VALUE))
+            .addListener(new TimeBudgetedSearch.NewBestSolutionListener() {
+
+                @Override
+                public void informNewBestSolution(VehicleRoutingProblemSolution solution, int iteration, long elapsedTime) {
+                    firstSolution.countDown();
+                }
+
+            }).build();
+        Future<VehicleRoutingProblemSolution> future = search.start();
+        assertTrue(firstSolution.await(30, TimeUnit.SECONDS));
+        search.stop();
+
+        assertNotNull(future.get(30, TimeUnit.SECONDS));
+        assertFalse(search.isRunning());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void whenCancelled_futureShouldThrowException() throws Exception {
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(Integer.MAX_VALUE)).build();
+        Future<VehicleRoutingProblemSolution> future = search.start();
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        future.get();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenStartedTwice_itShouldThrowException() {
+        TimeBudgetedSearch search = TimeBudgetedSearch.Builder.newInstance(createAlgorithm(10)).build();
+        search.start();
+        search.start();
+    }
+
+}
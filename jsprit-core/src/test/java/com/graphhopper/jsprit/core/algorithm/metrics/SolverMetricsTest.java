@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.HardRouteConstraint;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class SolverMetricsTest {
+
+    static class RejectS0 implements HardActivityConstraint {
+
+        @Override
+        public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+            if (iFacts.getJob().getId().equals("s0")) return ConstraintsStatus.NOT_FULFILLED;
+            return ConstraintsStatus.FULFILLED;
+        }
+
+    }
+
+    static class RejectAllRoutes implements HardRouteConstraint {
+
+        @Override
+        public boolean fulfilled(JobInsertionContext insertionContext) {
+            return false;
+        }
+
+    }
+
+    private VehicleRoutingProblem vrp;
+
+    private SolverMetrics metrics;
+
+    @Before
+    public void doBefore() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 10).build();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        vrp = vrpBuilder.build();
+        metrics = new SolverMetrics();
+    }
+
+    private VehicleRoutingProblemSolution solve(int iterations) {
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addConstraint(new RejectS0(), ConstraintManager.Priority.HIGH);
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp).setStateAndConstraintManager(stateManager, constraintManager)
+            .setMetrics(metrics).buildAlgorithm();
+        vra.setMaxIterations(iterations);
+        return Solutions.bestOf(vra.searchSolutions());
+    }
+
+    @Test
+    public void eachPhaseShouldBeMeasuredOncePerIteration() {
+        solve(20);
+        assertEquals(20, metrics.getIterations());
+        for (SolverMetrics.Phase phase : SolverMetrics.Phase.values()) {
+            assertEquals(20, metrics.getPhaseTimer(phase).getCount());
+            assertTrue(metrics.getPhaseTimer(phase).getWallTime() > 0);
+        }
+        assertTrue(metrics.getWallTimes().containsKey("phase.recreate"));
+    }
+
+    @Test
+    public void insertionCallsShouldBeCountedPerCalculator() {
+        solve(10);
+        assertTrue(metrics.getInsertionCallCounter("ServiceInsertionCalculator").getValue() > 0);
+        assertTrue(metrics.getInsertionCallCounter("VehicleTypeDependentJobInsertionCalculator").getValue() > 0);
+        assertEquals(0, metrics.getInsertionCallCounter("ShipmentInsertionCalculator").getValue());
+    }
+
+    @Test
+    public void rejectionsShouldBeCountedPerConstraint() {
+        VehicleRoutingProblemSolution solution = solve(10);
+        assertEquals(1, solution.getUnassignedJobs().size());
+        assertTrue(metrics.getRejectionCounter(new RejectS0()).getValue() > 0);
+        assertTrue(metrics.getCounters().get(SolverMetrics.CONSTRAINT_REJECTIONS + RejectS0.class.getName()) > 0);
+    }
+
+    @Test
+    public void routeConstraintRejectionsShouldBeCounted() {
+        ConstraintManager constraintManager = new ConstraintManager(vrp, new StateManager(vrp));
+        constraintManager.addConstraint(new RejectAllRoutes());
+        constraintManager.setMetrics(metrics);
+        assertFalse(constraintManager.fulfilled((JobInsertionContext) null));
+        assertFalse(constraintManager.fulfilled((JobInsertionContext) null));
+        assertEquals(2, metrics.getRejectionCounter(new RejectAllRoutes()).getValue());
+    }
+
+    @Test
+    public void stateUpdatesShouldBeMeasuredPerUpdater() {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.setMetrics(metrics);
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vrp.getVehicles().iterator().next())
+            .setJobActivityFactory(vrp.getJobActivityFactory()).addService((Service) vrp.getJobs().get("s1")).build();
+        stateManager.informInsertionStarts(Arrays.asList(route), null);
+        stateManager.informInsertionStarts(Arrays.asList(route), null);
+        assertEquals(2, metrics.getTimer(SolverMetrics.STATE_UPDATE + "com.graphhopper.jsprit.core.algorithm.state.UpdateLoads").getCount());
+    }
+
+    @Test
+    public void acceptedAndRejectedSolutionsShouldBeCountedPerStrategy() {
+        solve(20);
+        long total = 0;
+        for (Map.Entry<String, Long> e : metrics.getCounters().entrySet()) {
+            if (e.getKey().startsWith(SolverMetrics.STRATEGY_ACCEPTED) || e.getKey().startsWith(SolverMetrics.STRATEGY_REJECTED)) {
+                total += e.getValue();
+            }
+        }
+        assertEquals(20, total);
+        assertFalse(metrics.getAcceptanceRatios().isEmpty());
+        for (Double ratio : metrics.getAcceptanceRatios().values()) {
+            assertTrue(ratio >= 0. && ratio <= 1.);
+        }
+        assertTrue(Double.isNaN(metrics.getAcceptanceRatio("unknown")));
+    }
+
+    @Test
+    public void listenersShouldBeInformedEveryReportingIntervalAndAtTheEnd() {
+        final List<Integer> iterations = new ArrayList<Integer>();
+        metrics.setReportingInterval(5);
+        metrics.addListener(new SolverMetricsListener() {
+
+            @Override
+            public void informMetrics(int iteration, SolverMetrics metrics) {
+                iterations.add(iteration);
+            }
+
+        });
+        solve(12);
+        assertEquals(Arrays.asList(5, 10, 12), iterations);
+    }
+
+    @Test
+    public void whenReset_allMetricsShouldBeZero() {
+        solve(5);
+        metrics.reset();
+        assertEquals(0, metrics.getIterations());
+        for (Long value : metrics.getCounters().values()) assertEquals(0L, value.longValue());
+        for (Long value : metrics.getWallTimes().values()) assertEquals(0L, value.longValue());
+    }
+
+    @Test
+    public void metricsShouldBeAccessibleViaJmx() throws Exception {
+        ObjectName objectName = metrics.registerMBean("test");
+        try {
+            solve(5);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            assertTrue(mBeanServer.isRegistered(objectName));
+            assertEquals(5L, mBeanServer.getAttribute(objectName, "Iterations"));
+            assertNotNull(mBeanServer.getAttribute(objectName, "WallTimes"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BestInsertionConcurrentTest {
+
+    @Test
+    public void whenExecutorHasLessThreadsThanBatches_itShouldInsertLikeBestInsertion() {
+        VehicleRoutingProblem vrp = createProblem();
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            List<String> expected = insert(vrp, null);
+            List<String> actual = insert(vrp, executorService);
+            Assert.assertEquals(expected, actual);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void whenRunTwice_itShouldReuseExecutor() {
+        VehicleRoutingProblem vrp = createProblem();
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            List<String> first = insert(vrp, executorService);
+            List<String> second = insert(vrp, executorService);
+            Assert.assertEquals(first, second);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private VehicleRoutingProblem createProblem() {
+        Random random = new Random(4711);
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 5).setCostPerDistance(1.).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(50, 50)).setType(type).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .setFleetSize(VehicleRoutingProblem.FleetSize.INFINITE);
+        for (int i = 0; i < 60; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build());
+        }
+        return vrpBuilder.build();
+    }
+
+    private List<String> insert(VehicleRoutingProblem vrp, ExecutorService executorService) {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        VehicleFleetManager fleetManager = new InfiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        InsertionBuilder builder = new InsertionBuilder(vrp, fleetManager, stateManager, constraintManager)
+            .setInsertionStrategy(InsertionBuilder.Strategy.BEST);
+        if (executorService != null) builder.setConcurrentMode(executorService, 8);
+        AbstractInsertionStrategy insertion = (AbstractInsertionStrategy) builder.build();
+        insertion.setRandom(new Random(1));
+        insertion.addListener(stateManager);
+        Collection<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+        Collection<?> unassigned = insertion.insertJobs(routes, vrp.getJobs().values());
+        Assert.assertTrue(unassigned.isEmpty());
+        List<String> tours = new ArrayList<String>();
+        for (VehicleRoute route : routes) {
+            StringBuilder tour = new StringBuilder();
+            for (TourActivity act : route.getActivities()) {
+                tour.append(((TourActivity.JobActivity) act).getJob().getId()).append(",");
+            }
+            tours.add(tour.toString());
+        }
+        return tours;
+    }
+
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoodsFactory;
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.EuclideanServiceDistance;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GranularInsertionTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleImpl vehicle;
+
+    private Service newService;
+
+    private VehicleRoute route;
+
+    private List<Integer> evaluatedPositions;
+
+    private Set<Integer> infeasiblePositions;
+
+    private ServiceInsertionCalculator calculator;
+
+    @Before
+    public void doBefore() {
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle);
+        List<Service> services = new ArrayList<Service>();
+        for (int i = 1; i <= 10; i++) {
+            Service service = Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(i * 10, 0)).build();
+            services.add(service);
+            vrpBuilder.addJob(service);
+        }
+        newService = Service.Builder.newInstance("new").setLocation(Location.newInstance(55, 0)).build();
+        vrp = vrpBuilder.addJob(newService).build();
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory());
+        for (Service service : services) routeBuilder.addService(service);
+        route = routeBuilder.build();
+
+        evaluatedPositions = new ArrayList<Integer>();
+        infeasiblePositions = new HashSet<Integer>();
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addConstraint(new HardActivityConstraint() {
+
+            @Override
+            public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+                int position = iFacts.getActivityContext().getInsertionIndex();
+                evaluatedPositions.add(position);
+                if (infeasiblePositions.contains(position)) return ConstraintsStatus.NOT_FULFILLED;
+                return ConstraintsStatus.FULFILLED;
+            }
+
+        }, ConstraintManager.Priority.HIGH);
+        calculator = new ServiceInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(),
+            new LocalActivityInsertionCostsCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), stateManager), constraintManager);
+        calculator.setJobActivityFactory(vrp.getJobActivityFactory());
+        JobNeighborhoods jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new EuclideanServiceDistance(), 5);
+        jobNeighborhoods.initialise();
+        calculator.setInsertionNeighborhood(new InsertionNeighborhood(vrp, jobNeighborhoods, 2));
+    }
+
+    private InsertionData getInsertionData() {
+        return calculator.getInsertionData(route, newService, vehicle, route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+    }
+
+    @Test
+    public void onlyPositionsNextToNearestNeighborsAndStartAndEndShouldBeEvaluated() {
+        InsertionData iData = getInsertionData();
+
+        //nearest neighbors are s5 (activity 4) and s6 (activity 5)
+        assertEquals(Arrays.asList(0, 4, 5, 6, 10), evaluatedPositions);
+        assertEquals(5, iData.getDeliveryInsertionIndex());
+        assertEquals(0., iData.getInsertionCost(), 0.01);
+    }
+
+    @Test
+    public void whenNoCandidatePositionIsFeasible_allPositionsShouldBeEvaluated() {
+        infeasiblePositions.addAll(Arrays.asList(0, 4, 5, 6, 10));
+        InsertionData iData = getInsertionData();
+
+        assertEquals(5 + 11, evaluatedPositions.size());
+        assertTrue(iData.getDeliveryInsertionIndex() == 3 || iData.getDeliveryInsertionIndex() == 7);
+        assertEquals(30., iData.getInsertionCost(), 0.01);
+    }
+
+    @Test
+    public void whenRouteIsEmpty_startAndEndPositionShouldBeEvaluated() {
+        route = VehicleRoute.Builder.newInstance(vehicle).build();
+        InsertionData iData = getInsertionData();
+
+        assertEquals(Arrays.asList(0), evaluatedPositions);
+        assertEquals(0, iData.getDeliveryInsertionIndex());
+    }
+
+    @Test
+    public void whenGranularInsertionIsEnabledInJsprit_allJobsShouldBeAssigned() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 10).build();
+        for (int v = 0; v < 5; v++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < 50; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrpBuilder.build())
+            .setProperty(Jsprit.Parameter.INSERTION_GRANULAR, "true")
+            .setProperty(Jsprit.Parameter.INSERTION_GRANULAR_NEIGHBORS, "5").buildAlgorithm();
+        vra.setMaxIterations(50);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(vra.searchSolutions());
+
+        assertTrue(solution.getUnassignedJobs().isEmpty());
+        int noJobs = 0;
+        for (VehicleRoute r : solution.getRoutes()) noJobs += r.getTourActivities().getJobs().size();
+        assertEquals(50, noJobs);
+    }
+
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.SoftActivityConstraint;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InsertionDataCacheTest {
+
+    private static class CountingCalculator implements JobInsertionCostsCalculator {
+
+        private int calls = 0;
+
+        private double costs = 10.;
+
+        @Override
+        public InsertionData getInsertionData(VehicleRoute currentRoute, Job newJob, Vehicle newVehicle, double newVehicleDepartureTime, Driver newDriver, double bestKnownCosts) {
+            calls++;
+            if (costs < bestKnownCosts) return new InsertionData(costs, InsertionData.NO_INDEX, 0, newVehicle, newDriver);
+            return InsertionData.createEmptyInsertionData();
+        }
+
+    }
+
+    private Vehicle vehicle;
+
+    private Service s1;
+
+    private Service s2;
+
+    private Service s3;
+
+    private VehicleRoute route;
+
+    private CountingCalculator calculator;
+
+    private InsertionDataCache cache;
+
+    @Before
+    public void doBefore() {
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(10, 0)).build();
+        s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(20, 0)).build();
+        s3 = Service.Builder.newInstance("s3").setLocation(Location.newInstance(30, 0)).build();
+        route = VehicleRoute.Builder.newInstance(vehicle).addService(s1).addService(s2).build();
+        calculator = new CountingCalculator();
+        cache = new InsertionDataCache(calculator);
+    }
+
+    private InsertionData getInsertionData(Job job, double bestKnownCosts) {
+        return cache.getInsertionData(route, job, vehicle, route.getDepartureTime(), route.getDriver(), bestKnownCosts);
+    }
+
+    @Test
+    public void whenRouteHasNotChanged_cachedInsertionDataShouldBeReturned() {
+        InsertionData first = getInsertionData(s3, Double.MAX_VALUE);
+        InsertionData second = getInsertionData(s3, Double.MAX_VALUE);
+
+        assertSame(first, second);
+        assertEquals(1, calculator.calls);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(.5, cache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void whenCachedInsertionIsNotCheaperThanBestKnownCosts_noInsertionShouldBeReturned() {
+        getInsertionData(s3, Double.MAX_VALUE);
+        InsertionData iData = getInsertionData(s3, 5.);
+
+        assertTrue(iData instanceof InsertionData.NoInsertionFound);
+        assertEquals(1, calculator.calls);
+    }
+
+    @Test
+    public void whenNoInsertionHasBeenFound_itShouldOnlyBeReusedForLowerBestKnownCosts() {
+        assertTrue(getInsertionData(s3, 5.) instanceof InsertionData.NoInsertionFound);
+        assertTrue(getInsertionData(s3, 3.) instanceof InsertionData.NoInsertionFound);
+        assertEquals(1, calculator.calls);
+
+        InsertionData iData = getInsertionData(s3, 20.);
+        assertEquals(10., iData.getInsertionCost(), 0.01);
+        assertEquals(2, calculator.calls);
+    }
+
+    @Test
+    public void whenRouteIsEmpty_cacheShouldBeBypassed() {
+        route = VehicleRoute.Builder.newInstance(vehicle).build();
+        getInsertionData(s3, Double.MAX_VALUE);
+        getInsertionData(s3, Double.MAX_VALUE);
+
+        assertEquals(2, calculator.calls);
+        assertEquals(0, cache.getNoRouteVersions());
+    }
+
+    @Test
+    public void whenJobIsRemovedFromRoute_outdatedRouteVersionShouldBeDropped() {
+        cache.ruinStarts(Arrays.asList(route));
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(1, cache.getNoRouteVersions());
+
+        route.getTourActivities().removeJob(s1);
+        cache.removed(s1, route);
+        assertEquals(0, cache.getNoRouteVersions());
+
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(2, calculator.calls);
+    }
+
+    @Test
+    public void whenJobIsInsertedIntoRoute_outdatedRouteVersionShouldBeDropped() {
+        cache.informInsertionStarts(Arrays.asList(route), Arrays.<Job>asList(s3));
+        getInsertionData(s3, Double.MAX_VALUE);
+
+        route.getTourActivities().removeJob(s2);
+        cache.informJobInserted(s3, route, 10., 0.);
+        assertEquals(0, cache.getNoRouteVersions());
+    }
+
+    @Test
+    public void whenInsertionStarts_cacheShouldBeCleared() {
+        getInsertionData(s3, Double.MAX_VALUE);
+        cache.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        getInsertionData(s3, Double.MAX_VALUE);
+
+        assertEquals(2, calculator.calls);
+    }
+
+    @Test
+    public void whenMaxRouteVersionsIsExceeded_cacheShouldBeCleared() {
+        cache.setMaxRouteVersions(1);
+        getInsertionData(s3, Double.MAX_VALUE);
+        VehicleRoute otherRoute = VehicleRoute.Builder.newInstance(vehicle).addService(s2).build();
+        cache.getInsertionData(otherRoute, s3, vehicle, otherRoute.getDepartureTime(), otherRoute.getDriver(), Double.MAX_VALUE);
+        assertEquals(1, cache.getNoRouteVersions());
+
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(3, calculator.calls);
+    }
+
+    private static class NoiseConstraint implements SoftActivityConstraint, InsertionNoise {
+
+        private boolean active = false;
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public double getCosts(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+            return 0.;
+        }
+
+    }
+
+    @Test
+    public void whenNoiseIsActive_cacheShouldBeBypassed() {
+        NoiseConstraint noise = new NoiseConstraint();
+        cache.addInsertionNoise(noise);
+        noise.active = true;
+        getInsertionData(s3, Double.MAX_VALUE);
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(2, calculator.calls);
+        assertEquals(0, cache.getNoRouteVersions());
+
+        noise.active = false;
+        getInsertionData(s3, Double.MAX_VALUE);
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(3, calculator.calls);
+    }
+
+    @Test
+    public void whenConstraintManagerContainsActiveNoise_cacheShouldBeBypassed() {
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addJob(s1).addJob(s2).addJob(s3).build();
+        ConstraintManager constraintManager = new ConstraintManager(vrp, new StateManager(vrp));
+        cache = new InsertionDataCache(calculator, constraintManager);
+        NoiseConstraint noise = new NoiseConstraint();
+        noise.active = true;
+        constraintManager.addConstraint(noise);
+        cache.informInsertionStarts(Arrays.asList(route), Arrays.<Job>asList(s3));
+
+        getInsertionData(s3, Double.MAX_VALUE);
+        getInsertionData(s3, Double.MAX_VALUE);
+        assertEquals(2, calculator.calls);
+    }
+
+    @Test
+    public void regretInsertionWithCacheShouldYieldTheSameRoutesAsWithoutCache() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 8).build();
+        for (int v = 0; v < 4; v++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < 30; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+
+        List<VehicleRoute> cachedRoutes = insertAll(vrp, true);
+        InsertionDataCache usedCache = cache;
+        List<VehicleRoute> routes = insertAll(vrp, false);
+
+        assertEquals(sequences(routes), sequences(cachedRoutes));
+        assertNotNull(usedCache);
+        assertTrue(usedCache.getHits() > 0);
+    }
+
+    private List<VehicleRoute> insertAll(VehicleRoutingProblem vrp, boolean cacheInsertionData) {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        InsertionStrategy regret = new InsertionBuilder(vrp, new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager(), stateManager, constraintManager)
+            .setInsertionStrategy(InsertionBuilder.Strategy.REGRET)
+            .setCacheInsertionData(cacheInsertionData).build();
+        regret.addListener(stateManager);
+        cache = null;
+        for (InsertionListener l : regret.getListeners()) {
+            if (l instanceof InsertionDataCache) cache = (InsertionDataCache) l;
+        }
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+        Collection<Job> unassigned = regret.insertJobs(routes, vrp.getJobs().values());
+        assertTrue(unassigned.isEmpty());
+        return routes;
+    }
+
+    private static List<String> sequences(List<VehicleRoute> routes) {
+        List<String> sequences = new ArrayList<String>();
+        for (VehicleRoute r : routes) {
+            StringBuilder sequence = new StringBuilder(r.getVehicle().getId());
+            for (TourActivity act : r.getActivities()) sequence.append(",").append(((TourActivity.JobActivity) act).getJob().getId());
+            sequences.add(sequence.toString());
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+}
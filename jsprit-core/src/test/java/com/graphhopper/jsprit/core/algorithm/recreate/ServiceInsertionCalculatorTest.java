@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceInsertionCalculatorTest {
+
+    @Test
+    public void activityConstraintsShouldBeCheckedForEveryPositionAndTimeWindow() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(10, 0)).build();
+        Service s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(20, 0)).build();
+        Service newService = Service.Builder.newInstance("new").setLocation(Location.newInstance(15, 0))
+            .addTimeWindow(0., 5.).addTimeWindow(10., 100.).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(newService).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s2).build();
+
+        final List<String> checks = new ArrayList<String>();
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addConstraint(new HardActivityConstraint() {
+
+            @Override
+            public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+                checks.add(iFacts.getActivityContext().getInsertionIndex() + ":" + name(prevAct) + "-" + name(nextAct) + ":" + newAct.getTheoreticalEarliestOperationStartTime());
+                if (newAct.getTheoreticalEarliestOperationStartTime() < 10.) return ConstraintsStatus.NOT_FULFILLED;
+                return ConstraintsStatus.FULFILLED;
+            }
+
+        }, ConstraintManager.Priority.HIGH);
+        ServiceInsertionCalculator calculator = new ServiceInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(),
+            new LocalActivityInsertionCostsCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), stateManager), constraintManager);
+        calculator.setJobActivityFactory(vrp.getJobActivityFactory());
+
+        InsertionData iData = calculator.getInsertionData(route, newService, vehicle, route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+
+        assertEquals(Arrays.asList("0:start-s1:0.0", "0:start-s1:10.0", "1:s1-s2:0.0", "1:s1-s2:10.0", "2:s2-end:0.0", "2:s2-end:10.0"), checks);
+        assertEquals(1, iData.getDeliveryInsertionIndex());
+        assertEquals(0., iData.getInsertionCost(), 0.01);
+        assertTrue(iData.getEvents().get(0) instanceof InsertActivity);
+        TimeWindow bestTimeWindow = newService.getTimeWindows().toArray(new TimeWindow[2])[1];
+        assertEquals(bestTimeWindow.getStart(), ((InsertActivity) iData.getEvents().get(0)).getActivity().getTheoreticalEarliestOperationStartTime(), 0.01);
+    }
+
+    private static String name(TourActivity act) {
+        if (act instanceof Start) return "start";
+        if (act instanceof End) return "end";
+        return ((TourActivity.JobActivity) act).getJob().getId();
+    }
+
+}
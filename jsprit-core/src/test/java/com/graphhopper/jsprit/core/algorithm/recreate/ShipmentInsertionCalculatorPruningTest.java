@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.VehicleDependentTimeWindowConstraints;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShipmentInsertionCalculatorPruningTest {
+
+    @Test
+    public void whenPruningByTimeWindows_insertionDataShouldBeTheSameAsWithoutPruning() {
+        Random random = new Random(4711);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 6).build();
+        for (int v = 0; v < 3; v++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50))
+                .setLatestArrival(1500.).build());
+        }
+        for (int i = 0; i < 80; i++) {
+            double pickupStart = random.nextInt(900);
+            double deliveryStart = pickupStart + 50 + random.nextInt(300);
+            vrpBuilder.addJob(Shipment.Builder.newInstance("s" + i).addSizeDimension(0, 1 + random.nextInt(3))
+                .setPickupLocation(Location.newInstance(random.nextInt(100), random.nextInt(100)))
+                .setDeliveryLocation(Location.newInstance(random.nextInt(100), random.nextInt(100)))
+                .setPickupServiceTime(5.).setDeliveryServiceTime(5.)
+                .addPickupTimeWindow(pickupStart, pickupStart + 60 + random.nextInt(120))
+                .addDeliveryTimeWindow(deliveryStart, deliveryStart + 60 + random.nextInt(120)).build());
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+        VehicleRoutingAlgorithm vra = Jsprit.createAlgorithm(vrp);
+        vra.setMaxIterations(20);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(vra.searchSolutions());
+
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.updateTimeWindowStates();
+        stateManager.informInsertionStarts(solution.getRoutes(), solution.getUnassignedJobs());
+
+        ConstraintManager pruningConstraints = new ConstraintManager(vrp, stateManager);
+        pruningConstraints.addLoadConstraint();
+        pruningConstraints.addTimeWindowConstraint();
+        ConstraintManager constraints = new ConstraintManager(vrp, stateManager);
+        constraints.addLoadConstraint();
+        constraints.addConstraint(new VehicleDependentTimeWindowConstraints(stateManager, vrp.getTransportCosts(), vrp.getActivityCosts()),
+            ConstraintManager.Priority.HIGH);
+
+        ShipmentInsertionCalculator pruningCalculator = createCalculator(vrp, stateManager, pruningConstraints);
+        ShipmentInsertionCalculator calculator = createCalculator(vrp, stateManager, constraints);
+
+        int noFeasible = 0;
+        for (VehicleRoute route : solution.getRoutes()) {
+            for (Job job : vrp.getJobs().values()) {
+                if (route.getTourActivities().servesJob(job)) continue;
+                InsertionData expected = calculator.getInsertionData(route, job, route.getVehicle(), route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+                InsertionData actual = pruningCalculator.getInsertionData(route, job, route.getVehicle(), route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+                assertEquals(expected.getInsertionCost(), actual.getInsertionCost(), 0.);
+                assertEquals(expected.getPickupInsertionIndex(), actual.getPickupInsertionIndex());
+                assertEquals(expected.getDeliveryInsertionIndex(), actual.getDeliveryInsertionIndex());
+                if (!(expected instanceof InsertionData.NoInsertionFound)) noFeasible++;
+            }
+        }
+        assertTrue(noFeasible > 0);
+    }
+
+    private static ShipmentInsertionCalculator createCalculator(VehicleRoutingProblem vrp, StateManager stateManager, ConstraintManager constraintManager) {
+        ShipmentInsertionCalculator calculator = new ShipmentInsertionCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(),
+            new LocalActivityInsertionCostsCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), stateManager), constraintManager);
+        calculator.setJobActivityFactory(vrp.getJobActivityFactory());
+        return calculator;
+    }
+
+}
@@ -3,13 +3,14 @@ package com.graphhopper.jsprit.core.algorithm.ruin;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.EuclideanCosts;
 import junit.framework.Assert;
 import org.junit.Test;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Created by schroeder on 06/03/15.
@@ -72,4 +73,45 @@ public class DBSCANClustererTest {
         Assert.assertEquals(3, cluster.size());
 
     }
+
+    @Test
+    public void gridShouldFindSameClustersAsComparingAllJobs() {
+        Random random = new Random(4711);
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(v);
+        List<Shipment> shipments = new ArrayList<Shipment>();
+        for (int i = 0; i < 200; i++) {
+            if (i % 5 == 0) {
+                Shipment shipment = Shipment.Builder.newInstance("ship" + i)
+                    .setPickupLocation(Location.newInstance(random.nextInt(100), random.nextInt(100)))
+                    .setDeliveryLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build();
+                shipments.add(shipment);
+                routeBuilder.addPickup(shipment);
+            } else {
+                routeBuilder.addService(Service.Builder.newInstance("s" + i)
+                    .setLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build());
+            }
+        }
+        for (Shipment shipment : shipments) routeBuilder.addDelivery(shipment);
+        VehicleRoute r = routeBuilder.build();
+
+        DBSCANClusterer grid = new DBSCANClusterer(new EuclideanCosts());
+        DBSCANClusterer allJobs = new DBSCANClusterer(new EuclideanCosts());
+        allJobs.setDistanceFromCoordinates(false);
+        for (double eps : new double[]{0, 3, 5, 8}) {
+            for (int minPts = 1; minPts <= 3; minPts++) {
+                grid.setEpsDistance(eps);
+                grid.setMinPts(minPts);
+                allJobs.setEpsDistance(eps);
+                allJobs.setMinPts(minPts);
+                Assert.assertEquals(asSets(allJobs.getClusters(r)), asSets(grid.getClusters(r)));
+            }
+        }
+    }
+
+    private static Set<Set<Job>> asSets(List<List<Job>> clusters) {
+        Set<Set<Job>> sets = new HashSet<Set<Job>>();
+        for (List<Job> cluster : clusters) sets.add(new HashSet<Job>(cluster));
+        return sets;
+    }
 }
@@ -30,6 +30,8 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -126,4 +128,45 @@ public class JobNeighborhoodsWithCapRestrictionImplTest {
         assertEquals(2, services.size());
     }
 
+    @Test
+    public void whenRequestingNeighborhoodOfTargetJob_neighborsShouldBeSortedByDistance() {
+        JobNeighborhoodsImplWithCapRestriction jn = new JobNeighborhoodsImplWithCapRestriction(vrp, jobDistance, 4);
+        jn.initialise();
+        Iterator<Job> iter = jn.getNearestNeighborsIterator(4, target);
+        double lastDistance = 0.;
+        while (iter.hasNext()) {
+            double distance = jobDistance.getDistance(target, iter.next());
+            assertTrue(distance >= lastDistance);
+            lastDistance = distance;
+        }
+        assertEquals(2., lastDistance, 0.01);
+    }
+
+    @Test
+    public void whenCalculatingConcurrently_neighborhoodsShouldBeEqualToSequentialOnes() {
+        JobNeighborhoodsImplWithCapRestriction sequential = new JobNeighborhoodsImplWithCapRestriction(vrp, jobDistance, 3);
+        sequential.initialise();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        JobNeighborhoods concurrent = new JobNeighborhoodsFactory().createNeighborhoods(vrp, jobDistance, 3, executorService, 2);
+        concurrent.initialise();
+        executorService.shutdown();
+        assertEquals(sequential.getMaxDistance(), concurrent.getMaxDistance(), 0.);
+        for (Job job : vrp.getJobs().values()) {
+            Iterator<Job> expected = sequential.getNearestNeighborsIterator(3, job);
+            Iterator<Job> actual = concurrent.getNearestNeighborsIterator(3, job);
+            while (expected.hasNext()) {
+                assertEquals(expected.next(), actual.next());
+            }
+            assertTrue(!actual.hasNext());
+        }
+    }
+
+    @Test
+    public void whenJobIsNotPartOfProblem_itShouldHaveNoNeighbors() {
+        JobNeighborhoodsImplWithCapRestriction jn = new JobNeighborhoodsImplWithCapRestriction(vrp, jobDistance, 2);
+        jn.initialise();
+        Service other = Service.Builder.newInstance("other").setLocation(Location.newInstance(0, 1)).build();
+        assertTrue(!jn.getNearestNeighborsIterator(2, other).hasNext());
+    }
+
 }
@@ -6,12 +6,13 @@ import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Service;
 import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.Coordinate;
+import com.graphhopper.jsprit.core.util.NoiseMaker;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -195,5 +196,121 @@ public class RuinWorstTest {
 
     }
 
+    @Test
+    public void itShouldRemoveJobsInSameOrderAsRescanningAllRoutes() {
+        Random random = new Random(4711);
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v")
+            .setStartLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(0, 0)).build()).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(v);
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 0; i < 40; i++) {
+            Job job;
+            if (i % 4 == 0) {
+                job = Shipment.Builder.newInstance("ship" + i)
+                    .setPickupLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(random.nextInt(100), random.nextInt(100))).build())
+                    .setDeliveryLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(random.nextInt(100), random.nextInt(100))).build()).build();
+            } else {
+                job = Service.Builder.newInstance("s" + i)
+                    .setLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(random.nextInt(100), random.nextInt(100))).build()).build();
+            }
+            jobs.add(job);
+            vrpBuilder.addJob(job);
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+        for (int r = 0; r < 4; r++) {
+            VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(v).setJobActivityFactory(vrp.getJobActivityFactory());
+            for (int i = r * 10; i < r * 10 + 10; i++) {
+                if (jobs.get(i) instanceof Shipment) routeBuilder.addPickup((Shipment) jobs.get(i));
+            }
+            for (int i = r * 10; i < r * 10 + 10; i++) {
+                if (jobs.get(i) instanceof Shipment) routeBuilder.addDelivery((Shipment) jobs.get(i));
+                else routeBuilder.addService((Service) jobs.get(i));
+            }
+            routes.add(routeBuilder.build());
+        }
+        List<VehicleRoute> expectedRoutes = copy(routes);
+        List<Job> expected = new ArrayList<Job>();
+        for (int i = 0; i < 15; i++) {
+            Job worstJob = getWorstByRescanning(vrp, expectedRoutes);
+            for (VehicleRoute route : expectedRoutes) route.getTourActivities().removeJob(worstJob);
+            expected.add(worstJob);
+        }
+
+        RuinWorst worst = new RuinWorst(vrp, 15);
+        Collection<Job> unassigned = worst.ruinRoutes(copy(routes));
+
+        assertEquals(expected, new ArrayList<Job>(unassigned));
+
+        RuinWorst worstWithZeroNoise = new RuinWorst(vrp, 15);
+        worstWithZeroNoise.setNoiseMaker(new NoiseMaker() {
+            @Override
+            public double makeNoise() {
+                return 0;
+            }
+        });
+        assertEquals(expected, new ArrayList<Job>(worstWithZeroNoise.ruinRoutes(copy(routes))));
+    }
+
+    @Test
+    public void itShouldDrawNoiseForEachActivityOnEachRemoval() {
+        Service s1 = Service.Builder.newInstance("s1")
+            .setLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(1, 1)).build()).build();
+        Service s2 = Service.Builder.newInstance("s2")
+            .setLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(3, 1)).build()).build();
+        Service s3 = Service.Builder.newInstance("s3")
+            .setLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(10, 10)).build()).build();
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v")
+            .setStartLocation(Location.Builder.newInstance().setCoordinate(Coordinate.newInstance(0, 0)).build()).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(s1).addJob(s2).addJob(s3).addVehicle(v).build();
+        RuinWorst worst = new RuinWorst(vrp, 2);
+        final List<Double> noise = new ArrayList<Double>(Arrays.asList(0., 0., 0., 100., 0.));
+        final int[] noDraws = new int[1];
+        worst.setNoiseMaker(new NoiseMaker() {
+            @Override
+            public double makeNoise() {
+                return noise.get(noDraws[0]++);
+            }
+        });
+
+        VehicleRoute route = VehicleRoute.Builder.newInstance(v).addService(s1).addService(s2).addService(s3).setJobActivityFactory(vrp.getJobActivityFactory()).build();
+        Collection<Job> unassigned = worst.ruinRoutes(Arrays.asList(route));
+
+        assertEquals(5, noDraws[0]);
+        assertEquals(Arrays.<Job>asList(s3, s1), new ArrayList<Job>(unassigned));
+    }
+
+    private static List<VehicleRoute> copy(List<VehicleRoute> routes) {
+        List<VehicleRoute> copies = new ArrayList<VehicleRoute>();
+        for (VehicleRoute route : routes) copies.add(VehicleRoute.copyOf(route));
+        return copies;
+    }
+
+    private static Job getWorstByRescanning(VehicleRoutingProblem vrp, List<VehicleRoute> routes) {
+        Job worst = null;
+        double bestSavings = 0;
+        for (VehicleRoute route : routes) {
+            Map<Job, Double> savings = new HashMap<Job, Double>();
+            List<TourActivity> acts = route.getActivities();
+            for (int i = 0; i < acts.size(); i++) {
+                TourActivity prev = i == 0 ? route.getStart() : acts.get(i - 1);
+                TourActivity next = i == acts.size() - 1 ? route.getEnd() : acts.get(i + 1);
+                double s = c(vrp, prev, acts.get(i)) + c(vrp, acts.get(i), next) - c(vrp, prev, next);
+                Job job = ((TourActivity.JobActivity) acts.get(i)).getJob();
+                savings.put(job, (savings.containsKey(job) ? savings.get(job) : 0) + Math.max(0, s));
+            }
+            for (Map.Entry<Job, Double> e : savings.entrySet()) {
+                if (e.getValue() > bestSavings) {
+                    bestSavings = e.getValue();
+                    worst = e.getKey();
+                }
+            }
+        }
+        return worst;
+    }
+
+    private static double c(VehicleRoutingProblem vrp, TourActivity from, TourActivity to) {
+        return vrp.getTransportCosts().getTransportCost(from.getLocation(), to.getLocation(), 0, null, null);
+    }
 
 }
@@ -22,6 +22,9 @@ import com.graphhopper.jsprit.core.problem.job.Service;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ServiceActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.state.DoubleStateGetterAdapter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityDoubleStateGetter;
+import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
@@ -355,4 +358,96 @@ public class StateManagerTest {
         }
         stateManager.putTypedInternalRouteState(route,myState,1.);
     }
+
+    @Test
+    public void whenRouteStateIsSetAsDouble_itMustBeSetCorrectly() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteStateDouble(route, id, 10.);
+        assertEquals(10., stateManager.getRouteStateDouble(route, id), 0.);
+        assertEquals(10., stateManager.getRouteState(route, id, Double.class), 0.);
+    }
+
+    @Test
+    public void whenDoubleRouteStateIsNotSet_itShouldReturnNaN() {
+        VehicleRoute route = getRoute(mock(Vehicle.class));
+        StateManager stateManager = new StateManager(vrpMock);
+        assertTrue(Double.isNaN(stateManager.getRouteStateDouble(route, InternalStates.COSTS)));
+    }
+
+    @Test
+    public void whenActivityStateIsSetWithGenericMethodAndDouble_itShouldBeReturnedAsDouble() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityState(activity, id, 5.);
+        assertEquals(5., stateManager.getActivityStateDouble(activity, id), 0.);
+        stateManager.putActivityStateDouble(activity, id, 6.);
+        assertEquals(6., stateManager.getActivityState(activity, id, Double.class), 0.);
+        stateManager.putActivityState(activity, id, true);
+        assertTrue(Double.isNaN(stateManager.getActivityStateDouble(activity, id)));
+        assertTrue(stateManager.getActivityState(activity, id, Boolean.class));
+    }
+
+    @Test
+    public void whenClearing_doubleStatesShouldBeNaN() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).addVehicle(vehicle).build();
+        VehicleRoute route = getRoute(vehicle);
+        TourActivity act = route.getActivities().get(0);
+
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityStateDouble(act, vehicle, id, 2.);
+        stateManager.putRouteStateDouble(route, vehicle, id, 3.);
+        assertEquals(2., stateManager.getActivityStateDouble(act, vehicle, id), 0.);
+        assertEquals(3., stateManager.getRouteStateDouble(route, vehicle, id), 0.);
+        assertTrue(stateManager.hasActivityState(act, vehicle, id));
+
+        stateManager.clear();
+
+        assertTrue(Double.isNaN(stateManager.getActivityStateDouble(act, vehicle, id)));
+        assertTrue(Double.isNaN(stateManager.getRouteStateDouble(route, vehicle, id)));
+        assertNull(stateManager.getRouteState(route, vehicle, id, Double.class));
+    }
+
+    @Test
+    public void whenStateIdsExceedInitialCapacity_doubleStatesShouldStillBeMemorized() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).addVehicle(vehicle).build();
+        VehicleRoute route = getRoute(vehicle);
+        TourActivity act = route.getActivities().get(0);
+
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = null;
+        for (int i = 0; i < 40; i++) {
+            id = stateManager.createStateId("state_" + i);
+        }
+        stateManager.putActivityStateDouble(act, id, 1.);
+        stateManager.putActivityStateDouble(act, vehicle, id, 2.);
+        stateManager.putRouteStateDouble(route, id, 3.);
+        stateManager.putRouteStateDouble(route, vehicle, id, 4.);
+        assertEquals(1., stateManager.getActivityStateDouble(act, id), 0.);
+        assertEquals(2., stateManager.getActivityStateDouble(act, vehicle, id), 0.);
+        assertEquals(3., stateManager.getRouteStateDouble(route, id), 0.);
+        assertEquals(4., stateManager.getRouteState(route, vehicle, id, Double.class), 0.);
+    }
+
+    @Test
+    public void whenAdaptingStateManager_itShouldBeReturnedAsIs() {
+        StateManager stateManager = new StateManager(vrpMock);
+        assertSame(stateManager, DoubleStateGetterAdapter.of(stateManager));
+    }
+
+    @Test
+    public void whenAdaptingGenericStateGetter_doubleStatesShouldBeUnboxed() {
+        TourActivity act = mock(TourActivity.class);
+        RouteAndActivityStateGetter stateGetter = mock(RouteAndActivityStateGetter.class);
+        when(stateGetter.getActivityState(act, InternalStates.COSTS, Double.class)).thenReturn(5.);
+        RouteAndActivityDoubleStateGetter doubleStateGetter = DoubleStateGetterAdapter.of(stateGetter);
+        assertEquals(5., doubleStateGetter.getActivityStateDouble(act, InternalStates.COSTS), 0.);
+        assertTrue(Double.isNaN(doubleStateGetter.getActivityStateDouble(act, InternalStates.LOAD)));
+    }
 }
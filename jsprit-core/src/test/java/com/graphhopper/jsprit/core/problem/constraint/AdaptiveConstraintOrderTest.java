@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+
+public class AdaptiveConstraintOrderTest {
+
+    /*
+     * returns a fixed status and records its evaluation
+     */
+    private class FixedConstraint implements HardActivityConstraint, HardRouteConstraint {
+
+        private final String name;
+
+        private final ConstraintsStatus status;
+
+        FixedConstraint(String name, ConstraintsStatus status) {
+            this.name = name;
+            this.status = status;
+        }
+
+        @Override
+        public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+            evaluated.add(name);
+            return status;
+        }
+
+        @Override
+        public boolean fulfilled(JobInsertionContext insertionContext) {
+            evaluated.add(name);
+            return status.equals(ConstraintsStatus.FULFILLED);
+        }
+
+    }
+
+    /*
+     * status depends on the departure time only, thus the same for each evaluation order
+     */
+    private static class PseudoRandomConstraint implements HardActivityConstraint {
+
+        private final int seed;
+
+        PseudoRandomConstraint(int seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+            int value = (((int) prevActDepTime + 1) * (seed * 7919 + 104729)) % 13;
+            if (value < 2 + seed % 3) return ConstraintsStatus.NOT_FULFILLED_BREAK;
+            if (value < 5) return ConstraintsStatus.NOT_FULFILLED;
+            return ConstraintsStatus.FULFILLED;
+        }
+
+    }
+
+    private List<String> evaluated;
+
+    @Before
+    public void doBefore() {
+        evaluated = new ArrayList<String>();
+    }
+
+    private ConstraintsStatus fulfilled(HardActivityLevelConstraintManager manager) {
+        return manager.fulfilled(null, null, null, null, 0.);
+    }
+
+    @Test
+    public void selectiveConstraintShouldBeMovedToFront() {
+        HardActivityLevelConstraintManager manager = new HardActivityLevelConstraintManager();
+        manager.addConstraint(new FixedConstraint("fulfilled", ConstraintsStatus.FULFILLED), ConstraintManager.Priority.HIGH);
+        manager.addConstraint(new FixedConstraint("break", ConstraintsStatus.NOT_FULFILLED_BREAK), ConstraintManager.Priority.HIGH);
+        manager.setAdaptiveOrdering(10);
+        for (int i = 0; i < 9; i++) {
+            assertEquals(ConstraintsStatus.NOT_FULFILLED_BREAK, fulfilled(manager));
+        }
+        assertEquals(Arrays.asList("fulfilled", "break"), evaluated.subList(16, 18));
+        evaluated.clear();
+        assertEquals(ConstraintsStatus.NOT_FULFILLED_BREAK, fulfilled(manager));
+        assertEquals(Arrays.asList("break"), evaluated);
+    }
+
+    @Test
+    public void constraintsShouldNotBeMovedAcrossPriorityClasses() {
+        HardActivityLevelConstraintManager manager = new HardActivityLevelConstraintManager();
+        manager.addConstraint(new FixedConstraint("critical", ConstraintsStatus.NOT_FULFILLED), ConstraintManager.Priority.CRITICAL);
+        manager.addConstraint(new FixedConstraint("high", ConstraintsStatus.NOT_FULFILLED_BREAK), ConstraintManager.Priority.HIGH);
+        manager.addConstraint(new FixedConstraint("low", ConstraintsStatus.NOT_FULFILLED_BREAK), ConstraintManager.Priority.LOW);
+        manager.setAdaptiveOrdering(1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ConstraintsStatus.NOT_FULFILLED, fulfilled(manager));
+        }
+        assertEquals(Arrays.asList("critical", "critical", "critical", "critical", "critical"), evaluated);
+    }
+
+    @Test
+    public void whenOrderIsAdaptive_statusOfCriticalAndHighPriorityConstraintsShouldNotChange() {
+        HardActivityLevelConstraintManager fixed = new HardActivityLevelConstraintManager();
+        HardActivityLevelConstraintManager adaptive = new HardActivityLevelConstraintManager();
+        for (int seed = 0; seed < 6; seed++) {
+            ConstraintManager.Priority priority = seed < 2 ? ConstraintManager.Priority.CRITICAL : ConstraintManager.Priority.HIGH;
+            fixed.addConstraint(new PseudoRandomConstraint(seed), priority);
+            adaptive.addConstraint(new PseudoRandomConstraint(seed), priority);
+        }
+        adaptive.setAdaptiveOrdering(7);
+        for (int t = 0; t < 1000; t++) {
+            assertEquals(fixed.fulfilled(null, null, null, null, t), adaptive.fulfilled(null, null, null, null, t));
+        }
+    }
+
+    @Test
+    public void whenOrderIsAdaptive_feasibilityOfLowPriorityConstraintsShouldNotChange() {
+        HardActivityLevelConstraintManager fixed = new HardActivityLevelConstraintManager();
+        HardActivityLevelConstraintManager adaptive = new HardActivityLevelConstraintManager();
+        for (int seed = 0; seed < 6; seed++) {
+            fixed.addConstraint(new PseudoRandomConstraint(seed), ConstraintManager.Priority.LOW);
+            adaptive.addConstraint(new PseudoRandomConstraint(seed), ConstraintManager.Priority.LOW);
+        }
+        adaptive.setAdaptiveOrdering(7);
+        for (int t = 0; t < 1000; t++) {
+            assertEquals(fixed.fulfilled(null, null, null, null, t).equals(ConstraintsStatus.FULFILLED),
+                adaptive.fulfilled(null, null, null, null, t).equals(ConstraintsStatus.FULFILLED));
+        }
+    }
+
+    @Test
+    public void rejectingRouteConstraintShouldBeMovedToFront() {
+        HardRouteLevelConstraintManager manager = new HardRouteLevelConstraintManager();
+        manager.addConstraint(new FixedConstraint("fulfilled", ConstraintsStatus.FULFILLED));
+        manager.addConstraint(new FixedConstraint("rejecting", ConstraintsStatus.NOT_FULFILLED));
+        manager.setAdaptiveOrdering(5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(false, manager.fulfilled(null));
+        }
+        evaluated.clear();
+        assertEquals(false, manager.fulfilled(null));
+        assertEquals(Arrays.asList("rejecting"), evaluated);
+    }
+
+    @Test
+    public void whenEvaluatedConcurrently_noEvaluationShouldBeLost() throws InterruptedException {
+        final AdaptiveConstraintOrder<String> order = new AdaptiveConstraintOrder<String>(Arrays.asList("a", "b"), null, 100);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) order.nextEvaluation();
+                }
+
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        List<AdaptiveConstraintOrder.Entry<String>> current = order.nextEvaluation();
+        for (int i = 0; i < 98; i++) assertSame(current, order.nextEvaluation());
+        assertNotSame(current, order.nextEvaluation());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenReorderIntervalIsNegative_itShouldThrowException() {
+        new ConstraintManager(null, null).setAdaptiveOrdering(-1);
+    }
+
+    @Test
+    public void whenOrderIsAdaptiveInJsprit_solutionShouldNotChange() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 8).build();
+        for (int v = 0; v < 4; v++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < 30; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).addTimeWindow(i * 5, i * 5 + 150)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+
+        assertEquals(solve(vrp, false), solve(vrp, true), 0.0001);
+    }
+
+    private double solve(VehicleRoutingProblem vrp, boolean adaptive) {
+        RandomNumberGeneration.reset();
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp)
+            .setProperty(Jsprit.Parameter.CONSTRAINTS_ADAPTIVE_ORDER, String.valueOf(adaptive)).buildAlgorithm();
+        vra.setMaxIterations(50);
+        return Solutions.bestOf(vra.searchSolutions()).getCost();
+    }
+
+}
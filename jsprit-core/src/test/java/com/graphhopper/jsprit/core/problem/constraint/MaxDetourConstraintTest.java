@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.AbstractActivity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.misc.ActivityContext;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class MaxDetourConstraintTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleImpl vehicle;
+
+    private VehicleRoute route;
+
+    private StateManager stateManager;
+
+    @Before
+    public void doBefore() {
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(10, 0)).build();
+        Service s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(20, 0)).build();
+        Service near = Service.Builder.newInstance("near").setLocation(Location.newInstance(5, 0)).build();
+        Service off = Service.Builder.newInstance("off").setLocation(Location.newInstance(10, 10)).build();
+        Shipment shipment = Shipment.Builder.newInstance("shipment").setPickupLocation(Location.newInstance(10, 5))
+            .setDeliveryLocation(Location.newInstance(10, 10)).build();
+        Shipment nearShipment = Shipment.Builder.newInstance("nearShipment").setPickupLocation(Location.newInstance(5, 0))
+            .setDeliveryLocation(Location.newInstance(10, 10)).build();
+        vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addJob(s1).addJob(s2).addJob(near).addJob(off)
+            .addJob(shipment).addJob(nearShipment).build();
+
+        route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory()).addService(s1).addService(s2).build();
+
+        stateManager = new StateManager(vrp);
+        stateManager.updateDetourStates();
+        stateManager.informInsertionStarts(Arrays.asList(route), null);
+    }
+
+    private ConstraintsStatus fulfilled(double maxDetour, String jobId, TourActivity prevAct, TourActivity nextAct) {
+        MaxDetourConstraint constraint = new MaxDetourConstraint(stateManager, vrp.getTransportCosts(), maxDetour);
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get(jobId), vehicle, route.getDriver(), 0.);
+        TourActivity newAct = vrp.copyAndGetActivities(vrp.getJobs().get(jobId)).get(0);
+        return constraint.fulfilled(iFacts, prevAct, newAct, nextAct, 0.);
+    }
+
+    @Test
+    public void remainingRideTimesShouldBeMemorized() {
+        assertEquals(30., stateManager.getActivityStateDouble(route.getActivities().get(0), InternalStates.REMAINING_RIDE_TIME), 0.01);
+        assertEquals(20., stateManager.getActivityStateDouble(route.getActivities().get(1), InternalStates.REMAINING_RIDE_TIME), 0.01);
+    }
+
+    @Test
+    public void pastMaxDetoursShouldBeMemorized() {
+        assertEquals(20., stateManager.getActivityStateDouble(route.getActivities().get(0), InternalStates.PAST_MAX_DETOUR), 0.01);
+        assertEquals(20., stateManager.getActivityStateDouble(route.getActivities().get(1), InternalStates.PAST_MAX_DETOUR), 0.01);
+    }
+
+    @Test
+    public void whenInsertionIncreasesDetourOfPreviousActivityTooMuch_itShouldNotBeFulfilled() {
+        //detour of s1 increases from 20 to 20 + 10 + 14.14 - 10
+        TourActivity s1 = route.getActivities().get(0);
+        TourActivity s2 = route.getActivities().get(1);
+        assertEquals(ConstraintsStatus.NOT_FULFILLED, fulfilled(30., "off", s1, s2));
+        assertEquals(ConstraintsStatus.FULFILLED, fulfilled(35., "off", s1, s2));
+    }
+
+    @Test
+    public void whenDetourOfNewActivityIsTooLong_itShouldNotBeFulfilled() {
+        //detour of new activity is 5 + 30 - 5
+        assertEquals(ConstraintsStatus.NOT_FULFILLED, fulfilled(25., "near", route.getStart(), route.getActivities().get(0)));
+        assertEquals(ConstraintsStatus.FULFILLED, fulfilled(30., "near", route.getStart(), route.getActivities().get(0)));
+    }
+
+    @Test
+    public void whenInsertingAtEndOfRoute_onlyDetourOfPreviousActivitiesShouldCount() {
+        assertEquals(ConstraintsStatus.FULFILLED, fulfilled(20., "near", route.getActivities().get(1), route.getEnd()));
+        assertEquals(ConstraintsStatus.NOT_FULFILLED, fulfilled(19., "near", route.getActivities().get(1), route.getEnd()));
+    }
+
+    /*
+     * checks the insertion of the delivery after the pickup has been inserted before the route activity at pickupIndex
+     */
+    private ConstraintsStatus deliveryFulfilled(double maxDetour, String shipmentId, int pickupIndex, double pickupEndTime, TourActivity prevAct, TourActivity nextAct, double prevActDepTime) {
+        MaxDetourConstraint constraint = new MaxDetourConstraint(stateManager, vrp.getTransportCosts(), maxDetour);
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get(shipmentId), vehicle, route.getDriver(), 0.);
+        List<AbstractActivity> acts = vrp.copyAndGetActivities(vrp.getJobs().get(shipmentId));
+        iFacts.getAssociatedActivities().add(acts.get(0));
+        iFacts.getAssociatedActivities().add(acts.get(1));
+        ActivityContext pickupContext = new ActivityContext();
+        pickupContext.setInsertionIndex(pickupIndex);
+        pickupContext.setEndTime(pickupEndTime);
+        iFacts.setRelatedActivityContext(pickupContext);
+        if (prevAct == null) prevAct = acts.get(0);
+        return constraint.fulfilled(iFacts, prevAct, acts.get(1), nextAct, prevActDepTime);
+    }
+
+    @Test
+    public void whenDeliveryFollowsPickup_combinedDetourOfActivitiesBeforePickupShouldBeChecked() {
+        //pickup alone increases detour of s1 from 20 to 26.18, pickup and delivery together to 20 + 5 + 5 + 14.14 - 10
+        TourActivity s2 = route.getActivities().get(1);
+        assertEquals(ConstraintsStatus.NOT_FULFILLED, deliveryFulfilled(30., "shipment", 1, 15., null, s2, 15.));
+        assertEquals(ConstraintsStatus.FULFILLED, deliveryFulfilled(35., "shipment", 1, 15., null, s2, 15.));
+    }
+
+    @Test
+    public void whenDeliveryIsInsertedAfterPickup_detourOfPickupShouldBeChecked() {
+        //detour of pickup is 5 + 30 - 5 without and 30 + 10 + 14.14 - 10 with delivery, s1's detour becomes 20 + 14.14
+        TourActivity s1 = route.getActivities().get(0);
+        TourActivity s2 = route.getActivities().get(1);
+        assertEquals(ConstraintsStatus.NOT_FULFILLED, deliveryFulfilled(40., "nearShipment", 0, 5., s1, s2, 10.));
+        assertEquals(ConstraintsStatus.FULFILLED, deliveryFulfilled(45., "nearShipment", 0, 5., s1, s2, 10.));
+    }
+
+    @Test
+    public void whenVehicleDoesNotReturnToDepot_itShouldBeFulfilled() {
+        VehicleImpl openVehicle = VehicleImpl.Builder.newInstance("open").setStartLocation(Location.newInstance(0, 0)).setReturnToDepot(false).build();
+        MaxDetourConstraint constraint = new MaxDetourConstraint(stateManager, vrp.getTransportCosts(), 0.);
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get("off"), openVehicle, route.getDriver(), 0.);
+        TourActivity newAct = vrp.copyAndGetActivities(vrp.getJobs().get("off")).get(0);
+        assertEquals(ConstraintsStatus.FULFILLED, constraint.fulfilled(iFacts, route.getActivities().get(0), newAct, route.getActivities().get(1), 0.));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxDetourIsNegative_itShouldThrowException() {
+        new MaxDetourConstraint(stateManager, vrp.getTransportCosts(), -1.);
+    }
+
+}
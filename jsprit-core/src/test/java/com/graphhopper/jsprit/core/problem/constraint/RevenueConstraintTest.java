@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.constraint;
+
+import com.graphhopper.jsprit.core.algorithm.RouteRevenueCostCalculator;
+import com.graphhopper.jsprit.core.algorithm.state.InternalStates;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.DistanceToEndRevenue;
+import com.graphhopper.jsprit.core.problem.cost.JobRevenues;
+import com.graphhopper.jsprit.core.problem.cost.RevenueFunction;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.util.EuclideanCosts;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class RevenueConstraintTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleImpl vehicle;
+
+    private VehicleImpl otherVehicle;
+
+    private VehicleRoute route;
+
+    private StateManager stateManager;
+
+    private RevenueFunction revenueFunction;
+
+    private RevenueConstraint revenueConstraint;
+
+    @Before
+    public void doBefore() {
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        otherVehicle = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance(0, 0))
+            .setEndLocation(Location.newInstance(20, 0)).build();
+        Service s1 = Service.Builder.newInstance("s1").addSizeDimension(0, 2).setLocation(Location.newInstance(10, 0)).build();
+        Service s2 = Service.Builder.newInstance("s2").addSizeDimension(0, 1).setLocation(Location.newInstance(20, 0)).build();
+        Service newService = Service.Builder.newInstance("new").addSizeDimension(0, 1).setLocation(Location.newInstance(30, 0)).build();
+        vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addVehicle(otherVehicle)
+            .addJob(s1).addJob(s2).addJob(newService).build();
+
+        route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory()).addService(s1).addService(s2).build();
+
+        revenueFunction = new DistanceToEndRevenue(new EuclideanCosts(), .5, 0);
+        stateManager = new StateManager(vrp);
+        stateManager.updateRevenueStates(revenueFunction);
+        stateManager.informInsertionStarts(Arrays.asList(route), null);
+        revenueConstraint = new RevenueConstraint(stateManager, revenueFunction);
+    }
+
+    @Test
+    public void routeRevenueShouldBeMemorized() {
+        //.5 * 10 * 2 + .5 * 20 * 1
+        assertEquals(20., stateManager.getRouteStateDouble(route, InternalStates.REVENUE), 0.01);
+    }
+
+    @Test
+    public void activityLevelCostsShouldBeNegativeRevenueOfNewActivity() {
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get("new"), vehicle, route.getDriver(), 0.);
+        TourActivity newAct = vrp.copyAndGetActivities(vrp.getJobs().get("new")).get(0);
+        assertEquals(-15., revenueConstraint.getCosts(iFacts, route.getActivities().get(1), newAct, route.getEnd(), 0.), 0.01);
+    }
+
+    @Test
+    public void whenVehicleIsNotSwitched_routeLevelCostsShouldBeZero() {
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get("new"), vehicle, route.getDriver(), 0.);
+        assertEquals(0., revenueConstraint.getCosts(iFacts), 0.01);
+    }
+
+    @Test
+    public void whenVehicleIsSwitched_routeLevelCostsShouldBeLostRevenueOfExistingActivities() {
+        JobInsertionContext iFacts = new JobInsertionContext(route, vrp.getJobs().get("new"), otherVehicle, route.getDriver(), 0.);
+        //revenue with otherVehicle is .5 * 10 * 2 + .5 * 0 * 1
+        assertEquals(10., revenueConstraint.getCosts(iFacts), 0.01);
+    }
+
+    @Test
+    public void routeCostsShouldBeNegativeRevenue() {
+        assertEquals(-20., new RouteRevenueCostCalculator(stateManager, revenueFunction).getCosts(route), 0.01);
+    }
+
+    @Test
+    public void whenRevenueStatesAreNotUpdated_routeCostsShouldBeCalculatedFromActivities() {
+        assertEquals(-20., new RouteRevenueCostCalculator(new StateManager(vrp), revenueFunction).getCosts(route), 0.01);
+    }
+
+    @Test
+    public void jobRevenuesShouldDelegateToRevenueFunctionOfJob() {
+        RevenueFunction fixedRevenue = new RevenueFunction() {
+
+            @Override
+            public double getRevenue(TourActivity activity, Vehicle vehicle) {
+                return 100.;
+            }
+
+        };
+        JobRevenues jobRevenues = JobRevenues.Builder.newInstance().addRevenueFunction(vrp.getJobs().get("s1"), fixedRevenue)
+            .setDefaultRevenueFunction(revenueFunction).build();
+        assertEquals(100., jobRevenues.getRevenue(route.getActivities().get(0), vehicle), 0.01);
+        assertEquals(10., jobRevenues.getRevenue(route.getActivities().get(1), vehicle), 0.01);
+        assertEquals(0., JobRevenues.Builder.newInstance().build().getRevenue(route.getActivities().get(1), vehicle), 0.01);
+    }
+
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.AbstractActivity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.*;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class VrpBinaryReaderTest {
+
+    @Test
+    public void whenWritingAndReadingProblemAndSolution_itShouldBeTheSameWithSameIndices() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 20).addCapacityDimension(1, 5)
+            .setCostPerDistance(2.).setFixedCost(100.).setCostPerWaitingTime(.5).setProfile("bike").build();
+        Location depot = Location.newInstance(0, 0);
+        VehicleImpl v1 = VehicleImpl.Builder.newInstance("v1").setType(type).setStartLocation(depot)
+            .setEndLocation(Location.Builder.newInstance().setId("end").setIndex(3).build()).setEarliestStart(10.).setLatestArrival(1000.)
+            .addSkill("drill").setBreak(Break.Builder.newInstance("v1").setServiceTime(30.).addTimeWindow(100., 200.).build()).build();
+        VehicleImpl v2 = VehicleImpl.Builder.newInstance("v2").setType(type).setStartLocation(depot).setReturnToDepot(false).build();
+        Service s1 = Service.Builder.newInstance("s1").addSizeDimension(0, 1).setName("cleaning").setServiceTime(5.)
+            .setLocation(Location.newInstance(1, 2)).addTimeWindow(TimeWindow.newInstance(0., 50.))
+            .addTimeWindow(TimeWindow.newInstance(60., 100.)).addRequiredSkill("drill").build();
+        Pickup p1 = (Pickup) Pickup.Builder.newInstance("p1").addSizeDimension(1, 2).setLocation(Location.newInstance(5, 5))
+            .setTimeWindow(TimeWindow.newInstance(3., 30.)).build();
+        Delivery d1 = (Delivery) Delivery.Builder.newInstance("d1").addSizeDimension(1, 2).setLocation(depot).build();
+        Shipment shipment = Shipment.Builder.newInstance("sh1").addSizeDimension(0, 3).setPickupLocation(Location.newInstance(1, 1))
+            .setDeliveryLocation(Location.newInstance(9, 9)).setPickupServiceTime(2.).setDeliveryServiceTime(4.)
+            .addPickupTimeWindow(0., 10.).addDeliveryTimeWindow(20., 30.).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addJob(s1).addVehicle(v1).addJob(p1).addJob(shipment).addVehicle(v2).addJob(d1).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(v1).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addPickup(shipment).addService(s1).addDelivery(shipment).build();
+        route.getTourActivities().addActivity(vrp.copyAndGetActivities(v1.getBreak()).get(0));
+        route.getActivities().get(1).setArrTime(42.);
+        route.getActivities().get(1).setEndTime(47.);
+        VehicleRoute openRoute = VehicleRoute.Builder.newInstance(v2).setJobActivityFactory(vrp.getJobActivityFactory())
+            .setDepartureTime(20.).addService(d1).build();
+        VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(Arrays.asList(route, openRoute), 123.5);
+        solution.getUnassignedJobs().add(p1);
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>(Arrays.asList(solution));
+
+        assertSameAfterWritingAndReading(vrp, solutions, true);
+    }
+
+    @Test
+    public void whenReadingProblemWithInitialRoutes_itShouldBeTheSameWithSameIndices() {
+        assertSameAfterWritingAndReading("src/test/resources/finiteVrpWithInitialSolutionForReaderTest.xml");
+        assertSameAfterWritingAndReading("src/test/resources/simpleProblem_inclShipments_iniRoutes.xml");
+    }
+
+    @Test
+    public void whenReadingSolutions_itShouldBeTheSameWithSameIndices() {
+        assertSameAfterWritingAndReading("src/test/resources/finiteVrpWithShipmentsAndSolution.xml");
+        assertSameAfterWritingAndReading("src/test/resources/pd_solomon_c101_sol.xml");
+        assertSameAfterWritingAndReading("src/test/resources/finiteVrpForReaderTest.xml");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenStreamIsNoSnapshot_itShouldThrowException() {
+        new VrpBinaryReader(VehicleRoutingProblem.Builder.newInstance()).read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenBuilderAlreadyContainsJobs_itShouldThrowException() {
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(1, 2)).build();
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(s1).addVehicle(v).build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VrpBinaryWriter(vrp).write(out);
+
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance()
+            .addJob(Service.Builder.newInstance("s0").setLocation(Location.newInstance(3, 3)).build());
+        new VrpBinaryReader(builder).read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameAfterWritingAndReading(String fileName) {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLReader(builder, solutions).read(fileName);
+        //activities of solutions read by VrpXMLReader are not created by the problem, thus they have no index
+        assertSameAfterWritingAndReading(builder.build(), solutions, false);
+    }
+
+    private static void assertSameAfterWritingAndReading(VehicleRoutingProblem vrp, List<VehicleRoutingProblemSolution> solutions,
+                                                         boolean solutionActivitiesHaveIndices) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VrpBinaryWriter(vrp, solutions).write(out);
+
+        List<VehicleRoutingProblemSolution> readSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+        VehicleRoutingProblem readVrp = new VrpBinaryReader(VehicleRoutingProblem.Builder.newInstance(), readSolutions)
+            .read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(VrpXMLStreamReaderTest.describe(vrp, solutions), VrpXMLStreamReaderTest.describe(readVrp, readSolutions));
+        if (!solutionActivitiesHaveIndices) solutions = readSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+        assertEquals(describeIndices(vrp, solutions), describeIndices(readVrp, readSolutions));
+    }
+
+    private static String describeIndices(VehicleRoutingProblem vrp, List<VehicleRoutingProblemSolution> solutions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(vrp.getNuLocations()).append(' ').append(vrp.getNuActivities()).append('\n');
+        for (Vehicle v : vrp.getVehicles()) {
+            sb.append(v.getId()).append(' ').append(v.getIndex()).append(' ').append(v.getVehicleTypeIdentifier().getIndex())
+                .append(' ').append(vrp.getLocationIndex(v.getStartLocation())).append(' ').append(vrp.getLocationIndex(v.getEndLocation()));
+            if (v.getBreak() != null) sb.append(' ').append(describe(vrp.getActivities(v.getBreak())));
+            sb.append('\n');
+        }
+        for (Job j : vrp.getJobs().values()) {
+            sb.append(j.getId()).append(' ').append(j.getIndex()).append(' ').append(describe(vrp.getActivities(j)));
+            if (j instanceof Service) sb.append(' ').append(vrp.getLocationIndex(((Service) j).getLocation()));
+            else {
+                sb.append(' ').append(vrp.getLocationIndex(((Shipment) j).getPickupLocation()))
+                    .append(' ').append(vrp.getLocationIndex(((Shipment) j).getDeliveryLocation()));
+            }
+            sb.append('\n');
+        }
+        List<VehicleRoute> routes = new ArrayList<VehicleRoute>(vrp.getInitialVehicleRoutes());
+        for (VehicleRoutingProblemSolution solution : solutions) routes.addAll(solution.getRoutes());
+        for (VehicleRoute route : routes) {
+            sb.append(route.getVehicle().getId()).append(' ').append(route.getEnd().getLocation().getId())
+                .append(' ').append(route.getEnd().getArrTime());
+            for (TourActivity act : route.getActivities()) {
+                sb.append(' ').append(act.getIndex()).append(':').append(act.getTheoreticalEarliestOperationStartTime())
+                    .append('-').append(act.getTheoreticalLatestOperationStartTime()).append(':').append(act.getArrTime())
+                    .append('-').append(act.getEndTime());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(List<AbstractActivity> acts) {
+        StringBuilder sb = new StringBuilder();
+        for (AbstractActivity act : acts) sb.append(act.getName()).append(':').append(act.getIndex()).append(' ');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+public class VrpXMLStreamReaderSchemaTest {
+
+    @Test(expected = RuntimeException.class)
+    public void whenFileViolatesSchema_itShouldThrowException() {
+        String xml = "<problem xmlns=\"http://www.w3schools.com\"><vehicles><vehicle><typeId>t</typeId></vehicle></vehicles></problem>";
+        new VrpXMLStreamReader(VehicleRoutingProblem.Builder.newInstance()).read(new ByteArrayInputStream(xml.getBytes()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void whenReadingAlgorithmConfig_itShouldThrowException() {
+        new VrpXMLStreamReader(VehicleRoutingProblem.Builder.newInstance()).read("src/test/resources/algorithmConfig.xml");
+    }
+
+}
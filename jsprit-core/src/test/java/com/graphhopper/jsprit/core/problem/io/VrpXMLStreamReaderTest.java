@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads every problem file of the test resources with both readers and compares the results.
+ */
+@RunWith(Parameterized.class)
+public class VrpXMLStreamReaderTest {
+
+    private static final String RESOURCES = "src/test/resources";
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> problemFiles() throws Exception {
+        List<Object[]> files = new ArrayList<Object[]>();
+        File[] candidates = new File(RESOURCES).listFiles();
+        Arrays.sort(candidates);
+        for (File file : candidates) {
+            if (file.getName().endsWith(".xml") && isProblemFile(file)) files.add(new Object[]{file.getPath()});
+        }
+        return files;
+    }
+
+    /**
+     * VrpXMLReader reads all files of the resources without complaint, but only those with a problem root element
+     * describe a problem (the others are algorithm configs).
+     */
+    private static boolean isProblemFile(File file) throws Exception {
+        InputStream in = new FileInputStream(file);
+        try {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) return "problem".equals(reader.getLocalName());
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private final String fileName;
+
+    public VrpXMLStreamReaderTest(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Test
+    public void whenReadingFile_itShouldReadSameAsVrpXMLReader() {
+        VehicleRoutingProblem.Builder expectedBuilder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> expectedSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLReader(expectedBuilder, expectedSolutions).read(fileName);
+
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLStreamReader(builder, solutions).read(fileName);
+
+        assertEquals(fileName, describe(expectedBuilder.build(), expectedSolutions), describe(builder.build(), solutions));
+    }
+
+    static String describe(VehicleRoutingProblem vrp, List<VehicleRoutingProblemSolution> solutions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(vrp.getFleetSize()).append('\n');
+        for (Vehicle v : vrp.getVehicles()) {
+            sb.append(v.getId()).append(' ').append(v.getType().getTypeId()).append(' ').append(v.getType().getCapacityDimensions())
+                .append(' ').append(v.getType().getVehicleCostParams()).append(' ').append(describe(v.getStartLocation()))
+                .append(' ').append(describe(v.getEndLocation())).append(' ').append(v.getEarliestDeparture())
+                .append(' ').append(v.getLatestArrival()).append(' ').append(v.isReturnToDepot()).append(' ').append(v.getSkills().values());
+            if (v.getBreak() != null)
+                sb.append(" break ").append(v.getBreak().getServiceDuration()).append(v.getBreak().getTimeWindows());
+            sb.append('\n');
+        }
+        for (Job j : vrp.getJobs().values()) {
+            sb.append(j.getClass().getSimpleName()).append(' ').append(j.getId()).append(' ').append(j.getName()).append(' ')
+                .append(j.getSize()).append(' ').append(j.getRequiredSkills().values());
+            if (j instanceof Service) {
+                Service s = (Service) j;
+                sb.append(' ').append(describe(s.getLocation())).append(' ').append(s.getServiceDuration()).append(s.getTimeWindows());
+            } else {
+                Shipment s = (Shipment) j;
+                sb.append(' ').append(describe(s.getPickupLocation())).append(' ').append(s.getPickupServiceTime()).append(s.getPickupTimeWindows())
+                    .append(' ').append(describe(s.getDeliveryLocation())).append(' ').append(s.getDeliveryServiceTime()).append(s.getDeliveryTimeWindows());
+            }
+            sb.append('\n');
+        }
+        for (VehicleRoute route : vrp.getInitialVehicleRoutes()) sb.append(describe(route)).append('\n');
+        for (VehicleRoutingProblemSolution solution : solutions) {
+            sb.append("solution ").append(solution.getCost()).append('\n');
+            for (VehicleRoute route : solution.getRoutes()) sb.append(describe(route)).append('\n');
+            for (Job j : solution.getUnassignedJobs()) sb.append("unassigned ").append(j.getId()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Location location) {
+        return location.getId() + "/" + location.getCoordinate() + "/" + location.getIndex();
+    }
+
+    private static String describe(VehicleRoute route) {
+        StringBuilder sb = new StringBuilder(route.getVehicle().getId()).append(' ').append(route.getDepartureTime());
+        for (TourActivity act : route.getActivities()) {
+            sb.append(' ').append(act.getName()).append(':').append(((TourActivity.JobActivity) act).getJob().getId());
+        }
+        return sb.toString();
+    }
+
+}
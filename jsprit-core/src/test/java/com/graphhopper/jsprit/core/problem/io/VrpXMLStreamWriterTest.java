@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.problem.io;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class VrpXMLStreamWriterTest {
+
+    @Test
+    public void whenWritingAndReadingProblemAndSolution_itShouldBeTheSame() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 20).addCapacityDimension(1, 5)
+            .setCostPerDistance(2.).setFixedCost(100.).build();
+        VehicleImpl v1 = VehicleImpl.Builder.newInstance("v1").setType(type).setStartLocation(Location.newInstance(0, 0))
+            .setEndLocation(Location.Builder.newInstance().setId("end").setIndex(3).build()).setEarliestStart(10.).setLatestArrival(1000.)
+            .addSkill("drill").setBreak(Break.Builder.newInstance("v1").setServiceTime(30.).addTimeWindow(100., 200.).build()).build();
+        VehicleImpl v2 = VehicleImpl.Builder.newInstance("v2").setType(type).setStartLocation(Location.newInstance("depot"))
+            .setReturnToDepot(false).build();
+        Service s1 = Service.Builder.newInstance("s1").addSizeDimension(0, 1).setName("cleaning").setServiceTime(5.)
+            .setLocation(Location.Builder.newInstance().setId("s1").setCoordinate(com.graphhopper.jsprit.core.util.Coordinate.newInstance(1., 2.)).build())
+            .addTimeWindow(TimeWindow.newInstance(0., 50.)).addTimeWindow(TimeWindow.newInstance(60., 100.)).addRequiredSkill("drill").build();
+        Service s2 = Service.Builder.newInstance("s2").addSizeDimension(1, 2).setLocation(Location.newInstance(5, 5)).build();
+        Shipment shipment = Shipment.Builder.newInstance("sh1").addSizeDimension(0, 3).setPickupLocation(Location.newInstance(1, 1))
+            .setDeliveryLocation(Location.newInstance(9, 9)).setPickupServiceTime(2.).setDeliveryServiceTime(4.)
+            .addPickupTimeWindow(0., 10.).addDeliveryTimeWindow(20., 30.).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(v1).addVehicle(v2).addJob(s1).addJob(s2).addJob(shipment).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(v1).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addPickup(shipment).addService(s1).addDelivery(shipment).build();
+        VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(Arrays.asList(route), 123.5);
+        solution.getUnassignedJobs().add(s2);
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>(Arrays.asList(solution));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VrpXMLStreamWriter(vrp, solutions).write(out);
+
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> readSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLStreamReader(builder, readSolutions).read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(VrpXMLStreamReaderTest.describe(vrp, solutions), VrpXMLStreamReaderTest.describe(builder.build(), readSolutions));
+    }
+
+    @Test
+    public void whenWritingProblem_vrpXMLReaderShouldReadIt() {
+        VehicleRoutingProblem.Builder expectedBuilder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> solutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLReader(expectedBuilder, solutions).read("src/test/resources/finiteVrpWithShipmentsAndSolution.xml");
+        VehicleRoutingProblem vrp = expectedBuilder.build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VrpXMLStreamWriter(vrp, solutions).write(out);
+
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        List<VehicleRoutingProblemSolution> readSolutions = new ArrayList<VehicleRoutingProblemSolution>();
+        new VrpXMLReader(builder, readSolutions).read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(VrpXMLStreamReaderTest.describe(vrp, solutions), VrpXMLStreamReaderTest.describe(builder.build(), readSolutions));
+    }
+
+}
@@ -35,6 +35,7 @@ import org.junit.Test;
 import java.util.Iterator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 
@@ -350,4 +351,16 @@ public class TestVehicleRoute {
         assertTrue(((TourActivity.JobActivity) act).getJob() instanceof Delivery);
 
     }
+
+    @Test
+    public void whenSettingVehicleOfCopiedRoute_originalActivitiesShouldNotBeShared() {
+        Service service = Service.Builder.newInstance("s").setLocation(Location.newInstance("loc")).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).addService(service).build();
+        VehicleRoute copiedRoute = VehicleRoute.copyOf(route);
+        VehicleImpl otherVehicle = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("loc2")).build();
+        copiedRoute.setVehicleAndDepartureTime(otherVehicle, 10.);
+        copiedRoute.getActivities().get(0).setArrTime(100.);
+        assertNotSame(route.getActivities().get(0), copiedRoute.getActivities().get(0));
+        assertEquals(0., route.getActivities().get(0).getArrTime(), 0.);
+    }
 }
@@ -22,6 +22,9 @@ import com.graphhopper.jsprit.core.problem.job.Shipment;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 
@@ -234,4 +237,92 @@ public class TestTourActivities {
         assertTrue(copiedTour.servesJob(s));
     }
 
+    @Test
+    public void whenCopyingTour_copyShouldShareActivitiesUntilItIsModified() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        assertSame(act, copiedTour.getActivities().get(0));
+        assertEquals(tour.getModificationStamp(), copiedTour.getModificationStamp());
+
+        Service service2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance("loc2")).build();
+        copiedTour.addActivity(ServiceActivity.newInstance(service2));
+        assertNotSame(act, copiedTour.getActivities().get(0));
+        assertTrue(tour.getModificationStamp() != copiedTour.getModificationStamp());
+        assertEquals(2, copiedTour.getActivities().size());
+        assertTrue(copiedTour.servesJob(service2));
+        assertEquals(1, tour.getActivities().size());
+        assertFalse(tour.servesJob(service2));
+    }
+
+    @Test
+    public void whenModifyingOriginalTour_copyShouldNotChange() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        tour.removeJob(service);
+        assertTrue(tour.isEmpty());
+        assertEquals(1, copiedTour.getActivities().size());
+        assertTrue(copiedTour.servesJob(service));
+        assertSame(act, copiedTour.getActivities().get(0));
+    }
+
+    @Test
+    public void whenRemovingActivityOfSharedTour_itShouldBeRemovedFromCopyOnly() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        TourActivity actOfCopy = copiedTour.getActivities().get(0);
+        assertTrue(copiedTour.removeActivity(actOfCopy));
+        assertTrue(copiedTour.isEmpty());
+        assertFalse(copiedTour.servesJob(service));
+        assertTrue(tour.servesJob(service));
+    }
+
+    @Test
+    public void whenTourIsModified_previouslyReturnedActivityListShouldReflectModification() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        List<TourActivity> acts = copiedTour.getActivities();
+        copiedTour.addActivity(ServiceActivity.newInstance(Service.Builder.newInstance("s2").setLocation(Location.newInstance("loc2")).build()));
+        assertEquals(2, acts.size());
+    }
+
+    @Test
+    public void whenSettingAttributesOfUnmodifiedCopy_originalShouldShareThem() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        copiedTour.getActivities().get(0).setArrTime(100.);
+        assertEquals(100., tour.getActivities().get(0).getArrTime(), 0.);
+    }
+
+    @Test
+    public void whenSettingAttributesOfCopyWithOwnActivities_originalShouldNotChange() {
+        act.setArrTime(10.);
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        copiedTour.ensureOwnActivities();
+        copiedTour.getActivities().get(0).setArrTime(100.);
+        assertEquals(10., tour.getActivities().get(0).getArrTime(), 0.);
+        assertEquals(100., copiedTour.getActivities().get(0).getArrTime(), 0.);
+        assertEquals(tour.getModificationStamp(), copiedTour.getModificationStamp());
+    }
+
+    @Test
+    public void whenSettingAttributesOfModifiedCopy_originalShouldNotChange() {
+        act.setArrTime(10.);
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        copiedTour.addActivity(ServiceActivity.newInstance(Service.Builder.newInstance("s2").setLocation(Location.newInstance("loc2")).build()));
+        for (TourActivity actOfCopy : copiedTour.getActivities()) {
+            actOfCopy.setArrTime(100.);
+        }
+        assertEquals(10., act.getArrTime(), 0.);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void whenTourIsModifiedWhileIterating_iteratorShouldFailFast() {
+        tour.addActivity(act);
+        TourActivities copiedTour = TourActivities.copyOf(tour);
+        for (TourActivity ignored : copiedTour.getActivities()) {
+            copiedTour.addActivity(ServiceActivity.newInstance(Service.Builder.newInstance("s2").setLocation(Location.newInstance("loc2")).build()));
+        }
+    }
 }
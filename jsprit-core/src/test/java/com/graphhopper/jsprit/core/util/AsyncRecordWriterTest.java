@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRecordWriterTest {
+
+    private List<String> readLines(InputStream is) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+        List<String> lines = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null) lines.add(line);
+        reader.close();
+        return lines;
+    }
+
+    @Test
+    public void whenRecordingFromSeveralThreadsWithBlockPolicy_allRecordsShouldBeWritten() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        final AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setCapacity(8)
+            .setOverflowPolicy(AsyncRecordWriter.OverflowPolicy.BLOCK).setAppend(false).build();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) writer.record(thread + "_" + i + "\n");
+                }
+            });
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        writer.close();
+        List<String> lines = readLines(new FileInputStream(file));
+        assertEquals(4000, lines.size());
+        assertEquals(0, writer.getNoDroppedRecords());
+        for (int t = 0; t < 4; t++) {
+            int last = -1;
+            for (String line : lines) {
+                if (!line.startsWith(t + "_")) continue;
+                int i = Integer.parseInt(line.substring(line.indexOf('_') + 1));
+                assertEquals(last + 1, i);
+                last = i;
+            }
+            assertEquals(999, last);
+        }
+    }
+
+    @Test
+    public void whenClosingWhileRecording_allAcceptedRecordsShouldBeWritten() throws Exception {
+        for (int run = 0; run < 20; run++) {
+            File file = File.createTempFile("records", ".txt");
+            file.deleteOnExit();
+            final AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setCapacity(16)
+                .setOverflowPolicy(AsyncRecordWriter.OverflowPolicy.BLOCK).setAppend(false).build();
+            final AtomicInteger noAccepted = new AtomicInteger();
+            final CountDownLatch recording = new CountDownLatch(4);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(new Thread() {
+                    public void run() {
+                        recording.countDown();
+                        for (int i = 0; i < 100000; i++) {
+                            if (writer.record("r\n")) noAccepted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (Thread thread : threads) thread.start();
+            recording.await();
+            writer.close();
+            for (Thread thread : threads) thread.join();
+            assertEquals(noAccepted.get(), readLines(new FileInputStream(file)).size());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void whenRecordThrowsRuntimeException_onlyThisRecordShouldBeDropped() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setCapacity(1)
+            .setOverflowPolicy(AsyncRecordWriter.OverflowPolicy.BLOCK).setAppend(false).build();
+        assertTrue(writer.record("first\n"));
+        assertTrue(writer.record(new AsyncRecordWriter.Record() {
+
+            @Override
+            public void writeTo(Writer w) throws IOException {
+                w.write("partial");
+                throw new IllegalStateException("cannot format record");
+            }
+
+        }));
+        for (int i = 0; i < 1000; i++) assertTrue(writer.record(i + "\n"));
+        writer.close();
+        assertEquals(1, writer.getNoDroppedRecords());
+        List<String> lines = readLines(new FileInputStream(file));
+        assertEquals(1001, lines.size());
+        assertEquals("first", lines.get(0));
+        for (int i = 0; i < 1000; i++) assertEquals(String.valueOf(i), lines.get(i + 1));
+    }
+
+    @Test
+    public void whenCapacityIsOne_recordsShouldNotBeOverwritten() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setCapacity(1)
+            .setOverflowPolicy(AsyncRecordWriter.OverflowPolicy.BLOCK).setAppend(false).build();
+        for (int i = 0; i < 1000; i++) assertTrue(writer.record(i + "\n"));
+        writer.close();
+        List<String> lines = readLines(new FileInputStream(file));
+        assertEquals(1000, lines.size());
+        for (int i = 0; i < 1000; i++) assertEquals(String.valueOf(i), lines.get(i));
+    }
+
+    private static boolean isWriterThreadAlive(File file) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("record-writer[" + file.getName() + "]") && thread.isAlive()) return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void writerThreadShouldBeStartedWithFirstRecordAndStoppedByClose() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setAppend(false).build();
+        assertFalse(isWriterThreadAlive(file));
+        writer.record("a\n");
+        assertTrue(isWriterThreadAlive(file));
+        writer.close();
+        assertFalse(isWriterThreadAlive(file));
+        assertEquals(1, readLines(new FileInputStream(file)).size());
+    }
+
+    @Test(timeout = 30000)
+    public void whenBufferIsEmpty_writerThreadShouldWaitWithoutTimeout() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setAppend(false).build();
+        writer.record("a\n");
+        Thread writerThread = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("record-writer[" + file.getName() + "]")) writerThread = thread;
+        }
+        while (writerThread.getState() != Thread.State.WAITING) Thread.sleep(1);
+        writer.record("b\n");
+        writer.close();
+        assertEquals(2, readLines(new FileInputStream(file)).size());
+    }
+
+    @Test
+    public void whenClosingWithoutRecords_fileShouldBeClosed() throws Exception {
+        File file = File.createTempFile("records", ".txt.gz");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setGzip(true).setAppend(false).build();
+        writer.close();
+        assertFalse(isWriterThreadAlive(file));
+        assertEquals(0, readLines(new GZIPInputStream(new FileInputStream(file))).size());
+    }
+
+    @Test
+    public void whenGzip_fileShouldBeCompressed() throws Exception {
+        File file = File.createTempFile("records", ".txt.gz");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setGzip(true).setAppend(false).build();
+        writer.record("a\n");
+        writer.record("b\n");
+        writer.close();
+        List<String> lines = readLines(new GZIPInputStream(new FileInputStream(file)));
+        assertEquals(2, lines.size());
+        assertEquals("a", lines.get(0));
+        assertEquals("b", lines.get(1));
+    }
+
+    @Test
+    public void whenBufferIsFullWithDropPolicy_recordsShouldBeDropped() throws Exception {
+        File file = File.createTempFile("records", ".txt");
+        file.deleteOnExit();
+        AsyncRecordWriter writer = AsyncRecordWriter.Builder.newInstance(file).setCapacity(2)
+            .setOverflowPolicy(AsyncRecordWriter.OverflowPolicy.DROP).setAppend(false).build();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        writer.record(new AsyncRecordWriter.Record() {
+
+            @Override
+            public void writeTo(Writer w) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                w.write("blocking\n");
+            }
+
+        });
+        writing.await();
+        assertTrue(writer.record("1\n"));
+        assertTrue(writer.record("2\n"));
+        assertFalse(writer.record("3\n"));
+        assertEquals(1, writer.getNoDroppedRecords());
+        release.countDown();
+        writer.close();
+        assertFalse(writer.record("4\n"));
+        List<String> lines = readLines(new FileInputStream(file));
+        assertEquals(3, lines.size());
+    }
+
+}
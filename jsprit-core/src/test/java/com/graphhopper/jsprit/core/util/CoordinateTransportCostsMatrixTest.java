@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.TransportDistance;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoordinateTransportCostsMatrixTest {
+
+    private Location start;
+
+    private Location loc1;
+
+    private Location loc2;
+
+    private VehicleImpl vehicle;
+
+    private VehicleRoutingProblem.Builder vrpBuilder;
+
+    @Before
+    public void doBefore() {
+        start = Location.newInstance(13.3, 52.5);
+        loc1 = Location.newInstance(13.4, 52.6);
+        loc2 = Location.newInstance(13.2, 52.4);
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(start)
+            .setType(VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(2.).build()).build();
+        vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(Service.Builder.newInstance("s1").setLocation(loc1).build())
+            .addJob(Service.Builder.newInstance("s2").setLocation(loc2).build());
+    }
+
+    @Test
+    public void whenBuildingProblem_locationsShouldBeIndexedDensely() {
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+        assertEquals(3, vrp.getNuLocations());
+        assertTrue(vrp.getLocationIndex(start) >= 0 && vrp.getLocationIndex(start) < 3);
+        assertTrue(vrp.getLocationIndex(loc1) >= 0 && vrp.getLocationIndex(loc1) < 3);
+        assertTrue(vrp.getLocationIndex(loc2) >= 0 && vrp.getLocationIndex(loc2) < 3);
+        assertTrue(vrp.getLocationIndex(loc1) != vrp.getLocationIndex(loc2));
+        assertEquals(Location.NO_INDEX, vrp.getLocationIndex(Location.newInstance(13.3, 52.5)));
+    }
+
+    @Test
+    public void whenBuildingSecondProblemFromSameLocations_indicesOfFirstProblemShouldNotChange() {
+        GreatCircleCosts greatCircleCosts = new GreatCircleCosts(DistanceUnit.Meter, 5, 1.6);
+        VehicleRoutingProblem vrp = vrpBuilder.setRoutingCost(greatCircleCosts).cacheRoutingCosts(false).build();
+        int startIndex = vrp.getLocationIndex(start);
+        int loc1Index = vrp.getLocationIndex(loc1);
+        int loc2Index = vrp.getLocationIndex(loc2);
+        VehicleRoutingProblem other = VehicleRoutingProblem.Builder.newInstance()
+            .addJob(Service.Builder.newInstance("s2").setLocation(loc2).build())
+            .addJob(Service.Builder.newInstance("s1").setLocation(loc1).build())
+            .addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(start)
+                .setType(VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(2.).build()).build())
+            .setRoutingCost(greatCircleCosts).cacheRoutingCosts(false).build();
+        assertEquals(0, other.getLocationIndex(loc2));
+        assertEquals(startIndex, vrp.getLocationIndex(start));
+        assertEquals(loc1Index, vrp.getLocationIndex(loc1));
+        assertEquals(loc2Index, vrp.getLocationIndex(loc2));
+        assertSameValues(greatCircleCosts, (CoordinateTransportCostsMatrix) vrp.getTransportCosts());
+        assertSameValues(greatCircleCosts, (CoordinateTransportCostsMatrix) other.getTransportCosts());
+    }
+
+    @Test
+    public void whenCachingLazily_itShouldReturnSameValuesAsUnderlyingCosts() {
+        GreatCircleCosts greatCircleCosts = new GreatCircleCosts(DistanceUnit.Meter, 5, 1.6);
+        VehicleRoutingProblem vrp = vrpBuilder.setRoutingCost(greatCircleCosts).cacheRoutingCosts(false).build();
+        assertTrue(vrp.getTransportCosts() instanceof CoordinateTransportCostsMatrix);
+        assertSameValues(greatCircleCosts, (CoordinateTransportCostsMatrix) vrp.getTransportCosts());
+    }
+
+    @Test
+    public void whenPrecomputing_itShouldReturnSameValuesAsUnderlyingCosts() {
+        EuclideanCosts euclideanCosts = new EuclideanCosts();
+        VehicleRoutingProblem vrp = vrpBuilder.setRoutingCost(euclideanCosts).cacheRoutingCosts(true).build();
+        assertSameValues(euclideanCosts, (CoordinateTransportCostsMatrix) vrp.getTransportCosts());
+    }
+
+    @Test
+    public void whenLocationIsNotIndexed_itShouldDelegateToUnderlyingCosts() {
+        ManhattanCosts manhattanCosts = new ManhattanCosts();
+        VehicleRoutingProblem vrp = vrpBuilder.setRoutingCost(manhattanCosts).cacheRoutingCosts(false).build();
+        Location other = Location.newInstance(13.0, 52.0);
+        assertEquals(manhattanCosts.getTransportCost(other, loc1, 0., null, vehicle),
+            vrp.getTransportCosts().getTransportCost(other, loc1, 0., null, vehicle), 0.);
+        assertEquals(manhattanCosts.getTransportTime(loc2, other, 0., null, vehicle),
+            vrp.getTransportCosts().getTransportTime(loc2, other, 0., null, vehicle), 0.);
+    }
+
+    @Test
+    public void indexOfMatrixShouldBeProblemIndex() {
+        VehicleRoutingProblem vrp = vrpBuilder.setRoutingCost(new EuclideanCosts()).cacheRoutingCosts(true).build();
+        CoordinateTransportCostsMatrix matrix = (CoordinateTransportCostsMatrix) vrp.getTransportCosts();
+        for (Location location : new Location[]{start, loc1, loc2}) {
+            assertEquals(vrp.getLocationIndex(location), matrix.getIndex(location));
+        }
+        assertEquals(-1, matrix.getIndex(Location.newInstance(13.3, 52.5)));
+        assertEquals(-1, matrix.getIndex(null));
+    }
+
+    @Test
+    public void whenThereAreManyLocations_eachShouldBeFoundAtItsIndex() {
+        List<Location> locations = new ArrayList<Location>();
+        for (int i = 0; i < 1000; i++) locations.add(Location.newInstance(i % 37, i / 37));
+        EuclideanCosts euclideanCosts = new EuclideanCosts();
+        CoordinateTransportCostsMatrix matrix = new CoordinateTransportCostsMatrix(euclideanCosts, locations, false);
+        for (int i = 0; i < locations.size(); i++) assertEquals(i, matrix.getIndex(locations.get(i)));
+        assertEquals(euclideanCosts.getDistance(locations.get(3), locations.get(999)), matrix.getDistance(3, 999), 0.);
+    }
+
+    @Test
+    public void whenSolvingWithCachedCosts_solutionShouldNotChange() {
+        assertEquals(solve(false), solve(true), 0.);
+    }
+
+    private double solve(boolean cacheRoutingCosts) {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance().setRoutingCost(new EuclideanCosts());
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 8).setCostPerDistance(2.).build();
+        for (int v = 0; v < 4; v++) {
+            builder.addVehicle(VehicleImpl.Builder.newInstance("v" + v).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        for (int i = 0; i < 30; i++) {
+            builder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).addTimeWindow(i * 5, i * 5 + 150)
+                .setLocation(Location.newInstance((i * 37) % 100, (i * 61) % 100)).build());
+        }
+        builder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        if (cacheRoutingCosts) builder.cacheRoutingCosts(true);
+        VehicleRoutingProblem vrp = builder.build();
+        RandomNumberGeneration.reset();
+        VehicleRoutingAlgorithm vra = Jsprit.createAlgorithm(vrp);
+        vra.setMaxIterations(100);
+        return Solutions.bestOf(vra.searchSolutions()).getCost();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCachingCostsThatAreNotCoordinateBased_itShouldThrowException() {
+        vrpBuilder.setRoutingCost(VehicleRoutingTransportCostsMatrix.Builder.newInstance(true).build()).cacheRoutingCosts(false).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCachingMatrixThatImplementsTransportDistance_itShouldThrowException() {
+        //its costs consider time as well, thus they cannot be derived from distance
+        vrpBuilder.setRoutingCost(FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, true).build()).cacheRoutingCosts(false).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCachingSubclassOfCoordinateBasedCosts_itShouldThrowException() {
+        vrpBuilder.setRoutingCost(new EuclideanCosts() {
+
+            @Override
+            public double getTransportCost(Location from, Location to, double time, Driver driver, Vehicle vehicle) {
+                return 2. * super.getTransportCost(from, to, time, driver, vehicle);
+            }
+
+        }).cacheRoutingCosts(false).build();
+    }
+
+    private <T extends VehicleRoutingTransportCosts & TransportDistance> void assertSameValues(T expected, CoordinateTransportCostsMatrix matrix) {
+        Location[] locations = new Location[]{start, loc1, loc2};
+        for (Location from : locations) {
+            for (Location to : locations) {
+                assertEquals(expected.getDistance(from, to), matrix.getDistance(from, to), 0.);
+                assertEquals(expected.getTransportTime(from, to, 0., null, vehicle), matrix.getTransportTime(from, to, 0., null, vehicle), 0.);
+                assertEquals(expected.getTransportCost(from, to, 0., null, vehicle), matrix.getTransportCost(from, to, 0., null, vehicle), 0.);
+                assertEquals(expected.getTransportCost(from, to, 0., null, null), matrix.getTransportCost(from, to, 0., null, null), 0.);
+                int fromIndex = matrix.getIndex(from);
+                int toIndex = matrix.getIndex(to);
+                assertEquals(expected.getDistance(from, to), matrix.getDistance(fromIndex, toIndex), 0.);
+                assertEquals(expected.getTransportTime(from, to, 0., null, vehicle), matrix.getTransportTime(fromIndex, toIndex), 0.);
+                assertEquals(expected.getTransportCost(from, to, 0., null, vehicle), matrix.getTransportCost(fromIndex, toIndex, vehicle), 0.);
+            }
+        }
+    }
+
+}
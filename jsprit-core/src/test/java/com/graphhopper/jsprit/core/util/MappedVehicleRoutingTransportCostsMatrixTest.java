@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2014  Stefan Schroeder
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.MappedVehicleRoutingTransportCostsMatrix.Precision;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedVehicleRoutingTransportCostsMatrixTest {
+
+    private File createMatrixFile(boolean isSymmetric, Precision precision) throws IOException {
+        File file = File.createTempFile("matrix", ".bin");
+        file.deleteOnExit();
+        MappedVehicleRoutingTransportCostsMatrixWriter writer = MappedVehicleRoutingTransportCostsMatrixWriter.newInstance(file, 3, isSymmetric, precision);
+        writer.addTransportDistance(1, 2, 20.).addTransportTime(1, 2, 2.);
+        writer.addTransportDistance(0, 1, 10.).addTransportTime(0, 1, 1.);
+        if (!isSymmetric) {
+            writer.addTransportDistance(2, 1, 30.).addTransportTime(2, 1, 3.);
+        }
+        writer.close();
+        return file;
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    @Test
+    public void whenWritingSymmetricMatrix_itShouldReturnSameValuesInBothDirections() throws IOException {
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(createMatrixFile(true, Precision.DOUBLE));
+        assertTrue(matrix.isSymmetric());
+        assertEquals(3, matrix.getNoLocations());
+        assertEquals(20., matrix.getDistance(1, 2), 0.);
+        assertEquals(20., matrix.getDistance(2, 1), 0.);
+        assertEquals(2., matrix.getTransportTime(loc(2), loc(1), 0., null, null), 0.);
+        assertEquals(10., matrix.getDistance(loc(1), loc(0)), 0.);
+        assertEquals(0., matrix.getDistance(2, 2), 0.);
+    }
+
+    @Test
+    public void whenWritingAsymmetricMatrix_itShouldReturnCorrectValues() throws IOException {
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(createMatrixFile(false, Precision.DOUBLE));
+        assertEquals(20., matrix.getDistance(1, 2), 0.);
+        assertEquals(30., matrix.getDistance(2, 1), 0.);
+        assertEquals(3., matrix.getTransportTime(2, 1), 0.);
+        assertEquals(0., matrix.getDistance(1, 0), 0.);
+    }
+
+    @Test
+    public void whenWritingWithFloatPrecision_itShouldReturnCorrectValues() throws IOException {
+        File file = createMatrixFile(true, Precision.FLOAT);
+        assertEquals(16 + 6 * 2 * 4, file.length());
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(file);
+        assertEquals(Precision.FLOAT, matrix.getPrecision());
+        assertEquals(20., matrix.getDistance(2, 1), 0.);
+        assertEquals(2., matrix.getTransportTime(1, 2), 0.);
+    }
+
+    @Test
+    public void whenVehicleIsGiven_costsShouldConsiderDistanceAndTime() throws IOException {
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(createMatrixFile(true, Precision.DOUBLE));
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(loc(0))
+            .setType(VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(1.).setCostPerTime(2.).build()).build();
+        assertEquals(24., matrix.getTransportCost(loc(1), loc(2), 0., null, vehicle), 0.);
+        assertEquals(20., matrix.getTransportCost(loc(1), loc(2), 0., null, null), 0.);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenIndexIsOutOfBounds_itShouldThrowException() throws IOException {
+        MappedVehicleRoutingTransportCostsMatrix matrix = MappedVehicleRoutingTransportCostsMatrix.open(createMatrixFile(true, Precision.DOUBLE));
+        matrix.getDistance(0, 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenFileIsNoMatrixFile_itShouldThrowException() throws IOException {
+        File file = File.createTempFile("matrix", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[32]);
+        out.close();
+        MappedVehicleRoutingTransportCostsMatrix.open(file);
+    }
+
+}